@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.common;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+
+/**
+ * Utility methods for the message digests used to compute cache keys and to detect modified
+ * files.
+ */
+public final class Digests
+{
+    static private final String DIGEST_ALGORITHM = "SHA-256";
+    static private final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+
+    /**
+     * Private constructor to disallow instantiations of utility method class.
+     */
+    private Digests()
+    {
+        // Empty default ctor, defined to override access scope.
+    }
+
+
+    /**
+     * Create a SHA-256 message digest.
+     *
+     * @return  A new {@code MessageDigest}, never null.
+     */
+    static public MessageDigest createDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // All Java platform implementations are required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    /**
+     * Convert a byte array to a string of hexadecimal digits.
+     *
+     * @param pBytes    The bytes to convert.
+     *
+     * @return  The hexadecimal string, never null.
+     *
+     * @throws NullPointerException if {@code pBytes} is null.
+     */
+    static public String toHexString(byte[] pBytes)
+    {
+        char[] aChars = new char[pBytes.length * 2];
+        for (int i=0; i<pBytes.length; i++)
+        {
+            aChars[i * 2] = HEX_DIGITS[(pBytes[i] >> 4) & 0x0f];
+            aChars[i * 2 + 1] = HEX_DIGITS[pBytes[i] & 0x0f];
+        }
+
+        return new String(aChars);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gradle.api.file.FileCollection;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
+
+
+/**
+ * Specification of how an external tool should be run through the Gradle Worker API.
+ */
+public class ExternalToolWorkerSpec
+{
+    private WorkerIsolation fIsolation = WorkerIsolation.NONE;
+    private String fMaxHeapSize;
+    private List<String> fJvmArgs = new ArrayList<>();
+
+
+    /**
+     * Get the isolation mode to run the external tool with. Default is
+     * {@link WorkerIsolation#NONE}, meaning that the tool is not run through the Worker API.
+     *
+     * @return  The isolation mode, never null.
+     */
+    public WorkerIsolation getIsolation()
+    {
+        return fIsolation;
+    }
+
+
+    public void setIsolation(WorkerIsolation pIsolation)
+    {
+        fIsolation = pIsolation != null ? pIsolation : WorkerIsolation.NONE;
+    }
+
+
+    /**
+     * Get the maximum heap size of the worker process, e.g. &quot;2g&quot;. Only used when the
+     * isolation mode is {@link WorkerIsolation#PROCESS}. Default is null, meaning that Gradle's
+     * default heap size for worker processes will be used.
+     *
+     * @return  The maximum heap size, possibly null.
+     */
+    public String getMaxHeapSize()
+    {
+        return fMaxHeapSize;
+    }
+
+
+    public void setMaxHeapSize(String pMaxHeapSize)
+    {
+        fMaxHeapSize = pMaxHeapSize;
+    }
+
+
+    /**
+     * Get the extra arguments to pass to the JVM of the worker process. Only used when the
+     * isolation mode is {@link WorkerIsolation#PROCESS}. Default is an empty list.
+     *
+     * @return  The JVM arguments, never null.
+     */
+    public List<String> getJvmArgs()
+    {
+        return fJvmArgs;
+    }
+
+
+    public void setJvmArgs(List<String> pJvmArgs)
+    {
+        fJvmArgs = pJvmArgs != null ? pJvmArgs : new ArrayList<>();
+    }
+
+
+    /**
+     * Check if the external tool should be run through the Worker API.
+     *
+     * @return  True if the isolation mode is something else than {@link WorkerIsolation#NONE}.
+     */
+    public boolean isWorkerEnabled()
+    {
+        return fIsolation != WorkerIsolation.NONE;
+    }
+
+
+    /**
+     * Create a {@code WorkQueue} with the isolation mode specified in this instance. The worker's
+     * class path will contain the external tool's classes in addition to the classes of the work
+     * action.
+     *
+     * @param pExecutor         The executor to create the queue with.
+     * @param pToolClassPath    The class path containing the external tool classes.
+     *
+     * @return  A new {@code WorkQueue}.
+     *
+     * @throws IllegalStateException    if the isolation mode is {@link WorkerIsolation#NONE}.
+     * @throws NullPointerException     if any of the parameters is null.
+     */
+    public WorkQueue createWorkQueue(WorkerExecutor pExecutor, FileCollection pToolClassPath)
+    {
+        switch (fIsolation)
+        {
+            case CLASSLOADER:
+                return pExecutor.classLoaderIsolation(s -> s.getClasspath().from(pToolClassPath));
+            case PROCESS:
+                return pExecutor.processIsolation(
+                    s -> {
+                        s.getClasspath().from(pToolClassPath);
+                        s.forkOptions(o -> {
+                            if (fMaxHeapSize != null)
+                                o.setMaxHeapSize(fMaxHeapSize);
+                            o.jvmArgs(fJvmArgs);
+                        });
+                    });
+            default:
+                throw new IllegalStateException("No work queue for isolation mode " + fIsolation);
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2024 Peter Franzen. All rights reserved.
+ * Copyright 2024, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
@@ -42,4 +42,31 @@ public final class Invocations
             return null;
         }
     }
+
+
+    /**
+     * Look up a constructor in a class.
+     *
+     * @param pLookup       The instance to perform the lookup with.
+     * @param pClass        The class to look up a constructor in.
+     * @param pMethodType   The constructor's parameters, the return type must be {@code void}.
+     *
+     * @return  A {@code MethodHandle} to the constructor if found, null if not found.
+     *
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    static public MethodHandle lookupConstructor(
+        MethodHandles.Lookup pLookup,
+        Class<?> pClass,
+        MethodType pMethodType)
+    {
+        try
+        {
+            return pLookup.findConstructor(pClass, pMethodType);
+        }
+        catch (ReflectiveOperationException | RuntimeException ignore)
+        {
+            return null;
+        }
+    }
 }
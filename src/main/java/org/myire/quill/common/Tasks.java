@@ -1,5 +1,5 @@
 /*
- * Copyright 2018-2019 Peter Franzen. All rights reserved.
+ * Copyright 2018-2019, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
@@ -10,6 +10,7 @@ import java.util.concurrent.Callable;
 
 import org.gradle.api.Task;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.PathSensitivity;
 
 
 /**
@@ -74,6 +75,23 @@ public final class Tasks
     }
 
 
+    /**
+     * Specify an optional input file for a task with a specific path sensitivity. Passing
+     * {@code PathSensitivity.NONE} means that only the contents of the file are considered when
+     * determining if the task is up-to-date or if its outputs can be loaded from the build cache.
+     *
+     * @param pTask             The task.
+     * @param pFile             A {@code Callable} that returns the optional file.
+     * @param pPathSensitivity  The path sensitivity of the file.
+     *
+     * @throws NullPointerException if {@code pTask} is null.
+     */
+    static public void optionalInputFile(Task pTask, Callable<File> pFile, PathSensitivity pPathSensitivity)
+    {
+        pTask.getInputs().file(pFile).optional(true).withPathSensitivity(pPathSensitivity);
+    }
+
+
     /**
      * Specify an input file collection for a task. This method is defined primarily to allow
      * setting input file collection values with lambda expressions.
@@ -102,4 +120,19 @@ public final class Tasks
     {
         pTask.getOutputs().file(pFile);
     }
+
+
+    /**
+     * Specify an optional output file for a task. This method is defined primarily to allow
+     * setting optional output file values with lambda expressions.
+     *
+     * @param pTask The task.
+     * @param pFile A {@code Callable} that returns the optional file.
+     *
+     * @throws NullPointerException if {@code pTask} is null.
+     */
+    static public void optionalOutputFile(Task pTask, Callable<File> pFile)
+    {
+        pTask.getOutputs().file(pFile).optional(true);
+    }
 }
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.common;
+
+
+/**
+ * The isolation modes that an external tool can be run with.
+ */
+public enum WorkerIsolation
+{
+    /**
+     * The tool is run in the Gradle daemon on the task's thread, with its classes loaded by an
+     * {@link ExternalToolLoader}.
+     */
+    NONE,
+
+    /**
+     * The tool is run in the Gradle daemon by a worker with an isolated class loader.
+     */
+    CLASSLOADER,
+
+    /**
+     * The tool is run by a worker in a separate JVM process, which can be configured with its own
+     * maximum heap size and JVM arguments.
+     */
+    PROCESS
+}
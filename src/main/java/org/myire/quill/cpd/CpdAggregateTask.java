@@ -0,0 +1,200 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.cpd;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gradle.api.Project;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SkipWhenEmpty;
+
+import org.myire.quill.common.Projects;
+import org.myire.quill.report.FormatChoiceReport;
+import org.myire.quill.report.Reports;
+
+
+/**
+ * Task for performing copy-paste detection on the sources of a project and all its subprojects in
+ * one analysis. This makes duplications between modules visible, and avoids loading CPD once per
+ * module.
+ *<p>
+ * The sources analyzed are those of the {@code cpd} task in each of the projects. A project
+ * without a {@code cpd} task is not part of the analysis. If the primary report is an XML report,
+ * each file in the report is attributed to the project it belongs to through a {@code module}
+ * attribute, and a filtered report with the duplications involving the files of a project is
+ * created for each project.
+ *<p>
+ * The paths of the source files in the primary report are relative to the root project's
+ * directory.
+ */
+@CacheableTask
+public class CpdAggregateTask extends CpdTask
+{
+    static private final String MODULE_TASK_NAME = "cpd";
+    static private final String MODULE_REPORT_EXTENSION = ".xml";
+
+    private File fModuleReportsDirectory;
+
+
+    /**
+     * Get the source files to analyze, which are the union of the source files of the {@code cpd}
+     * tasks in the task's project and its subprojects.
+     *
+     * @return  The source files.
+     */
+    @Override
+    @InputFiles
+    @SkipWhenEmpty
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileTree getSource()
+    {
+        List<FileTree> aSources = new ArrayList<>();
+        for (CpdTask aTask : getModuleTasks())
+            aSources.add(aTask.getSource());
+
+        return getProject().files(aSources).getAsFileTree();
+    }
+
+
+    /**
+     * Get the directory where the filtered XML reports for the individual projects are created.
+     * Each report is named after the path of its project, with the root project's report named
+     * after the root project. Default is a directory called &quot;modules&quot; in the directory
+     * &quot;cpd&quot; in the project's report directory.
+     *
+     * @return  The module reports directory.
+     */
+    @OutputDirectory
+    public File getModuleReportsDirectory()
+    {
+        if (fModuleReportsDirectory == null)
+            fModuleReportsDirectory = new File(Projects.createReportDirectorySpec(getProject(), "cpd"), "modules");
+
+        return fModuleReportsDirectory;
+    }
+
+
+    public void setModuleReportsDirectory(Object pModuleReportsDirectory)
+    {
+        fModuleReportsDirectory = pModuleReportsDirectory != null ? getProject().file(pModuleReportsDirectory) : null;
+    }
+
+
+    /**
+     * Attribute the files in the primary report to their projects and create the module reports,
+     * if the primary report is an XML report.
+     *
+     * @param pPrimaryReport    The primary report.
+     */
+    @Override
+    void primaryReportCreated(FormatChoiceReport pPrimaryReport)
+    {
+        if (!CpdReports.FORMAT_XML.equals(pPrimaryReport.getFormat()))
+        {
+            getLogger().info(
+                "Primary report has format '{}', skipping module attribution",
+                pPrimaryReport.getFormat());
+            return;
+        }
+
+        File aReportFile = Reports.getOutputLocation(pPrimaryReport);
+        if (aReportFile == null || !aReportFile.isFile())
+            return;
+
+        Map<String, File> aModuleDirectories = new LinkedHashMap<>();
+        Map<String, String> aModuleReportNames = new LinkedHashMap<>();
+        for (CpdTask aTask : getModuleTasks())
+        {
+            Project aProject = aTask.getProject();
+            aModuleDirectories.put(aProject.getPath(), aProject.getProjectDir());
+            aModuleReportNames.put(aProject.getPath(), getModuleReportName(aProject));
+        }
+
+        try
+        {
+            CpdModuleReports aModuleReports = new CpdModuleReports(aModuleDirectories, reportBaseDirectory());
+            aModuleReports.writeReports(aReportFile, getModuleReportsDirectory(), aModuleReportNames);
+        }
+        catch (IOException ioe)
+        {
+            getLogger().error("Could not create the CPD module reports", ioe);
+        }
+    }
+
+
+    /**
+     * Get the directory that the paths of the source files in the primary report are relative to,
+     * which is the root project's directory since the sources come from several projects.
+     *
+     * @return  The root project's directory.
+     */
+    @Override
+    File reportBaseDirectory()
+    {
+        return getProject().getRootDir();
+    }
+
+
+    /**
+     * Get the default destination for the task's primary report, which is named after the task to
+     * not conflict with the primary report of the project's {@code cpd} task.
+     *
+     * @return  The primary report's destination.
+     */
+    @Override
+    File defaultPrimaryDestination()
+    {
+        String aExtension = getReports().getPrimary().getFormat();
+        if (CpdReports.FORMAT_CSV_LINECOUNT.equals(aExtension))
+            aExtension = CpdReports.FORMAT_CSV;
+
+        return new File(Projects.createReportDirectorySpec(getProject(), "cpd"), getName() + "." + aExtension);
+    }
+
+
+    /**
+     * Get the {@code cpd} tasks of the task's project and its subprojects.
+     *
+     * @return  The CPD tasks, ordered by project path.
+     */
+    private List<CpdTask> getModuleTasks()
+    {
+        List<CpdTask> aTasks = new ArrayList<>();
+        for (Project aProject : getProject().getAllprojects())
+        {
+            CpdTask aTask = Projects.getTask(aProject, MODULE_TASK_NAME, CpdTask.class);
+            if (aTask != null && aTask != this)
+                aTasks.add(aTask);
+        }
+
+        return aTasks;
+    }
+
+
+    /**
+     * Get the name of the module report for a project.
+     *
+     * @param pProject  The project.
+     *
+     * @return  The name of the project's module report file.
+     */
+    private String getModuleReportName(Project pProject)
+    {
+        String aPath = pProject.getPath();
+        String aName = ":".equals(aPath) ? pProject.getName() : aPath.substring(1).replace(':', '-');
+        return aName + MODULE_REPORT_EXTENSION;
+    }
+}
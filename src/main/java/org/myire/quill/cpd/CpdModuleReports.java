@@ -0,0 +1,445 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.cpd;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+
+/**
+ * Attributes the files in a CPD XML report to the modules they belong to, and creates filtered
+ * reports with the duplications involving the files of each module.
+ *<p>
+ * A file belongs to the module with the longest directory path that the file's path starts with.
+ * Relative file paths in the report are resolved against a base directory before they are matched
+ * with the module directories.
+ * The module is added as an attribute to the file's element in the report, and each module gets a
+ * report of its own with the duplications where at least one of the files belongs to the module.
+ * The filtered reports have the same format as the full report and can be transformed with the
+ * same style sheets.
+ *<p>
+ * The report is read in one pass, and each duplication is written to the rewritten report and to
+ * the reports of the modules it involves as soon as it has been read. Only one duplication at a
+ * time is thus held in memory.
+ */
+class CpdModuleReports
+{
+    static private final String DUPLICATION_ELEMENT = "duplication";
+    static private final String FILE_ELEMENT = "file";
+    static private final String CODE_FRAGMENT_ELEMENT = "codefragment";
+    static private final String PATH_ATTRIBUTE = "path";
+    static private final String MODULE_ATTRIBUTE = "module";
+
+    static private final String DEFAULT_ENCODING = "UTF-8";
+    static private final String CDATA_END = "]]>";
+
+    private final XMLInputFactory fInputFactory = XMLInputFactory.newInstance();
+    private final XMLOutputFactory fOutputFactory = XMLOutputFactory.newInstance();
+
+    private final Map<String, String> fModuleDirectories = new LinkedHashMap<>();
+    private final File fBaseDirectory;
+
+
+    /**
+     * Create a new {@code CpdModuleReports}.
+     *
+     * @param pModuleDirectories    A map from module name to the module's directory.
+     * @param pBaseDirectory        The directory to resolve relative file paths in the report
+     *                              against.
+     *
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    CpdModuleReports(Map<String, File> pModuleDirectories, File pBaseDirectory)
+    {
+        for (Map.Entry<String, File> aEntry : pModuleDirectories.entrySet())
+            fModuleDirectories.put(aEntry.getKey(), aEntry.getValue().getAbsolutePath() + File.separator);
+
+        fBaseDirectory = pBaseDirectory.getAbsoluteFile();
+    }
+
+
+    /**
+     * Read a CPD XML report, rewrite it with the module of each file added to the file's element,
+     * and write one report per module with the duplications involving at least one file belonging
+     * to the module. A module without any duplications gets an empty report.
+     *
+     * @param pReport       The report file to read and rewrite.
+     * @param pDirectory    The directory to write the module reports to.
+     * @param pFileNames    A map from module name to the name of the module's report file.
+     *
+     * @throws IOException  if reading or parsing the report, or writing any of the reports fails.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    void writeReports(File pReport, File pDirectory, Map<String, String> pFileNames) throws IOException
+    {
+        // Write the rewritten report to a temporary file, it replaces the report when the latter
+        // has been read completely.
+        List<ReportWriter> aWriters = new ArrayList<>();
+        File aTempFile = new File(pReport.getParentFile(), pReport.getName() + ".tmp");
+        aWriters.add(new ReportWriter(aTempFile, null));
+
+        pDirectory.mkdirs();
+        for (String aModule : fModuleDirectories.keySet())
+        {
+            String aFileName = pFileNames.get(aModule);
+            if (aFileName != null)
+                aWriters.add(new ReportWriter(new File(pDirectory, aFileName), aModule));
+        }
+
+        boolean aSuccess = false;
+        try (InputStream aStream = new FileInputStream(pReport))
+        {
+            XMLStreamReader aReader = fInputFactory.createXMLStreamReader(aStream);
+            try
+            {
+                String aEncoding = aReader.getCharacterEncodingScheme();
+                if (!readReport(aReader, aEncoding != null ? aEncoding : DEFAULT_ENCODING, aWriters))
+                    throw new IOException("The CPD report " + pReport + " has no root element");
+            }
+            finally
+            {
+                aReader.close();
+            }
+
+            for (ReportWriter aWriter : aWriters)
+                aWriter.close();
+
+            aSuccess = true;
+        }
+        catch (XMLStreamException e)
+        {
+            throw new IOException("Could not parse the CPD report " + pReport, e);
+        }
+        finally
+        {
+            if (!aSuccess)
+            {
+                for (ReportWriter aWriter : aWriters)
+                    aWriter.closeQuietly();
+
+                aTempFile.delete();
+            }
+        }
+
+        Files.move(aTempFile.toPath(), pReport.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+
+    /**
+     * Get the module a file belongs to.
+     *
+     * @param pPath The path of the file, absolute or relative to the base directory.
+     *
+     * @return  The name of the module with the longest directory path that {@code pPath} starts
+     *          with, or null if the file doesn't belong to any module.
+     */
+    String getModule(String pPath)
+    {
+        String aModule = null;
+        int aLongestMatch = -1;
+        File aFile = new File(pPath);
+        if (!aFile.isAbsolute())
+            aFile = new File(fBaseDirectory, pPath);
+
+        String aPath = aFile.toPath().normalize().toString();
+        for (Map.Entry<String, String> aEntry : fModuleDirectories.entrySet())
+        {
+            String aDirectory = aEntry.getValue();
+            if (aDirectory.length() > aLongestMatch && aPath.startsWith(aDirectory))
+            {
+                aModule = aEntry.getKey();
+                aLongestMatch = aDirectory.length();
+            }
+        }
+
+        return aModule;
+    }
+
+
+    /**
+     * Read the root element and the duplications of a report and pass them to report writers.
+     *
+     * @param pReader   The reader to read the report from.
+     * @param pEncoding The encoding of the report.
+     * @param pWriters  The writers to pass the root element and the duplications to.
+     *
+     * @return  True if the report has a root element, false if not.
+     *
+     * @throws XMLStreamException   if parsing the report fails.
+     * @throws IOException          if writing to any of the reports fails.
+     */
+    private boolean readReport(
+        XMLStreamReader pReader,
+        String pEncoding,
+        List<ReportWriter> pWriters) throws XMLStreamException, IOException
+    {
+        boolean aHasRoot = false;
+        int aDepth = 0;
+        Duplication aDuplication = null;
+        StringBuilder aCodeFragment = null;
+        while (pReader.hasNext())
+        {
+            int aEvent = pReader.next();
+            if (aEvent == XMLStreamConstants.START_ELEMENT)
+            {
+                aDepth++;
+                String aName = pReader.getLocalName();
+                if (aDepth == 1)
+                {
+                    aHasRoot = true;
+                    Map<String, String> aAttributes = getAttributes(pReader);
+                    for (ReportWriter aWriter : pWriters)
+                        aWriter.open(pEncoding, aName, aAttributes);
+                }
+                else if (aDepth == 2 && DUPLICATION_ELEMENT.equals(aName))
+                    aDuplication = new Duplication(getAttributes(pReader));
+                else if (aDepth == 3 && aDuplication != null && FILE_ELEMENT.equals(aName))
+                {
+                    Map<String, String> aAttributes = getAttributes(pReader);
+                    String aPath = aAttributes.get(PATH_ATTRIBUTE);
+                    String aModule = aPath != null ? getModule(aPath) : null;
+                    if (aModule != null)
+                    {
+                        aAttributes.put(MODULE_ATTRIBUTE, aModule);
+                        aDuplication.fModules.add(aModule);
+                    }
+
+                    aDuplication.fFiles.add(aAttributes);
+                }
+                else if (aDepth == 3 && aDuplication != null && CODE_FRAGMENT_ELEMENT.equals(aName))
+                    aCodeFragment = new StringBuilder();
+            }
+            else if (aEvent == XMLStreamConstants.CHARACTERS || aEvent == XMLStreamConstants.CDATA)
+            {
+                if (aCodeFragment != null)
+                    aCodeFragment.append(pReader.getText());
+            }
+            else if (aEvent == XMLStreamConstants.END_ELEMENT)
+            {
+                if (aDepth == 3 && aCodeFragment != null)
+                {
+                    aDuplication.fCodeFragment = aCodeFragment.toString();
+                    aCodeFragment = null;
+                }
+                else if (aDepth == 2 && aDuplication != null)
+                {
+                    for (ReportWriter aWriter : pWriters)
+                        aWriter.write(aDuplication);
+
+                    aDuplication = null;
+                }
+
+                aDepth--;
+            }
+        }
+
+        return aHasRoot;
+    }
+
+
+    static private void writeDuplication(XMLStreamWriter pWriter, Duplication pDuplication) throws XMLStreamException
+    {
+        pWriter.writeCharacters("\n   ");
+        pWriter.writeStartElement(DUPLICATION_ELEMENT);
+        writeAttributes(pWriter, pDuplication.fAttributes);
+        for (Map<String, String> aFile : pDuplication.fFiles)
+        {
+            pWriter.writeCharacters("\n      ");
+            pWriter.writeEmptyElement(FILE_ELEMENT);
+            writeAttributes(pWriter, aFile);
+        }
+
+        if (pDuplication.fCodeFragment != null)
+        {
+            pWriter.writeCharacters("\n      ");
+            pWriter.writeStartElement(CODE_FRAGMENT_ELEMENT);
+
+            // A CDATA section cannot contain its own end marker, split the section at any such
+            // marker in the code.
+            String aCode = pDuplication.fCodeFragment;
+            int aStart = 0, aEnd;
+            while ((aEnd = aCode.indexOf(CDATA_END, aStart)) >= 0)
+            {
+                pWriter.writeCData(aCode.substring(aStart, aEnd + 2));
+                aStart = aEnd + 2;
+            }
+
+            pWriter.writeCData(aCode.substring(aStart));
+            pWriter.writeEndElement();
+        }
+
+        pWriter.writeCharacters("\n   ");
+        pWriter.writeEndElement();
+    }
+
+
+    static private Map<String, String> getAttributes(XMLStreamReader pReader)
+    {
+        Map<String, String> aAttributes = new LinkedHashMap<>();
+        for (int i=0; i<pReader.getAttributeCount(); i++)
+            aAttributes.put(pReader.getAttributeLocalName(i), pReader.getAttributeValue(i));
+
+        return aAttributes;
+    }
+
+
+    static private void writeAttributes(XMLStreamWriter pWriter, Map<String, String> pAttributes) throws XMLStreamException
+    {
+        for (Map.Entry<String, String> aAttribute : pAttributes.entrySet())
+            pWriter.writeAttribute(aAttribute.getKey(), aAttribute.getValue());
+    }
+
+
+    /**
+     * A duplication in a CPD report.
+     */
+    static private class Duplication
+    {
+        final Map<String, String> fAttributes;
+        final List<Map<String, String>> fFiles = new ArrayList<>();
+        final List<String> fModules = new ArrayList<>();
+        String fCodeFragment;
+
+        Duplication(Map<String, String> pAttributes)
+        {
+            fAttributes = pAttributes;
+        }
+    }
+
+
+    /**
+     * A writer of the rewritten report or of a module report.
+     */
+    private class ReportWriter
+    {
+        private final File fReport;
+        private final String fModule;
+        private OutputStream fStream;
+        private XMLStreamWriter fWriter;
+
+        /**
+         * Create a new {@code ReportWriter}.
+         *
+         * @param pReport   The file to write the report to.
+         * @param pModule   The module to write the duplications for, or null to write all
+         *                  duplications.
+         */
+        ReportWriter(File pReport, String pModule)
+        {
+            fReport = pReport;
+            fModule = pModule;
+        }
+
+        /**
+         * Open the report file and write the root element's start tag to it.
+         *
+         * @param pEncoding     The encoding to write the report with.
+         * @param pRootElement  The name of the root element.
+         * @param pAttributes   The attributes of the root element.
+         *
+         * @throws IOException  if opening or writing to the report file fails.
+         */
+        void open(String pEncoding, String pRootElement, Map<String, String> pAttributes) throws IOException
+        {
+            fStream = new FileOutputStream(fReport);
+            try
+            {
+                fWriter = fOutputFactory.createXMLStreamWriter(fStream, pEncoding);
+                fWriter.writeStartDocument(pEncoding, "1.0");
+                fWriter.writeCharacters("\n");
+                fWriter.writeStartElement(pRootElement);
+                writeAttributes(fWriter, pAttributes);
+            }
+            catch (XMLStreamException e)
+            {
+                throw new IOException("Could not write the CPD report " + fReport, e);
+            }
+        }
+
+        /**
+         * Write a duplication to the report if it involves the writer's module.
+         *
+         * @param pDuplication  The duplication.
+         *
+         * @throws IOException  if writing to the report file fails.
+         */
+        void write(Duplication pDuplication) throws IOException
+        {
+            if (fModule != null && !pDuplication.fModules.contains(fModule))
+                return;
+
+            try
+            {
+                writeDuplication(fWriter, pDuplication);
+            }
+            catch (XMLStreamException e)
+            {
+                throw new IOException("Could not write the CPD report " + fReport, e);
+            }
+        }
+
+        /**
+         * Write the root element's end tag and close the report file.
+         *
+         * @throws IOException  if writing to or closing the report file fails.
+         */
+        void close() throws IOException
+        {
+            try
+            {
+                fWriter.writeCharacters("\n");
+                fWriter.writeEndElement();
+                fWriter.writeEndDocument();
+                fWriter.close();
+            }
+            catch (XMLStreamException e)
+            {
+                throw new IOException("Could not write the CPD report " + fReport, e);
+            }
+            finally
+            {
+                fStream.close();
+                fStream = null;
+            }
+        }
+
+        /**
+         * Close the report file if it is open, ignoring any errors.
+         */
+        void closeQuietly()
+        {
+            if (fStream == null)
+                return;
+
+            try
+            {
+                fStream.close();
+            }
+            catch (IOException ignore)
+            {
+                // Nothing to do but carry on.
+            }
+
+            fStream = null;
+        }
+    }
+}
@@ -1,15 +1,21 @@
 /*
- * Copyright 2019 Peter Franzen. All rights reserved.
+ * Copyright 2019, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
 package org.myire.quill.cpd;
 
+import java.io.File;
+import java.io.Serializable;
+
+
 /**
  * The parameters that can be passed to A {@code CpdRunner} to control the CPD analysis.
  */
-public class CpdParameters
+public class CpdParameters implements Serializable
 {
+    static private final long serialVersionUID = 1L;
+
     private String fLanguage;
     private String fEncoding;
 
@@ -26,6 +32,14 @@ public class CpdParameters
     private boolean fSkipBlocks;
     private String fSkipBlocksPattern;
 
+    private int fMaxParallelism = Runtime.getRuntime().availableProcessors();
+
+    private boolean fIncludeCodeFragments = true;
+    private int fMaxCodeFragmentLines;
+
+    private File fTokenStoreDirectory;
+    private File fReportBaseDirectory;
+
 
     /**
      * Get the language of the source files to analyze, e.g. &quot;cpp&quot;, &quot;java&quot;,
@@ -225,4 +239,103 @@ public class CpdParameters
     {
         fSkipBlocksPattern = pSkipBlocksPattern;
     }
+
+
+    /**
+     * Get the maximum number of threads to tokenize the source files with. The tokens are added to
+     * the analysis in the same order as when tokenizing the files on a single thread, making the
+     * result identical to that of a serial tokenization. A value of 1 or less means that the files
+     * will be tokenized on the calling thread. Default is the number of processors available to the
+     * JVM.
+     *
+     * @return  The maximum number of threads to tokenize the source files with.
+     */
+    public int getMaxParallelism()
+    {
+        return fMaxParallelism;
+    }
+
+
+    public void setMaxParallelism(int pMaxParallelism)
+    {
+        fMaxParallelism = pMaxParallelism;
+    }
+
+
+    /**
+     * If true, the code fragments of the duplications are included in XML reports. Default is
+     * true.
+     *
+     * @return  True if code fragments should be included in the report, false if not.
+     */
+    public boolean isIncludeCodeFragments()
+    {
+        return fIncludeCodeFragments;
+    }
+
+
+    public void setIncludeCodeFragments(boolean pIncludeCodeFragments)
+    {
+        fIncludeCodeFragments = pIncludeCodeFragments;
+    }
+
+
+    /**
+     * Get the maximum number of lines to include from the code fragment of a duplication in XML
+     * reports. Longer code fragments are truncated. A value of 0 or less means no limit. Default
+     * is 0.
+     *
+     * @return  The maximum number of code fragment lines.
+     */
+    public int getMaxCodeFragmentLines()
+    {
+        return fMaxCodeFragmentLines;
+    }
+
+
+    public void setMaxCodeFragmentLines(int pMaxCodeFragmentLines)
+    {
+        fMaxCodeFragmentLines = pMaxCodeFragmentLines;
+    }
+
+
+    /**
+     * Get the directory to store the tokens of the source files in during the analysis. If this
+     * directory is specified, the tokens are stored as integer identifiers in memory-mapped files
+     * in the directory rather than as objects on the Java heap, which keeps the heap usage flat
+     * for large code bases. The files are deleted when the analysis has finished. Default is null,
+     * meaning that the tokens are stored on the heap.
+     *
+     * @return  The token store directory, possibly null.
+     */
+    public File getTokenStoreDirectory()
+    {
+        return fTokenStoreDirectory;
+    }
+
+
+    public void setTokenStoreDirectory(File pTokenStoreDirectory)
+    {
+        fTokenStoreDirectory = pTokenStoreDirectory;
+    }
+
+
+    /**
+     * Get the directory that the paths of the source files in the report are relative to. Paths
+     * of files in this directory or in any of its subdirectories are written without the
+     * directory's path, making the report independent of where the sources are located. Default
+     * is null, meaning that the source files' absolute paths are written to the report.
+     *
+     * @return  The report base directory, possibly null.
+     */
+    public File getReportBaseDirectory()
+    {
+        return fReportBaseDirectory;
+    }
+
+
+    public void setReportBaseDirectory(File pReportBaseDirectory)
+    {
+        fReportBaseDirectory = pReportBaseDirectory;
+    }
 }
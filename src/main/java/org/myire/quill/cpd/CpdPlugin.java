@@ -1,5 +1,5 @@
 /*
- * Copyright 2015, 2019, 2024 Peter Franzen. All rights reserved.
+ * Copyright 2015, 2019, 2024, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
@@ -17,11 +17,14 @@ import org.myire.quill.common.Projects;
 
 /**
  * Gradle plugin for adding a copy-paste detection task based on CPD to a project. The plugin also
- * creates a configuration that specifies the classpath used when running the CPD task.
+ * creates a configuration that specifies the classpath used when running the CPD task. If the
+ * project has subprojects, a task that analyzes the sources of the project and all its subprojects
+ * in one pass is created as well.
  */
 public class CpdPlugin implements Plugin<Project>
 {
     static private final String TASK_NAME = "cpd";
+    static private final String AGGREGATE_TASK_NAME = "cpdAggregate";
     static private final String CONFIGURATION_NAME = "cpd";
 
     // The group and artifact IDs of the CPD/PMD dependency.
@@ -49,6 +52,10 @@ public class CpdPlugin implements Plugin<Project>
 
         // Create the task.
         fTask = createCpdTask();
+
+        // Create the aggregate task if there are subprojects to aggregate.
+        if (!pProject.getSubprojects().isEmpty())
+            createCpdAggregateTask();
     }
 
 
@@ -108,4 +115,19 @@ public class CpdPlugin implements Plugin<Project>
 
         return aTask;
     }
+
+
+    /**
+     * Create a CPD task that analyzes the sources of the project and all its subprojects. The task
+     * is not added to the check task's dependencies.
+     */
+    private void createCpdAggregateTask()
+    {
+        CpdAggregateTask aTask = fProject.getTasks().create(AGGREGATE_TASK_NAME, CpdAggregateTask.class);
+        aTask.setDescription("Performs copy-paste detection on the main source files of this project and its subprojects");
+        aTask.setGroup("verification");
+        aTask.setCpdClasspath(fConfiguration);
+        aTask.setupReports();
+        aTask.addUpToDateCheck();
+    }
 }
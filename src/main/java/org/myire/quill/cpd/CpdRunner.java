@@ -1,5 +1,5 @@
 /*
- * Copyright 2019 Peter Franzen. All rights reserved.
+ * Copyright 2019, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
@@ -8,6 +8,7 @@ package org.myire.quill.cpd;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Map;
 
 
 /**
@@ -23,6 +24,14 @@ public interface CpdRunner
      * @param pReportFile   The file to write the report to.
      * @param pReportFormat The format of the report, see {@link CpdReports}.
      * @param pParameters   The parameters to configure CPD with.
+     * @param pCacheDirectory
+     *                      The directory of a cache with the tokens of previously analyzed files,
+     *                      or null to tokenize all files without a cache. Files whose tokens are in
+     *                      the cache are not tokenized again, and the tokens of the other files are
+     *                      added to the cache.
+     * @param pChangedFiles The files to report duplications for, or null to report all
+     *                      duplications. If non-null, only duplications involving at least one of
+     *                      these files are written to the report.
      *
      * @throws IOException  if accessing the files to analyze fails, or if the report cannot be
      *                      written.
@@ -31,5 +40,41 @@ public interface CpdRunner
         Collection<File> pFiles,
         File pReportFile,
         String pReportFormat,
-        CpdParameters pParameters) throws IOException;
+        CpdParameters pParameters,
+        File pCacheDirectory,
+        Collection<File> pChangedFiles) throws IOException;
+
+
+    /**
+     * Perform copy-paste analysis on files in several languages and write a combined report with
+     * the result. The files of each language are analyzed in a separate pass, and the passes are
+     * run concurrently. Duplications are only detected between files of the same language. If the
+     * report is on the XML format, each duplication has an attribute with its language.
+     *
+     * @param pFilesByLanguage
+     *                      The files to analyze, mapped from the language to analyze them with.
+     *                      The duplications of the languages are reported in the iteration order
+     *                      of the map.
+     * @param pReportFile   The file to write the report to.
+     * @param pReportFormat The format of the report, see {@link CpdReports}.
+     * @param pParameters   The parameters to configure CPD with. The language parameter is
+     *                      ignored.
+     * @param pCacheDirectory
+     *                      The directory of a cache with the tokens of previously analyzed files,
+     *                      or null to tokenize all files without a cache. Each language has its
+     *                      own cache in a subdirectory of this directory.
+     * @param pChangedFiles The files to report duplications for, or null to report all
+     *                      duplications. If non-null, only duplications involving at least one of
+     *                      these files are written to the report.
+     *
+     * @throws IOException  if accessing the files to analyze fails, or if the report cannot be
+     *                      written.
+     */
+    void runMultiLanguageCpd(
+        Map<String, ? extends Collection<File>> pFilesByLanguage,
+        File pReportFile,
+        String pReportFormat,
+        CpdParameters pParameters,
+        File pCacheDirectory,
+        Collection<File> pChangedFiles) throws IOException;
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2015, 2018-2019, 2021-2022, 2024 Peter Franzen. All rights reserved.
+ * Copyright 2015, 2018-2019, 2021-2022, 2024, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
@@ -7,27 +7,47 @@ package org.myire.quill.cpd;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
 
 import groovy.lang.Closure;
 
 import org.gradle.api.Action;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileTree;
+import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.plugins.quality.PmdExtension;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.LocalState;
 import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.SkipWhenEmpty;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceTask;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.util.PatternSet;
+import org.gradle.workers.WorkerExecutor;
 
 import org.myire.quill.common.ExternalToolLoader;
+import org.myire.quill.common.ExternalToolWorkerSpec;
 import org.myire.quill.common.Projects;
 import org.myire.quill.common.Tasks;
 import org.myire.quill.common.VersionNumber;
+import org.myire.quill.common.WorkerIsolation;
 import org.myire.quill.report.FormatChoiceReport;
+import org.myire.quill.report.ReportSummaries;
 import org.myire.quill.report.ReportingEntity;
 import org.myire.quill.report.Reports;
 import org.myire.quill.report.TransformingReport;
@@ -36,11 +56,13 @@ import org.myire.quill.report.TransformingReport;
 /**
  * Task for performing copy-paste detection using the CPD tool.
  */
+@CacheableTask
 public class CpdTask extends SourceTask implements ReportingEntity<CpdReports>
 {
     static private final VersionNumber MINIMUM_TOOL_VERSION = new VersionNumber(6, 1, 0);
     static private final String DEFAULT_TOOL_VERSION = "6.41.0";
     static private final String PMD_EXTENSION_NAME = "pmd";
+    static private final String DEFAULT_LANGUAGE = "java";
 
     // Fully qualified name of the CpdRunner implementation class to use.
     static private final String IMPLEMENTATION_PACKAGE = "org.myire.quill.cpd.impl.";
@@ -52,11 +74,19 @@ public class CpdTask extends SourceTask implements ReportingEntity<CpdReports>
     private FileCollection fCpdClasspath;
     private CpdReports fReports;
     private final CpdParameters fCpdParameters = new CpdParameters();
+    private Map<String, String> fLanguages = new LinkedHashMap<>();
+    private boolean fIncremental;
+    private File fCacheDirectory;
+    private boolean fOffHeapTokens;
+    private FileCollection fChangedFiles;
+    private String fChangedFilesBaseRef;
+    private final ExternalToolWorkerSpec fWorkerSpec = new ExternalToolWorkerSpec();
 
 
     @Override
     @InputFiles
     @SkipWhenEmpty
+    @PathSensitive(PathSensitivity.RELATIVE)
     public FileTree getSource()
     {
         FileTree aSource = super.getSource();
@@ -110,7 +140,7 @@ public class CpdTask extends SourceTask implements ReportingEntity<CpdReports>
      *
      * @return  The CPD classpath.
      */
-    @InputFiles
+    @Classpath
     public FileCollection getCpdClasspath()
     {
         return fCpdClasspath;
@@ -208,6 +238,31 @@ public class CpdTask extends SourceTask implements ReportingEntity<CpdReports>
     }
 
 
+    /**
+     * Get the languages of the source files to analyze, mapped from the file patterns, e.g.
+     * &quot;**&#47;*.kt&quot;, that select the source files of each language. A source file is
+     * analyzed with the language of the first pattern it matches, or with the language specified
+     * by {@link #getLanguage()} if it doesn't match any of the patterns. The source files of each
+     * language are analyzed in a separate pass, and the passes are run concurrently. The
+     * duplications of all languages are written to the same report, and each duplication in an
+     * XML report has an attribute with its language. The default is an empty map, meaning that
+     * all source files are analyzed with the language specified by {@link #getLanguage()}.
+     *
+     * @return  The languages mapped from file patterns, never null.
+     */
+    @Input
+    public Map<String, String> getLanguages()
+    {
+        return fLanguages;
+    }
+
+
+    public void setLanguages(Map<String, String> pLanguages)
+    {
+        fLanguages = pLanguages != null ? new LinkedHashMap<>(pLanguages) : new LinkedHashMap<>();
+    }
+
+
     /**
      * The minimum duplicate size to be reported. The default is 100.
      *
@@ -379,6 +434,245 @@ public class CpdTask extends SourceTask implements ReportingEntity<CpdReports>
     }
 
 
+    /**
+     * If true, the code fragments of the duplications are included in the primary report when it
+     * is on the XML format. Leaving out the code fragments keeps the report small when there are
+     * many duplications. Default is true.
+     *
+     * @return  True if code fragments should be included in the XML report, false if not.
+     */
+    @Input
+    public boolean isIncludeCodeFragments()
+    {
+        return fCpdParameters.isIncludeCodeFragments();
+    }
+
+
+    public void setIncludeCodeFragments(boolean pIncludeCodeFragments)
+    {
+        fCpdParameters.setIncludeCodeFragments(pIncludeCodeFragments);
+    }
+
+
+    /**
+     * Get the maximum number of lines to include from the code fragment of a duplication when the
+     * primary report is on the XML format. Longer code fragments are truncated. A value of 0 or
+     * less means no limit. Default is 0.
+     *
+     * @return  The maximum number of code fragment lines.
+     */
+    @Input
+    public int getMaxCodeFragmentLines()
+    {
+        return fCpdParameters.getMaxCodeFragmentLines();
+    }
+
+
+    public void setMaxCodeFragmentLines(int pMaxCodeFragmentLines)
+    {
+        fCpdParameters.setMaxCodeFragmentLines(pMaxCodeFragmentLines);
+    }
+
+
+    /**
+     * Get the maximum number of threads to tokenize the source files with. The files are
+     * tokenized in parallel batches and added to the analysis in a fixed order, making the report
+     * identical to the one created when tokenizing the files on a single thread. A value of 1 or
+     * less disables the parallel tokenization. Default is the number of processors available to
+     * the JVM.
+     *
+     * @return  The maximum number of threads to tokenize the source files with.
+     */
+    @Internal
+    public int getMaxParallelism()
+    {
+        return fCpdParameters.getMaxParallelism();
+    }
+
+
+    public void setMaxParallelism(int pMaxParallelism)
+    {
+        fCpdParameters.setMaxParallelism(pMaxParallelism);
+    }
+
+
+    /**
+     * If true, the tokens of each source file are cached, and only source files that have been
+     * added or modified since the previous run, or that were tokenized with other settings, are
+     * tokenized. The tokens of the other files are taken from the cache. Default is false.
+     *
+     * @return  True if the source files should be tokenized incrementally, false if all source
+     *          files should be tokenized on every run.
+     */
+    @Internal
+    public boolean isIncremental()
+    {
+        return fIncremental;
+    }
+
+
+    public void setIncremental(boolean pIncremental)
+    {
+        fIncremental = pIncremental;
+    }
+
+
+    /**
+     * Get the directory where the tokens of individual source files are cached when the
+     * {@code incremental} property is true. Default is a directory with the same name as the task
+     * in the project's temporary directory.
+     *
+     * @return  The cache directory.
+     */
+    @LocalState
+    public File getCacheDirectory()
+    {
+        if (fCacheDirectory == null)
+            fCacheDirectory = Projects.createTemporaryDirectorySpec(getProject(), getName());
+
+        return fCacheDirectory;
+    }
+
+
+    public void setCacheDirectory(Object pCacheDirectory)
+    {
+        fCacheDirectory = pCacheDirectory != null ? getProject().file(pCacheDirectory) : null;
+    }
+
+
+    /**
+     * If true, the tokens of the source files are stored as integer identifiers in memory-mapped
+     * files in the task's temporary directory during the analysis, instead of as objects on the
+     * Java heap. This keeps the heap usage of the analysis flat for large code bases, at the cost
+     * of some disk I/O. The report is identical to the one created with the tokens on the heap.
+     * Default is false.
+     *
+     * @return  True if the tokens should be stored off the Java heap, false if not.
+     */
+    @Internal
+    public boolean isOffHeapTokens()
+    {
+        return fOffHeapTokens;
+    }
+
+
+    public void setOffHeapTokens(boolean pOffHeapTokens)
+    {
+        fOffHeapTokens = pOffHeapTokens;
+    }
+
+
+    /**
+     * Get the files to report duplications for. If this property is set, only duplications that
+     * involve at least one of these files are reported, but all source files are still analyzed
+     * to find the duplications between the changed files and the rest of the sources. This is
+     * useful in e.g. pull request builds. The source files are tokenized incrementally in this
+     * mode, regardless of the {@code incremental} property, which means that only the changed
+     * files are normally tokenized. Default is null, meaning that all duplications are reported
+     * unless {@code changedFilesBaseRef} is set.
+     *
+     * @return  The changed files, possibly null.
+     */
+    @InputFiles
+    @Optional
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileCollection getChangedFiles()
+    {
+        return fChangedFiles;
+    }
+
+
+    public void setChangedFiles(Object pChangedFiles)
+    {
+        fChangedFiles = pChangedFiles != null ? getProject().files(pChangedFiles) : null;
+    }
+
+
+    /**
+     * Get the git revision to compute the changed files from if the {@code changedFiles} property
+     * isn't set, e.g. &quot;origin/main&quot;. The changed files are those added or modified in
+     * the commits on {@code HEAD} since it diverged from this revision, as reported by
+     * {@code git diff --name-only <changedFilesBaseRef>...HEAD} run in the project directory. If
+     * git fails, all duplications are reported. Since the changed files depend on the state of the
+     * git repository, the task is never considered up to date when this property is set. Default
+     * is null.
+     *
+     * @return  The base revision, possibly null.
+     */
+    @Input
+    @Optional
+    public String getChangedFilesBaseRef()
+    {
+        return fChangedFilesBaseRef;
+    }
+
+
+    public void setChangedFilesBaseRef(String pChangedFilesBaseRef)
+    {
+        fChangedFilesBaseRef = pChangedFilesBaseRef;
+    }
+
+
+    /**
+     * Get the isolation mode to run CPD with. With {@link WorkerIsolation#CLASSLOADER} or
+     * {@link WorkerIsolation#PROCESS} the analysis is run through the Gradle Worker API, the latter
+     * in a separate JVM that doesn't use the Gradle daemon's heap. Default is
+     * {@link WorkerIsolation#NONE}, i.e. CPD is run in the daemon on the task's thread.
+     *
+     * @return  The isolation mode.
+     */
+    @Internal
+    public WorkerIsolation getWorkerIsolation()
+    {
+        return fWorkerSpec.getIsolation();
+    }
+
+
+    public void setWorkerIsolation(WorkerIsolation pWorkerIsolation)
+    {
+        fWorkerSpec.setIsolation(pWorkerIsolation);
+    }
+
+
+    /**
+     * Get the maximum heap size of the worker process when {@code workerIsolation} is
+     * {@link WorkerIsolation#PROCESS}, e.g. &quot;2g&quot;. Default is Gradle's default heap size
+     * for worker processes.
+     *
+     * @return  The maximum heap size, possibly null.
+     */
+    @Internal
+    public String getMaxHeapSize()
+    {
+        return fWorkerSpec.getMaxHeapSize();
+    }
+
+
+    public void setMaxHeapSize(String pMaxHeapSize)
+    {
+        fWorkerSpec.setMaxHeapSize(pMaxHeapSize);
+    }
+
+
+    /**
+     * Get the extra JVM arguments of the worker process when {@code workerIsolation} is
+     * {@link WorkerIsolation#PROCESS}. Default is an empty list.
+     *
+     * @return  The JVM arguments, never null.
+     */
+    @Internal
+    public List<String> getJvmArgs()
+    {
+        return fWorkerSpec.getJvmArgs();
+    }
+
+
+    public void setJvmArgs(List<String> pJvmArgs)
+    {
+        fWorkerSpec.setJvmArgs(pJvmArgs);
+    }
+
+
     /**
      * Perform copy-paste detection on the sources and produces the enabled report(s).
      */
@@ -393,6 +687,7 @@ public class CpdTask extends SourceTask implements ReportingEntity<CpdReports>
 
             // Perform the copy-paste detection and create the primary report.
             runCpd(aPrimaryReport);
+            primaryReportCreated(aPrimaryReport);
 
             // Create the HTML report if enabled and the primary report is an XML report.
             TransformingReport aHtmlReport = fReports.getHtml();
@@ -404,6 +699,18 @@ public class CpdTask extends SourceTask implements ReportingEntity<CpdReports>
     }
 
 
+    /**
+     * Called when the primary report has been created, before the HTML report is created from it.
+     * The default implementation does nothing.
+     *
+     * @param pPrimaryReport    The primary report.
+     */
+    void primaryReportCreated(FormatChoiceReport pPrimaryReport)
+    {
+        // Nothing to do by default.
+    }
+
+
     /**
      * Perform CPD analysis on the task's sources.
      *
@@ -411,13 +718,36 @@ public class CpdTask extends SourceTask implements ReportingEntity<CpdReports>
      */
     private void runCpd(FormatChoiceReport pPrimaryReport)
     {
+        fCpdParameters.setTokenStoreDirectory(fOffHeapTokens ? new File(getTemporaryDir(), "tokens") : null);
+        fCpdParameters.setReportBaseDirectory(reportBaseDirectory());
+
+        if (fWorkerSpec.isWorkerEnabled())
+        {
+            runCpdInWorker(pPrimaryReport);
+            return;
+        }
+
         try
         {
-            loadCpdRunner().runCpd(
-                getSource().getFiles(),
-                Reports.getOutputLocation(pPrimaryReport),
-                pPrimaryReport.getFormat(),
-                fCpdParameters);
+            Collection<File> aChangedFiles = resolveChangedFiles();
+            CpdRunner aRunner = loadCpdRunner();
+            File aCacheDirectory = fIncremental || aChangedFiles != null ? getCacheDirectory() : null;
+            if (fLanguages.isEmpty())
+                aRunner.runCpd(
+                    getSource().getFiles(),
+                    Reports.getOutputLocation(pPrimaryReport),
+                    pPrimaryReport.getFormat(),
+                    fCpdParameters,
+                    aCacheDirectory,
+                    aChangedFiles);
+            else
+                aRunner.runMultiLanguageCpd(
+                    getSourceFilesByLanguage(),
+                    Reports.getOutputLocation(pPrimaryReport),
+                    pPrimaryReport.getFormat(),
+                    fCpdParameters,
+                    aCacheDirectory,
+                    aChangedFiles);
         }
         catch (ClassNotFoundException | IllegalAccessException | InstantiationException e)
         {
@@ -433,6 +763,122 @@ public class CpdTask extends SourceTask implements ReportingEntity<CpdReports>
     }
 
 
+    /**
+     * Perform CPD analysis on the task's sources in a Gradle worker and wait for the analysis to
+     * finish.
+     *
+     * @param pPrimaryReport    The report to write the analysis result to.
+     */
+    private void runCpdInWorker(FormatChoiceReport pPrimaryReport)
+    {
+        getLogger().debug("Running CPD in a worker with {} isolation", fWorkerSpec.getIsolation());
+        Collection<File> aChangedFiles = resolveChangedFiles();
+        fWorkerSpec.createWorkQueue(getWorkerExecutor(), getCpdClasspath()).submit(
+            CpdWorkAction.class,
+            p -> {
+                if (fLanguages.isEmpty())
+                    p.getSourceFiles().from(getSource().getFiles());
+                else
+                    p.getSourceFilesByLanguage().set(getSourceFilesByLanguage());
+                p.getReportFile().set(Reports.getOutputLocation(pPrimaryReport));
+                p.getReportFormat().set(pPrimaryReport.getFormat());
+                p.getCpdParameters().set(fCpdParameters);
+                if (fIncremental || aChangedFiles != null)
+                    p.getCacheDirectory().set(getCacheDirectory());
+                if (aChangedFiles != null)
+                {
+                    p.getChangedFilesOnly().set(Boolean.TRUE);
+                    p.getChangedFiles().from(aChangedFiles);
+                }
+            });
+
+        // The HTML report is created from the primary report and must wait for the worker.
+        getWorkerExecutor().await();
+    }
+
+
+    /**
+     * Get the source files grouped by language, using the patterns in the {@code languages}
+     * property. The source file tree is only visited once.
+     *
+     * @return  The source files mapped from their language, never null.
+     */
+    private Map<String, List<File>> getSourceFilesByLanguage()
+    {
+        Map<Spec<FileTreeElement>, String> aLanguagesBySpec = new LinkedHashMap<>();
+        Map<String, List<File>> aFilesByLanguage = new LinkedHashMap<>();
+        for (Map.Entry<String, String> aEntry : fLanguages.entrySet())
+        {
+            aLanguagesBySpec.put(new PatternSet().include(aEntry.getKey()).getAsSpec(), aEntry.getValue());
+            aFilesByLanguage.put(aEntry.getValue(), new ArrayList<>());
+        }
+
+        String aDefaultLanguage = getLanguage() != null ? getLanguage() : DEFAULT_LANGUAGE;
+        getSource().visit(d -> {
+            if (d.isDirectory())
+                return;
+
+            String aLanguage = aDefaultLanguage;
+            for (Map.Entry<Spec<FileTreeElement>, String> aEntry : aLanguagesBySpec.entrySet())
+            {
+                if (aEntry.getKey().isSatisfiedBy(d))
+                {
+                    aLanguage = aEntry.getValue();
+                    break;
+                }
+            }
+
+            aFilesByLanguage.computeIfAbsent(aLanguage, k -> new ArrayList<>()).add(d.getFile());
+        });
+
+        // Languages without any source files are not analyzed.
+        aFilesByLanguage.values().removeIf(List::isEmpty);
+        return aFilesByLanguage;
+    }
+
+
+    /**
+     * Get the files to report duplications for from the {@code changedFiles} property or, if that
+     * property isn't set, from git using the {@code changedFilesBaseRef} property.
+     *
+     * @return  The changed files, or null if all duplications should be reported.
+     */
+    private Collection<File> resolveChangedFiles()
+    {
+        if (fChangedFiles != null)
+            return fChangedFiles.getFiles();
+
+        if (fChangedFilesBaseRef == null)
+            return null;
+
+        try
+        {
+            Collection<File> aChangedFiles = GitChangedFiles.getChangedFiles(getProject().getProjectDir(), fChangedFilesBaseRef);
+            getLogger().info("{} files changed since {}", aChangedFiles.size(), fChangedFilesBaseRef);
+            return aChangedFiles;
+        }
+        catch (IOException ioe)
+        {
+            getLogger().warn("Could not get the files changed since {}, reporting all duplications", fChangedFilesBaseRef, ioe);
+            return null;
+        }
+    }
+
+
+    /**
+     * Get the executor used to run CPD when {@code workerIsolation} is something else than
+     * {@link WorkerIsolation#NONE}. This method is implemented by Gradle through service
+     * injection.
+     *
+     * @return  The worker executor.
+     */
+    @Inject
+    protected WorkerExecutor getWorkerExecutor()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+
     /**
      * Create the task's report container and specify the report related inputs and outputs.
      */
@@ -447,12 +893,17 @@ public class CpdTask extends SourceTask implements ReportingEntity<CpdReports>
         Tasks.inputProperty(this, "'primaryReportEnabled'", () -> Reports.isRequired(this.getReports().getPrimary()));
         Tasks.inputProperty(this, "htmlReportEnabled", () -> Reports.isRequired(this.getReports().getHtml()));
 
-        // The XSL file used to create the HTML report is an input to the task.
-        Tasks.optionalInputFile(this, () -> this.getReports().getHtml().getXslFile());
+        // The XSL file used to create the HTML report is an input to the task, where only the
+        // contents matter for the build cache.
+        Tasks.optionalInputFile(this, () -> this.getReports().getHtml().getXslFile(), PathSensitivity.NONE);
 
         // Add both reports' destination as output of this task.
         Tasks.outputFile(this, () -> Reports.getOutputLocation(this.getReports().getPrimary()));
         Tasks.outputFile(this, () -> Reports.getOutputLocation(this.getReports().getHtml()));
+
+        // Any summary extracted by the HTML report is an output if the report still has a summary
+        // extractor when the task executes.
+        Tasks.optionalOutputFile(this, () -> ReportSummaries.getSummaryFile(this.getReports().getHtml()));
     }
 
 
@@ -463,6 +914,24 @@ public class CpdTask extends SourceTask implements ReportingEntity<CpdReports>
     {
         // Let the HTML report decide if it is up to date.
         getOutputs().upToDateWhen(ignore -> this.getReports().getHtml().checkUpToDate());
+
+        // The files changed since a git revision aren't known until the task executes, so the
+        // outputs cannot be reused when the changed files are computed with git.
+        getOutputs().upToDateWhen(ignore -> this.getChangedFilesBaseRef() == null);
+        getOutputs().doNotCacheIf(
+            "Changed files are computed from git",
+            ignore -> this.getChangedFilesBaseRef() != null);
+    }
+
+
+    /**
+     * Get the directory that the paths of the source files in the primary report are relative to.
+     *
+     * @return  The project directory.
+     */
+    File reportBaseDirectory()
+    {
+        return getProject().getProjectDir();
     }
 
 
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.cpd;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+
+/**
+ * Work action that performs copy-paste detection in a Gradle worker. The worker's class path must
+ * contain the CPD classes, which allows the {@code CpdRunner} implementation to be loaded directly
+ * by the worker's class loader.
+ */
+public abstract class CpdWorkAction implements WorkAction<CpdWorkAction.Parameters>
+{
+    static private final String IMPLEMENTATION_CLASS = "org.myire.quill.cpd.impl.CpdRunnerImpl";
+
+    private final Logger fLogger = Logging.getLogger(CpdWorkAction.class);
+
+
+    @Override
+    public void execute()
+    {
+        Parameters aParameters = getParameters();
+        File aReportFile = aParameters.getReportFile().get();
+        try
+        {
+            CpdRunner aRunner =
+                Class.forName(IMPLEMENTATION_CLASS).asSubclass(CpdRunner.class).newInstance();
+
+            Collection<File> aChangedFiles = null;
+            if (aParameters.getChangedFilesOnly().getOrElse(Boolean.FALSE))
+                aChangedFiles = aParameters.getChangedFiles().getFiles();
+
+            Map<String, List<File>> aFilesByLanguage = aParameters.getSourceFilesByLanguage().getOrElse(Collections.emptyMap());
+            if (aFilesByLanguage.isEmpty())
+                aRunner.runCpd(
+                    aParameters.getSourceFiles().getFiles(),
+                    aReportFile,
+                    aParameters.getReportFormat().get(),
+                    aParameters.getCpdParameters().get(),
+                    aParameters.getCacheDirectory().getOrNull(),
+                    aChangedFiles);
+            else
+                aRunner.runMultiLanguageCpd(
+                    aFilesByLanguage,
+                    aReportFile,
+                    aParameters.getReportFormat().get(),
+                    aParameters.getCpdParameters().get(),
+                    aParameters.getCacheDirectory().getOrNull(),
+                    aChangedFiles);
+        }
+        catch (ClassNotFoundException | IllegalAccessException | InstantiationException e)
+        {
+            fLogger.error("Could not create an instance of '{}'", IMPLEMENTATION_CLASS, e);
+        }
+        catch (IOException ioe)
+        {
+            fLogger.error("Could not perform CPD analysis", ioe);
+        }
+    }
+
+
+    /**
+     * The parameters passed from a {@code CpdTask} to the worker.
+     */
+    public interface Parameters extends WorkParameters
+    {
+        /**
+         * Get the files to analyze.
+         *
+         * @return  The source files.
+         */
+        ConfigurableFileCollection getSourceFiles();
+
+        /**
+         * Get the files to analyze mapped from their language. If this map isn't empty, the files
+         * are analyzed with one pass per language, and {@link #getSourceFiles()} is ignored.
+         *
+         * @return  The source files by language.
+         */
+        MapProperty<String, List<File>> getSourceFilesByLanguage();
+
+        /**
+         * Get the file to write the report to.
+         *
+         * @return  The report file.
+         */
+        Property<File> getReportFile();
+
+        /**
+         * Get the format of the report, see {@link CpdReports}.
+         *
+         * @return  The report format.
+         */
+        Property<String> getReportFormat();
+
+        /**
+         * Get the parameters to configure CPD with.
+         *
+         * @return  The CPD parameters.
+         */
+        Property<CpdParameters> getCpdParameters();
+
+        /**
+         * Get the directory of the token cache. No value means that the files should be tokenized
+         * without a cache.
+         *
+         * @return  The cache directory.
+         */
+        Property<File> getCacheDirectory();
+
+        /**
+         * Get the flag specifying if only duplications involving the files in
+         * {@link #getChangedFiles()} should be reported. No value means that all duplications
+         * should be reported.
+         *
+         * @return  The changed files only flag.
+         */
+        Property<Boolean> getChangedFilesOnly();
+
+        /**
+         * Get the files to report duplications for if {@link #getChangedFilesOnly()} is true.
+         *
+         * @return  The changed files.
+         */
+        ConfigurableFileCollection getChangedFiles();
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.cpd;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Computes the files that have changed in a local git repository compared to a base revision by
+ * running the {@code git} command.
+ */
+final class GitChangedFiles
+{
+    static private final String GIT_COMMAND = "git";
+
+
+    /**
+     * Private constructor to disallow instantiations of utility method class.
+     */
+    private GitChangedFiles()
+    {
+        // Empty default ctor, defined to override access scope.
+    }
+
+
+    /**
+     * Get the files below a directory that have been added or modified in the commits on
+     * {@code HEAD} since it diverged from a base revision, i.e. the files changed on a branch
+     * compared to the branch it will be merged into.
+     *
+     * @param pDirectory    The directory, which must be inside a git working tree.
+     * @param pBaseRef      The base revision, e.g. &quot;origin/main&quot;.
+     *
+     * @return  The changed files that still exist, never null.
+     *
+     * @throws IOException  if the git command cannot be run or fails.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    static Set<File> getChangedFiles(File pDirectory, String pBaseRef) throws IOException
+    {
+        // Paths are printed relative to the directory, and files outside it are excluded.
+        List<String> aPaths = runGit(pDirectory, "diff", "--name-only", "--relative", "-z", pBaseRef + "...HEAD", "--");
+
+        Set<File> aFiles = new LinkedHashSet<>();
+        for (String aPath : aPaths)
+        {
+            File aFile = new File(pDirectory, aPath);
+            if (aFile.isFile())
+                aFiles.add(aFile.getAbsoluteFile());
+        }
+
+        return aFiles;
+    }
+
+
+    /**
+     * Run a git command and return its NUL-separated output.
+     *
+     * @param pDirectory    The directory to run the command in.
+     * @param pArguments    The arguments to the git command.
+     *
+     * @return  The command's output split at NUL characters, never null.
+     *
+     * @throws IOException  if the command cannot be run or exits with a non-zero status.
+     */
+    static private List<String> runGit(File pDirectory, String... pArguments) throws IOException
+    {
+        List<String> aCommand = new ArrayList<>();
+        aCommand.add(GIT_COMMAND);
+        for (String aArgument : pArguments)
+            aCommand.add(aArgument);
+
+        Process aProcess = new ProcessBuilder(aCommand).directory(pDirectory).start();
+
+        // Closing the output stream signals to git that there is no input.
+        aProcess.getOutputStream().close();
+
+        // The error output is read on a separate thread, git could otherwise block on a full
+        // error output pipe while this thread is blocked on reading the standard output.
+        StringBuilder aError = new StringBuilder();
+        Thread aErrorReader = new Thread(() -> readErrors(aProcess, aError), "git-stderr");
+        aErrorReader.setDaemon(true);
+        aErrorReader.start();
+
+        List<String> aOutput = new ArrayList<>();
+        try (BufferedReader aReader = new BufferedReader(new InputStreamReader(aProcess.getInputStream(), StandardCharsets.UTF_8)))
+        {
+            StringBuilder aEntry = new StringBuilder();
+            int aChar;
+            while ((aChar = aReader.read()) >= 0)
+            {
+                if (aChar == 0)
+                {
+                    aOutput.add(aEntry.toString());
+                    aEntry.setLength(0);
+                }
+                else
+                    aEntry.append((char) aChar);
+            }
+
+            if (aEntry.length() > 0)
+                aOutput.add(aEntry.toString());
+        }
+
+        try
+        {
+            int aExitValue = aProcess.waitFor();
+            aErrorReader.join();
+            if (aExitValue != 0)
+                throw new IOException(
+                    "'" + String.join(" ", aCommand) + "' failed with exit value " + aExitValue + ": " + aError.toString().trim());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for git");
+        }
+
+        return aOutput;
+    }
+
+
+    /**
+     * Read the error output of a process until it is closed.
+     *
+     * @param pProcess  The process.
+     * @param pError    The builder to append the error output lines to.
+     */
+    static private void readErrors(Process pProcess, StringBuilder pError)
+    {
+        try (BufferedReader aReader = new BufferedReader(new InputStreamReader(pProcess.getErrorStream(), StandardCharsets.UTF_8)))
+        {
+            String aLine;
+            while ((aLine = aReader.readLine()) != null)
+                pError.append(aLine).append('\n');
+        }
+        catch (IOException ioe)
+        {
+            pError.append(ioe.getMessage());
+        }
+    }
+}
@@ -1,27 +1,50 @@
 /*
- * Copyright 2019 Peter Franzen. All rights reserved.
+ * Copyright 2019, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
 package org.myire.quill.cpd.impl;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
+import net.sourceforge.pmd.PMD;
 import net.sourceforge.pmd.cpd.CPD;
 import net.sourceforge.pmd.cpd.CPDConfiguration;
 import net.sourceforge.pmd.cpd.CSVRenderer;
 import net.sourceforge.pmd.cpd.CSVWithLinecountPerFileRenderer;
 import net.sourceforge.pmd.cpd.Language;
+import net.sourceforge.pmd.cpd.Mark;
+import net.sourceforge.pmd.cpd.Match;
 import net.sourceforge.pmd.cpd.SimpleRenderer;
+import net.sourceforge.pmd.cpd.Tokenizer;
 import net.sourceforge.pmd.cpd.VSRenderer;
-import net.sourceforge.pmd.cpd.XMLRenderer;
 import net.sourceforge.pmd.cpd.renderer.CPDRenderer;
+import net.sourceforge.pmd.lang.ast.TokenMgrError;
 
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
@@ -38,6 +61,14 @@ import org.myire.quill.cpd.CpdRunner;
  */
 public class CpdRunnerImpl implements CpdRunner
 {
+    // The number of batches to divide the files into per thread when tokenizing in parallel. More
+    // batches than threads evens out the load when the files differ in size.
+    static private final int BATCHES_PER_THREAD = 4;
+
+    // The size of the buffer to write the report through. Large reports are written in big chunks
+    // rather than in many small writes to the file.
+    static private final int REPORT_BUFFER_SIZE = 256 * 1024;
+
     private final Logger fLogger = Logging.getLogger(CpdRunnerImpl.class);
 
 
@@ -46,7 +77,9 @@ public class CpdRunnerImpl implements CpdRunner
         Collection<File> pFiles,
         File pReportFile,
         String pReportFormat,
-        CpdParameters pParameters) throws IOException
+        CpdParameters pParameters,
+        File pCacheDirectory,
+        Collection<File> pChangedFiles) throws IOException
     {
         // CPD scans the class path of the current thread's context class loader for language
         // implementations. This class loader must be the one that loads the CPD classes, and the
@@ -56,69 +89,746 @@ public class CpdRunnerImpl implements CpdRunner
         ClassLoader aContextClassLoader = Thread.currentThread().getContextClassLoader();
         Thread.currentThread().setContextClassLoader(Language.class.getClassLoader());
 
-        // Create a CPDConfiguration from the parameter values and a CPD instance from the
-        // configuration.
-        CPDConfiguration aConfiguration = toConfiguration(pParameters);
-        CPD aCpd = new CPD(aConfiguration);
+        try
+        {
+            Iterator<Match> aMatches = analyze(pParameters.getLanguage(), pFiles, pParameters, pCacheDirectory);
+            writeReport(aMatches, null, pReportFile, pReportFormat, pParameters, pChangedFiles);
+        }
+        finally
+        {
+            // Restore the current thread's context class loader.
+            Thread.currentThread().setContextClassLoader(aContextClassLoader);
+        }
+    }
+
+
+    @Override
+    public void runMultiLanguageCpd(
+        Map<String, ? extends Collection<File>> pFilesByLanguage,
+        File pReportFile,
+        String pReportFormat,
+        CpdParameters pParameters,
+        File pCacheDirectory,
+        Collection<File> pChangedFiles) throws IOException
+    {
+        // Replace the context class loader for the same reason as in runCpd().
+        ClassLoader aContextClassLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(Language.class.getClassLoader());
+
+        try
+        {
+            // Merge the files of the default language with any files explicitly mapped to it.
+            Map<String, List<File>> aFilesByLanguage = new LinkedHashMap<>();
+            for (Map.Entry<String, ? extends Collection<File>> aEntry : pFilesByLanguage.entrySet())
+            {
+                String aLanguage = aEntry.getKey() != null ? aEntry.getKey() : CPDConfiguration.DEFAULT_LANGUAGE;
+                aFilesByLanguage.computeIfAbsent(aLanguage, k -> new ArrayList<>()).addAll(aEntry.getValue());
+            }
+
+            Map<Match, String> aLanguages = new IdentityHashMap<>();
+            Iterator<Match> aMatches = analyzeConcurrently(aFilesByLanguage, pParameters, pCacheDirectory, aLanguages);
+            writeReport(aMatches, aLanguages::get, pReportFile, pReportFormat, pParameters, pChangedFiles);
+        }
+        finally
+        {
+            // Restore the current thread's context class loader.
+            Thread.currentThread().setContextClassLoader(aContextClassLoader);
+        }
+    }
+
+
+    /**
+     * Analyze the files of several languages concurrently, with one pass per language.
+     *
+     * @param pFilesByLanguage  The files to analyze, mapped from their language.
+     * @param pParameters       The parameters of the analysis.
+     * @param pCacheDirectory   The directory of the token cache, or null to tokenize all files.
+     * @param pLanguages        A map to put the language of each match into.
+     *
+     * @return  The matches of all languages, in the iteration order of {@code pFilesByLanguage}.
+     *
+     * @throws IOException  if any of the passes fails, or if the calling thread is interrupted
+     *                      while waiting for the passes to finish.
+     */
+    private Iterator<Match> analyzeConcurrently(
+        Map<String, List<File>> pFilesByLanguage,
+        CpdParameters pParameters,
+        File pCacheDirectory,
+        Map<Match, String> pLanguages) throws IOException
+    {
+        if (pFilesByLanguage.isEmpty())
+            return Collections.emptyIterator();
+
+        int aNumThreads = Math.min(pFilesByLanguage.size(), Math.max(1, pParameters.getMaxParallelism()));
+        fLogger.debug(
+            "Analyzing {} languages using at most {} threads",
+            pFilesByLanguage.size(),
+            aNumThreads);
+
+        ClassLoader aClassLoader = Language.class.getClassLoader();
+        ExecutorService aExecutor = Executors.newFixedThreadPool(aNumThreads);
+        try
+        {
+            // Each language has its own cache, since a cache removes entries for files it wasn't
+            // asked for.
+            Map<String, Future<Iterator<Match>>> aResults = new LinkedHashMap<>();
+            for (Map.Entry<String, List<File>> aEntry : pFilesByLanguage.entrySet())
+            {
+                String aLanguage = aEntry.getKey();
+                File aCacheDirectory = pCacheDirectory != null ? new File(pCacheDirectory, aLanguage) : null;
+                aResults.put(
+                    aLanguage,
+                    aExecutor.submit(() -> {
+                        Thread.currentThread().setContextClassLoader(aClassLoader);
+                        return analyze(aLanguage, aEntry.getValue(), pParameters, aCacheDirectory);
+                    }));
+            }
+
+            List<Match> aMatches = new ArrayList<>();
+            for (Map.Entry<String, Future<Iterator<Match>>> aResult : aResults.entrySet())
+            {
+                Iterator<Match> aLanguageMatches = getPassResult(aResult.getValue(), aResult.getKey());
+                while (aLanguageMatches.hasNext())
+                {
+                    Match aMatch = aLanguageMatches.next();
+                    aMatches.add(aMatch);
+                    pLanguages.put(aMatch, aResult.getKey());
+                }
+            }
+
+            return aMatches.iterator();
+        }
+        finally
+        {
+            aExecutor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Get the result of analyzing the files of one language.
+     *
+     * @param pResult   The future result of the analysis.
+     * @param pLanguage The language.
+     *
+     * @return  The matches found.
+     *
+     * @throws IOException  if the analysis failed, or if the calling thread is interrupted while
+     *                      waiting for the analysis to finish.
+     */
+    static private Iterator<Match> getPassResult(Future<Iterator<Match>> pResult, String pLanguage) throws IOException
+    {
+        try
+        {
+            return pResult.get();
+        }
+        catch (ExecutionException e)
+        {
+            Throwable aCause = e.getCause();
+            if (aCause instanceof IOException)
+                throw (IOException) aCause;
+            else if (aCause instanceof RuntimeException)
+                throw (RuntimeException) aCause;
+            else if (aCause instanceof Error)
+                throw (Error) aCause;
+            else
+                throw new IOException("Could not analyze the " + pLanguage + " files", aCause);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while analyzing the " + pLanguage + " files");
+        }
+    }
+
+
+    /**
+     * Analyze files in one language.
+     *
+     * @param pLanguage         The language, or null for the default language.
+     * @param pFiles            The files to analyze.
+     * @param pParameters       The parameters of the analysis.
+     * @param pCacheDirectory   The directory of the token cache, or null to tokenize all files.
+     *
+     * @return  The matches found.
+     *
+     * @throws IOException  if accessing the files to analyze fails.
+     */
+    private Iterator<Match> analyze(
+        String pLanguage,
+        Collection<File> pFiles,
+        CpdParameters pParameters,
+        File pCacheDirectory) throws IOException
+    {
+        // Create a CPDConfiguration from the parameter values.
+        ReplayingConfiguration aConfiguration = configure(new ReplayingConfiguration(), pParameters);
+        setLanguage(aConfiguration, pLanguage);
+
+        // Create the token cache if requested and supported by the CPD version.
+        TokenCache aCache = null;
+        if (pCacheDirectory != null)
+        {
+            if (TokenizedFile.isSupported())
+                aCache = new TokenCache(pCacheDirectory, createCacheSettings(aConfiguration));
+            else
+                fLogger.warn("Token caching is not supported by CPD version {}", PMD.VERSION);
+        }
+
+        List<File> aFiles = new ArrayList<>(pFiles);
+        File aTokenStoreDirectory = pParameters.getTokenStoreDirectory();
+        if (aTokenStoreDirectory != null)
+        {
+            // The off-heap match algorithm requires the tokens to be captured.
+            if (TokenizedFile.isSupported())
+            {
+                try (OffHeapMatchAlgorithm aAlgorithm = new OffHeapMatchAlgorithm(aTokenStoreDirectory, pParameters.getMinimumTokenCount()))
+                {
+                    return findOffHeapMatches(aAlgorithm, aConfiguration, aFiles, pParameters, aCache);
+                }
+            }
+
+            fLogger.warn("Off-heap token storage is not supported by CPD version {}", PMD.VERSION);
+        }
+
+        return findMatches(aConfiguration, aFiles, pParameters, aCache);
+    }
+
+
+    /**
+     * Write the report of an analysis.
+     *
+     * @param pMatches      The matches to write.
+     * @param pLanguages    A function returning the language of a match, or null to not include
+     *                      the language in the report.
+     * @param pReportFile   The file to write the report to.
+     * @param pReportFormat The format of the report.
+     * @param pParameters   The parameters of the analysis.
+     * @param pChangedFiles The files to report duplications for, or null to report all
+     *                      duplications.
+     *
+     * @throws IOException  if writing the report fails.
+     */
+    private void writeReport(
+        Iterator<Match> pMatches,
+        Function<Match, String> pLanguages,
+        File pReportFile,
+        String pReportFormat,
+        CpdParameters pParameters,
+        Collection<File> pChangedFiles) throws IOException
+    {
+        if (pChangedFiles != null)
+            pMatches = new ChangedFilesMatchIterator(pMatches, pChangedFiles);
+
+        Charset aCharset = getReportCharset(pParameters.getEncoding());
+        CPDRenderer aRenderer = createRenderer(pReportFormat, aCharset, pParameters, pLanguages);
+        File aBaseDirectory = pParameters.getReportBaseDirectory();
+        try (Writer aWriter = createReportWriter(pReportFile, aCharset, aRenderer, aBaseDirectory))
+        {
+            fLogger.debug("Writing copy-paste analysis report to {}", pReportFile.getAbsolutePath());
+            aRenderer.render(pMatches, aWriter);
+        }
+    }
+
+
+    /**
+     * Find duplications with a {@code CPD} instance.
+     *
+     * @param pConfiguration    The configuration to create the {@code CPD} instance from.
+     * @param pFiles            The files to analyze.
+     * @param pParameters       The parameters of the analysis.
+     * @param pCache            The cache with previously tokenized files, or null to tokenize all
+     *                          files.
+     *
+     * @return  The matches found.
+     *
+     * @throws IOException  if adding a file to the {@code CPD} instance fails.
+     */
+    private Iterator<Match> findMatches(
+        ReplayingConfiguration pConfiguration,
+        List<File> pFiles,
+        CpdParameters pParameters,
+        TokenCache pCache) throws IOException
+    {
+        CPD aCpd = new CPD(pConfiguration);
 
         // Add and tokenize the files to analyze.
         fLogger.debug("Tokenizing files for copy-paste analysis");
-        for (File aFile : pFiles)
-            aCpd.add(aFile);
+        boolean aParallel = pParameters.getMaxParallelism() > 1 && pFiles.size() > 1;
+        if (pCache != null || (aParallel && TokenizedFile.isSupported()))
+        {
+            try
+            {
+                addInParallel(
+                    pConfiguration,
+                    pFiles,
+                    pParameters,
+                    pCache,
+                    (f, t) -> { pConfiguration.setNextFile(t); aCpd.add(f); });
+            }
+            finally
+            {
+                pConfiguration.setNextFile(null);
+            }
+        }
+        else
+            for (File aFile : pFiles)
+                aCpd.add(aFile);
 
         // Detect copy-paste.
         fLogger.debug("Performing copy-paste analysis");
         aCpd.go();
+        return aCpd.getMatches();
+    }
+
+
+    /**
+     * Find duplications with an {@code OffHeapMatchAlgorithm}. The files are filtered in the same
+     * way as {@code CPD} filters the files added to it.
+     *
+     * @param pAlgorithm        The algorithm to find the duplications with.
+     * @param pConfiguration    The configuration to tokenize the files with.
+     * @param pFiles            The files to analyze.
+     * @param pParameters       The parameters of the analysis.
+     * @param pCache            The cache with previously tokenized files, or null to tokenize all
+     *                          files.
+     *
+     * @return  The matches found.
+     *
+     * @throws IOException  if storing the tokens fails, or if a file cannot be tokenized and lexical
+     *                      errors aren't skipped.
+     */
+    private Iterator<Match> findOffHeapMatches(
+        OffHeapMatchAlgorithm pAlgorithm,
+        CPDConfiguration pConfiguration,
+        List<File> pFiles,
+        CpdParameters pParameters,
+        TokenCache pCache) throws IOException
+    {
+        fLogger.debug("Tokenizing files for copy-paste analysis using off-heap token storage");
+        Set<String> aSignatures = new HashSet<>();
+        addInParallel(
+            pConfiguration,
+            pFiles,
+            pParameters,
+            pCache,
+            (f, t) -> {
+                if (!isAnalyzable(f, pConfiguration, aSignatures))
+                    return;
+
+                // If the batch failed the file is tokenized on this thread.
+                if (t == null)
+                    t = TokenizedFile.tokenize(pConfiguration.sourceCodeFor(f), pConfiguration.tokenizer());
+
+                if (t.hasError())
+                {
+                    try
+                    {
+                        t.rethrowError();
+                    }
+                    catch (TokenMgrError e)
+                    {
+                        if (!pConfiguration.isSkipLexicalErrors())
+                            throw e;
+
+                        fLogger.warn("Skipping {}: {}", t.getFileName(), e.getMessage());
+                        return;
+                    }
+                }
+
+                pAlgorithm.add(f, t);
+            });
 
-        // Write the report.
-        try (Writer aWriter = createReportWriter(pReportFile, aConfiguration.getEncoding()))
+        fLogger.debug("Performing copy-paste analysis");
+        return pAlgorithm.findMatches(pConfiguration::sourceCodeFor).iterator();
+    }
+
+
+    /**
+     * Check if a file should be analyzed, using the same criteria as {@code CPD.add(File)}.
+     *
+     * @param pFile             The file.
+     * @param pConfiguration    The configuration of the analysis.
+     * @param pSignatures       The signatures of the files analyzed so far, used to skip duplicate
+     *                          files if so configured.
+     *
+     * @return  True if the file should be analyzed, false if it should be skipped.
+     *
+     * @throws IOException  if the canonical path of the file cannot be determined.
+     */
+    private boolean isAnalyzable(File pFile, CPDConfiguration pConfiguration, Set<String> pSignatures) throws IOException
+    {
+        if (pConfiguration.isSkipDuplicates() && !pSignatures.add(pFile.getName() + '_' + pFile.length()))
         {
-            fLogger.debug("Writing copy-paste analysis report to {}", pReportFile.getAbsolutePath());
-            createRenderer(pReportFormat).render(aCpd.getMatches(), aWriter);
+            fLogger.info("Skipping {} since it appears to be a duplicate file", pFile.getAbsolutePath());
+            return false;
+        }
+
+        File aAbsoluteFile = pFile.getAbsoluteFile();
+        if (!aAbsoluteFile.getCanonicalPath().equals(aAbsoluteFile.toPath().normalize().toString()))
+        {
+            fLogger.info("Skipping {} since it appears to be a symlink", pFile);
+            return false;
+        }
+
+        if (!pFile.exists())
+        {
+            fLogger.info("Skipping {} since it doesn't exist", pFile);
+            return false;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Tokenize files in parallel and pass them to a consumer. The files are divided into batches of
+     * consecutive files, and each batch is tokenized on a thread pool with its own tokenizer. The
+     * tokenized files are then passed to the consumer on the calling thread in the order of the
+     * file list, which makes the analysis identical to one where the files are tokenized serially.
+     *<p>
+     * If a token cache is specified, files with an entry in the cache are read from the cache
+     * instead of being tokenized, and the other files are stored in the cache after being
+     * tokenized. Entries for files not in the file list are removed from the cache.
+     *
+     * @param pConfiguration    The configuration to base the tokenizer configurations on.
+     * @param pFiles            The files to tokenize.
+     * @param pParameters       The parameters to configure the tokenizers with.
+     * @param pCache            The cache with previously tokenized files, or null to tokenize all
+     *                          files.
+     * @param pConsumer         The consumer of the tokenized files. The tokens passed to the
+     *                          consumer are null if the file couldn't be tokenized in parallel, in
+     *                          which case the consumer must tokenize the file itself.
+     *
+     * @throws IOException  if the consumer fails, or if the calling thread is interrupted while
+     *                      waiting for the files to be tokenized.
+     */
+    private void addInParallel(
+        CPDConfiguration pConfiguration,
+        List<File> pFiles,
+        CpdParameters pParameters,
+        TokenCache pCache,
+        TokenizedFileConsumer pConsumer) throws IOException
+    {
+        // When called only to use the cache the files are tokenized on a single thread other than
+        // the calling one, which must not have its token image map cleared.
+        int aMaxParallelism = Math.max(1, pParameters.getMaxParallelism());
+        int aNumBatches = Math.min(pFiles.size(), aMaxParallelism * BATCHES_PER_THREAD);
+
+        // Create one configuration per batch on this thread, since the tokenizer of a language
+        // instance may not be thread safe.
+        List<CPDConfiguration> aBatchConfigurations = new ArrayList<>(aNumBatches);
+        for (int i=0; i<aNumBatches; i++)
+        {
+            CPDConfiguration aBatchConfiguration = createBatchConfiguration(pConfiguration, pParameters);
+            if (aBatchConfiguration == null)
+            {
+                for (File aFile : pFiles)
+                    pConsumer.accept(aFile, null);
+                return;
+            }
+
+            aBatchConfigurations.add(aBatchConfiguration);
+        }
+
+        fLogger.debug(
+            "Tokenizing {} files in {} batches using at most {} threads",
+            pFiles.size(),
+            aNumBatches,
+            aMaxParallelism);
+
+        Set<String> aCacheKeys = ConcurrentHashMap.newKeySet();
+        ExecutorService aExecutor = aNumBatches > 0 ? Executors.newFixedThreadPool(Math.min(aMaxParallelism, aNumBatches)) : null;
+        try
+        {
+            // Submit the batches, which are consecutive ranges of the file list.
+            List<List<File>> aBatches = new ArrayList<>(aNumBatches);
+            List<Future<List<TokenizedFile>>> aResults = new ArrayList<>(aNumBatches);
+            for (int i=0; i<aNumBatches; i++)
+            {
+                List<File> aBatch =
+                    pFiles.subList(
+                        i * pFiles.size() / aNumBatches,
+                        (i + 1) * pFiles.size() / aNumBatches);
+                CPDConfiguration aBatchConfiguration = aBatchConfigurations.get(i);
+                aBatches.add(aBatch);
+                aResults.add(aExecutor.submit(() -> tokenizeBatch(aBatch, aBatchConfiguration, pCache, aCacheKeys)));
+            }
+
+            // Pass the files in the order of the batches as soon as each batch has been tokenized.
+            for (int i=0; i<aNumBatches; i++)
+            {
+                List<File> aBatch = aBatches.get(i);
+                List<TokenizedFile> aTokenizedFiles = getBatchResult(aResults.get(i));
+                for (int j=0; j<aBatch.size(); j++)
+                    pConsumer.accept(aBatch.get(j), aTokenizedFiles != null ? aTokenizedFiles.get(j) : null);
+
+                // Release the tokens of the batch, they have been passed to the consumer.
+                aResults.set(i, null);
+            }
+
+            // Remove the cache entries of files that have been modified or removed.
+            if (pCache != null)
+                pCache.retain(aCacheKeys);
         }
         finally
         {
-            // Restore the current thread's context class loader.
-            Thread.currentThread().setContextClassLoader(aContextClassLoader);
+            if (aExecutor != null)
+                aExecutor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Get the result of tokenizing a batch of files.
+     *
+     * @param pResult   The future result of the batch.
+     *
+     * @return  The tokenized files of the batch, or null if the tokenization failed.
+     *
+     * @throws InterruptedIOException   if the calling thread is interrupted while waiting for the
+     *                                  batch to be tokenized.
+     */
+    private List<TokenizedFile> getBatchResult(Future<List<TokenizedFile>> pResult) throws InterruptedIOException
+    {
+        try
+        {
+            return pResult.get();
+        }
+        catch (ExecutionException e)
+        {
+            fLogger.debug("Error when tokenizing files in parallel: {}", e.getCause().getMessage());
+            return null;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while tokenizing files");
+        }
+    }
+
+
+    /**
+     * Tokenize a batch of files, possibly using a token cache.
+     *
+     * @param pFiles            The files to tokenize.
+     * @param pConfiguration    The configuration with the tokenizer to use. Must not be used by any
+     *                          other thread.
+     * @param pCache            The cache with previously tokenized files, or null to tokenize all
+     *                          files.
+     * @param pCacheKeys        A set to add the cache keys of the files to.
+     *
+     * @return  The tokenized files, in the same order as {@code pFiles}.
+     */
+    private List<TokenizedFile> tokenizeBatch(
+        List<File> pFiles,
+        CPDConfiguration pConfiguration,
+        TokenCache pCache,
+        Set<String> pCacheKeys)
+    {
+        Tokenizer aTokenizer = pConfiguration.tokenizer();
+        List<TokenizedFile> aTokenizedFiles = new ArrayList<>(pFiles.size());
+        for (File aFile : pFiles)
+        {
+            String aKey = pCache != null ? computeCacheKey(pCache, aFile) : null;
+            TokenizedFile aTokenizedFile = aKey != null ? pCache.get(aKey) : null;
+            if (aTokenizedFile == null)
+            {
+                aTokenizedFile = TokenizedFile.tokenize(pConfiguration.sourceCodeFor(aFile), aTokenizer);
+
+                // Files that could not be tokenized are not cached, the next analysis should
+                // report the same error.
+                if (aKey != null && !aTokenizedFile.hasError())
+                    putInCache(pCache, aKey, aTokenizedFile);
+            }
+
+            if (aKey != null)
+                pCacheKeys.add(aKey);
+
+            aTokenizedFiles.add(aTokenizedFile);
+        }
+
+        return aTokenizedFiles;
+    }
+
+
+    /**
+     * Compute the cache key for a file.
+     *
+     * @param pCache    The cache to compute the key with.
+     * @param pFile     The file.
+     *
+     * @return  The file's cache key, or null if the file cannot be read.
+     */
+    private String computeCacheKey(TokenCache pCache, File pFile)
+    {
+        try
+        {
+            return pCache.computeKey(pFile.getAbsoluteFile().toPath());
+        }
+        catch (IOException ioe)
+        {
+            // Let the tokenizer report the error.
+            fLogger.debug("Could not compute the token cache key for {}: {}", pFile, ioe.getMessage());
+            return null;
+        }
+    }
+
+
+    /**
+     * Store a tokenized file in a cache, logging any failure.
+     *
+     * @param pCache    The cache.
+     * @param pKey      The file's cache key.
+     * @param pFile     The tokenized file.
+     */
+    private void putInCache(TokenCache pCache, String pKey, TokenizedFile pFile)
+    {
+        try
+        {
+            pCache.put(pKey, pFile);
+        }
+        catch (IOException ioe)
+        {
+            fLogger.warn("Could not store the tokens of {} in the cache: {}", pFile.getFileName(), ioe.getMessage());
+        }
+    }
+
+
+    /**
+     * Create a string describing the settings that affect the tokens produced from a source file.
+     *
+     * @param pConfiguration    The configuration the files are tokenized with.
+     *
+     * @return  The settings string.
+     */
+    static private String createCacheSettings(CPDConfiguration pConfiguration)
+    {
+        return String.join(
+            ",",
+            PMD.VERSION,
+            pConfiguration.getLanguage().getClass().getName(),
+            String.valueOf(pConfiguration.getEncoding()),
+            String.valueOf(pConfiguration.isIgnoreLiterals()),
+            String.valueOf(pConfiguration.isIgnoreIdentifiers()),
+            String.valueOf(pConfiguration.isIgnoreAnnotations()),
+            String.valueOf(pConfiguration.isIgnoreUsings()),
+            String.valueOf(pConfiguration.isNoSkipBlocks()),
+            String.valueOf(pConfiguration.getSkipBlocksPattern()));
+    }
+
+
+    /**
+     * Create a configuration with a language instance of its own, which makes its tokenizer safe to
+     * use on another thread than the tokenizers of other configurations.
+     *
+     * @param pConfiguration    The configuration whose language to create a new instance of.
+     * @param pParameters       The parameters to configure the new configuration with.
+     *
+     * @return  A new {@code CPDConfiguration}, or null if the language could not be instantiated.
+     */
+    private CPDConfiguration createBatchConfiguration(
+        CPDConfiguration pConfiguration,
+        CpdParameters pParameters)
+    {
+        Class<? extends Language> aLanguageClass = pConfiguration.getLanguage().getClass();
+        try
+        {
+            CPDConfiguration aConfiguration = configure(new CPDConfiguration(), pParameters);
+            aConfiguration.setLanguage(aLanguageClass.newInstance());
+            CPDConfiguration.setSystemProperties(aConfiguration);
+            return aConfiguration;
+        }
+        catch (InstantiationException | IllegalAccessException e)
+        {
+            fLogger.debug("Cannot create an instance of {}, tokenizing files serially", aLanguageClass.getName());
+            return null;
         }
     }
 
 
     /**
-     * Create an {@code OutputStreamWriter} for a report file.
+     * Get the charset to write the report with.
+     *
+     * @param pEncoding The name of the encoding to write the report with, or null to use the
+     *                  platform's default encoding.
      *
-     * @param pReportFile   The report file.
-     * @param pEncoding     The encoding to write the file with, or null to use teh platform's
-     *                      default encoding.
-     * @return  A new {@code OutputStreamWriter}.
+     * @return  The charset, never null.
+     *
+     * @throws IOException  if the encoding isn't supported.
+     */
+    static private Charset getReportCharset(String pEncoding) throws IOException
+    {
+        if (pEncoding == null)
+            return Charset.defaultCharset();
+
+        try
+        {
+            return Charset.forName(pEncoding);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IOException("Unsupported report encoding " + pEncoding, e);
+        }
+    }
+
+
+    /**
+     * Create a buffered {@code Writer} for a report file. If the report is written by one of the
+     * CPD renderers and there is a base directory, the writer removes the base directory's path
+     * from the file paths in the report. The XML renderer writes relative paths by itself.
+     *
+     * @param pReportFile       The report file.
+     * @param pCharset          The charset to write the file with.
+     * @param pRenderer         The renderer that will write the report.
+     * @param pBaseDirectory    The directory the file paths should be relative to, possibly null.
+     *
+     * @return  A new {@code Writer}.
      *
      * @throws IOException  if creating the writer fails.
      */
-    private OutputStreamWriter createReportWriter(File pReportFile, String pEncoding) throws IOException
+    static private Writer createReportWriter(
+        File pReportFile,
+        Charset pCharset,
+        CPDRenderer pRenderer,
+        File pBaseDirectory) throws IOException
     {
-        if (pEncoding != null)
-            return new OutputStreamWriter(new FileOutputStream(pReportFile), pEncoding);
-        else
-            return new OutputStreamWriter(new FileOutputStream(pReportFile));
+        Writer aWriter = new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(pReportFile), pCharset),
+            REPORT_BUFFER_SIZE);
+
+        if (pBaseDirectory != null && !(pRenderer instanceof StreamingXmlRenderer))
+            aWriter = new RelativePathWriter(aWriter, pBaseDirectory);
+
+        return aWriter;
     }
 
 
     /**
-     * Create the appropriate {@code CPDRenderer} for a report file format.
+     * Create the appropriate {@code CPDRenderer} for a report file format. XML reports are written
+     * with a streaming renderer rather than with the CPD renderer, which holds the entire report in
+     * memory before writing it.
      *
      * @param pReportFormat The desired report file format.
+     * @param pCharset      The charset the report is written with.
+     * @param pParameters   The parameters specifying how to write code fragments.
+     * @param pLanguages    A function returning the language of a match, or null to not include
+     *                      the language in the report. Only used for the XML format.
      *
      * @return  A new {@code CPDRenderer} for the specified format. If the format isn't supported,
      *          a renderer for the XML format will be returned.
      *
-     * @throws NullPointerException if {@code pReportFormat} is null.
+     * @throws NullPointerException if any of the parameters is null.
      */
-    private CPDRenderer createRenderer(String pReportFormat)
+    private CPDRenderer createRenderer(
+        String pReportFormat,
+        Charset pCharset,
+        CpdParameters pParameters,
+        Function<Match, String> pLanguages)
     {
         switch (pReportFormat)
         {
             case CpdReports.FORMAT_XML:
-                return new XMLRenderer();
+                return createXmlRenderer(pCharset, pParameters, pLanguages);
             case CpdReports.FORMAT_TEXT:
                 return new SimpleRenderer();
             case CpdReports.FORMAT_CSV:
@@ -129,45 +839,60 @@ public class CpdRunnerImpl implements CpdRunner
                 return new VSRenderer();
             default:
                 fLogger.warn("Unsupported report format {}, falling back to XML", pReportFormat);
-                return new XMLRenderer();
+                return createXmlRenderer(pCharset, pParameters, pLanguages);
         }
     }
 
 
+    static private CPDRenderer createXmlRenderer(
+        Charset pCharset,
+        CpdParameters pParameters,
+        Function<Match, String> pLanguages)
+    {
+        return new StreamingXmlRenderer(
+            pCharset.name(),
+            pParameters.isIncludeCodeFragments(),
+            pParameters.getMaxCodeFragmentLines(),
+            pLanguages,
+            pParameters.getReportBaseDirectory());
+    }
+
+
     /**
-     * Create a {@code CPDConfiguration} from the values in a {@code CpdParameters} instance.
+     * Configure a {@code CPDConfiguration} with the values in a {@code CpdParameters} instance,
+     * except for the language.
      *
-     * @param pParameters   The values to put into the configuration.
+     * @param pConfiguration    The configuration to put the values into.
+     * @param pParameters       The values to put into the configuration.
      *
-     * @return  A new {@code CPDConfiguration}.
+     * @param <C>   The type of configuration.
      *
-     * @throws NullPointerException if {@code pParameters} is null.
+     * @return  {@code pConfiguration}.
+     *
+     * @throws NullPointerException if any of the parameters is null.
      */
-    private CPDConfiguration toConfiguration(CpdParameters pParameters)
+    private <C extends CPDConfiguration> C configure(C pConfiguration, CpdParameters pParameters)
     {
-        CPDConfiguration aConfiguration = new CPDConfiguration();
-        aConfiguration.setFailOnViolation(false);
+        pConfiguration.setFailOnViolation(false);
 
-        consumeIfNonNull(aConfiguration::setEncoding, pParameters.getEncoding());
+        consumeIfNonNull(pConfiguration::setEncoding, pParameters.getEncoding());
 
-        aConfiguration.setMinimumTileSize(pParameters.getMinimumTokenCount());
+        pConfiguration.setMinimumTileSize(pParameters.getMinimumTokenCount());
 
-        aConfiguration.setIgnoreLiterals(pParameters.isIgnoreLiterals());
-        aConfiguration.setIgnoreIdentifiers(pParameters.isIgnoreIdentifiers());
-        aConfiguration.setIgnoreAnnotations(pParameters.isIgnoreAnnotations());
-        aConfiguration.setIgnoreUsings(pParameters.isIgnoreUsings());
+        pConfiguration.setIgnoreLiterals(pParameters.isIgnoreLiterals());
+        pConfiguration.setIgnoreIdentifiers(pParameters.isIgnoreIdentifiers());
+        pConfiguration.setIgnoreAnnotations(pParameters.isIgnoreAnnotations());
+        pConfiguration.setIgnoreUsings(pParameters.isIgnoreUsings());
 
-        aConfiguration.setSkipDuplicates(pParameters.isSkipDuplicateFiles());
-        aConfiguration.setSkipLexicalErrors(pParameters.isSkipLexicalErrors());
+        pConfiguration.setSkipDuplicates(pParameters.isSkipDuplicateFiles());
+        pConfiguration.setSkipLexicalErrors(pParameters.isSkipLexicalErrors());
 
         // Note that CPD uses a negative setter for skip blocks, hence the negation.
-        aConfiguration.setNoSkipBlocks(!pParameters.isSkipBlocks());
-
-        consumeIfNonNull(aConfiguration::setSkipBlocksPattern, pParameters.getSkipBlocksPattern());
+        pConfiguration.setNoSkipBlocks(!pParameters.isSkipBlocks());
 
-        setLanguage(aConfiguration, pParameters.getLanguage());
+        consumeIfNonNull(pConfiguration::setSkipBlocksPattern, pParameters.getSkipBlocksPattern());
 
-        return aConfiguration;
+        return pConfiguration;
     }
 
 
@@ -197,4 +922,65 @@ public class CpdRunnerImpl implements CpdRunner
         if (pValue != null)
             pSetter.accept(pValue);
     }
+
+
+    /**
+     * A consumer of tokenized files that may throw an {@code IOException}.
+     */
+    @FunctionalInterface
+    private interface TokenizedFileConsumer
+    {
+        void accept(File pFile, TokenizedFile pTokens) throws IOException;
+    }
+
+
+    /**
+     * An iterator over the matches that involve at least one file in a set of changed files.
+     */
+    static private class ChangedFilesMatchIterator implements Iterator<Match>
+    {
+        private final Iterator<Match> fMatches;
+        private final Set<String> fChangedPaths = new HashSet<>();
+        private Match fNext;
+
+        ChangedFilesMatchIterator(Iterator<Match> pMatches, Collection<File> pChangedFiles)
+        {
+            fMatches = pMatches;
+            for (File aFile : pChangedFiles)
+                fChangedPaths.add(aFile.getAbsolutePath());
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            while (fNext == null && fMatches.hasNext())
+            {
+                Match aMatch = fMatches.next();
+                if (involvesChangedFile(aMatch))
+                    fNext = aMatch;
+            }
+
+            return fNext != null;
+        }
+
+        @Override
+        public Match next()
+        {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            Match aNext = fNext;
+            fNext = null;
+            return aNext;
+        }
+
+        private boolean involvesChangedFile(Match pMatch)
+        {
+            for (Mark aMark : pMatch)
+                if (fChangedPaths.contains(new File(aMark.getFilename()).getAbsolutePath()))
+                    return true;
+
+            return false;
+        }
+    }
 }
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.cpd.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.myire.quill.common.Invocations;
+
+
+/**
+ * An array of ints or longs stored in a memory-mapped file. The elements are not part of the Java
+ * heap; they are paged in and out of memory by the operating system as needed.
+ *<p>
+ * The file is mapped in segments of 1 GiB, since a single mapping cannot exceed 2 GiB. The
+ * elements are stored in big-endian byte order, which is the order {@code DataOutputStream}
+ * writes them in.
+ *<p>
+ * A mapping is normally released when its buffer is garbage collected, and on some platforms the
+ * file cannot be deleted until then. The array can therefore be unmapped explicitly when it is no
+ * longer used, provided that the JVM allows it.
+ */
+final class MappedArray
+{
+    static private final int SEGMENT_SHIFT = 30;
+    static private final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    static private final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    static private final int INT_SHIFT = 2;
+    static private final int LONG_SHIFT = 3;
+
+    // Releases the mapping of a buffer, null if not supported by the JVM.
+    static private final MethodHandle UNMAP = lookupUnmap();
+
+    private final MappedByteBuffer[] fSegments;
+    private final long fLength;
+
+
+    private MappedArray(MappedByteBuffer[] pSegments, long pLength)
+    {
+        fSegments = pSegments;
+        fLength = pLength;
+    }
+
+
+    /**
+     * Map a file containing int values.
+     *
+     * @param pFile     The file.
+     * @param pLength   The number of ints in the file.
+     * @param pWritable If true, the array can be modified, and the modifications are written to
+     *                  the file.
+     *
+     * @return  A new {@code MappedArray}, never null.
+     *
+     * @throws IOException  if mapping the file fails.
+     */
+    static MappedArray mapInts(File pFile, long pLength, boolean pWritable) throws IOException
+    {
+        return map(pFile, pLength, INT_SHIFT, pWritable);
+    }
+
+
+    /**
+     * Map a file containing long values.
+     *
+     * @param pFile     The file.
+     * @param pLength   The number of longs in the file.
+     * @param pWritable If true, the array can be modified, and the modifications are written to
+     *                  the file.
+     *
+     * @return  A new {@code MappedArray}, never null.
+     *
+     * @throws IOException  if mapping the file fails.
+     */
+    static MappedArray mapLongs(File pFile, long pLength, boolean pWritable) throws IOException
+    {
+        return map(pFile, pLength, LONG_SHIFT, pWritable);
+    }
+
+
+    /**
+     * Get the number of elements in the array.
+     *
+     * @return  The array's length.
+     */
+    long length()
+    {
+        return fLength;
+    }
+
+
+    int getInt(long pIndex)
+    {
+        long aOffset = pIndex << INT_SHIFT;
+        return fSegments[(int) (aOffset >>> SEGMENT_SHIFT)].getInt((int) (aOffset & SEGMENT_MASK));
+    }
+
+
+    long getLong(long pIndex)
+    {
+        long aOffset = pIndex << LONG_SHIFT;
+        return fSegments[(int) (aOffset >>> SEGMENT_SHIFT)].getLong((int) (aOffset & SEGMENT_MASK));
+    }
+
+
+    void putLong(long pIndex, long pValue)
+    {
+        long aOffset = pIndex << LONG_SHIFT;
+        fSegments[(int) (aOffset >>> SEGMENT_SHIFT)].putLong((int) (aOffset & SEGMENT_MASK), pValue);
+    }
+
+
+    /**
+     * Release the mappings of the array's file, which allows the file to be deleted on all
+     * platforms. The array must not be accessed after this method has been called. If the JVM
+     * doesn't allow mappings to be released explicitly, they are released when the array is
+     * garbage collected.
+     *
+     * @return  True if the mappings were released, false if not.
+     */
+    boolean unmap()
+    {
+        if (UNMAP == null)
+            return false;
+
+        boolean aUnmapped = true;
+        for (int i=0; i<fSegments.length; i++)
+        {
+            MappedByteBuffer aSegment = fSegments[i];
+            fSegments[i] = null;
+            if (aSegment == null)
+                continue;
+
+            try
+            {
+                UNMAP.invokeExact((ByteBuffer) aSegment);
+            }
+            catch (Throwable ignore)
+            {
+                aUnmapped = false;
+            }
+        }
+
+        return aUnmapped;
+    }
+
+
+    static private MappedArray map(File pFile, long pLength, int pElementShift, boolean pWritable) throws IOException
+    {
+        long aSize = pLength << pElementShift;
+        int aNumSegments = (int) ((aSize + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+        MappedByteBuffer[] aSegments = new MappedByteBuffer[aNumSegments];
+        FileChannel.MapMode aMode = pWritable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        try (RandomAccessFile aFile = new RandomAccessFile(pFile, pWritable ? "rw" : "r");
+             FileChannel aChannel = aFile.getChannel())
+        {
+            // The mappings remain valid after the channel has been closed.
+            for (int i=0; i<aNumSegments; i++)
+            {
+                long aPosition = (long) i << SEGMENT_SHIFT;
+                aSegments[i] = aChannel.map(aMode, aPosition, Math.min(SEGMENT_SIZE, aSize - aPosition));
+            }
+        }
+
+        return new MappedArray(aSegments, pLength);
+    }
+
+
+    /**
+     * Look up a method handle that releases the mapping of a direct buffer. Java 9 and later
+     * provide {@code sun.misc.Unsafe.invokeCleaner}, on Java 8 the buffer's cleaner is invoked.
+     *
+     * @return  A method handle taking a {@code ByteBuffer} argument, or null if the JVM doesn't
+     *          allow mappings to be released explicitly.
+     */
+    static private MethodHandle lookupUnmap()
+    {
+        MethodHandles.Lookup aLookup = MethodHandles.lookup();
+        try
+        {
+            Class<?> aUnsafeClass = Class.forName("sun.misc.Unsafe");
+            MethodHandle aInvokeCleaner =
+                Invocations.lookupVirtualMethod(
+                    aLookup,
+                    aUnsafeClass,
+                    "invokeCleaner",
+                    MethodType.methodType(void.class, ByteBuffer.class));
+            if (aInvokeCleaner != null)
+            {
+                Field aUnsafeField = aUnsafeClass.getDeclaredField("theUnsafe");
+                aUnsafeField.setAccessible(true);
+                return aInvokeCleaner.bindTo(aUnsafeField.get(null));
+            }
+
+            Class<?> aDirectBufferClass = Class.forName("sun.nio.ch.DirectBuffer");
+            Method aCleanerMethod = aDirectBufferClass.getMethod("cleaner");
+            Method aCleanMethod = aCleanerMethod.getReturnType().getMethod("clean");
+            return MethodHandles.filterReturnValue(aLookup.unreflect(aCleanerMethod), aLookup.unreflect(aCleanMethod))
+                .asType(MethodType.methodType(void.class, ByteBuffer.class));
+        }
+        catch (ReflectiveOperationException | RuntimeException ignore)
+        {
+            return null;
+        }
+    }
+}
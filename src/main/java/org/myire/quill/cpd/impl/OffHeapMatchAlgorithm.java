@@ -0,0 +1,760 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.cpd.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import net.sourceforge.pmd.cpd.Mark;
+import net.sourceforge.pmd.cpd.Match;
+import net.sourceforge.pmd.cpd.SourceCode;
+import net.sourceforge.pmd.cpd.TokenEntry;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import org.myire.quill.common.Invocations;
+
+
+/**
+ * A copy-paste detection algorithm that keeps the tokens of the analyzed files in memory-mapped
+ * files instead of on the Java heap. The heap usage is proportional to the number of distinct
+ * token images and the number of duplications found, not to the number of tokens.
+ *<p>
+ * Each token is stored as an int identifier of its image, together with its position. The
+ * duplication candidates are found by sorting a rolling hash of every window of
+ * {@code minimumTileSize} tokens in a memory-mapped file, and the candidates are then verified and
+ * extended in the same way as CPD's own {@code MatchAlgorithm} does, which produces the same
+ * matches as CPD given the same files in the same order.
+ *<p>
+ * Instances of this class are not thread safe.
+ */
+class OffHeapMatchAlgorithm implements Closeable
+{
+    // The multiplier of the rolling hash, same as in CPD.
+    static private final int MOD = 37;
+
+    // The identifier of the end of file token; image identifiers start at 1.
+    static private final int EOF_IDENTIFIER = 0;
+
+    // Ranges smaller than this are sorted with insertion sort.
+    static private final int INSERTION_SORT_THRESHOLD = 16;
+
+    // Mark.setEndToken() is only available in some CPD versions.
+    static private final MethodHandle SET_END_TOKEN =
+        Invocations.lookupVirtualMethod(
+            MethodHandles.lookup(),
+            Mark.class,
+            "setEndToken",
+            MethodType.methodType(void.class, TokenEntry.class));
+
+    private final Logger fLogger = Logging.getLogger(OffHeapMatchAlgorithm.class);
+
+    private final int fMinimumTileSize;
+    private final int fLastMod;
+
+    // The interned token images, where the list index is the image's identifier.
+    private final Map<String, Integer> fImageIdentifiers = new HashMap<>();
+    private final List<String> fImages = new ArrayList<>();
+
+    // The analyzed files, their token start indices and the positions available for their tokens.
+    private final List<File> fFiles = new ArrayList<>();
+    private final List<String> fFileNames = new ArrayList<>();
+    private int[] fFileStarts = new int[64];
+    private int[] fFilePositionFlags = new int[64];
+
+    // The token columns and the window hashes, appended to while files are added.
+    private final StorageFile fIdentifiers;
+    private final StorageFile fBeginLines;
+    private final StorageFile fBeginColumns;
+    private final StorageFile fEndLines;
+    private final StorageFile fEndColumns;
+    private final StorageFile fHashes;
+    private int fNumTokens;
+    private long fNumHashes;
+
+    // The token indices of the token entries created for the matches.
+    private final Map<TokenEntry, Integer> fTokenIndices = new IdentityHashMap<>();
+
+    // The storage files mapped when finding the matches, unmapped when closing.
+    private final List<MappedArray> fMappedArrays = new ArrayList<>();
+
+
+    /**
+     * Create a new {@code OffHeapMatchAlgorithm}.
+     *
+     * @param pDirectory        The directory to create the storage files in. The directory is
+     *                          created if it doesn't exist.
+     * @param pMinimumTileSize  The minimum number of tokens in a duplication.
+     *
+     * @throws IOException  if creating the storage files fails.
+     * @throws NullPointerException if {@code pDirectory} is null.
+     */
+    OffHeapMatchAlgorithm(File pDirectory, int pMinimumTileSize) throws IOException
+    {
+        fMinimumTileSize = Math.max(1, pMinimumTileSize);
+
+        int aLastMod = 1;
+        for (int i=0; i<fMinimumTileSize; i++)
+            aLastMod *= MOD;
+        fLastMod = aLastMod;
+
+        fImages.add(null);
+
+        if (!pDirectory.isDirectory() && !pDirectory.mkdirs())
+            throw new IOException("Could not create the token store directory " + pDirectory);
+
+        List<StorageFile> aFiles = new ArrayList<>();
+        try
+        {
+            fIdentifiers = add(aFiles, new StorageFile(pDirectory, "identifiers"));
+            fBeginLines = add(aFiles, new StorageFile(pDirectory, "beginlines"));
+            fBeginColumns = add(aFiles, new StorageFile(pDirectory, "begincolumns"));
+            fEndLines = add(aFiles, new StorageFile(pDirectory, "endlines"));
+            fEndColumns = add(aFiles, new StorageFile(pDirectory, "endcolumns"));
+            fHashes = add(aFiles, new StorageFile(pDirectory, "hashes"));
+        }
+        catch (IOException | RuntimeException e)
+        {
+            for (StorageFile aFile : aFiles)
+                aFile.delete();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Add the tokens of a file to the analysis.
+     *
+     * @param pFile     The file.
+     * @param pTokens   The file's tokens.
+     *
+     * @throws IOException  if writing the tokens to the storage files fails, or if the total number
+     *                      of tokens is too large.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    void add(File pFile, TokenizedFile pTokens) throws IOException
+    {
+        int aNumTokens = pTokens.getNumTokens();
+        if (aNumTokens > Integer.MAX_VALUE - fNumTokens)
+            throw new IOException("Too many tokens for copy-paste analysis");
+
+        int aFileIndex = fFiles.size();
+        if (aFileIndex == fFileStarts.length)
+        {
+            fFileStarts = Arrays.copyOf(fFileStarts, aFileIndex * 2);
+            fFilePositionFlags = Arrays.copyOf(fFilePositionFlags, aFileIndex * 2);
+        }
+
+        fFiles.add(pFile);
+        fFileNames.add(pTokens.getFileName());
+        fFileStarts[aFileIndex] = fNumTokens;
+        fFilePositionFlags[aFileIndex] = pTokens.getPositionFlags();
+
+        int[] aIdentifiers = new int[aNumTokens];
+        for (int i=0; i<aNumTokens; i++)
+        {
+            aIdentifiers[i] = pTokens.isEOF(i) ? EOF_IDENTIFIER : intern(pTokens.getImage(i));
+            fIdentifiers.fOutput.writeInt(aIdentifiers[i]);
+            fBeginLines.fOutput.writeInt(pTokens.getBeginLine(i));
+            fBeginColumns.fOutput.writeInt(pTokens.getBeginColumn(i));
+            fEndLines.fOutput.writeInt(pTokens.getEndLine(i));
+            fEndColumns.fOutput.writeInt(pTokens.getEndColumn(i));
+        }
+
+        writeHashes(aIdentifiers, fNumTokens);
+        fNumTokens += aNumTokens;
+    }
+
+
+    /**
+     * Find the duplications in the added files. No more files can be added after this method has
+     * been called.
+     *
+     * @param pSourceCodeFactory    A function that creates the {@code SourceCode} instance of a
+     *                              file, used to create the code fragments of the matches.
+     *
+     * @return  The matches found, sorted in the same way as CPD sorts its matches.
+     *
+     * @throws IOException  if accessing the storage files fails.
+     * @throws NullPointerException if {@code pSourceCodeFactory} is null.
+     */
+    List<Match> findMatches(Function<File, SourceCode> pSourceCodeFactory) throws IOException
+    {
+        // The images are only needed while interning.
+        fImageIdentifiers.clear();
+
+        for (StorageFile aFile : Arrays.asList(fIdentifiers, fBeginLines, fBeginColumns, fEndLines, fEndColumns, fHashes))
+            aFile.fOutput.close();
+
+        fLogger.debug("Sorting {} token window hashes of {} tokens", fNumHashes, fNumTokens);
+        MappedArray aHashes = map(MappedArray.mapLongs(fHashes.fFile, fNumHashes, true));
+        sort(aHashes, 0, fNumHashes);
+
+        fLogger.debug("Collecting matches");
+        MappedArray aIdentifiers = map(MappedArray.mapInts(fIdentifiers.fFile, fNumTokens, false));
+        List<MatchCandidate> aCandidates = collectMatches(aHashes, aIdentifiers);
+
+        fLogger.debug("Creating {} matches", aCandidates.size());
+        return createMatches(aCandidates, aIdentifiers, pSourceCodeFactory);
+    }
+
+
+    /**
+     * Release the mappings of the storage files and delete them. The matches returned by
+     * {@link #findMatches(Function)} remain valid. A storage file that cannot be deleted is left
+     * in the directory it was created in, and a warning is logged.
+     */
+    @Override
+    public void close()
+    {
+        // On some platforms a file cannot be deleted while it is mapped.
+        for (MappedArray aArray : fMappedArrays)
+            aArray.unmap();
+        fMappedArrays.clear();
+
+        for (StorageFile aFile : Arrays.asList(fIdentifiers, fBeginLines, fBeginColumns, fEndLines, fEndColumns, fHashes))
+            if (!aFile.delete())
+                fLogger.warn("Could not delete the token store file {}", aFile.fFile);
+    }
+
+
+    private MappedArray map(MappedArray pArray)
+    {
+        fMappedArrays.add(pArray);
+        return pArray;
+    }
+
+
+    /**
+     * Get the identifier of a token image, assigning it a new identifier if it hasn't been
+     * encountered before.
+     *
+     * @param pImage    The image.
+     *
+     * @return  The image's identifier.
+     */
+    private int intern(String pImage)
+    {
+        Integer aIdentifier = fImageIdentifiers.get(pImage);
+        if (aIdentifier == null)
+        {
+            aIdentifier = Integer.valueOf(fImages.size());
+            fImageIdentifiers.put(pImage, aIdentifier);
+            fImages.add(pImage);
+        }
+
+        return aIdentifier.intValue();
+    }
+
+
+    /**
+     * Write the hash of each window of {@code minimumTileSize} tokens in a file that doesn't cross
+     * an end of file token. The hash is the same as the one CPD computes, and is stored in the
+     * upper half of a long with the window's start index in the lower half.
+     *
+     * @param pIdentifiers  The image identifiers of the file's tokens.
+     * @param pStartIndex   The index of the file's first token in all tokens.
+     *
+     * @throws IOException  if writing to the hashes file fails.
+     */
+    private void writeHashes(int[] pIdentifiers, int pStartIndex) throws IOException
+    {
+        int aHash = 0;
+        int aBoundary = pIdentifiers.length;
+        for (int i=pIdentifiers.length-1; i>=0; i--)
+        {
+            if (pIdentifiers[i] == EOF_IDENTIFIER)
+            {
+                aHash = 0;
+                aBoundary = i;
+                continue;
+            }
+
+            // Roll the window one token backwards; tokens at or beyond the boundary aren't part of
+            // any window.
+            int aLast = i + fMinimumTileSize < aBoundary ? pIdentifiers[i + fMinimumTileSize] : 0;
+            aHash = MOD * aHash + pIdentifiers[i] - fLastMod * aLast;
+            if (i + fMinimumTileSize <= aBoundary)
+            {
+                fHashes.fOutput.writeLong(((long) aHash << 32) | (pStartIndex + i));
+                fNumHashes++;
+            }
+        }
+    }
+
+
+    /**
+     * Collect the maximal matches among the windows with equal hashes, in the same way as CPD's
+     * {@code MatchCollector}.
+     *
+     * @param pHashes       The sorted window hashes.
+     * @param pIdentifiers  The image identifiers of all tokens.
+     *
+     * @return  The match candidates.
+     */
+    private List<MatchCandidate> collectMatches(MappedArray pHashes, MappedArray pIdentifiers)
+    {
+        List<MatchCandidate> aCandidates = new ArrayList<>();
+        Map<Integer, Map<Integer, MatchCandidate>> aCandidatesBySize = new HashMap<>();
+
+        long aNumHashes = pHashes.length();
+        long aStart = 0;
+        while (aStart < aNumHashes)
+        {
+            int aHash = (int) (pHashes.getLong(aStart) >> 32);
+            long aEnd = aStart + 1;
+            while (aEnd < aNumHashes && (int) (pHashes.getLong(aEnd) >> 32) == aHash)
+                aEnd++;
+
+            if (aEnd - aStart > 1)
+            {
+                // The positions with equal hashes are sorted in ascending order.
+                int[] aMarks = new int[(int) (aEnd - aStart)];
+                for (int i=0; i<aMarks.length; i++)
+                    aMarks[i] = (int) pHashes.getLong(aStart + i);
+
+                collect(aMarks, pIdentifiers, aCandidates, aCandidatesBySize);
+            }
+
+            aStart = aEnd;
+        }
+
+        return aCandidates;
+    }
+
+
+    private void collect(
+        int[] pMarks,
+        MappedArray pIdentifiers,
+        List<MatchCandidate> pCandidates,
+        Map<Integer, Map<Integer, MatchCandidate>> pCandidatesBySize)
+    {
+        for (int i=0; i<pMarks.length-1; i++)
+        {
+            int aMark1 = pMarks[i];
+            for (int j=i+1; j<pMarks.length; j++)
+            {
+                int aMark2 = pMarks[j];
+                int aDiff = aMark1 - aMark2;
+                if (-aDiff < fMinimumTileSize)
+                    continue;
+
+                // Only report the match starting at the first duplicated token.
+                if (aMark1 > 0 && !matchEnded(pIdentifiers, aMark1 - 1, aMark2 - 1))
+                    continue;
+
+                int aDupes = countDuplicateTokens(pIdentifiers, aMark1, aMark2);
+                if (aDupes < fMinimumTileSize)
+                    continue;
+
+                // Overlapping duplications are not reported.
+                if (aDiff + aDupes >= 1)
+                    continue;
+
+                reportMatch(aMark1, aMark2, aDupes, pCandidates, pCandidatesBySize);
+            }
+        }
+    }
+
+
+    private void reportMatch(
+        int pMark1,
+        int pMark2,
+        int pDupes,
+        List<MatchCandidate> pCandidates,
+        Map<Integer, Map<Integer, MatchCandidate>> pCandidatesBySize)
+    {
+        Map<Integer, MatchCandidate> aCandidates =
+            pCandidatesBySize.computeIfAbsent(Integer.valueOf(pDupes), k -> new HashMap<>());
+        MatchCandidate aCandidate1 = aCandidates.get(Integer.valueOf(pMark1));
+        MatchCandidate aCandidate2 = aCandidates.get(Integer.valueOf(pMark2));
+        if (aCandidate1 == null && aCandidate2 == null)
+        {
+            MatchCandidate aCandidate = new MatchCandidate(pDupes, pMark1, pMark2);
+            aCandidates.put(Integer.valueOf(pMark1), aCandidate);
+            aCandidates.put(Integer.valueOf(pMark2), aCandidate);
+            pCandidates.add(aCandidate);
+        }
+        else if (aCandidate1 == null)
+        {
+            aCandidate2.add(pMark1);
+            aCandidates.put(Integer.valueOf(pMark1), aCandidate2);
+        }
+        else if (aCandidate2 == null)
+        {
+            aCandidate1.add(pMark2);
+            aCandidates.put(Integer.valueOf(pMark2), aCandidate1);
+        }
+    }
+
+
+    private int countDuplicateTokens(MappedArray pIdentifiers, int pMark1, int pMark2)
+    {
+        int aIndex = 0;
+        while (!matchEnded(pIdentifiers, pMark1 + aIndex, pMark2 + aIndex))
+            aIndex++;
+
+        return aIndex;
+    }
+
+
+    private boolean matchEnded(MappedArray pIdentifiers, int pIndex1, int pIndex2)
+    {
+        if (pIndex1 >= fNumTokens || pIndex2 >= fNumTokens)
+            return true;
+
+        int aIdentifier1 = pIdentifiers.getInt(pIndex1);
+        return aIdentifier1 == EOF_IDENTIFIER || aIdentifier1 != pIdentifiers.getInt(pIndex2);
+    }
+
+
+    /**
+     * Create CPD {@code Match} instances from match candidates. The token entries of the marks are
+     * created in the order of their token indices, which makes CPD order the marks and matches in
+     * the same way as if it had created the token entries itself. CPD orders the entries by a
+     * counter that only increases, so the counter is not reset; that would affect any other
+     * analysis sharing CPD's token state.
+     *
+     * @param pCandidates           The match candidates.
+     * @param pIdentifiers          The image identifiers of all tokens.
+     * @param pSourceCodeFactory    A function that creates the {@code SourceCode} instance of a
+     *                              file.
+     *
+     * @return  The sorted matches.
+     *
+     * @throws IOException  if accessing the storage files fails.
+     */
+    private List<Match> createMatches(
+        List<MatchCandidate> pCandidates,
+        MappedArray pIdentifiers,
+        Function<File, SourceCode> pSourceCodeFactory) throws IOException
+    {
+        MappedArray aBeginLines = map(MappedArray.mapInts(fBeginLines.fFile, fNumTokens, false));
+        MappedArray aBeginColumns = map(MappedArray.mapInts(fBeginColumns.fFile, fNumTokens, false));
+        MappedArray aEndLines = map(MappedArray.mapInts(fEndLines.fFile, fNumTokens, false));
+        MappedArray aEndColumns = map(MappedArray.mapInts(fEndColumns.fFile, fNumTokens, false));
+        TokenFactory aTokenFactory = new TokenFactory(pIdentifiers, aBeginLines, aBeginColumns, aEndLines, aEndColumns);
+
+        // Create the entries for the first tokens of the marks in ascending index order.
+        int aNumMarks = 0;
+        for (MatchCandidate aCandidate : pCandidates)
+            aNumMarks += aCandidate.fNumMarks;
+
+        int[] aMarkIndices = new int[aNumMarks];
+        int aPos = 0;
+        for (MatchCandidate aCandidate : pCandidates)
+        {
+            System.arraycopy(aCandidate.fMarks, 0, aMarkIndices, aPos, aCandidate.fNumMarks);
+            aPos += aCandidate.fNumMarks;
+        }
+
+        Arrays.sort(aMarkIndices);
+        Map<Integer, TokenEntry> aMarkTokens = new HashMap<>();
+        for (int aIndex : aMarkIndices)
+            aMarkTokens.put(Integer.valueOf(aIndex), aTokenFactory.create(aIndex));
+
+        List<Match> aMatches = new ArrayList<>(pCandidates.size());
+        Map<String, SourceCode> aSources = new HashMap<>();
+        for (MatchCandidate aCandidate : pCandidates)
+        {
+            Match aMatch =
+                new Match(
+                    aCandidate.fTokenCount,
+                    aMarkTokens.get(Integer.valueOf(aCandidate.fMarks[0])),
+                    aMarkTokens.get(Integer.valueOf(aCandidate.fMarks[1])));
+            for (int i=2; i<aCandidate.fNumMarks; i++)
+                aMatch.addTokenEntry(aMarkTokens.get(Integer.valueOf(aCandidate.fMarks[i])));
+
+            for (Mark aMark : aMatch)
+                completeMark(aMark, aCandidate.fTokenCount, pIdentifiers, aBeginLines, aTokenFactory, aSources, pSourceCodeFactory);
+
+            aMatches.add(aMatch);
+        }
+
+        Collections.sort(aMatches);
+        return aMatches;
+    }
+
+
+    /**
+     * Set the line count, end token and source code of a mark in the same way as CPD's
+     * {@code MatchAlgorithm} does.
+     */
+    private void completeMark(
+        Mark pMark,
+        int pTokenCount,
+        MappedArray pIdentifiers,
+        MappedArray pBeginLines,
+        TokenFactory pTokenFactory,
+        Map<String, SourceCode> pSources,
+        Function<File, SourceCode> pSourceCodeFactory)
+    {
+        TokenEntry aToken = pMark.getToken();
+        int aStartIndex = findTokenIndex(aToken);
+        int aEndIndex = aStartIndex + pTokenCount - 1;
+        if (pIdentifiers.getInt(aEndIndex) == EOF_IDENTIFIER)
+            aEndIndex--;
+
+        pMark.setLineCount(pBeginLines.getInt(aEndIndex) - pBeginLines.getInt(aStartIndex) + 1);
+        if (SET_END_TOKEN != null)
+        {
+            try
+            {
+                SET_END_TOKEN.invokeExact(pMark, pTokenFactory.create(aEndIndex));
+            }
+            catch (Throwable t)
+            {
+                throw new IllegalStateException("Could not set the end token of a mark", t);
+            }
+        }
+
+        int aFileIndex = findFileIndex(aStartIndex);
+        SourceCode aSourceCode =
+            pSources.computeIfAbsent(
+                fFileNames.get(aFileIndex),
+                n -> loadSourceCode(fFiles.get(aFileIndex), pSourceCodeFactory));
+        pMark.setSourceCode(aSourceCode);
+    }
+
+
+    /**
+     * Create the {@code SourceCode} of a file and load its code lines, as the tokenizer would have
+     * done if CPD had tokenized the file. Some CPD versions produce different code fragments
+     * depending on whether the lines are loaded or not.
+     */
+    static private SourceCode loadSourceCode(File pFile, Function<File, SourceCode> pSourceCodeFactory)
+    {
+        SourceCode aSourceCode = pSourceCodeFactory.apply(pFile);
+        aSourceCode.getCode();
+        return aSourceCode;
+    }
+
+
+    private int findTokenIndex(TokenEntry pToken)
+    {
+        return fTokenIndices.get(pToken).intValue();
+    }
+
+
+    /**
+     * Find the index of the file containing a token.
+     *
+     * @param pTokenIndex   The index of the token.
+     *
+     * @return  The index of the file.
+     */
+    private int findFileIndex(int pTokenIndex)
+    {
+        int aIndex = Arrays.binarySearch(fFileStarts, 0, fFiles.size(), pTokenIndex);
+        if (aIndex < 0)
+            return -aIndex - 2;
+
+        // Skip any files without tokens starting at the same index.
+        while (aIndex + 1 < fFiles.size() && fFileStarts[aIndex + 1] == pTokenIndex)
+            aIndex++;
+
+        return aIndex;
+    }
+
+
+    /**
+     * Sort a range of a mapped long array in ascending order. The elements must be distinct.
+     *
+     * @param pArray    The array.
+     * @param pFrom     The index of the first element in the range.
+     * @param pTo       The index after the last element in the range.
+     */
+    static private void sort(MappedArray pArray, long pFrom, long pTo)
+    {
+        while (pTo - pFrom > INSERTION_SORT_THRESHOLD)
+        {
+            long aSplit = partition(pArray, pFrom, pTo);
+
+            // Recurse into the smaller part to limit the recursion depth.
+            if (aSplit - pFrom < pTo - aSplit)
+            {
+                sort(pArray, pFrom, aSplit);
+                pFrom = aSplit;
+            }
+            else
+            {
+                sort(pArray, aSplit, pTo);
+                pTo = aSplit;
+            }
+        }
+
+        for (long i=pFrom+1; i<pTo; i++)
+        {
+            long aValue = pArray.getLong(i);
+            long j = i - 1;
+            while (j >= pFrom && pArray.getLong(j) > aValue)
+            {
+                pArray.putLong(j + 1, pArray.getLong(j));
+                j--;
+            }
+
+            pArray.putLong(j + 1, aValue);
+        }
+    }
+
+
+    /**
+     * Partition a range of a mapped long array around the median of its first, middle and last
+     * elements.
+     *
+     * @return  The index where the upper part of the range starts.
+     */
+    static private long partition(MappedArray pArray, long pFrom, long pTo)
+    {
+        long aFirst = pArray.getLong(pFrom);
+        long aMiddle = pArray.getLong(pFrom + (pTo - pFrom) / 2);
+        long aLast = pArray.getLong(pTo - 1);
+        long aPivot = Math.max(Math.min(aFirst, aMiddle), Math.min(Math.max(aFirst, aMiddle), aLast));
+
+        long i = pFrom - 1;
+        long j = pTo;
+        while (true)
+        {
+            do
+                i++;
+            while (pArray.getLong(i) < aPivot);
+
+            do
+                j--;
+            while (pArray.getLong(j) > aPivot);
+
+            if (i >= j)
+                return j + 1;
+
+            long aTemp = pArray.getLong(i);
+            pArray.putLong(i, pArray.getLong(j));
+            pArray.putLong(j, aTemp);
+        }
+    }
+
+
+    static private StorageFile add(List<StorageFile> pFiles, StorageFile pFile)
+    {
+        pFiles.add(pFile);
+        return pFile;
+    }
+
+
+    /**
+     * Creates {@code TokenEntry} instances from the stored tokens.
+     */
+    private class TokenFactory
+    {
+        private final MappedArray fIdentifierArray;
+        private final MappedArray fBeginLineArray;
+        private final MappedArray fBeginColumnArray;
+        private final MappedArray fEndLineArray;
+        private final MappedArray fEndColumnArray;
+
+        TokenFactory(
+            MappedArray pIdentifiers,
+            MappedArray pBeginLines,
+            MappedArray pBeginColumns,
+            MappedArray pEndLines,
+            MappedArray pEndColumns)
+        {
+            fIdentifierArray = pIdentifiers;
+            fBeginLineArray = pBeginLines;
+            fBeginColumnArray = pBeginColumns;
+            fEndLineArray = pEndLines;
+            fEndColumnArray = pEndColumns;
+        }
+
+        TokenEntry create(int pIndex)
+        {
+            int aFileIndex = findFileIndex(pIndex);
+            TokenEntry aToken =
+                TokenizedFile.createTokenEntry(
+                    fImages.get(fIdentifierArray.getInt(pIndex)),
+                    fFileNames.get(aFileIndex),
+                    fBeginLineArray.getInt(pIndex),
+                    fBeginColumnArray.getInt(pIndex),
+                    fEndLineArray.getInt(pIndex),
+                    fEndColumnArray.getInt(pIndex),
+                    fFilePositionFlags[aFileIndex]);
+
+            fTokenIndices.put(aToken, Integer.valueOf(pIndex));
+            return aToken;
+        }
+    }
+
+
+    /**
+     * A match found by the algorithm, with the token indices of its marks.
+     */
+    static private class MatchCandidate
+    {
+        final int fTokenCount;
+        int[] fMarks = new int[2];
+        int fNumMarks;
+
+        MatchCandidate(int pTokenCount, int pMark1, int pMark2)
+        {
+            fTokenCount = pTokenCount;
+            add(pMark1);
+            add(pMark2);
+        }
+
+        void add(int pMark)
+        {
+            if (fNumMarks == fMarks.length)
+                fMarks = Arrays.copyOf(fMarks, fNumMarks * 2);
+
+            fMarks[fNumMarks++] = pMark;
+        }
+    }
+
+
+    /**
+     * A file that is appended to through a buffered stream.
+     */
+    static private class StorageFile
+    {
+        final File fFile;
+        final DataOutputStream fOutput;
+
+        StorageFile(File pDirectory, String pName) throws IOException
+        {
+            fFile = File.createTempFile(pName, ".bin", pDirectory);
+            fOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fFile), 64 * 1024));
+        }
+
+        boolean delete()
+        {
+            try
+            {
+                fOutput.close();
+            }
+            catch (IOException ignore)
+            {
+                // The file is deleted anyway.
+            }
+
+            return fFile.delete() || !fFile.exists();
+        }
+    }
+}
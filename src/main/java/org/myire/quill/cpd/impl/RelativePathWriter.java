@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.cpd.impl;
+
+import java.io.File;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+
+/**
+ * A {@code Writer} that removes the path of a base directory from the file paths in the lines
+ * written through it. This makes the reports written by the CPD renderers, which write the paths
+ * of the files as they are, independent of where the files are located.
+ *<p>
+ * The text is passed on one line at a time, since a path can be split across several writes. Any
+ * text after the last line break is passed on when the writer is closed.
+ */
+class RelativePathWriter extends FilterWriter
+{
+    private final String fPrefix;
+    private final StringBuilder fLine = new StringBuilder();
+
+
+    /**
+     * Create a new {@code RelativePathWriter}.
+     *
+     * @param pWriter           The writer to pass the text on to.
+     * @param pBaseDirectory    The directory to remove from the paths.
+     *
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    RelativePathWriter(Writer pWriter, File pBaseDirectory)
+    {
+        super(pWriter);
+        fPrefix = pBaseDirectory.getAbsolutePath() + File.separator;
+    }
+
+
+    @Override
+    public void write(int pChar) throws IOException
+    {
+        fLine.append((char) pChar);
+        if (pChar == '\n')
+            writeLine();
+    }
+
+
+    @Override
+    public void write(char[] pChars, int pOffset, int pLength) throws IOException
+    {
+        for (int i=pOffset; i<pOffset + pLength; i++)
+            write(pChars[i]);
+    }
+
+
+    @Override
+    public void write(String pString, int pOffset, int pLength) throws IOException
+    {
+        for (int i=pOffset; i<pOffset + pLength; i++)
+            write(pString.charAt(i));
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            writeLine();
+        }
+        finally
+        {
+            super.close();
+        }
+    }
+
+
+    /**
+     * Pass the buffered line on to the underlying writer with the base directory's path removed.
+     *
+     * @throws IOException  if writing to the underlying writer fails.
+     */
+    private void writeLine() throws IOException
+    {
+        int aStart = 0, aEnd;
+        while ((aEnd = fLine.indexOf(fPrefix, aStart)) >= 0)
+        {
+            out.append(fLine, aStart, aEnd);
+            aStart = aEnd + fPrefix.length();
+        }
+
+        out.append(fLine, aStart, fLine.length());
+        fLine.setLength(0);
+    }
+}
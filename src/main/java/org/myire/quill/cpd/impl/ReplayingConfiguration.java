@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.cpd.impl;
+
+import java.io.IOException;
+
+import net.sourceforge.pmd.cpd.CPDConfiguration;
+import net.sourceforge.pmd.cpd.SourceCode;
+import net.sourceforge.pmd.cpd.Tokenizer;
+import net.sourceforge.pmd.cpd.Tokens;
+
+
+/**
+ * A {@code CPDConfiguration} with a tokenizer that replays a file tokenized in advance instead of
+ * tokenizing it again. This allows the files to be tokenized in parallel while CPD adds them to
+ * its analysis one at a time, in the same order as when tokenizing the files serially.
+ */
+class ReplayingConfiguration extends CPDConfiguration
+{
+    private final Tokenizer fReplayingTokenizer = this::replayOrTokenize;
+    private TokenizedFile fNextFile;
+
+
+    /**
+     * Set the file to replay the next time CPD tokenizes a source file. The file is only replayed
+     * if the source file has the same name, otherwise the source file is tokenized with the
+     * language's tokenizer.
+     *
+     * @param pFile The file to replay, or null to tokenize the next source file normally.
+     */
+    void setNextFile(TokenizedFile pFile)
+    {
+        fNextFile = pFile;
+    }
+
+
+    @Override
+    public Tokenizer tokenizer()
+    {
+        return fReplayingTokenizer;
+    }
+
+
+    /**
+     * Replay the next file if it matches a source file, otherwise tokenize the source file.
+     *
+     * @param pSourceCode   The source code to tokenize.
+     * @param pTokens       The instance to add the tokens to.
+     *
+     * @throws IOException  if tokenizing the source code fails.
+     */
+    private void replayOrTokenize(SourceCode pSourceCode, Tokens pTokens) throws IOException
+    {
+        TokenizedFile aFile = fNextFile;
+        fNextFile = null;
+        if (aFile != null && aFile.getFileName().equals(pSourceCode.getFileName()))
+        {
+            // Tokenizers load the code lines of the source code, which are then used to create the
+            // code fragments of the duplications. Some CPD versions produce different fragments
+            // depending on whether the lines are loaded or not, so they are loaded here as well.
+            pSourceCode.getCode();
+            aFile.replay(pTokens);
+        }
+        else
+            super.tokenizer().tokenize(pSourceCode, pTokens);
+    }
+}
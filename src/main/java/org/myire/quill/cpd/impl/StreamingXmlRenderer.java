@@ -0,0 +1,310 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.cpd.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.function.Function;
+
+import net.sourceforge.pmd.cpd.Mark;
+import net.sourceforge.pmd.cpd.Match;
+import net.sourceforge.pmd.cpd.renderer.CPDRenderer;
+
+import org.myire.quill.common.Invocations;
+
+
+/**
+ * A {@code CPDRenderer} that writes the matches on the CPD XML report format as they are iterated.
+ * Unlike CPD's own XML renderer, which builds a DOM of the entire report before writing it, the
+ * memory used by this renderer does not grow with the number of matches.
+ *<p>
+ * The code fragments of the matches can be left out of the report, or be limited to a maximum
+ * number of lines. When the report combines matches from analyses of several languages, each
+ * duplication can have an attribute with its language.
+ *<p>
+ * The paths of the files in a base directory can be written relative to that directory, with
+ * {@code '/'} as separator. This makes the report independent of where the files are located.
+ */
+class StreamingXmlRenderer implements CPDRenderer
+{
+    // Mark accessors that are only available in some CPD versions.
+    static private final MethodHandle GET_BEGIN_COLUMN;
+    static private final MethodHandle GET_END_COLUMN;
+
+    static
+    {
+        MethodHandles.Lookup aLookup = MethodHandles.lookup();
+        MethodType aIntGetterType = MethodType.methodType(int.class);
+        GET_BEGIN_COLUMN = Invocations.lookupVirtualMethod(aLookup, Mark.class, "getBeginColumn", aIntGetterType);
+        GET_END_COLUMN = Invocations.lookupVirtualMethod(aLookup, Mark.class, "getEndColumn", aIntGetterType);
+    }
+
+    static private final String CDATA_END = "]]>";
+
+    private final String fEncoding;
+    private final boolean fIncludeCodeFragments;
+    private final int fMaxCodeFragmentLines;
+    private final Function<Match, String> fLanguages;
+    private final Path fBaseDirectory;
+
+
+    /**
+     * Create a new {@code StreamingXmlRenderer}.
+     *
+     * @param pEncoding             The encoding of the writer the report will be written to.
+     * @param pIncludeCodeFragments If true, the code fragments of the matches are included in the
+     *                              report.
+     * @param pMaxCodeFragmentLines The maximum number of lines to include from a code fragment. A
+     *                              value of 0 or less means no limit.
+     * @param pLanguages            A function returning the language of a match, or null to not
+     *                              write any language attributes.
+     * @param pBaseDirectory        The directory to write file paths relative to, or null to write
+     *                              the file paths as they are.
+     *
+     * @throws NullPointerException if {@code pEncoding} is null.
+     */
+    StreamingXmlRenderer(
+        String pEncoding,
+        boolean pIncludeCodeFragments,
+        int pMaxCodeFragmentLines,
+        Function<Match, String> pLanguages,
+        File pBaseDirectory)
+    {
+        fEncoding = pEncoding;
+        fIncludeCodeFragments = pIncludeCodeFragments;
+        fMaxCodeFragmentLines = pMaxCodeFragmentLines;
+        fLanguages = pLanguages;
+        fBaseDirectory = pBaseDirectory != null ? pBaseDirectory.toPath().toAbsolutePath().normalize() : null;
+    }
+
+
+    @Override
+    public void render(Iterator<Match> pMatches, Writer pWriter) throws IOException
+    {
+        pWriter.write("<?xml version=\"1.0\" encoding=\"");
+        writeEscaped(pWriter, fEncoding);
+        pWriter.write("\"?>\n<pmd-cpd>\n");
+
+        while (pMatches.hasNext())
+            renderMatch(pMatches.next(), pWriter);
+
+        pWriter.write("</pmd-cpd>\n");
+        pWriter.flush();
+    }
+
+
+    private void renderMatch(Match pMatch, Writer pWriter) throws IOException
+    {
+        pWriter.write("    <duplication lines=\"");
+        pWriter.write(String.valueOf(pMatch.getLineCount()));
+        pWriter.write("\" tokens=\"");
+        pWriter.write(String.valueOf(pMatch.getTokenCount()));
+        if (fLanguages != null)
+        {
+            pWriter.write("\" language=\"");
+            writeEscaped(pWriter, fLanguages.apply(pMatch));
+        }
+        pWriter.write("\">\n");
+
+        for (Mark aMark : pMatch)
+        {
+            pWriter.write("        <file line=\"");
+            pWriter.write(String.valueOf(aMark.getBeginLine()));
+            pWriter.write("\" endline=\"");
+            pWriter.write(String.valueOf(aMark.getEndLine()));
+            writeColumnAttribute(pWriter, "column", GET_BEGIN_COLUMN, aMark);
+            writeColumnAttribute(pWriter, "endcolumn", GET_END_COLUMN, aMark);
+            pWriter.write("\" path=\"");
+            writeEscaped(pWriter, getPath(aMark.getFilename()));
+            pWriter.write("\"/>\n");
+        }
+
+        if (fIncludeCodeFragments)
+        {
+            pWriter.write("        <codefragment>");
+            writeCodeFragment(pWriter, limitLines(pMatch.getSourceCodeSlice()));
+            pWriter.write("</codefragment>\n");
+        }
+
+        pWriter.write("    </duplication>\n");
+    }
+
+
+    /**
+     * Get the path to write for a file name.
+     *
+     * @param pFileName The file name, possibly null.
+     *
+     * @return  The file name relative to the base directory with {@code '/'} as separator, or the
+     *          file name as it is if there is no base directory or the file isn't located in it.
+     */
+    private String getPath(String pFileName)
+    {
+        if (fBaseDirectory == null || pFileName == null)
+            return pFileName;
+
+        Path aPath = Paths.get(pFileName).toAbsolutePath().normalize();
+        if (!aPath.startsWith(fBaseDirectory))
+            return pFileName;
+
+        return fBaseDirectory.relativize(aPath).toString().replace(File.separatorChar, '/');
+    }
+
+
+    /**
+     * Limit a code fragment to the maximum number of lines, if specified.
+     *
+     * @param pCode The code fragment.
+     *
+     * @return  The code fragment, possibly truncated.
+     */
+    private String limitLines(String pCode)
+    {
+        if (fMaxCodeFragmentLines <= 0 || pCode == null)
+            return pCode;
+
+        int aIndex = -1;
+        for (int i=0; i<fMaxCodeFragmentLines; i++)
+        {
+            aIndex = pCode.indexOf('\n', aIndex + 1);
+            if (aIndex < 0)
+                return pCode;
+        }
+
+        return pCode.substring(0, aIndex + 1) + "...";
+    }
+
+
+    /**
+     * Write a code fragment as one or more CDATA sections. A CDATA section cannot contain its own
+     * end marker, so the fragment is split at any such marker.
+     *
+     * @param pWriter   The writer to write to.
+     * @param pCode     The code fragment, possibly null.
+     *
+     * @throws IOException  if writing fails.
+     */
+    static private void writeCodeFragment(Writer pWriter, String pCode) throws IOException
+    {
+        if (pCode == null)
+            return;
+
+        int aStart = 0, aEnd;
+        while ((aEnd = pCode.indexOf(CDATA_END, aStart)) >= 0)
+        {
+            writeCData(pWriter, pCode, aStart, aEnd + 2);
+            aStart = aEnd + 2;
+        }
+
+        writeCData(pWriter, pCode, aStart, pCode.length());
+    }
+
+
+    static private void writeCData(Writer pWriter, String pCode, int pStart, int pEnd) throws IOException
+    {
+        pWriter.write("<![CDATA[");
+        for (int i=pStart; i<pEnd; i++)
+        {
+            char aChar = pCode.charAt(i);
+            if (isValidXmlChar(aChar))
+                pWriter.write(aChar);
+        }
+
+        pWriter.write(CDATA_END);
+    }
+
+
+    /**
+     * Write the value of a column attribute if the column accessor is available and the column is
+     * known.
+     *
+     * @param pWriter   The writer to write to.
+     * @param pName     The attribute name.
+     * @param pGetter   The accessor for the column in a {@code Mark}, possibly null.
+     * @param pMark     The mark to get the column from.
+     *
+     * @throws IOException  if writing fails.
+     */
+    static private void writeColumnAttribute(
+        Writer pWriter,
+        String pName,
+        MethodHandle pGetter,
+        Mark pMark) throws IOException
+    {
+        if (pGetter == null)
+            return;
+
+        int aColumn;
+        try
+        {
+            aColumn = (int) pGetter.invokeExact(pMark);
+        }
+        catch (Throwable t)
+        {
+            return;
+        }
+
+        if (aColumn >= 0)
+        {
+            pWriter.write("\" ");
+            pWriter.write(pName);
+            pWriter.write("=\"");
+            pWriter.write(String.valueOf(aColumn));
+        }
+    }
+
+
+    /**
+     * Write a string escaped for use in an attribute value. Characters that aren't allowed in XML
+     * 1.0 documents are left out.
+     *
+     * @param pWriter   The writer to write to.
+     * @param pValue    The string to write, possibly null.
+     *
+     * @throws IOException  if writing fails.
+     */
+    static private void writeEscaped(Writer pWriter, String pValue) throws IOException
+    {
+        if (pValue == null)
+            return;
+
+        for (int i=0; i<pValue.length(); i++)
+        {
+            char aChar = pValue.charAt(i);
+            switch (aChar)
+            {
+                case '<':
+                    pWriter.write("&lt;");
+                    break;
+                case '>':
+                    pWriter.write("&gt;");
+                    break;
+                case '&':
+                    pWriter.write("&amp;");
+                    break;
+                case '"':
+                    pWriter.write("&quot;");
+                    break;
+                default:
+                    if (isValidXmlChar(aChar))
+                        pWriter.write(aChar);
+            }
+        }
+    }
+
+
+    static private boolean isValidXmlChar(char pChar)
+    {
+        return (pChar >= 0x20 && pChar < 0xfffe) || pChar == '\t' || pChar == '\n' || pChar == '\r';
+    }
+}
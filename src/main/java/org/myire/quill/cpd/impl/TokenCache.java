@@ -0,0 +1,179 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.cpd.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Set;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import org.myire.quill.common.Digests;
+
+
+/**
+ * An on-disk cache of tokenized source files. Each cache entry holds the tokens of one file and is
+ * keyed by a digest of the file's path and contents and of the settings that affect the
+ * tokenization, which means that a modified file or modified settings always results in a new key.
+ *<p>
+ * The methods of this class may be called concurrently for different keys.
+ */
+class TokenCache
+{
+    static private final String ENTRY_FILE_EXTENSION = ".tokens";
+
+    private final File fDirectory;
+    private final byte[] fSettings;
+    private final Logger fLogger = Logging.getLogger(TokenCache.class);
+
+
+    /**
+     * Create a new {@code TokenCache}.
+     *
+     * @param pDirectory    The directory to store the cache entries in.
+     * @param pSettings     A string describing the settings the files are tokenized with, e.g. the
+     *                      language and the version of CPD.
+     *
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    TokenCache(File pDirectory, String pSettings)
+    {
+        fDirectory = pDirectory;
+        fSettings = pSettings.getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Compute the cache key for a file from its path, its contents, and the cache's settings.
+     *
+     * @param pFile The path to the file.
+     *
+     * @return  The file's cache key, never null.
+     *
+     * @throws IOException  if reading the file fails.
+     * @throws NullPointerException if {@code pFile} is null.
+     */
+    String computeKey(Path pFile) throws IOException
+    {
+        MessageDigest aDigest = Digests.createDigest();
+        aDigest.update(fSettings);
+        aDigest.update((byte) 0);
+        aDigest.update(pFile.toString().getBytes(StandardCharsets.UTF_8));
+        aDigest.update((byte) 0);
+
+        byte[] aBuffer = new byte[8192];
+        try (InputStream aStream = Files.newInputStream(pFile))
+        {
+            int aNumBytes;
+            while ((aNumBytes = aStream.read(aBuffer)) > 0)
+                aDigest.update(aBuffer, 0, aNumBytes);
+        }
+
+        return Digests.toHexString(aDigest.digest());
+    }
+
+
+    /**
+     * Get the tokenized file stored in the cache for a key.
+     *
+     * @param pKey  The key.
+     *
+     * @return  The tokenized file, or null if the cache has no entry for the key or if the entry
+     *          cannot be read.
+     *
+     * @throws NullPointerException if {@code pKey} is null.
+     */
+    TokenizedFile get(String pKey)
+    {
+        File aEntryFile = getEntryFile(pKey);
+        if (!aEntryFile.isFile())
+            return null;
+
+        try (DataInputStream aStream = new DataInputStream(new BufferedInputStream(new FileInputStream(aEntryFile))))
+        {
+            return TokenizedFile.readFrom(aStream);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            fLogger.warn("Could not read the token cache entry " + aEntryFile + ": " + e.getMessage());
+            aEntryFile.delete();
+            return null;
+        }
+    }
+
+
+    /**
+     * Store a tokenized file in the cache.
+     *
+     * @param pKey  The file's cache key.
+     * @param pFile The tokenized file.
+     *
+     * @throws IOException  if writing the cache entry fails.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    void put(String pKey, TokenizedFile pFile) throws IOException
+    {
+        fDirectory.mkdirs();
+        File aEntryFile = getEntryFile(pKey);
+        try (DataOutputStream aStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(aEntryFile))))
+        {
+            pFile.writeTo(aStream);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            // Don't leave a partially written entry in the cache.
+            aEntryFile.delete();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Remove all entries from the cache except the ones with the specified keys.
+     *
+     * @param pKeys The keys of the entries to keep.
+     *
+     * @throws NullPointerException if {@code pKeys} is null.
+     */
+    void retain(Set<String> pKeys)
+    {
+        File[] aEntryFiles = fDirectory.listFiles((d, n) -> n.endsWith(ENTRY_FILE_EXTENSION));
+        if (aEntryFiles == null)
+            return;
+
+        for (File aEntryFile : aEntryFiles)
+        {
+            String aName = aEntryFile.getName();
+            if (!pKeys.contains(aName.substring(0, aName.length() - ENTRY_FILE_EXTENSION.length())))
+                aEntryFile.delete();
+        }
+    }
+
+
+    /**
+     * Get the file holding the cache entry for a key. The file may not exist.
+     *
+     * @param pKey  The key.
+     *
+     * @return  The entry file for the key, never null.
+     */
+    private File getEntryFile(String pKey)
+    {
+        return new File(fDirectory, pKey + ENTRY_FILE_EXTENSION);
+    }
+}
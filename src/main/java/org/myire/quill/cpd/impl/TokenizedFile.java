@@ -0,0 +1,604 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.cpd.impl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import net.sourceforge.pmd.cpd.SourceCode;
+import net.sourceforge.pmd.cpd.TokenEntry;
+import net.sourceforge.pmd.cpd.Tokenizer;
+import net.sourceforge.pmd.cpd.Tokens;
+
+import org.myire.quill.common.Invocations;
+
+
+/**
+ * The tokens of a source file, produced by a {@code Tokenizer} on a thread other than the one
+ * running the CPD analysis.
+ *<p>
+ * CPD assigns each distinct token image an identifier from a map that is local to the thread
+ * creating the {@code TokenEntry} instances, and also numbers the tokens with a thread local
+ * counter. Token entries created on different threads can therefore not be mixed. Instead, the
+ * images and positions of the tokens are captured when the file is tokenized, and new token entries
+ * are created from them when the file is replayed on the thread running the analysis. The replayed
+ * entries are identical to the ones that would have been created if the file had been tokenized
+ * on that thread.
+ *<p>
+ * The captured tokens can also be written to and read from a binary stream, which allows a file to
+ * be replayed without tokenizing it again in a later analysis.
+ */
+class TokenizedFile
+{
+    // The map from token image to identifier used by the thread creating TokenEntry instances.
+    static private final Field TOKEN_IMAGES_FIELD = lookupTokenImagesField();
+
+    // TokenEntry constructors and accessors that are only available in some CPD versions.
+    static private final MethodHandle END_LINE_CONSTRUCTOR;
+    static private final MethodHandle COLUMNS_CONSTRUCTOR;
+    static private final MethodHandle GET_BEGIN_COLUMN;
+    static private final MethodHandle GET_END_LINE;
+    static private final MethodHandle GET_END_COLUMN;
+
+    static
+    {
+        MethodHandles.Lookup aLookup = MethodHandles.lookup();
+        MethodType aIntGetterType = MethodType.methodType(int.class);
+
+        GET_BEGIN_COLUMN = Invocations.lookupVirtualMethod(aLookup, TokenEntry.class, "getBeginColumn", aIntGetterType);
+        GET_END_LINE = Invocations.lookupVirtualMethod(aLookup, TokenEntry.class, "getEndLine", aIntGetterType);
+        GET_END_COLUMN = Invocations.lookupVirtualMethod(aLookup, TokenEntry.class, "getEndColumn", aIntGetterType);
+        END_LINE_CONSTRUCTOR =
+            Invocations.lookupConstructor(
+                aLookup,
+                TokenEntry.class,
+                MethodType.methodType(void.class, String.class, String.class, int.class, int.class, int.class, int.class));
+        COLUMNS_CONSTRUCTOR =
+            Invocations.lookupConstructor(
+                aLookup,
+                TokenEntry.class,
+                MethodType.methodType(void.class, String.class, String.class, int.class, int.class, int.class));
+    }
+
+    // Identifier used for the end of file token; token image identifiers start at 1.
+    static private final int EOF_IDENTIFIER = 0;
+
+    // The version of the binary format written by writeTo().
+    static private final int FORMAT_VERSION = 1;
+
+    // Flags for the optional position arrays, used in the binary format and to specify which
+    // positions are available when creating token entries.
+    static final int FLAG_BEGIN_COLUMNS = 1;
+    static final int FLAG_END_LINES = 2;
+    static final int FLAG_END_COLUMNS = 4;
+    static private final int FLAGS_ALL = FLAG_BEGIN_COLUMNS | FLAG_END_LINES | FLAG_END_COLUMNS;
+    static private final int FLAGS_COLUMNS = FLAG_BEGIN_COLUMNS | FLAG_END_COLUMNS;
+
+    // Value returned for a position that isn't available.
+    static final int NO_POSITION = -1;
+
+    private final String fFileName;
+    private final String[] fImages;
+    private final int[] fIdentifiers;
+    private final int[] fBeginLines;
+    private final int[] fBeginColumns;
+    private final int[] fEndLines;
+    private final int[] fEndColumns;
+    private final Exception fError;
+
+
+    /**
+     * Create a new {@code TokenizedFile}.
+     *
+     * @param pFileName The name of the tokenized file.
+     * @param pImages   The token images, indexed by the identifiers assigned to the images.
+     * @param pTokens   The tokens produced by the tokenizer.
+     * @param pError    Any exception thrown by the tokenizer after it produced {@code pTokens}.
+     */
+    private TokenizedFile(String pFileName, String[] pImages, List<TokenEntry> pTokens, Exception pError)
+    {
+        fFileName = pFileName;
+        fImages = pImages;
+        fError = pError;
+
+        int aNumTokens = pTokens.size();
+        fIdentifiers = new int[aNumTokens];
+        fBeginLines = new int[aNumTokens];
+        fBeginColumns = GET_BEGIN_COLUMN != null ? new int[aNumTokens] : null;
+        fEndLines = GET_END_LINE != null ? new int[aNumTokens] : null;
+        fEndColumns = GET_END_COLUMN != null ? new int[aNumTokens] : null;
+        for (int i=0; i<aNumTokens; i++)
+        {
+            TokenEntry aToken = pTokens.get(i);
+            if (aToken == TokenEntry.EOF)
+            {
+                fIdentifiers[i] = EOF_IDENTIFIER;
+                continue;
+            }
+
+            fIdentifiers[i] = aToken.getIdentifier();
+            fBeginLines[i] = aToken.getBeginLine();
+            if (fBeginColumns != null)
+                fBeginColumns[i] = invokeIntGetter(GET_BEGIN_COLUMN, aToken);
+            if (fEndLines != null)
+                fEndLines[i] = invokeIntGetter(GET_END_LINE, aToken);
+            if (fEndColumns != null)
+                fEndColumns[i] = invokeIntGetter(GET_END_COLUMN, aToken);
+        }
+    }
+
+
+    /**
+     * Create a new {@code TokenizedFile} from tokens read from a binary stream.
+     *
+     * @param pFileName     The name of the tokenized file.
+     * @param pImages       The token images, indexed by the identifiers assigned to the images.
+     * @param pIdentifiers  The image identifiers of the tokens.
+     * @param pBeginLines   The begin lines of the tokens.
+     * @param pBeginColumns The begin columns of the tokens, or null if not available.
+     * @param pEndLines     The end lines of the tokens, or null if not available.
+     * @param pEndColumns   The end columns of the tokens, or null if not available.
+     */
+    private TokenizedFile(
+        String pFileName,
+        String[] pImages,
+        int[] pIdentifiers,
+        int[] pBeginLines,
+        int[] pBeginColumns,
+        int[] pEndLines,
+        int[] pEndColumns)
+    {
+        fFileName = pFileName;
+        fImages = pImages;
+        fIdentifiers = pIdentifiers;
+        fBeginLines = pBeginLines;
+        fBeginColumns = pBeginColumns;
+        fEndLines = pEndLines;
+        fEndColumns = pEndColumns;
+        fError = null;
+    }
+
+
+    /**
+     * Check if files can be tokenized on other threads than the one running the CPD analysis with
+     * the version of CPD in use.
+     *
+     * @return  True if the token images can be captured from the tokenizing thread, false if not.
+     */
+    static boolean isSupported()
+    {
+        return TOKEN_IMAGES_FIELD != null;
+    }
+
+
+    /**
+     * Tokenize a source file. This method must be called on a thread that isn't running the CPD
+     * analysis, since it clears the thread's token image map.
+     *
+     * @param pSourceCode   The source code to tokenize.
+     * @param pTokenizer    The tokenizer to use. The tokenizer must not be used concurrently by
+     *                      other threads.
+     *
+     * @return  A new {@code TokenizedFile}, never null. Any exception thrown by the tokenizer is
+     *          captured and rethrown when the file is replayed.
+     *
+     * @throws IllegalStateException    if {@link #isSupported()} returns false.
+     * @throws NullPointerException     if any of the parameters is null.
+     */
+    static TokenizedFile tokenize(SourceCode pSourceCode, Tokenizer pTokenizer)
+    {
+        // Start with an empty image map to have identifiers that are local to the file.
+        TokenEntry.clearImages();
+        try
+        {
+            Tokens aTokens = new Tokens();
+            Exception aError = null;
+            try
+            {
+                pTokenizer.tokenize(pSourceCode, aTokens);
+            }
+            catch (IOException | RuntimeException e)
+            {
+                aError = e;
+            }
+
+            return new TokenizedFile(pSourceCode.getFileName(), getTokenImages(), aTokens.getTokens(), aError);
+        }
+        finally
+        {
+            TokenEntry.clearImages();
+        }
+    }
+
+
+    /**
+     * Get the name of the tokenized file.
+     *
+     * @return  The file name.
+     */
+    String getFileName()
+    {
+        return fFileName;
+    }
+
+
+    /**
+     * Check if the tokenizer threw an exception when this file was tokenized, in which case the
+     * tokens may be incomplete.
+     *
+     * @return  True if tokenizing the file failed, false if not.
+     */
+    boolean hasError()
+    {
+        return fError != null;
+    }
+
+
+    /**
+     * Get the number of tokens in this file, including the end of file token.
+     *
+     * @return  The number of tokens.
+     */
+    int getNumTokens()
+    {
+        return fIdentifiers.length;
+    }
+
+
+    /**
+     * Check if a token is the end of file token.
+     *
+     * @param pIndex    The index of the token.
+     *
+     * @return  True if the token is the end of file token, false if not.
+     */
+    boolean isEOF(int pIndex)
+    {
+        return fIdentifiers[pIndex] == EOF_IDENTIFIER;
+    }
+
+
+    /**
+     * Get the image of a token.
+     *
+     * @param pIndex    The index of the token.
+     *
+     * @return  The token's image, or null if the token is the end of file token.
+     */
+    String getImage(int pIndex)
+    {
+        return fImages[fIdentifiers[pIndex]];
+    }
+
+
+    int getBeginLine(int pIndex)
+    {
+        return fBeginLines[pIndex];
+    }
+
+
+    int getBeginColumn(int pIndex)
+    {
+        return fBeginColumns != null ? fBeginColumns[pIndex] : NO_POSITION;
+    }
+
+
+    int getEndLine(int pIndex)
+    {
+        return fEndLines != null ? fEndLines[pIndex] : NO_POSITION;
+    }
+
+
+    int getEndColumn(int pIndex)
+    {
+        return fEndColumns != null ? fEndColumns[pIndex] : NO_POSITION;
+    }
+
+
+    /**
+     * Get the flags specifying which of the optional token positions are available in this file.
+     *
+     * @return  A combination of {@link #FLAG_BEGIN_COLUMNS}, {@link #FLAG_END_LINES}, and
+     *          {@link #FLAG_END_COLUMNS}.
+     */
+    int getPositionFlags()
+    {
+        return
+            (fBeginColumns != null ? FLAG_BEGIN_COLUMNS : 0) |
+            (fEndLines != null ? FLAG_END_LINES : 0) |
+            (fEndColumns != null ? FLAG_END_COLUMNS : 0);
+    }
+
+
+    /**
+     * Rethrow the exception thrown by the tokenizer when this file was tokenized, if any.
+     *
+     * @throws IOException  if the tokenizer threw an {@code IOException}.
+     */
+    void rethrowError() throws IOException
+    {
+        if (fError instanceof IOException)
+            throw (IOException) fError;
+        else if (fError != null)
+            throw (RuntimeException) fError;
+    }
+
+
+    /**
+     * Add new {@code TokenEntry} instances for the tokens in this file to a {@code Tokens}
+     * instance. This method must be called on the thread running the CPD analysis.
+     *
+     * @param pTokens   The instance to add the tokens to.
+     *
+     * @throws IOException  if the tokenizer threw an {@code IOException} when this file was
+     *                      tokenized.
+     * @throws NullPointerException if {@code pTokens} is null.
+     */
+    void replay(Tokens pTokens) throws IOException
+    {
+        for (int i=0; i<fIdentifiers.length; i++)
+        {
+            if (fIdentifiers[i] == EOF_IDENTIFIER)
+                pTokens.add(TokenEntry.getEOF());
+            else
+                pTokens.add(createTokenEntry(i));
+        }
+
+        rethrowError();
+    }
+
+
+    /**
+     * Write the tokens of this file to a binary stream. Any exception thrown when the file was
+     * tokenized is not written.
+     *
+     * @param pOutput   The stream to write to.
+     *
+     * @throws IOException  if writing to the stream fails.
+     * @throws NullPointerException if {@code pOutput} is null.
+     */
+    void writeTo(DataOutput pOutput) throws IOException
+    {
+        pOutput.writeInt(FORMAT_VERSION);
+        writeString(pOutput, fFileName);
+
+        // The image at index 0 is the unused EOF image.
+        pOutput.writeInt(fImages.length);
+        for (int i=1; i<fImages.length; i++)
+            writeString(pOutput, fImages[i]);
+
+        pOutput.writeInt(getPositionFlags());
+        pOutput.writeInt(fIdentifiers.length);
+        writeInts(pOutput, fIdentifiers);
+        writeInts(pOutput, fBeginLines);
+        writeInts(pOutput, fBeginColumns);
+        writeInts(pOutput, fEndLines);
+        writeInts(pOutput, fEndColumns);
+    }
+
+
+    /**
+     * Read the tokens of a file from a binary stream written by {@link #writeTo(DataOutput)}.
+     *
+     * @param pInput    The stream to read from.
+     *
+     * @return  A new {@code TokenizedFile}, never null.
+     *
+     * @throws IOException  if reading from the stream fails, or if the stream has an unknown format.
+     * @throws NullPointerException if {@code pInput} is null.
+     */
+    static TokenizedFile readFrom(DataInput pInput) throws IOException
+    {
+        int aVersion = pInput.readInt();
+        if (aVersion != FORMAT_VERSION)
+            throw new IOException("Unknown tokenized file format version " + aVersion);
+
+        String aFileName = readString(pInput);
+
+        String[] aImages = new String[pInput.readInt()];
+        for (int i=1; i<aImages.length; i++)
+            aImages[i] = readString(pInput);
+
+        int aFlags = pInput.readInt();
+        int aNumTokens = pInput.readInt();
+        int[] aIdentifiers = readInts(pInput, aNumTokens);
+        int[] aBeginLines = readInts(pInput, aNumTokens);
+        int[] aBeginColumns = (aFlags & FLAG_BEGIN_COLUMNS) != 0 ? readInts(pInput, aNumTokens) : null;
+        int[] aEndLines = (aFlags & FLAG_END_LINES) != 0 ? readInts(pInput, aNumTokens) : null;
+        int[] aEndColumns = (aFlags & FLAG_END_COLUMNS) != 0 ? readInts(pInput, aNumTokens) : null;
+
+        for (int aIdentifier : aIdentifiers)
+            if (aIdentifier < 0 || aIdentifier >= aImages.length)
+                throw new IOException("Invalid token image identifier " + aIdentifier);
+
+        return new TokenizedFile(
+            aFileName,
+            aImages,
+            aIdentifiers,
+            aBeginLines,
+            aBeginColumns,
+            aEndLines,
+            aEndColumns);
+    }
+
+
+    /**
+     * Create a {@code TokenEntry} for a token in this file, using the most detailed constructor
+     * available in the version of CPD in use.
+     *
+     * @param pIndex    The index of the token.
+     *
+     * @return  A new {@code TokenEntry}.
+     */
+    private TokenEntry createTokenEntry(int pIndex)
+    {
+        return createTokenEntry(
+            getImage(pIndex),
+            fFileName,
+            fBeginLines[pIndex],
+            getBeginColumn(pIndex),
+            getEndLine(pIndex),
+            getEndColumn(pIndex),
+            getPositionFlags());
+    }
+
+
+    /**
+     * Create a {@code TokenEntry} using the most detailed constructor available in the version of
+     * CPD in use and supported by the available positions. This method must be called on the
+     * thread running the CPD analysis.
+     *
+     * @param pImage        The token's image.
+     * @param pFileName     The name of the file containing the token.
+     * @param pBeginLine    The token's begin line.
+     * @param pBeginColumn  The token's begin column.
+     * @param pEndLine      The token's end line.
+     * @param pEndColumn    The token's end column.
+     * @param pFlags        The flags specifying which of the optional positions are available.
+     *
+     * @return  A new {@code TokenEntry}.
+     */
+    static TokenEntry createTokenEntry(
+        String pImage,
+        String pFileName,
+        int pBeginLine,
+        int pBeginColumn,
+        int pEndLine,
+        int pEndColumn,
+        int pFlags)
+    {
+        try
+        {
+            if (END_LINE_CONSTRUCTOR != null && (pFlags & FLAGS_ALL) == FLAGS_ALL)
+                return (TokenEntry) END_LINE_CONSTRUCTOR.invokeExact(
+                    pImage,
+                    pFileName,
+                    pBeginLine,
+                    pBeginColumn,
+                    pEndLine,
+                    pEndColumn);
+            else if (COLUMNS_CONSTRUCTOR != null && (pFlags & FLAGS_COLUMNS) == FLAGS_COLUMNS)
+                return (TokenEntry) COLUMNS_CONSTRUCTOR.invokeExact(
+                    pImage,
+                    pFileName,
+                    pBeginLine,
+                    pBeginColumn,
+                    pEndColumn);
+        }
+        catch (Throwable t)
+        {
+            throw new IllegalStateException("Could not create token entry", t);
+        }
+
+        return new TokenEntry(pImage, pFileName, pBeginLine);
+    }
+
+
+    /**
+     * Get the images in the calling thread's token image map, indexed by their identifiers.
+     *
+     * @return  The token images.
+     */
+    @SuppressWarnings("unchecked")
+    static private String[] getTokenImages()
+    {
+        Map<String, Integer> aImageMap;
+        try
+        {
+            aImageMap = ((ThreadLocal<Map<String, Integer>>) TOKEN_IMAGES_FIELD.get(null)).get();
+        }
+        catch (IllegalAccessException | RuntimeException e)
+        {
+            throw new IllegalStateException("Could not access the token images", e);
+        }
+
+        // Identifiers are assigned from 1 and up in the order the images are encountered.
+        String[] aImages = new String[aImageMap.size() + 1];
+        for (Map.Entry<String, Integer> aEntry : aImageMap.entrySet())
+            aImages[aEntry.getValue()] = aEntry.getKey();
+
+        return aImages;
+    }
+
+
+    static private void writeString(DataOutput pOutput, String pString) throws IOException
+    {
+        // DataOutput.writeUTF() is limited to 65535 bytes, which a string literal may exceed.
+        byte[] aBytes = pString.getBytes(StandardCharsets.UTF_8);
+        pOutput.writeInt(aBytes.length);
+        pOutput.write(aBytes);
+    }
+
+
+    static private String readString(DataInput pInput) throws IOException
+    {
+        byte[] aBytes = new byte[pInput.readInt()];
+        pInput.readFully(aBytes);
+        return new String(aBytes, StandardCharsets.UTF_8);
+    }
+
+
+    static private void writeInts(DataOutput pOutput, int[] pValues) throws IOException
+    {
+        if (pValues != null)
+            for (int aValue : pValues)
+                pOutput.writeInt(aValue);
+    }
+
+
+    static private int[] readInts(DataInput pInput, int pNumValues) throws IOException
+    {
+        int[] aValues = new int[pNumValues];
+        for (int i=0; i<pNumValues; i++)
+            aValues[i] = pInput.readInt();
+
+        return aValues;
+    }
+
+
+    static private int invokeIntGetter(MethodHandle pGetter, TokenEntry pToken)
+    {
+        try
+        {
+            return (int) pGetter.invokeExact(pToken);
+        }
+        catch (Throwable t)
+        {
+            throw new IllegalStateException("Could not get token position", t);
+        }
+    }
+
+
+    /**
+     * Look up the private field in {@code TokenEntry} holding the thread local token image map.
+     *
+     * @return  The field, or null if it isn't available in the version of CPD in use.
+     */
+    static private Field lookupTokenImagesField()
+    {
+        try
+        {
+            Field aField = TokenEntry.class.getDeclaredField("TOKENS");
+            if (aField.getType() != ThreadLocal.class)
+                return null;
+
+            aField.setAccessible(true);
+            return aField;
+        }
+        catch (ReflectiveOperationException | RuntimeException ignore)
+        {
+            return null;
+        }
+    }
+}
@@ -1,13 +1,20 @@
 /*
- * Copyright 2015, 2019 Peter Franzen. All rights reserved.
+ * Copyright 2015, 2019, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
 package org.myire.quill.dashboard;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import groovy.lang.Closure;
@@ -256,11 +263,14 @@ public class DashboardLayout
      * @param pSections                 The sections to write.
      * @param pChildProjectDashboards   A map from child project name to child project dashboard
      *                                  report path.
+     * @param pMaxParallelism           The maximum number of threads to transform the sections
+     *                                  with.
      */
     void write(
         ReportBuilder pReportBuilder,
         Collection<DashboardSection> pSections,
-        Map<String, String> pChildProjectDashboards)
+        Map<String, String> pChildProjectDashboards,
+        int pMaxParallelism)
     {
         if (fHeaderHtmlFile != null)
             pReportBuilder.copy(fHeaderHtmlFile);
@@ -269,7 +279,7 @@ public class DashboardLayout
 
         // The dashboard consists of the headline, all sections, and links to any child projects.
         writeHeadline(pReportBuilder);
-        writeSectionsMatrix(pReportBuilder, pSections);
+        writeSectionsMatrix(pReportBuilder, pSections, pMaxParallelism);
         writeChildProjectsLinks(pReportBuilder, pChildProjectDashboards);
 
         if (fFooterHtmlFile != null)
@@ -321,11 +331,22 @@ public class DashboardLayout
     /**
      * Write the matrix with all sections to a report builder.
      *
-     * @param pBuilder  The report builder to write the sections to.
-     * @param pSections The sections to write.
+     * @param pBuilder          The report builder to write the sections to.
+     * @param pSections         The sections to write.
+     * @param pMaxParallelism   The maximum number of threads to transform the sections with.
      */
-    private void writeSectionsMatrix(ReportBuilder pBuilder, Collection<DashboardSection> pSections)
+    private void writeSectionsMatrix(
+        ReportBuilder pBuilder,
+        Collection<DashboardSection> pSections,
+        int pMaxParallelism)
     {
+        // Transform the sections into fragments up front if they should be transformed in
+        // parallel, otherwise transform each section directly into the report when it is written.
+        List<ReportBuilder> aFragments =
+            pMaxParallelism > 1 && pSections.size() > 1 ?
+                transformInParallel(pBuilder, pSections, pMaxParallelism) :
+                null;
+
         // Get the HTML code configured to start and end the section rows and cells.
         String aRowStartHtmlCode = fRowStartHtmlCode.get();
         String aRowEndHtmlCode = fRowEndHtmlCode.get();
@@ -346,7 +367,10 @@ public class DashboardLayout
 
             // Write the section.
             pBuilder.write(aCellStartHtmlCode);
-            aSection.writeTo(pBuilder);
+            if (aFragments != null)
+                pBuilder.append(aFragments.get(aIndex));
+            else
+                aSection.writeTo(pBuilder);
             pBuilder.write(aCellEndHtmlCode);
 
             // Write end of row if the current section has column position last in row or is
@@ -362,6 +386,75 @@ public class DashboardLayout
     }
 
 
+    /**
+     * Transform sections into report fragments in parallel. The transformations are prepared on
+     * the calling thread, since they access the project model, and are then applied on a thread
+     * pool. Each transformation writes to its own fragment, and the fragments are returned in the
+     * order of the sections, allowing them to be written to the report exactly as if they had been
+     * transformed serially.
+     *
+     * @param pBuilder          The report builder to create the fragments from.
+     * @param pSections         The sections to transform.
+     * @param pMaxParallelism   The maximum number of threads to use.
+     *
+     * @return  A list with one fragment per section, in the order of {@code pSections}.
+     *
+     * @throws IllegalStateException    if the calling thread is interrupted while waiting for the
+     *                                  transformations to finish.
+     */
+    static private List<ReportBuilder> transformInParallel(
+        ReportBuilder pBuilder,
+        Collection<DashboardSection> pSections,
+        int pMaxParallelism)
+    {
+        List<ReportBuilder> aFragments = new ArrayList<>(pSections.size());
+        List<Runnable> aTransforms = new ArrayList<>(pSections.size());
+        for (DashboardSection aSection : pSections)
+        {
+            ReportBuilder aFragment = pBuilder.createFragment();
+            aFragments.add(aFragment);
+            Consumer<ReportBuilder> aTransform = aSection.prepareTransform(pBuilder.getDestination());
+            if (aTransform != null)
+                aTransforms.add(() -> aTransform.accept(aFragment));
+        }
+
+        if (aTransforms.isEmpty())
+            return aFragments;
+
+        ExecutorService aExecutor = Executors.newFixedThreadPool(Math.min(pMaxParallelism, aTransforms.size()));
+        try
+        {
+            List<Future<?>> aResults = new ArrayList<>(aTransforms.size());
+            for (Runnable aTransform : aTransforms)
+                aResults.add(aExecutor.submit(aTransform));
+
+            for (Future<?> aResult : aResults)
+                aResult.get();
+        }
+        catch (ExecutionException e)
+        {
+            Throwable aCause = e.getCause();
+            if (aCause instanceof Error)
+                throw (Error) aCause;
+            else if (aCause instanceof RuntimeException)
+                throw (RuntimeException) aCause;
+            else
+                throw new IllegalStateException("Could not transform dashboard sections", aCause);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while transforming dashboard sections", e);
+        }
+        finally
+        {
+            aExecutor.shutdownNow();
+        }
+
+        return aFragments;
+    }
+
+
     /**
      * Write a section with links to the dashboard reports of any child projects.
      *
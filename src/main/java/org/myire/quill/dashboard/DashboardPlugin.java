@@ -1,20 +1,32 @@
 /*
- * Copyright 2015, 2019 Peter Franzen. All rights reserved.
+ * Copyright 2015, 2019, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
 package org.myire.quill.dashboard;
 
+import java.util.function.Function;
+
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.plugins.JavaBasePlugin;
 
 import org.myire.quill.common.Projects;
+import org.myire.quill.cpd.CpdPlugin;
+import org.myire.quill.cpd.CpdTask;
+import org.myire.quill.jol.JolPlugin;
+import org.myire.quill.jol.JolTask;
+import org.myire.quill.report.TransformingReport;
+import org.myire.quill.scent.ScentPlugin;
+import org.myire.quill.scent.ScentTask;
 
 
 /**
  * Gradle plugin for adding a build reports dashboard task to a project.
+ *<p>
+ * The plugin also lets the HTML reports of the CPD, Scent, and Jol tasks extract the summaries
+ * used by the tasks' dashboard sections while the reports are created.
  */
 public class DashboardPlugin implements Plugin<Project>
 {
@@ -36,5 +48,59 @@ public class DashboardPlugin implements Plugin<Project>
         Task aBuildTask = Projects.getTask(pProject, "build", Task.class);
         if (aBuildTask != null)
             aBuildTask.finalizedBy(aTask);
+
+        // Install the default summary extractors in the HTML reports of the tool tasks.
+        setSummaryExtractor(
+            pProject,
+            CpdPlugin.class,
+            CpdTask.class,
+            t -> t.getReports() != null ? t.getReports().getHtml() : null,
+            SummaryExtractors.CPD);
+        setSummaryExtractor(
+            pProject,
+            JolPlugin.class,
+            JolTask.class,
+            t -> t.getReports() != null ? t.getReports().getHtml() : null,
+            SummaryExtractors.JOL);
+        setSummaryExtractor(
+            pProject,
+            ScentPlugin.class,
+            ScentTask.class,
+            t -> t.getReports() != null ? t.getReports().getHtml() : null,
+            SummaryExtractors.SCENT);
+    }
+
+
+    /**
+     * Set the summary extractor of the HTML report of all tasks of a certain type when the plugin
+     * creating those tasks is applied. The plugins create their tasks and set up the tasks' reports
+     * when they are applied, which happens before they are added to the project's plugins. Tasks
+     * that don't have their reports set up are ignored.
+     *
+     * @param pProject      The project.
+     * @param pPluginClass  The class of the plugin creating the tasks.
+     * @param pTaskClass    The type of the tasks.
+     * @param pHtmlReport   A function that returns the HTML report of a task, or null if the task
+     *                      doesn't have its reports set up.
+     * @param pExtractor    The summary extractor to set.
+     *
+     * @param <T>   The type of the tasks.
+     */
+    static private <T extends Task> void setSummaryExtractor(
+        Project pProject,
+        Class<? extends Plugin<Project>> pPluginClass,
+        Class<T> pTaskClass,
+        Function<T, TransformingReport> pHtmlReport,
+        SummaryExtractor pExtractor)
+    {
+        pProject.getPlugins().withType(
+            pPluginClass,
+            p -> pProject.getTasks().withType(
+                pTaskClass,
+                t -> {
+                    TransformingReport aReport = pHtmlReport.apply(t);
+                    if (aReport != null)
+                        aReport.setSummaryExtractor(pExtractor);
+                }));
     }
 }
@@ -1,24 +1,29 @@
 /*
- * Copyright 2015, 2019, 2021 Peter Franzen. All rights reserved.
+ * Copyright 2015, 2019, 2021, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
 package org.myire.quill.dashboard;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import org.gradle.api.Project;
+import org.gradle.api.logging.Logger;
 import org.gradle.api.reporting.DirectoryReport;
 import org.gradle.api.reporting.Report;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.Optional;
 
 import org.myire.quill.common.ProjectAware;
 import org.myire.quill.report.ReportBuilder;
+import org.myire.quill.report.ReportSummaries;
 import org.myire.quill.report.Reports;
 import org.myire.quill.report.TransformingReport;
 
@@ -29,6 +34,13 @@ import org.myire.quill.report.TransformingReport;
  * report.
  *<p>
  * The summary is created by applying an XSL transformation to the underlying report's XML version.
+ * If the section has a {@code SummaryExtractor}, the transformation is applied to the summary
+ * extracted from the report instead of to the full report.
+ *<p>
+ * If the detailed report is a {@code TransformingReport}, the section's summary extractor is passed
+ * to it. The summary is then extracted when the detailed report is created from the same XML
+ * report and written to a file next to the detailed report, and the section reads that file
+ * instead of the XML report.
  */
 public class DashboardSection extends ProjectAware
 {
@@ -38,6 +50,7 @@ public class DashboardSection extends ProjectAware
     private final String fXslResource;
 
     private File fXslFile;
+    private SummaryExtractor fSummaryExtractor;
 
 
     /**
@@ -55,12 +68,37 @@ public class DashboardSection extends ProjectAware
         Report pReport,
         Report pDetailedReport,
         String pXslResource)
+    {
+        this(pProject, pName, pReport, pDetailedReport, pXslResource, null);
+    }
+
+
+    /**
+     * Create a new {@code DashboardSection}.
+     *
+     * @param pProject          The project that the dashboard contains report summaries for.
+     * @param pName             The name of this section.
+     * @param pReport           The XML report to get the section's content from.
+     * @param pDetailedReport   Any detailed report the section should refer to.
+     * @param pXslResource      The XSL resource to use if no XSL file is specified.
+     * @param pSummaryExtractor The extractor of the summary that the XSL resource is applied to,
+     *                          or null to apply the XSL resource to the full report.
+     */
+    DashboardSection(
+        Project pProject,
+        String pName,
+        Report pReport,
+        Report pDetailedReport,
+        String pXslResource,
+        SummaryExtractor pSummaryExtractor)
     {
         super(pProject);
         fName = pName;
         fReport = pReport;
         fDetailedReport = pDetailedReport;
         fXslResource = pXslResource;
+        fSummaryExtractor = pSummaryExtractor;
+        connectSummaryExtractor();
     }
 
 
@@ -142,13 +180,47 @@ public class DashboardSection extends ProjectAware
 
     /**
      * Set the XSL file to use when transforming the XML input. The specified file will be resolved
-     * relative to the project directory.
+     * relative to the project directory. Setting a file also removes any summary extractor, since
+     * a custom style sheet is applied to the full report unless a summary extractor is set
+     * explicitly after the file.
      *
      * @param pFile The XSL file.
      */
     public void setXslFile(Object pFile)
     {
         fXslFile = pFile != null ? getProject().file(pFile) : null;
+        if (fXslFile != null)
+        {
+            fSummaryExtractor = null;
+            connectSummaryExtractor();
+        }
+    }
+
+
+    /**
+     * Get the extractor of the summary that the XSL transformation is applied to. The built-in
+     * sections have extractors that read their reports as streams and keep only the values needed
+     * by the built-in style sheets.
+     *
+     * @return  The summary extractor, or null if the transformation is applied to the full report.
+     */
+    @Internal
+    public SummaryExtractor getSummaryExtractor()
+    {
+        return fSummaryExtractor;
+    }
+
+
+    /**
+     * Set the extractor of the summary that the XSL transformation is applied to. Passing null
+     * applies the transformation to the full report.
+     *
+     * @param pSummaryExtractor The summary extractor, possibly null.
+     */
+    public void setSummaryExtractor(SummaryExtractor pSummaryExtractor)
+    {
+        fSummaryExtractor = pSummaryExtractor;
+        connectSummaryExtractor();
     }
 
 
@@ -159,28 +231,51 @@ public class DashboardSection extends ProjectAware
      * @param pReportBuilder    The report builder holding the report to write this section to.
      */
     void writeTo(ReportBuilder pReportBuilder)
+    {
+        Consumer<ReportBuilder> aTransform = prepareTransform(pReportBuilder.getDestination());
+        if (aTransform != null)
+            aTransform.accept(pReportBuilder);
+    }
+
+
+    /**
+     * Prepare the transformation of this section's underlying XML report using the XSL file
+     * specified in the {@code xslFile} property or the default XSL resource. All access to the
+     * project and the reports is done by this method, the returned transformation only accesses
+     * the file system and the report builder passed to it. The transformation can thus be applied
+     * on another thread than the one calling this method.
+     *
+     * @param pDashboardReportFile  The dashboard report file.
+     *
+     * @return  The transformation that writes this section to a report builder, or null if the
+     *          underlying XML report isn't enabled or its file cannot be read.
+     */
+    Consumer<ReportBuilder> prepareTransform(File pDashboardReportFile)
     {
         if (Reports.isRequired(fReport))
         {
             getProjectLogger().debug("Creating dashboard section '{}'", fName);
-            transform(pReportBuilder);
+            return createTransform(pDashboardReportFile);
         }
         else
+        {
             getProjectLogger().debug(
                 "Report '{}' for dashboard section '{}' is disabled, skipping",
                 fReport.getName(),
                 fName);
+            return null;
+        }
     }
 
 
     /**
-     * Transform this section's underlying XML report using the XSL file specified in the
-     * {@code xslFile} property or the default XSL resource, and write the result to a
-     * {@code ReportBuilder}.
+     * Create the transformation of this section's underlying XML report.
      *
-     * @param pReportBuilder    The report builder to write to.
+     * @param pDashboardReportFile  The dashboard report file.
+     *
+     * @return  The transformation, or null if the underlying XML report file cannot be read.
      */
-    private void transform(ReportBuilder pReportBuilder)
+    private Consumer<ReportBuilder> createTransform(File pDashboardReportFile)
     {
         File aInputFile = Reports.getOutputLocation(fReport);
         if (aInputFile == null)
@@ -205,14 +300,74 @@ public class DashboardSection extends ProjectAware
         }
         else
         {
-            Map<String, Object> aXslParams = createXslParameters(pReportBuilder.getDestination());
-            if (fXslFile != null)
+            Map<String, Object> aXslParams = createXslParameters(pDashboardReportFile);
+            File aXslFile = fXslFile;
+            String aXslResource = fXslResource;
+            if (fSummaryExtractor != null)
+                return createSummaryTransform(aInputFile, fSummaryExtractor, aXslFile, aXslResource, aXslParams);
+            else if (aXslFile != null)
                 // An XSL file has been specified, use its style sheet for the transformation.
-                pReportBuilder.transform(aInputFile, fXslFile, aXslParams);
+                return b -> b.transform(aInputFile, aXslFile, aXslParams);
             else
                 // No XSL file specified, use the default resource.
-                pReportBuilder.transform(aInputFile, fXslResource, aXslParams);
+                return b -> b.transform(aInputFile, aXslResource, aXslParams);
         }
+
+        return null;
+    }
+
+
+    /**
+     * Create the transformation of the summary extracted from this section's underlying XML
+     * report. If the summary was extracted when the detailed report was created, that summary is
+     * used. Otherwise the extraction is performed by the transformation, and thus on the thread
+     * applying it. If the extraction fails, nothing is written to the report builder.
+     *
+     * @param pInputFile        The XML report file.
+     * @param pExtractor        The summary extractor.
+     * @param pXslFile          The XSL file to transform the summary with, or null to use
+     *                          {@code pXslResource}.
+     * @param pXslResource      The XSL resource to transform the summary with.
+     * @param pXslParameters    The XSL parameters to pass to the transformation.
+     *
+     * @return  The transformation, never null.
+     */
+    private Consumer<ReportBuilder> createSummaryTransform(
+        File pInputFile,
+        SummaryExtractor pExtractor,
+        File pXslFile,
+        String pXslResource,
+        Map<String, Object> pXslParameters)
+    {
+        // The summary doesn't carry the report file's modification timestamp, pass it explicitly.
+        ReportBuilder.applyXmlModifiedParameters(pInputFile, pXslParameters::put);
+
+        Logger aLogger = getProjectLogger();
+        return b -> {
+            String aSummary =
+                fDetailedReport instanceof TransformingReport
+                    ? ReportSummaries.read(pInputFile, (TransformingReport) fDetailedReport, pExtractor)
+                    : null;
+            if (aSummary != null)
+                aLogger.debug("Using the summary extracted by the detailed report for the '{}' dashboard section", fName);
+            else
+            {
+                try
+                {
+                    aSummary = SummaryExtractors.extract(pInputFile, pExtractor);
+                }
+                catch (IOException ioe)
+                {
+                    aLogger.error("Could not extract the summary for the '{}' dashboard section", fName, ioe);
+                    return;
+                }
+            }
+
+            if (pXslFile != null)
+                b.transform(aSummary, pXslFile, pXslParameters);
+            else
+                b.transform(aSummary, pXslResource, pXslParameters);
+        };
     }
 
 
@@ -243,6 +398,17 @@ public class DashboardSection extends ProjectAware
     }
 
 
+    /**
+     * Pass this section's summary extractor to the detailed report if the latter is a
+     * {@code TransformingReport}.
+     */
+    private void connectSummaryExtractor()
+    {
+        if (fDetailedReport instanceof TransformingReport)
+            ((TransformingReport) fDetailedReport).setSummaryExtractor(fSummaryExtractor);
+    }
+
+
     private File getDetailedReportFile()
     {
         if (Reports.isRequired(fDetailedReport))
@@ -1,5 +1,5 @@
 /*
- * Copyright 2015, 2019-2021 Peter Franzen. All rights reserved.
+ * Copyright 2015, 2019-2021, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
@@ -174,7 +174,8 @@ class DashboardSectionFactory extends ProjectAware
             pTask.getName(),
             pTask.getReports().getXml(),
             aDetailedReport,
-            XSL_RESOURCE_CHECKSTYLE);
+            XSL_RESOURCE_CHECKSTYLE,
+            SummaryExtractors.CHECKSTYLE);
     }
 
 
@@ -196,7 +197,8 @@ class DashboardSectionFactory extends ProjectAware
                 pTask.getName(),
                 aPrimaryReport,
                 pTask.getReports().getHtml(),
-                XSL_RESOURCE_CPD);
+                XSL_RESOURCE_CPD,
+                SummaryExtractors.CPD);
         }
         else
         {
@@ -223,7 +225,8 @@ class DashboardSectionFactory extends ProjectAware
             pTask.getName(),
             pTask.getReports().getXml(),
             pTask.getReports().getHtml(),
-            XSL_RESOURCE_JACOCO);
+            XSL_RESOURCE_JACOCO,
+            SummaryExtractors.JACOCO);
     }
 
 
@@ -241,7 +244,8 @@ class DashboardSectionFactory extends ProjectAware
             pTask.getName(),
             pTask.getReports().getXml(),
             pTask.getReports().getHtml(),
-            XSL_RESOURCE_JOL);
+            XSL_RESOURCE_JOL,
+            SummaryExtractors.JOL);
     }
 
 
@@ -321,7 +325,8 @@ class DashboardSectionFactory extends ProjectAware
             pTask.getName(),
             pTask.getReports().getXml(),
             aDetailedReport,
-            XSL_RESOURCE_PMD);
+            XSL_RESOURCE_PMD,
+            SummaryExtractors.PMD);
     }
 
 
@@ -339,7 +344,8 @@ class DashboardSectionFactory extends ProjectAware
             pTask.getName(),
             pTask.getReports().getXml(),
             pTask.getReports().getHtml(),
-            XSL_RESOURCE_SCENT);
+            XSL_RESOURCE_SCENT,
+            SummaryExtractors.SCENT);
     }
 
 
@@ -370,7 +376,7 @@ class DashboardSectionFactory extends ProjectAware
     private DashboardSection createSpotBugsSection(Task pTask)
     {
         // Can't refer to the SpotBugs plugin types since they plugin may not be available.
-        return createReportingTaskSection(pTask, XSL_RESOURCE_SPOTBUGS);
+        return createReportingTaskSection(pTask, XSL_RESOURCE_SPOTBUGS, SummaryExtractors.SPOTBUGS);
     }
 
 
@@ -379,11 +385,16 @@ class DashboardSectionFactory extends ProjectAware
      *
      * @param pTask         The task.
      * @param pXslResource  The dashboard section's default XSL resource.
+     * @param pExtractor    The extractor of the summary to apply the XSL resource to, possibly
+     *                      null.
      *
      * @return  A new {@code DashboardSection}, or null if {@code pTask} does not have a
      *          {@code reports} property or does not have an XML report.
      */
-    static private DashboardSection createReportingTaskSection(Task pTask, String pXslResource)
+    static private DashboardSection createReportingTaskSection(
+        Task pTask,
+        String pXslResource,
+        SummaryExtractor pExtractor)
     {
         NamedDomainObjectCollection<?> aReports = null;
         if (pTask.hasProperty("reports"))
@@ -423,7 +434,8 @@ class DashboardSectionFactory extends ProjectAware
             pTask.getName(),
             (Report) aXmlReport,
             (Report) aDetailedReport,
-            pXslResource);
+            pXslResource,
+            pExtractor);
     }
 
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2015, 2019, 2021 Peter Franzen. All rights reserved.
+ * Copyright 2015, 2019, 2021, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
@@ -54,6 +54,7 @@ public class DashboardTask extends DefaultTask implements ReportingEntity<Dashbo
     static final String TASK_NAME = "reportsDashboard";
 
     private boolean fVerbose = true;
+    private int fMaxParallelism = Runtime.getRuntime().availableProcessors();
 
     private DashboardLayout fLayout;
     private DashboardReports fReports;
@@ -97,6 +98,27 @@ public class DashboardTask extends DefaultTask implements ReportingEntity<Dashbo
     }
 
 
+    /**
+     * Get the maximum number of threads to transform the dashboard sections with. The report is
+     * identical to the one created by transforming the sections on a single thread. A value of 1
+     * or less disables the parallel transformation. Default is the number of processors available
+     * to the JVM.
+     *
+     * @return  The maximum number of threads to transform the sections with.
+     */
+    @Internal
+    public int getMaxParallelism()
+    {
+        return fMaxParallelism;
+    }
+
+
+    public void setMaxParallelism(int pMaxParallelism)
+    {
+        fMaxParallelism = pMaxParallelism;
+    }
+
+
     /**
      * Get the layout of the dashboard.
      *
@@ -268,7 +290,7 @@ public class DashboardTask extends DefaultTask implements ReportingEntity<Dashbo
             try
             {
                 ReportBuilder aReportBuilder = new ReportBuilder(Reports.getOutputLocation(fReports.getHtml()));
-                fLayout.write(aReportBuilder, fSections.values(), findChildProjectDashboards());
+                fLayout.write(aReportBuilder, fSections.values(), findChildProjectDashboards(), fMaxParallelism);
                 aReportBuilder.close();
 
                 if (fVerbose)
@@ -373,6 +395,7 @@ public class DashboardTask extends DefaultTask implements ReportingEntity<Dashbo
         private final DashboardSectionFile fInputReportFile;
         private final DashboardSectionFile fDetailedReportFile;
         private final DashboardSectionFile fXslFile;
+        private final String fSummaryExtractor;
 
         DashboardSectionSpec(DashboardSection pSection)
         {
@@ -380,6 +403,8 @@ public class DashboardTask extends DefaultTask implements ReportingEntity<Dashbo
             fInputReportFile = toDashboardSectionFile(getReportFileSpec(pSection.getReport()));
             fDetailedReportFile = toDashboardSectionFile(getReportFileSpec(pSection.getDetailedReport()));
             fXslFile = toDashboardSectionFile(pSection.getXslFile());
+            SummaryExtractor aExtractor = pSection.getSummaryExtractor();
+            fSummaryExtractor = aExtractor != null ? aExtractor.getClass().getName() : null;
         }
 
 
@@ -396,13 +421,14 @@ public class DashboardTask extends DefaultTask implements ReportingEntity<Dashbo
                 fName.equals(aOther.fName) &&
                 Objects.equals(fInputReportFile, aOther.fInputReportFile) &&
                 Objects.equals(fDetailedReportFile, aOther.fDetailedReportFile) &&
-                Objects.equals(fXslFile, aOther.fXslFile);
+                Objects.equals(fXslFile, aOther.fXslFile) &&
+                Objects.equals(fSummaryExtractor, aOther.fSummaryExtractor);
         }
 
         @Override
         public int hashCode()
         {
-            return Objects.hash(fName, fInputReportFile, fDetailedReportFile, fXslFile);
+            return Objects.hash(fName, fInputReportFile, fDetailedReportFile, fXslFile, fSummaryExtractor);
         }
 
         static private File getReportFileSpec(Report pReport)
@@ -0,0 +1,23 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.dashboard;
+
+import org.myire.quill.report.XmlSummaryExtractor;
+
+
+/**
+ * A summary extractor reads an XML report as a stream and writes a small XML document with the
+ * values needed by a dashboard section's style sheet. The style sheet is then applied to the
+ * summary instead of to the report, which avoids building an in-memory tree of the entire report.
+ *<p>
+ * Extractors are called concurrently when dashboard sections are transformed in parallel, and may
+ * also be passed to the detailed report of a section to extract the summary while that report is
+ * created.
+ */
+@FunctionalInterface
+public interface SummaryExtractor extends XmlSummaryExtractor
+{
+}
@@ -0,0 +1,550 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.dashboard;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+
+/**
+ * The summary extractors for the XML reports of the built-in dashboard sections. Each extractor
+ * reads a report as a stream and keeps only the counts and totals needed by the section's style
+ * sheet, which renders the extracted summary exactly like it renders the full report. The memory
+ * used by an extraction does not depend on the size of the report, with the exception of the
+ * Checkstyle extractor, which keeps the names of the analyzed files to count each file once.
+ *<p>
+ * An extractor writes an empty {@code no-summary} element if the report's root element isn't the
+ * one the extractor expects, for which the style sheets output nothing.
+ */
+public final class SummaryExtractors
+{
+    static private final String NO_SUMMARY_ELEMENT = "no-summary";
+    static private final String PMD_NAMESPACE = "http://pmd.sourceforge.net/report/2.0.0";
+
+    /** Extractor for Checkstyle XML reports. */
+    static public final SummaryExtractor CHECKSTYLE =
+        new StreamingSummaryExtractor(null, "checkstyle", CheckstyleSummary::new);
+
+    /** Extractor for CPD XML reports. */
+    static public final SummaryExtractor CPD =
+        new StreamingSummaryExtractor(null, "pmd-cpd", CpdSummary::new);
+
+    /** Extractor for JaCoCo XML reports. */
+    static public final SummaryExtractor JACOCO =
+        new StreamingSummaryExtractor(null, "report", JacocoSummary::new);
+
+    /** Extractor for Jol XML reports. */
+    static public final SummaryExtractor JOL =
+        new StreamingSummaryExtractor(null, "jol-report", JolSummary::new);
+
+    /** Extractor for PMD XML reports. */
+    static public final SummaryExtractor PMD =
+        new StreamingSummaryExtractor(PMD_NAMESPACE, "pmd", PmdSummary::new);
+
+    /** Extractor for Scent XML reports. */
+    static public final SummaryExtractor SCENT =
+        new StreamingSummaryExtractor(null, "scent-report", ScentSummary::new);
+
+    /** Extractor for SpotBugs XML reports. */
+    static public final SummaryExtractor SPOTBUGS =
+        new StreamingSummaryExtractor(null, "BugCollection", SpotBugsSummary::new);
+
+    static private final XMLInputFactory cInputFactory = createInputFactory();
+    static private final XMLOutputFactory cOutputFactory = XMLOutputFactory.newInstance();
+
+
+    /**
+     * Private constructor to disallow instantiations of utility method class.
+     */
+    private SummaryExtractors()
+    {
+        // Empty default ctor, defined to override access scope.
+    }
+
+
+    /**
+     * Extract the summary of an XML report file.
+     *
+     * @param pReport       The report file.
+     * @param pExtractor    The extractor to extract the summary with.
+     *
+     * @return  The summary XML document, never null.
+     *
+     * @throws IOException  if reading or parsing the report fails.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    static String extract(File pReport, SummaryExtractor pExtractor) throws IOException
+    {
+        StringWriter aSummary = new StringWriter(512);
+        try (InputStream aStream = new FileInputStream(pReport))
+        {
+            XMLStreamReader aReader;
+            XMLStreamWriter aWriter;
+            synchronized (cInputFactory)
+            {
+                aReader = cInputFactory.createXMLStreamReader(aStream);
+            }
+            synchronized (cOutputFactory)
+            {
+                aWriter = cOutputFactory.createXMLStreamWriter(aSummary);
+            }
+
+            try
+            {
+                pExtractor.extract(aReader, aWriter);
+                aWriter.writeEndDocument();
+                aWriter.close();
+            }
+            finally
+            {
+                aReader.close();
+            }
+        }
+        catch (XMLStreamException e)
+        {
+            throw new IOException("Could not extract the summary of the report " + pReport, e);
+        }
+
+        return aSummary.toString();
+    }
+
+
+    static private XMLInputFactory createInputFactory()
+    {
+        // Any DOCTYPE declaration is ignored to avoid potential network access, in the same way as
+        // when transforming the full report.
+        XMLInputFactory aFactory = XMLInputFactory.newInstance();
+        aFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        aFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return aFactory;
+    }
+
+
+    static private void writeAttribute(XMLStreamWriter pWriter, String pName, String pValue) throws XMLStreamException
+    {
+        if (pValue != null)
+            pWriter.writeAttribute(pName, pValue);
+    }
+
+
+    static private void writeAttributes(XMLStreamWriter pWriter, Map<String, String> pAttributes) throws XMLStreamException
+    {
+        for (Map.Entry<String, String> aAttribute : pAttributes.entrySet())
+            pWriter.writeAttribute(aAttribute.getKey(), aAttribute.getValue());
+    }
+
+
+    static private Map<String, String> getAttributes(XMLStreamReader pReader)
+    {
+        Map<String, String> aAttributes = new LinkedHashMap<>();
+        for (int i=0; i<pReader.getAttributeCount(); i++)
+            aAttributes.put(pReader.getAttributeLocalName(i), pReader.getAttributeValue(i));
+
+        return aAttributes;
+    }
+
+
+    /**
+     * A summary extractor that passes the elements of a report to a {@code Summary} and writes the
+     * summary when the entire report has been read.
+     */
+    static private final class StreamingSummaryExtractor implements SummaryExtractor
+    {
+        private final String fRootNamespace;
+        private final String fRootElement;
+        private final Supplier<Summary> fSummaryFactory;
+
+        StreamingSummaryExtractor(String pRootNamespace, String pRootElement, Supplier<Summary> pSummaryFactory)
+        {
+            fRootNamespace = pRootNamespace;
+            fRootElement = pRootElement;
+            fSummaryFactory = pSummaryFactory;
+        }
+
+        @Override
+        public void extract(XMLStreamReader pReader, XMLStreamWriter pWriter) throws XMLStreamException
+        {
+            // The path from the root element to the current element, only the element names are
+            // kept.
+            List<String> aPath = new ArrayList<>();
+            Summary aSummary = fSummaryFactory.get();
+            while (pReader.hasNext())
+            {
+                int aEvent = pReader.next();
+                if (aEvent == XMLStreamConstants.START_ELEMENT)
+                {
+                    aPath.add(pReader.getLocalName());
+                    if (aPath.size() > 1)
+                        aSummary.startElement(aPath, pReader);
+                    else if (isRootElement(pReader))
+                        aSummary.startRoot(pReader);
+                    else
+                    {
+                        pWriter.writeEmptyElement(NO_SUMMARY_ELEMENT);
+                        return;
+                    }
+                }
+                else if (aEvent == XMLStreamConstants.END_ELEMENT)
+                    aPath.remove(aPath.size() - 1);
+            }
+
+            aSummary.write(pWriter);
+        }
+
+        private boolean isRootElement(XMLStreamReader pReader)
+        {
+            String aNamespace = pReader.getNamespaceURI();
+            if (aNamespace != null && aNamespace.isEmpty())
+                aNamespace = null;
+
+            return fRootElement.equals(pReader.getLocalName()) && Objects.equals(fRootNamespace, aNamespace);
+        }
+    }
+
+
+    /**
+     * The values of a report summary, collected while the report is read.
+     */
+    static private abstract class Summary
+    {
+        /**
+         * Collect any values from the report's root element.
+         *
+         * @param pReader   The reader positioned at the root element.
+         */
+        void startRoot(XMLStreamReader pReader)
+        {
+            // No values from the root element by default.
+        }
+
+        /**
+         * Collect any values from an element below the root element.
+         *
+         * @param pPath     The names of the elements from the root element to the element.
+         * @param pReader   The reader positioned at the element.
+         */
+        abstract void startElement(List<String> pPath, XMLStreamReader pReader);
+
+        /**
+         * Write the summary's root element.
+         *
+         * @param pWriter   The writer to write to.
+         *
+         * @throws XMLStreamException   if writing fails.
+         */
+        abstract void write(XMLStreamWriter pWriter) throws XMLStreamException;
+    }
+
+
+    /**
+     * Summary of a Checkstyle report. A file may occur more than once in the report, depending on
+     * which checks were run, and the files are thus counted by name.
+     */
+    static private final class CheckstyleSummary extends Summary
+    {
+        private String fVersion;
+        private String fCurrentFile;
+        private final Set<String> fFiles = new HashSet<>();
+        private final Set<String> fFilesWithViolations = new HashSet<>();
+        private long fNumErrors;
+        private long fNumWarnings;
+
+        @Override
+        void startRoot(XMLStreamReader pReader)
+        {
+            fVersion = pReader.getAttributeValue(null, "version");
+        }
+
+        @Override
+        void startElement(List<String> pPath, XMLStreamReader pReader)
+        {
+            String aName = pPath.get(pPath.size() - 1);
+            if (pPath.size() == 2 && "file".equals(aName))
+            {
+                fCurrentFile = pReader.getAttributeValue(null, "name");
+                if (fCurrentFile != null)
+                    fFiles.add(fCurrentFile);
+            }
+            else if (pPath.size() == 3 && "error".equals(aName) && "file".equals(pPath.get(1)))
+            {
+                if (fCurrentFile != null)
+                    fFilesWithViolations.add(fCurrentFile);
+
+                String aSeverity = pReader.getAttributeValue(null, "severity");
+                if ("error".equals(aSeverity))
+                    fNumErrors++;
+                else if ("warning".equals(aSeverity))
+                    fNumWarnings++;
+            }
+        }
+
+        @Override
+        void write(XMLStreamWriter pWriter) throws XMLStreamException
+        {
+            pWriter.writeEmptyElement("checkstyle-summary");
+            writeAttribute(pWriter, "version", fVersion);
+            pWriter.writeAttribute("files", String.valueOf(fFiles.size()));
+            pWriter.writeAttribute("files-with-violations", String.valueOf(fFilesWithViolations.size()));
+            pWriter.writeAttribute("errors", String.valueOf(fNumErrors));
+            pWriter.writeAttribute("warnings", String.valueOf(fNumWarnings));
+        }
+    }
+
+
+    /**
+     * Summary of a CPD report.
+     */
+    static private final class CpdSummary extends Summary
+    {
+        private long fNumDuplications;
+        private long fNumLines;
+
+        @Override
+        void startElement(List<String> pPath, XMLStreamReader pReader)
+        {
+            if (pPath.size() == 2 && "duplication".equals(pPath.get(1)))
+            {
+                fNumDuplications++;
+                String aLines = pReader.getAttributeValue(null, "lines");
+                if (aLines != null)
+                {
+                    try
+                    {
+                        fNumLines += Long.parseLong(aLines.trim());
+                    }
+                    catch (NumberFormatException ignore)
+                    {
+                        // Not a number, ignore.
+                    }
+                }
+            }
+        }
+
+        @Override
+        void write(XMLStreamWriter pWriter) throws XMLStreamException
+        {
+            pWriter.writeEmptyElement("cpd-summary");
+            pWriter.writeAttribute("duplications", String.valueOf(fNumDuplications));
+            pWriter.writeAttribute("lines", String.valueOf(fNumLines));
+        }
+    }
+
+
+    /**
+     * Summary of a JaCoCo report. The counters of the report element are copied as they are.
+     */
+    static private final class JacocoSummary extends Summary
+    {
+        private long fNumPackages;
+        private long fNumTypes;
+        private final List<Map<String, String>> fCounters = new ArrayList<>();
+
+        @Override
+        void startElement(List<String> pPath, XMLStreamReader pReader)
+        {
+            String aName = pPath.get(pPath.size() - 1);
+            if (pPath.size() == 2)
+            {
+                if ("package".equals(aName))
+                    fNumPackages++;
+                else if ("counter".equals(aName))
+                    fCounters.add(getAttributes(pReader));
+            }
+            else if (pPath.size() == 3 && "class".equals(aName) && "package".equals(pPath.get(1)))
+                fNumTypes++;
+        }
+
+        @Override
+        void write(XMLStreamWriter pWriter) throws XMLStreamException
+        {
+            pWriter.writeStartElement("jacoco-summary");
+            pWriter.writeAttribute("packages", String.valueOf(fNumPackages));
+            pWriter.writeAttribute("types", String.valueOf(fNumTypes));
+            for (Map<String, String> aCounter : fCounters)
+            {
+                pWriter.writeEmptyElement("counter");
+                writeAttributes(pWriter, aCounter);
+            }
+
+            pWriter.writeEndElement();
+        }
+    }
+
+
+    /**
+     * Summary of a Jol report. The attributes of the root element are copied as they are.
+     */
+    static private final class JolSummary extends Summary
+    {
+        private Map<String, String> fAttributes;
+        private long fNumClasses;
+
+        @Override
+        void startRoot(XMLStreamReader pReader)
+        {
+            fAttributes = getAttributes(pReader);
+        }
+
+        @Override
+        void startElement(List<String> pPath, XMLStreamReader pReader)
+        {
+            if (pPath.size() == 4
+                &&
+                "class".equals(pPath.get(3))
+                &&
+                "package".equals(pPath.get(2))
+                &&
+                "packages".equals(pPath.get(1)))
+                fNumClasses++;
+        }
+
+        @Override
+        void write(XMLStreamWriter pWriter) throws XMLStreamException
+        {
+            pWriter.writeEmptyElement("jol-summary");
+            writeAttributes(pWriter, fAttributes);
+            pWriter.writeAttribute("classes", String.valueOf(fNumClasses));
+        }
+    }
+
+
+    /**
+     * Summary of a PMD report.
+     */
+    static private final class PmdSummary extends Summary
+    {
+        private String fVersion;
+        private long fNumFiles;
+        private long fNumViolations;
+
+        @Override
+        void startRoot(XMLStreamReader pReader)
+        {
+            fVersion = pReader.getAttributeValue(null, "version");
+        }
+
+        @Override
+        void startElement(List<String> pPath, XMLStreamReader pReader)
+        {
+            String aName = pPath.get(pPath.size() - 1);
+            if (pPath.size() == 2 && "file".equals(aName))
+                fNumFiles++;
+            else if (pPath.size() == 3 && "violation".equals(aName) && "file".equals(pPath.get(1)))
+                fNumViolations++;
+        }
+
+        @Override
+        void write(XMLStreamWriter pWriter) throws XMLStreamException
+        {
+            pWriter.writeEmptyElement("pmd-summary");
+            writeAttribute(pWriter, "version", fVersion);
+            pWriter.writeAttribute("files-with-violations", String.valueOf(fNumFiles));
+            pWriter.writeAttribute("violations", String.valueOf(fNumViolations));
+        }
+    }
+
+
+    /**
+     * Summary of a Scent report. The report already contains a summary element, which is copied
+     * together with the root element. The style sheet can thus be applied to the summary as if it
+     * was the full report.
+     */
+    static private final class ScentSummary extends Summary
+    {
+        private Map<String, String> fAttributes;
+        private final List<Map<String, String>> fSummaries = new ArrayList<>();
+
+        @Override
+        void startRoot(XMLStreamReader pReader)
+        {
+            fAttributes = getAttributes(pReader);
+        }
+
+        @Override
+        void startElement(List<String> pPath, XMLStreamReader pReader)
+        {
+            if (pPath.size() == 2 && "summary".equals(pPath.get(1)))
+                fSummaries.add(getAttributes(pReader));
+        }
+
+        @Override
+        void write(XMLStreamWriter pWriter) throws XMLStreamException
+        {
+            pWriter.writeStartElement("scent-report");
+            writeAttributes(pWriter, fAttributes);
+            for (Map<String, String> aSummary : fSummaries)
+            {
+                pWriter.writeEmptyElement("summary");
+                writeAttributes(pWriter, aSummary);
+            }
+
+            pWriter.writeEndElement();
+        }
+    }
+
+
+    /**
+     * Summary of a SpotBugs report.
+     */
+    static private final class SpotBugsSummary extends Summary
+    {
+        private String fVersion;
+        private String fNumPackages;
+        private String fNumClasses;
+        private boolean fHasFindBugsSummary;
+        private long fNumBugs;
+
+        @Override
+        void startRoot(XMLStreamReader pReader)
+        {
+            fVersion = pReader.getAttributeValue(null, "version");
+        }
+
+        @Override
+        void startElement(List<String> pPath, XMLStreamReader pReader)
+        {
+            if (pPath.size() != 2)
+                return;
+
+            String aName = pPath.get(1);
+            if ("BugInstance".equals(aName))
+                fNumBugs++;
+            else if ("FindBugsSummary".equals(aName) && !fHasFindBugsSummary)
+            {
+                fHasFindBugsSummary = true;
+                fNumPackages = pReader.getAttributeValue(null, "num_packages");
+                fNumClasses = pReader.getAttributeValue(null, "total_classes");
+            }
+        }
+
+        @Override
+        void write(XMLStreamWriter pWriter) throws XMLStreamException
+        {
+            pWriter.writeEmptyElement("spotbugs-summary");
+            writeAttribute(pWriter, "version", fVersion);
+            writeAttribute(pWriter, "packages", fNumPackages);
+            writeAttribute(pWriter, "classes", fNumClasses);
+            pWriter.writeAttribute("bugs", String.valueOf(fNumBugs));
+        }
+    }
+}
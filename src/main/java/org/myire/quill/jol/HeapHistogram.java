@@ -0,0 +1,142 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.jol;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * The instance counts of the classes in one or more heap histograms. A heap histogram is the text
+ * output of {@code jmap -histo} or {@code jcmd <pid> GC.class_histogram}, where each class is
+ * listed on a line with the format
+ *<pre>
+ *    num:    #instances    #bytes  class name (module)
+ *</pre>
+ * The module part is only present in histograms from Java 9 and later. Lines not in this format,
+ * e.g. headers and totals, are ignored, as are array classes.
+ *<p>
+ * The classes are keyed on the binary names in the histogram, which makes them comparable to
+ * {@link JolResult.ClassLayout#getBinaryName()}. Replacing the '$' separators with '.' would make
+ * e.g. an anonymous class {@code Outer$1} indistinguishable from a nested class named {@code 1}.
+ * The instance counts of a class in several histograms are summed.
+ *
+ * @author <a href="mailto:peter@myire.org">Peter Franzen</a>
+ */
+class HeapHistogram
+{
+    static private final Pattern HISTOGRAM_LINE =
+        Pattern.compile("^\\s*\\d+:\\s+(\\d+)\\s+\\d+\\s+(\\S+).*$");
+
+    private final Map<String, Long> fInstanceCounts = new HashMap<>();
+
+
+    /**
+     * Get the number of classes with instances in this histogram.
+     *
+     * @return  The number of classes.
+     */
+    int getNumClasses()
+    {
+        return fInstanceCounts.size();
+    }
+
+
+    /**
+     * Get the number of instances of a class.
+     *
+     * @param pClassName    The binary name of the class, with '$' separating nested classes from
+     *                      their enclosing classes.
+     *
+     * @return  The number of instances, 0 if the class isn't in the histogram.
+     *
+     * @throws NullPointerException if {@code pClassName} is null.
+     */
+    long getInstanceCount(String pClassName)
+    {
+        return fInstanceCounts.getOrDefault(pClassName, 0L);
+    }
+
+
+    /**
+     * Read a heap histogram file and add its instance counts to this instance.
+     *
+     * @param pFile The histogram file.
+     *
+     * @throws IOException  if reading the file fails.
+     * @throws NullPointerException if {@code pFile} is null.
+     */
+    void read(File pFile) throws IOException
+    {
+        try (Reader aReader = Files.newBufferedReader(pFile.toPath(), StandardCharsets.UTF_8))
+        {
+            read(aReader);
+        }
+    }
+
+
+    /**
+     * Read a heap histogram and add its instance counts to this instance.
+     *
+     * @param pReader   The reader to read the histogram from.
+     *
+     * @throws IOException  if reading fails.
+     * @throws NullPointerException if {@code pReader} is null.
+     */
+    void read(Reader pReader) throws IOException
+    {
+        BufferedReader aReader = pReader instanceof BufferedReader ? (BufferedReader) pReader : new BufferedReader(pReader);
+        String aLine;
+        while ((aLine = aReader.readLine()) != null)
+        {
+            Matcher aMatcher = HISTOGRAM_LINE.matcher(aLine);
+            if (!aMatcher.matches())
+                continue;
+
+            String aClassName = aMatcher.group(2);
+            if (aClassName.startsWith("["))
+                continue;
+
+            try
+            {
+                long aInstanceCount = Long.parseLong(aMatcher.group(1));
+                fInstanceCounts.merge(aClassName, aInstanceCount, Long::sum);
+            }
+            catch (NumberFormatException nfe)
+            {
+                // Instance count out of range, ignore the line.
+            }
+        }
+    }
+
+
+    /**
+     * Read a collection of heap histogram files.
+     *
+     * @param pFiles    The histogram files.
+     *
+     * @return  A new {@code HeapHistogram} with the summed instance counts of all files.
+     *
+     * @throws IOException  if reading any of the files fails.
+     * @throws NullPointerException if {@code pFiles} is null.
+     */
+    static HeapHistogram read(Iterable<File> pFiles) throws IOException
+    {
+        HeapHistogram aHistogram = new HeapHistogram();
+        for (File aFile : pFiles)
+            aHistogram.read(aFile);
+
+        return aHistogram;
+    }
+}
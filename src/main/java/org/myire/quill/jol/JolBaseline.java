@@ -0,0 +1,352 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.jol;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import static java.util.Objects.requireNonNull;
+
+
+/**
+ * The instance sizes and alignment gap totals of a set of classes, used as the baseline to detect
+ * layout regressions in later analyses. A baseline is stored in a compact text file where the
+ * first line holds the description of the layout the classes were analyzed with, and each of the
+ * following lines holds a class in the format
+ *<pre>
+ *    binary.ClassName instanceSize gapSize
+ *</pre>
+ * where the class name is the binary name, e.g. {@code org.myire.Outer$1}, which distinguishes
+ * nested and anonymous classes that have the same simple name, and the gap size is the sum of the
+ * internal and external alignment gaps. The classes are
+ * stored in alphabetical order, which makes the file suitable for version control.
+ *
+ * @author <a href="mailto:peter@myire.org">Peter Franzen</a>
+ */
+class JolBaseline
+{
+    static private final String DESCRIPTION_PREFIX = "# ";
+
+    private final String fDescription;
+    private final Map<String, Sizes> fClasses = new TreeMap<>();
+
+
+    /**
+     * Create a new empty {@code JolBaseline}.
+     *
+     * @param pDescription  The description of the layout the baseline's classes were analyzed
+     *                      with.
+     *
+     * @throws NullPointerException if {@code pDescription} is null.
+     */
+    JolBaseline(String pDescription)
+    {
+        fDescription = requireNonNull(pDescription);
+    }
+
+
+    /**
+     * Create a baseline from the classes in a result, including the classes in its dependencies.
+     * A class present in more than one of the result's dependencies is only added once.
+     *
+     * @param pResult   The result.
+     *
+     * @return  A new {@code JolBaseline}, never null.
+     *
+     * @throws NullPointerException if {@code pResult} is null.
+     */
+    static JolBaseline create(JolResult pResult)
+    {
+        JolBaseline aBaseline = new JolBaseline(pResult.getDescription());
+        aBaseline.addClasses(pResult);
+        for (JolResult aDependency : pResult.getDependencies().values())
+            aBaseline.addClasses(aDependency);
+
+        return aBaseline;
+    }
+
+
+    /**
+     * Read a baseline from a file.
+     *
+     * @param pFile The baseline file.
+     *
+     * @return  A new {@code JolBaseline}, never null.
+     *
+     * @throws IOException  if reading the file fails or if it isn't a valid baseline file.
+     * @throws NullPointerException if {@code pFile} is null.
+     */
+    static JolBaseline read(File pFile) throws IOException
+    {
+        try (Reader aReader = Files.newBufferedReader(pFile.toPath(), StandardCharsets.UTF_8))
+        {
+            return read(aReader);
+        }
+    }
+
+
+    /**
+     * Read a baseline.
+     *
+     * @param pReader   The reader to read the baseline from.
+     *
+     * @return  A new {@code JolBaseline}, never null.
+     *
+     * @throws IOException  if reading fails or if the read data isn't a valid baseline.
+     * @throws NullPointerException if {@code pReader} is null.
+     */
+    static JolBaseline read(Reader pReader) throws IOException
+    {
+        BufferedReader aReader = pReader instanceof BufferedReader ? (BufferedReader) pReader : new BufferedReader(pReader);
+        String aLine = aReader.readLine();
+        if (aLine == null || !aLine.startsWith(DESCRIPTION_PREFIX))
+            throw new IOException("Jol baseline has no layout description");
+
+        JolBaseline aBaseline = new JolBaseline(aLine.substring(DESCRIPTION_PREFIX.length()));
+        while ((aLine = aReader.readLine()) != null)
+        {
+            aLine = aLine.trim();
+            if (aLine.isEmpty())
+                continue;
+
+            String[] aParts = aLine.split("\\s+");
+            if (aParts.length != 3)
+                throw new IOException("Malformed Jol baseline line: " + aLine);
+
+            try
+            {
+                aBaseline.fClasses.put(aParts[0], new Sizes(Long.parseLong(aParts[1]), Long.parseLong(aParts[2])));
+            }
+            catch (NumberFormatException nfe)
+            {
+                throw new IOException("Malformed Jol baseline line: " + aLine, nfe);
+            }
+        }
+
+        return aBaseline;
+    }
+
+
+    /**
+     * Get the description of the layout the baseline's classes were analyzed with.
+     *
+     * @return  The layout description, never null.
+     */
+    String getDescription()
+    {
+        return fDescription;
+    }
+
+
+    /**
+     * Get the number of classes in this baseline.
+     *
+     * @return  The number of classes.
+     */
+    int getNumClasses()
+    {
+        return fClasses.size();
+    }
+
+
+    /**
+     * Get the sizes of a class in this baseline.
+     *
+     * @param pClassName    The binary name of the class.
+     *
+     * @return  The class' sizes, or null if the class isn't in the baseline.
+     */
+    Sizes getSizes(String pClassName)
+    {
+        return fClasses.get(pClassName);
+    }
+
+
+    /**
+     * Write this baseline to a file, creating its parent directory if necessary.
+     *
+     * @param pFile The file to write to.
+     *
+     * @throws IOException  if writing the file fails.
+     * @throws NullPointerException if {@code pFile} is null.
+     */
+    void write(File pFile) throws IOException
+    {
+        File aParent = pFile.getAbsoluteFile().getParentFile();
+        if (aParent != null)
+            Files.createDirectories(aParent.toPath());
+
+        try (Writer aWriter = Files.newBufferedWriter(pFile.toPath(), StandardCharsets.UTF_8))
+        {
+            write(aWriter);
+        }
+    }
+
+
+    /**
+     * Write this baseline.
+     *
+     * @param pWriter   The writer to write to.
+     *
+     * @throws IOException  if writing fails.
+     * @throws NullPointerException if {@code pWriter} is null.
+     */
+    void write(Writer pWriter) throws IOException
+    {
+        pWriter.write(DESCRIPTION_PREFIX);
+        pWriter.write(fDescription);
+        pWriter.write('\n');
+        for (Map.Entry<String, Sizes> aEntry : fClasses.entrySet())
+        {
+            pWriter.write(aEntry.getKey());
+            pWriter.write(' ');
+            pWriter.write(String.valueOf(aEntry.getValue().getInstanceSize()));
+            pWriter.write(' ');
+            pWriter.write(String.valueOf(aEntry.getValue().getGapSize()));
+            pWriter.write('\n');
+        }
+    }
+
+
+    /**
+     * Compare the classes in a result with this baseline and get the classes whose instance size
+     * or alignment gap total has grown more than their budget. Classes that aren't in this
+     * baseline are not compared.
+     *
+     * @param pResult   The result to compare.
+     * @param pBudgets  The budgets for the growth.
+     *
+     * @return  The budget violations in class name order, possibly empty, never null.
+     *
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    List<Violation> compare(JolResult pResult, JolBaselineGate.Budgets pBudgets)
+    {
+        JolBaseline aCurrent = create(pResult);
+        List<Violation> aViolations = new ArrayList<>();
+        for (Map.Entry<String, Sizes> aEntry : aCurrent.fClasses.entrySet())
+        {
+            Sizes aBaselineSizes = fClasses.get(aEntry.getKey());
+            if (aBaselineSizes == null)
+                continue;
+
+            Sizes aCurrentSizes = aEntry.getValue();
+            long aBudget = pBudgets.getBudget(aEntry.getKey());
+            if (aCurrentSizes.getInstanceSize() - aBaselineSizes.getInstanceSize() > aBudget
+                ||
+                aCurrentSizes.getGapSize() - aBaselineSizes.getGapSize() > aBudget)
+            {
+                aViolations.add(new Violation(aEntry.getKey(), aBaselineSizes, aCurrentSizes, aBudget));
+            }
+        }
+
+        return aViolations;
+    }
+
+
+    /**
+     * Add the classes in a result that aren't already in this baseline.
+     *
+     * @param pResult   The result.
+     */
+    private void addClasses(JolResult pResult)
+    {
+        for (JolResult.PackageLayout aPackage : pResult.getPackages())
+        {
+            for (JolResult.ClassLayout aClass : aPackage.getClasses())
+            {
+                Sizes aSizes =
+                    new Sizes(
+                        aClass.getInstanceSize(),
+                        aClass.getInternalAlignmentGapSize() + aClass.getExternalAlignmentGapSize());
+                fClasses.putIfAbsent(aClass.getBinaryName(), aSizes);
+            }
+        }
+    }
+
+
+    /**
+     * The instance size and the alignment gap total of a class.
+     */
+    static class Sizes
+    {
+        private final long fInstanceSize;
+        private final long fGapSize;
+
+        Sizes(long pInstanceSize, long pGapSize)
+        {
+            fInstanceSize = pInstanceSize;
+            fGapSize = pGapSize;
+        }
+
+        long getInstanceSize()
+        {
+            return fInstanceSize;
+        }
+
+        long getGapSize()
+        {
+            return fGapSize;
+        }
+    }
+
+
+    /**
+     * A class whose sizes have grown more than its budget since the baseline.
+     */
+    static class Violation
+    {
+        private final String fClassName;
+        private final Sizes fBaselineSizes;
+        private final Sizes fCurrentSizes;
+        private final long fBudget;
+
+        Violation(String pClassName, Sizes pBaselineSizes, Sizes pCurrentSizes, long pBudget)
+        {
+            fClassName = pClassName;
+            fBaselineSizes = pBaselineSizes;
+            fCurrentSizes = pCurrentSizes;
+            fBudget = pBudget;
+        }
+
+        String getClassName()
+        {
+            return fClassName;
+        }
+
+        Sizes getBaselineSizes()
+        {
+            return fBaselineSizes;
+        }
+
+        Sizes getCurrentSizes()
+        {
+            return fCurrentSizes;
+        }
+
+        long getBudget()
+        {
+            return fBudget;
+        }
+
+        @Override
+        public String toString()
+        {
+            return fClassName
+                + ": instance size " + fBaselineSizes.getInstanceSize() + " -> " + fCurrentSizes.getInstanceSize()
+                + ", alignment gaps " + fBaselineSizes.getGapSize() + " -> " + fCurrentSizes.getGapSize()
+                + ", budget " + fBudget;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.jol;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static java.util.Objects.requireNonNull;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+
+
+/**
+ * A gate that guards the instance sizes of analyzed classes against regressions. The gate either
+ * updates a baseline file with the sizes in a Jol result, or compares the result with the baseline
+ * and reports the classes whose instance size or alignment gap total has grown more than their
+ * budget. Budget violations are logged as warnings, or fail the build if so configured.
+ *
+ * @author <a href="mailto:peter@myire.org">Peter Franzen</a>
+ */
+public class JolBaselineGate implements Serializable
+{
+    static private final long serialVersionUID = 1L;
+
+    private final File fBaselineFile;
+    private final boolean fUpdate;
+    private final Budgets fBudgets;
+    private final boolean fFailOnViolation;
+
+
+    /**
+     * Create a new {@code JolBaselineGate}.
+     *
+     * @param pBaselineFile     The baseline file.
+     * @param pUpdate           If true, the baseline file is updated with the result passed to
+     *                          {@link #apply(JolResult, Logger)}, if false the result is compared
+     *                          with the baseline file.
+     * @param pBudgets          The budgets for the growth of the classes' sizes.
+     * @param pFailOnViolation  If true, a budget violation fails the build, if false it is logged
+     *                          as a warning.
+     *
+     * @throws NullPointerException if {@code pBaselineFile} or {@code pBudgets} is null.
+     */
+    public JolBaselineGate(File pBaselineFile, boolean pUpdate, Budgets pBudgets, boolean pFailOnViolation)
+    {
+        fBaselineFile = requireNonNull(pBaselineFile);
+        fUpdate = pUpdate;
+        fBudgets = requireNonNull(pBudgets);
+        fFailOnViolation = pFailOnViolation;
+    }
+
+
+    /**
+     * Update the baseline file with a result, or compare the result with the baseline file. If
+     * the baseline file doesn't exist or was created with another layout than the result, no
+     * comparison is made.
+     *
+     * @param pResult   The result.
+     * @param pLogger   The logger to log budget violations and errors with.
+     *
+     * @throws GradleException  if at least one class has grown more than its budget and the gate
+     *                          is configured to fail on violations.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    public void apply(JolResult pResult, Logger pLogger)
+    {
+        if (fUpdate)
+            updateBaseline(pResult, pLogger);
+        else if (fBaselineFile.exists())
+            compareWithBaseline(pResult, pLogger);
+        else
+            pLogger.info("Jol baseline {} does not exist, no regression check will be made", fBaselineFile);
+    }
+
+
+    private void updateBaseline(JolResult pResult, Logger pLogger)
+    {
+        try
+        {
+            JolBaseline aBaseline = JolBaseline.create(pResult);
+            aBaseline.write(fBaselineFile);
+            pLogger.lifecycle("Wrote {} classes to Jol baseline {}", aBaseline.getNumClasses(), fBaselineFile);
+        }
+        catch (IOException ioe)
+        {
+            pLogger.error("Could not write Jol baseline {}", fBaselineFile, ioe);
+        }
+    }
+
+
+    private void compareWithBaseline(JolResult pResult, Logger pLogger)
+    {
+        JolBaseline aBaseline;
+        try
+        {
+            aBaseline = JolBaseline.read(fBaselineFile);
+        }
+        catch (IOException ioe)
+        {
+            pLogger.error("Could not read Jol baseline {}, no regression check will be made", fBaselineFile, ioe);
+            return;
+        }
+
+        if (!aBaseline.getDescription().equals(pResult.getDescription()))
+        {
+            pLogger.warn("Jol baseline {} was created with the layout '{}', the analysis used '{}', no regression check will be made",
+                         fBaselineFile,
+                         aBaseline.getDescription(),
+                         pResult.getDescription());
+            return;
+        }
+
+        List<JolBaseline.Violation> aViolations = aBaseline.compare(pResult, fBudgets);
+        if (aViolations.isEmpty())
+        {
+            pLogger.info("No Jol layout regressions found compared to baseline {}", fBaselineFile);
+            return;
+        }
+
+        for (JolBaseline.Violation aViolation : aViolations)
+            pLogger.warn("Jol layout regression in {}", aViolation);
+
+        if (fFailOnViolation)
+            throw new GradleException(
+                aViolations.size() + " class(es) exceed their Jol size budget compared to baseline " + fBaselineFile);
+    }
+
+
+    /**
+     * The number of bytes the instance size and alignment gap total of classes may grow compared
+     * to the baseline. A class' budget is the first of its class budget, the budget of its
+     * package or closest enclosing package, and the default budget.
+     */
+    static public class Budgets implements Serializable
+    {
+        static private final long serialVersionUID = 1L;
+
+        private final long fDefaultBudget;
+        private final Map<String, Integer> fClassBudgets;
+        private final Map<String, Integer> fPackageBudgets;
+
+        /**
+         * Create a new {@code Budgets}.
+         *
+         * @param pDefaultBudget    The budget of classes without a class or package budget.
+         * @param pClassBudgets     The budgets of individual classes, keyed by fully qualified
+         *                          class name.
+         * @param pPackageBudgets   The budgets of the classes in packages and their subpackages,
+         *                          keyed by package name.
+         *
+         * @throws NullPointerException if {@code pClassBudgets} or {@code pPackageBudgets} is
+         *                              null.
+         */
+        public Budgets(long pDefaultBudget, Map<String, Integer> pClassBudgets, Map<String, Integer> pPackageBudgets)
+        {
+            fDefaultBudget = pDefaultBudget;
+            fClassBudgets = new HashMap<>(pClassBudgets);
+            fPackageBudgets = new HashMap<>(pPackageBudgets);
+        }
+
+        /**
+         * Get the budget of a class.
+         *
+         * @param pClassName    The binary name of the class. The class budget is looked up with
+         *                      both the binary name and the fully qualified name.
+         *
+         * @return  The class' budget.
+         *
+         * @throws NullPointerException if {@code pClassName} is null.
+         */
+        long getBudget(String pClassName)
+        {
+            String aQualifiedName = pClassName.replace('$', '.');
+            Integer aBudget = fClassBudgets.get(pClassName);
+            if (aBudget == null)
+                aBudget = fClassBudgets.get(aQualifiedName);
+            if (aBudget != null)
+                return aBudget.longValue();
+
+            // Nested classes have their enclosing class names in the qualified name, which means
+            // that those names will be looked up as packages too. This is harmless, and allows the
+            // nested classes of a class to be given a common budget.
+            String aName = aQualifiedName;
+            int aLastDot;
+            while ((aLastDot = aName.lastIndexOf('.')) > 0)
+            {
+                aName = aName.substring(0, aLastDot);
+                aBudget = fPackageBudgets.get(aName);
+                if (aBudget != null)
+                    return aBudget.longValue();
+            }
+
+            return fDefaultBudget;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.jol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+
+/**
+ * Detector of possible false sharing between the concurrently written fields of a class. A field
+ * is considered to be concurrently written if it is declared {@code volatile} or if its type is in
+ * the {@code java.util.concurrent.atomic} package. Two such fields closer to each other than the
+ * size of a cache line may end up on the same cache line, depending on where the instance is
+ * allocated, which causes contention when different threads write to them.
+ *<p>
+ * The detector also checks whether the concurrently written fields and the fields annotated with
+ * {@code @Contended} are padded, i.e. have at least a cache line of other data or gaps, but no
+ * other fields, on both sides within the instance. A field annotated with {@code @Contended} that
+ * isn't padded indicates that the annotation has no effect in the analyzed layout, e.g. because
+ * the JVM ignores it for classes outside the JDK unless started with
+ * {@code -XX:-RestrictContended}.
+ *
+ * @author <a href="mailto:peter@myire.org">Peter Franzen</a>
+ */
+class JolFalseSharingDetector
+{
+    static final int DEFAULT_CACHE_LINE_SIZE = 64;
+
+    static private final String ATOMIC_PACKAGE_PREFIX = "java.util.concurrent.atomic.";
+
+    private final int fCacheLineSize;
+
+
+    /**
+     * Create a new {@code JolFalseSharingDetector} for 64 byte cache lines.
+     */
+    JolFalseSharingDetector()
+    {
+        this(DEFAULT_CACHE_LINE_SIZE);
+    }
+
+
+    /**
+     * Create a new {@code JolFalseSharingDetector}.
+     *
+     * @param pCacheLineSize    The size of a cache line in bytes.
+     */
+    JolFalseSharingDetector(int pCacheLineSize)
+    {
+        fCacheLineSize = pCacheLineSize;
+    }
+
+
+    /**
+     * Check the concurrently written fields and the fields annotated with {@code @Contended} of a
+     * class for possible false sharing.
+     *
+     * @param pClassLayout  The layout of the class.
+     *
+     * @return  The result of the check, or null if the class has no concurrently written fields
+     *          and no fields annotated with {@code @Contended}.
+     *
+     * @throws NullPointerException if {@code pClassLayout} is null.
+     */
+    Report detect(JolResult.ClassLayout pClassLayout)
+    {
+        List<JolResult.FieldLayout> aFields = new ArrayList<>();
+        for (JolResult.FieldLayout aField : pClassLayout.getFields())
+            if (!aField.isAlignmentGap())
+                aFields.add(aField);
+
+        aFields.sort(Comparator.comparingLong(JolResult.FieldLayout::getOffset));
+
+        List<Field> aCheckedFields = new ArrayList<>();
+        for (int i=0; i<aFields.size(); i++)
+        {
+            JolResult.FieldLayout aField = aFields.get(i);
+            Field.Kind aKind = getKind(aField);
+            if (aKind == Field.Kind.PLAIN && !aField.isContended())
+                continue;
+
+            long aPreviousEnd =
+                i > 0 ? aFields.get(i - 1).getOffset() + aFields.get(i - 1).getSize() : pClassLayout.getHeaderSize();
+            long aNextStart =
+                i < aFields.size() - 1 ? aFields.get(i + 1).getOffset() : pClassLayout.getInstanceSize();
+            long aPaddingBefore = aField.getOffset() - aPreviousEnd;
+            long aPaddingAfter = aNextStart - (aField.getOffset() + aField.getSize());
+            aCheckedFields.add(
+                new Field(
+                    aField,
+                    aKind,
+                    aPaddingBefore >= fCacheLineSize && aPaddingAfter >= fCacheLineSize));
+        }
+
+        if (aCheckedFields.isEmpty())
+            return null;
+
+        List<Contention> aContentions = new ArrayList<>();
+        for (int i=0; i<aCheckedFields.size(); i++)
+        {
+            Field aFirst = aCheckedFields.get(i);
+            if (aFirst.getKind() == Field.Kind.PLAIN)
+                continue;
+
+            long aFirstEnd = aFirst.getField().getOffset() + aFirst.getField().getSize();
+            for (int j=i+1; j<aCheckedFields.size(); j++)
+            {
+                Field aSecond = aCheckedFields.get(j);
+                if (aSecond.getKind() == Field.Kind.PLAIN)
+                    continue;
+
+                long aDistance = aSecond.getField().getOffset() - aFirstEnd;
+                if (aDistance < fCacheLineSize)
+                    aContentions.add(new Contention(aFirst.getField(), aSecond.getField(), aDistance));
+            }
+        }
+
+        return new Report(fCacheLineSize, aCheckedFields, aContentions);
+    }
+
+
+    /**
+     * Get the kind of a field with respect to concurrent writes.
+     *
+     * @param pField    The field.
+     *
+     * @return  The field's kind, never null.
+     */
+    static private Field.Kind getKind(JolResult.FieldLayout pField)
+    {
+        if (pField.isVolatile())
+            return Field.Kind.VOLATILE;
+        else if (pField.getType().startsWith(ATOMIC_PACKAGE_PREFIX))
+            return Field.Kind.ATOMIC;
+        else
+            return Field.Kind.PLAIN;
+    }
+
+
+    /**
+     * The result of checking a class for false sharing.
+     */
+    static class Report
+    {
+        private final int fCacheLineSize;
+        private final List<Field> fFields;
+        private final List<Contention> fContentions;
+
+        Report(int pCacheLineSize, List<Field> pFields, List<Contention> pContentions)
+        {
+            fCacheLineSize = pCacheLineSize;
+            fFields = pFields;
+            fContentions = pContentions;
+        }
+
+        int getCacheLineSize()
+        {
+            return fCacheLineSize;
+        }
+
+        /**
+         * Get the concurrently written fields and the fields annotated with {@code @Contended},
+         * ordered by offset.
+         *
+         * @return  An unmodifiable list with the checked fields, never null.
+         */
+        List<Field> getFields()
+        {
+            return Collections.unmodifiableList(fFields);
+        }
+
+        /**
+         * Get the pairs of concurrently written fields that may share a cache line.
+         *
+         * @return  An unmodifiable list with the contentions, possibly empty, never null.
+         */
+        List<Contention> getContentions()
+        {
+            return Collections.unmodifiableList(fContentions);
+        }
+    }
+
+
+    /**
+     * A concurrently written field or a field annotated with {@code @Contended}.
+     */
+    static class Field
+    {
+        enum Kind
+        {
+            /** A field declared {@code volatile}. */
+            VOLATILE,
+
+            /** A field with a type in the {@code java.util.concurrent.atomic} package. */
+            ATOMIC,
+
+            /** A field that is not concurrently written but annotated with {@code @Contended}. */
+            PLAIN
+        }
+
+        private final JolResult.FieldLayout fField;
+        private final Kind fKind;
+        private final boolean fPadded;
+
+        Field(JolResult.FieldLayout pField, Kind pKind, boolean pPadded)
+        {
+            fField = pField;
+            fKind = pKind;
+            fPadded = pPadded;
+        }
+
+        JolResult.FieldLayout getField()
+        {
+            return fField;
+        }
+
+        Kind getKind()
+        {
+            return fKind;
+        }
+
+        /**
+         * Check if the field has at least a cache line without other fields on both sides within
+         * the instance.
+         *
+         * @return  True if the field is padded, false if not.
+         */
+        boolean isPadded()
+        {
+            return fPadded;
+        }
+    }
+
+
+    /**
+     * Two concurrently written fields that may share a cache line.
+     */
+    static class Contention
+    {
+        private final JolResult.FieldLayout fFirst;
+        private final JolResult.FieldLayout fSecond;
+        private final long fDistance;
+
+        Contention(JolResult.FieldLayout pFirst, JolResult.FieldLayout pSecond, long pDistance)
+        {
+            fFirst = pFirst;
+            fSecond = pSecond;
+            fDistance = pDistance;
+        }
+
+        JolResult.FieldLayout getFirst()
+        {
+            return fFirst;
+        }
+
+        JolResult.FieldLayout getSecond()
+        {
+            return fSecond;
+        }
+
+        /**
+         * Get the number of bytes between the end of the first field and the start of the second.
+         *
+         * @return  The distance between the fields.
+         */
+        long getDistance()
+        {
+            return fDistance;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.jol;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import static java.util.Objects.requireNonNull;
+
+
+/**
+ * The memory lost to alignment gaps in a running application, computed by joining the class
+ * layouts of a {@code JolResult} with the instance counts of a heap histogram. Only classes that
+ * have instances in the histogram and alignment gaps in their layout are part of the footprint.
+ *<p>
+ * The packages are ranked on the total number of bytes lost to alignment gaps in descending order,
+ * and the classes of each package are ranked the same way. This puts the classes that are most
+ * worth repacking first.
+ *
+ * @author <a href="mailto:peter@myire.org">Peter Franzen</a>
+ */
+public class JolFootprint
+{
+    static private final Comparator<ClassFootprint> CLASS_RANKING =
+        Comparator.comparingLong(ClassFootprint::getTotalGapBytes).reversed()
+            .thenComparing(c -> c.getClassLayout().getBinaryName());
+
+    static private final Comparator<PackageFootprint> PACKAGE_RANKING =
+        Comparator.comparingLong(PackageFootprint::getTotalGapBytes).reversed()
+            .thenComparing(PackageFootprint::getName);
+
+    private final List<PackageFootprint> fPackages;
+    private final int fNumHistogramClasses;
+    private final long fInternalGapBytes;
+    private final long fExternalGapBytes;
+
+
+    /**
+     * Create a new {@code JolFootprint}.
+     *
+     * @param pPackages             The package footprints.
+     * @param pNumHistogramClasses  The number of classes in the heap histogram.
+     */
+    private JolFootprint(List<PackageFootprint> pPackages, int pNumHistogramClasses)
+    {
+        fPackages = pPackages;
+        fPackages.sort(PACKAGE_RANKING);
+        fNumHistogramClasses = pNumHistogramClasses;
+
+        long aInternalGapBytes = 0, aExternalGapBytes = 0;
+        for (PackageFootprint aPackage : fPackages)
+        {
+            aInternalGapBytes += aPackage.getInternalGapBytes();
+            aExternalGapBytes += aPackage.getExternalGapBytes();
+        }
+
+        fInternalGapBytes = aInternalGapBytes;
+        fExternalGapBytes = aExternalGapBytes;
+    }
+
+
+    /**
+     * Create the footprint of the classes in a result, including the classes in its dependencies,
+     * from the instance counts in a heap histogram. A class present in more than one of the
+     * result's dependencies is only counted once.
+     *
+     * @param pResult       The result with the class layouts.
+     * @param pHistogram    The heap histogram with the instance counts.
+     *
+     * @return  A new {@code JolFootprint}, never null.
+     *
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    static JolFootprint create(JolResult pResult, HeapHistogram pHistogram)
+    {
+        Map<String, ClassFootprint> aClasses = new LinkedHashMap<>();
+        addClasses(pResult, pHistogram, aClasses);
+        for (JolResult aDependency : pResult.getDependencies().values())
+            addClasses(aDependency, pHistogram, aClasses);
+
+        Map<String, PackageFootprint> aPackages = new LinkedHashMap<>();
+        for (ClassFootprint aClass : aClasses.values())
+        {
+            String aPackageName = aClass.getClassLayout().getPackageName();
+            aPackages.computeIfAbsent(aPackageName, PackageFootprint::new).fClasses.add(aClass);
+        }
+
+        aPackages.values().forEach(PackageFootprint::rank);
+        return new JolFootprint(new ArrayList<>(aPackages.values()), pHistogram.getNumClasses());
+    }
+
+
+    /**
+     * Get the number of classes in the heap histogram, including those that were not analyzed.
+     *
+     * @return  The number of histogram classes.
+     */
+    public int getNumHistogramClasses()
+    {
+        return fNumHistogramClasses;
+    }
+
+
+    /**
+     * Get the packages with classes that have alignment gaps and instances in the heap histogram,
+     * ranked on the total number of bytes lost to alignment gaps in descending order.
+     *
+     * @return  An {@code Iterable} of {@code PackageFootprint}, possibly empty, never null.
+     */
+    public Iterable<PackageFootprint> getPackages()
+    {
+        return fPackages;
+    }
+
+
+    /**
+     * Get the total number of bytes lost to internal alignment gaps in all instances.
+     *
+     * @return  The internal alignment gap bytes.
+     */
+    public long getInternalGapBytes()
+    {
+        return fInternalGapBytes;
+    }
+
+
+    /**
+     * Get the total number of bytes lost to external alignment gaps in all instances.
+     *
+     * @return  The external alignment gap bytes.
+     */
+    public long getExternalGapBytes()
+    {
+        return fExternalGapBytes;
+    }
+
+
+    /**
+     * Add the footprints of the classes in a result that have alignment gaps and instances in a
+     * heap histogram to a map, unless the map already contains a class with the same name.
+     *
+     * @param pResult       The result with the class layouts.
+     * @param pHistogram    The heap histogram with the instance counts.
+     * @param pClasses      The map to add the footprints to, keyed by binary class name.
+     */
+    static private void addClasses(JolResult pResult, HeapHistogram pHistogram, Map<String, ClassFootprint> pClasses)
+    {
+        for (JolResult.PackageLayout aPackage : pResult.getPackages())
+        {
+            for (JolResult.ClassLayout aClass : aPackage.getClasses())
+            {
+                if (aClass.getInternalAlignmentGapSize() + aClass.getExternalAlignmentGapSize() == 0)
+                    continue;
+
+                long aInstanceCount = pHistogram.getInstanceCount(aClass.getBinaryName());
+                if (aInstanceCount > 0)
+                    pClasses.putIfAbsent(aClass.getBinaryName(), new ClassFootprint(aClass, aInstanceCount));
+            }
+        }
+    }
+
+
+    /**
+     * The footprint of the classes in a package.
+     */
+    static public class PackageFootprint
+    {
+        private final String fName;
+        private final List<ClassFootprint> fClasses = new ArrayList<>();
+        private long fInternalGapBytes;
+        private long fExternalGapBytes;
+
+        PackageFootprint(String pName)
+        {
+            fName = requireNonNull(pName);
+        }
+
+        /**
+         * Rank the package's classes and sum their gap bytes.
+         */
+        void rank()
+        {
+            fClasses.sort(CLASS_RANKING);
+            for (ClassFootprint aClass : fClasses)
+            {
+                fInternalGapBytes += aClass.getInternalGapBytes();
+                fExternalGapBytes += aClass.getExternalGapBytes();
+            }
+        }
+
+        public String getName()
+        {
+            return fName;
+        }
+
+        /**
+         * Get the footprints of the package's classes, ranked on the total number of bytes lost to
+         * alignment gaps in descending order.
+         *
+         * @return  An {@code Iterable} of {@code ClassFootprint}, never null.
+         */
+        public Iterable<ClassFootprint> getClasses()
+        {
+            return fClasses;
+        }
+
+        public long getInternalGapBytes()
+        {
+            return fInternalGapBytes;
+        }
+
+        public long getExternalGapBytes()
+        {
+            return fExternalGapBytes;
+        }
+
+        public long getTotalGapBytes()
+        {
+            return fInternalGapBytes + fExternalGapBytes;
+        }
+    }
+
+
+    /**
+     * The footprint of a class, i.e. its layout and its number of instances.
+     */
+    static public class ClassFootprint
+    {
+        private final JolResult.ClassLayout fClassLayout;
+        private final long fInstanceCount;
+
+        ClassFootprint(JolResult.ClassLayout pClassLayout, long pInstanceCount)
+        {
+            fClassLayout = requireNonNull(pClassLayout);
+            fInstanceCount = pInstanceCount;
+        }
+
+        public JolResult.ClassLayout getClassLayout()
+        {
+            return fClassLayout;
+        }
+
+        public long getInstanceCount()
+        {
+            return fInstanceCount;
+        }
+
+        /**
+         * Get the number of bytes lost to internal alignment gaps in all instances of the class.
+         *
+         * @return  The internal alignment gap bytes.
+         */
+        public long getInternalGapBytes()
+        {
+            return fInstanceCount * fClassLayout.getInternalAlignmentGapSize();
+        }
+
+        /**
+         * Get the number of bytes lost to external alignment gaps in all instances of the class.
+         *
+         * @return  The external alignment gap bytes.
+         */
+        public long getExternalGapBytes()
+        {
+            return fInstanceCount * fClassLayout.getExternalAlignmentGapSize();
+        }
+
+        public long getTotalGapBytes()
+        {
+            return getInternalGapBytes() + getExternalGapBytes();
+        }
+    }
+}
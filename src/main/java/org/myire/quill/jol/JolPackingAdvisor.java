@@ -0,0 +1,472 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.jol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import static java.util.Objects.requireNonNull;
+
+
+/**
+ * An advisor that computes how the alignment gaps in a {@code JolResult.ClassLayout} can be
+ * removed. The advice consists of the instance size with the best possible field packing, and of
+ * candidate changes of the fields' types that would make the instances smaller:
+ *<ul>
+ * <li>Boxed primitive fields, e.g. {@code java.lang.Integer}, that could be primitive fields. The
+ *     savings of these candidates include the boxed object, which is assumed to be referenced by
+ *     one instance only, and may thus be positive even if the primitive field is larger than the
+ *     reference it replaces. {@code Boolean} and {@code Byte} values are always the instances
+ *     shared through the {@code valueOf} cache, and their savings never include a boxed object.
+ *     {@code Character}, {@code Short}, {@code Integer}, and {@code Long} values in the range
+ *     -128 to 127 (0 to 127 for {@code Character}) are shared in the same way, which makes the
+ *     savings of these candidates an upper bound.</li>
+ * <li>{@code long} and {@code double} fields that could be narrowed to {@code int} and
+ *     {@code float} if their values fit. These candidates must be verified against the actual
+ *     values of the fields.</li>
+ * <li>Two or more {@code boolean} fields that could be merged into a bit set held in the smallest
+ *     primitive type with enough bits.</li>
+ *</ul>
+ * The packing assumes that all fields of a class can be reordered freely, i.e. that the fields of
+ * superclasses can be moved to the subclass or vice versa where needed. The projected sizes are
+ * computed with the same object alignment and field alignment rules as the layout the classes
+ * were analyzed with.
+ *
+ * @author <a href="mailto:peter@myire.org">Peter Franzen</a>
+ */
+class JolPackingAdvisor
+{
+    static private final String BOOLEAN = "boolean";
+    static private final String LONG = "long";
+    static private final String DOUBLE = "double";
+
+    static private final Map<String, String> BOXED_TYPES = new HashMap<>();
+    static private final Map<String, Integer> PRIMITIVE_SIZES = new HashMap<>();
+
+    // Boxed types where all values are instances shared through the valueOf cache.
+    static private final Set<String> SHARED_BOXED_TYPES = new HashSet<>();
+
+    static
+    {
+        BOXED_TYPES.put("java.lang.Boolean", BOOLEAN);
+        BOXED_TYPES.put("java.lang.Byte", "byte");
+        BOXED_TYPES.put("java.lang.Character", "char");
+        BOXED_TYPES.put("java.lang.Short", "short");
+        BOXED_TYPES.put("java.lang.Integer", "int");
+        BOXED_TYPES.put("java.lang.Long", LONG);
+        BOXED_TYPES.put("java.lang.Float", "float");
+        BOXED_TYPES.put("java.lang.Double", DOUBLE);
+
+        PRIMITIVE_SIZES.put(BOOLEAN, 1);
+        PRIMITIVE_SIZES.put("byte", 1);
+        PRIMITIVE_SIZES.put("char", 2);
+        PRIMITIVE_SIZES.put("short", 2);
+        PRIMITIVE_SIZES.put("int", 4);
+        PRIMITIVE_SIZES.put(LONG, 8);
+        PRIMITIVE_SIZES.put("float", 4);
+        PRIMITIVE_SIZES.put(DOUBLE, 8);
+
+        SHARED_BOXED_TYPES.add("java.lang.Boolean");
+        SHARED_BOXED_TYPES.add("java.lang.Byte");
+    }
+
+    private final int fObjectAlignment;
+    private final boolean fAlignFields;
+
+
+    /**
+     * Create a new {@code JolPackingAdvisor}.
+     *
+     * @param pObjectAlignment  The alignment of the instance sizes in bytes.
+     * @param pAlignFields      If true, fields are aligned on their own size, otherwise fields are
+     *                          packed regardless of alignment.
+     */
+    JolPackingAdvisor(int pObjectAlignment, boolean pAlignFields)
+    {
+        fObjectAlignment = Math.max(pObjectAlignment, 1);
+        fAlignFields = pAlignFields;
+    }
+
+
+    /**
+     * Create a {@code JolPackingAdvisor} that uses the alignment rules of the layout specified in
+     * a {@code JolParameters}. The current layout is assumed to use the default HotSpot object
+     * alignment of 8 bytes.
+     *
+     * @param pParameters   The analysis parameters.
+     *
+     * @return  A new {@code JolPackingAdvisor}, never null.
+     *
+     * @throws NullPointerException if {@code pParameters} is null.
+     */
+    static JolPackingAdvisor create(JolParameters pParameters)
+    {
+        switch (pParameters.fLayout)
+        {
+            case RAW:       return new JolPackingAdvisor(1, false);
+            case HOTSPOT:   return new JolPackingAdvisor(pParameters.fAlignment, true);
+            default:        return new JolPackingAdvisor(8, true);
+        }
+    }
+
+
+    /**
+     * Compute the packing advice for a class layout.
+     *
+     * @param pClassLayout  The class layout.
+     *
+     * @return  The advice, or null if neither packing the fields nor any of the candidates would
+     *          reduce the memory used by an instance of the class.
+     *
+     * @throws NullPointerException if {@code pClassLayout} is null.
+     */
+    Advice advise(JolResult.ClassLayout pClassLayout)
+    {
+        List<JolResult.FieldLayout> aFields = new ArrayList<>();
+        for (JolResult.FieldLayout aField : pClassLayout.getFields())
+            if (!aField.isAlignmentGap())
+                aFields.add(aField);
+
+        if (aFields.isEmpty())
+            return null;
+
+        long aHeaderSize = pClassLayout.getHeaderSize();
+        long aPackedSize = pack(aHeaderSize, aFields, Collections.emptyList());
+
+        List<Candidate> aCandidates = new ArrayList<>();
+        List<String> aBooleanFields = new ArrayList<>();
+        for (JolResult.FieldLayout aField : aFields)
+        {
+            String aType = aField.getType();
+            String aPrimitiveType = BOXED_TYPES.get(aType);
+            if (aPrimitiveType != null)
+                aCandidates.add(createUnboxCandidate(aField, aPrimitiveType, aHeaderSize));
+            else if (LONG.equals(aType))
+                aCandidates.add(new Candidate(Candidate.Kind.NARROW, aField.getName(), aType, "int", 4));
+            else if (DOUBLE.equals(aType))
+                aCandidates.add(new Candidate(Candidate.Kind.NARROW, aField.getName(), aType, "float", 4));
+            else if (BOOLEAN.equals(aType))
+                aBooleanFields.add(aField.getName());
+        }
+
+        if (aBooleanFields.size() > 1)
+            aCandidates.add(createBitSetCandidate(aBooleanFields));
+
+        // Packing the fields is judged on its own, a candidate that would make the instance larger
+        // does not hide a better field order.
+        boolean aHasSavings = aPackedSize < pClassLayout.getInstanceSize();
+        long aBoxedSize = 0;
+        for (Candidate aCandidate : aCandidates)
+        {
+            aCandidate.fBytesSaved =
+                aPackedSize
+                - pack(aHeaderSize, aFields, Collections.singletonList(aCandidate))
+                + aCandidate.fBoxedSize;
+            aBoxedSize += aCandidate.fBoxedSize;
+            aHasSavings |= aCandidate.fBytesSaved > 0;
+        }
+
+        if (!aHasSavings)
+            return null;
+
+        long aProjectedSize = pack(aHeaderSize, aFields, aCandidates);
+        return new Advice(pClassLayout.getInstanceSize(), aPackedSize, aProjectedSize, aBoxedSize, aCandidates);
+    }
+
+
+    /**
+     * Compute the instance size of a class with optimally packed fields. The fields are placed in
+     * descending size order, and each field is put in the first alignment gap it fits in, or after
+     * the last field if it doesn't fit in any gap.
+     *
+     * @param pHeaderSize   The size of the object header.
+     * @param pFields       The fields of the class.
+     * @param pCandidates   Candidate changes to apply to the fields before packing them.
+     *
+     * @return  The instance size.
+     */
+    private long pack(long pHeaderSize, List<JolResult.FieldLayout> pFields, List<Candidate> pCandidates)
+    {
+        List<Long> aSizes = new ArrayList<>();
+        for (JolResult.FieldLayout aField : pFields)
+        {
+            Candidate aCandidate = findCandidate(aField.getName(), pCandidates);
+            if (aCandidate == null)
+                aSizes.add(aField.getSize());
+            else if (aCandidate.fKind != Candidate.Kind.BITSET)
+                aSizes.add(aCandidate.fSize);
+        }
+
+        for (Candidate aCandidate : pCandidates)
+            if (aCandidate.fKind == Candidate.Kind.BITSET)
+                for (int i=0; i<aCandidate.fCount; i++)
+                    aSizes.add(aCandidate.fSize);
+
+        aSizes.sort(Collections.reverseOrder());
+
+        // Each gap is an array with the start offset and the end offset.
+        List<long[]> aGaps = new ArrayList<>();
+        long aEnd = pHeaderSize;
+        for (long aSize : aSizes)
+        {
+            long aFieldAlignment = fAlignFields ? Math.min(Long.highestOneBit(Math.max(aSize, 1)), 8) : 1;
+            boolean aPlaced = false;
+            for (int i=0; i<aGaps.size() && !aPlaced; i++)
+            {
+                long[] aGap = aGaps.get(i);
+                long aOffset = alignUp(aGap[0], aFieldAlignment);
+                if (aOffset + aSize <= aGap[1])
+                {
+                    aGaps.remove(i);
+                    if (aOffset + aSize < aGap[1])
+                        aGaps.add(i, new long[] {aOffset + aSize, aGap[1]});
+                    if (aGap[0] < aOffset)
+                        aGaps.add(i, new long[] {aGap[0], aOffset});
+                    aPlaced = true;
+                }
+            }
+
+            if (!aPlaced)
+            {
+                long aOffset = alignUp(aEnd, aFieldAlignment);
+                if (aOffset > aEnd)
+                    aGaps.add(new long[] {aEnd, aOffset});
+                aEnd = aOffset + aSize;
+            }
+        }
+
+        return alignUp(aEnd, fObjectAlignment);
+    }
+
+
+    /**
+     * Create a candidate for replacing a boxed primitive field with a primitive field. The boxed
+     * object is assumed to have a header of the same size as the class the field belongs to, and
+     * to have its size aligned in the same way. Boxed types where all values are shared instances
+     * have no boxed object to save.
+     *
+     * @param pField            The boxed primitive field.
+     * @param pPrimitiveType    The name of the primitive type to replace the field's type with.
+     * @param pHeaderSize       The size of the object header.
+     *
+     * @return  A new {@code Candidate}, never null.
+     */
+    private Candidate createUnboxCandidate(JolResult.FieldLayout pField, String pPrimitiveType, long pHeaderSize)
+    {
+        int aPrimitiveSize = PRIMITIVE_SIZES.get(pPrimitiveType);
+        Candidate aCandidate =
+            new Candidate(Candidate.Kind.UNBOX, pField.getName(), pField.getType(), pPrimitiveType, aPrimitiveSize);
+        if (!SHARED_BOXED_TYPES.contains(pField.getType()))
+            aCandidate.fBoxedSize = alignUp(pHeaderSize + aPrimitiveSize, fObjectAlignment);
+        return aCandidate;
+    }
+
+
+    /**
+     * Create a candidate for merging boolean fields into a bit set.
+     *
+     * @param pFieldNames   The names of the boolean fields.
+     *
+     * @return  A new {@code Candidate}, never null.
+     */
+    static private Candidate createBitSetCandidate(List<String> pFieldNames)
+    {
+        int aNumFields = pFieldNames.size();
+        StringJoiner aNames = new StringJoiner(", ");
+        pFieldNames.forEach(aNames::add);
+
+        Candidate aCandidate;
+        if (aNumFields <= 8)
+            aCandidate = new Candidate(Candidate.Kind.BITSET, aNames.toString(), BOOLEAN, "byte", 1);
+        else if (aNumFields <= 16)
+            aCandidate = new Candidate(Candidate.Kind.BITSET, aNames.toString(), BOOLEAN, "short", 2);
+        else if (aNumFields <= 32)
+            aCandidate = new Candidate(Candidate.Kind.BITSET, aNames.toString(), BOOLEAN, "int", 4);
+        else
+        {
+            int aNumLongs = (aNumFields + 63) / 64;
+            aCandidate =
+                new Candidate(
+                    Candidate.Kind.BITSET,
+                    aNames.toString(),
+                    BOOLEAN,
+                    aNumLongs == 1 ? LONG : aNumLongs + " x " + LONG,
+                    8);
+            aCandidate.fCount = aNumLongs;
+        }
+
+        aCandidate.fFieldNames.addAll(pFieldNames);
+        return aCandidate;
+    }
+
+
+    static private Candidate findCandidate(String pFieldName, List<Candidate> pCandidates)
+    {
+        for (Candidate aCandidate : pCandidates)
+            if (aCandidate.fFieldNames.contains(pFieldName))
+                return aCandidate;
+
+        return null;
+    }
+
+
+    static private long alignUp(long pValue, long pAlignment)
+    {
+        return (pValue + pAlignment - 1) / pAlignment * pAlignment;
+    }
+
+
+    /**
+     * The packing advice for a class.
+     */
+    static class Advice
+    {
+        private final long fInstanceSize;
+        private final long fPackedSize;
+        private final long fProjectedSize;
+        private final long fBoxedSize;
+        private final List<Candidate> fCandidates;
+
+        Advice(
+            long pInstanceSize,
+            long pPackedSize,
+            long pProjectedSize,
+            long pBoxedSize,
+            List<Candidate> pCandidates)
+        {
+            fInstanceSize = pInstanceSize;
+            fPackedSize = pPackedSize;
+            fProjectedSize = pProjectedSize;
+            fBoxedSize = pBoxedSize;
+            fCandidates = requireNonNull(pCandidates);
+        }
+
+        /**
+         * Get the instance size with the fields packed optimally but with unchanged types.
+         *
+         * @return  The packed instance size.
+         */
+        long getPackedSize()
+        {
+            return fPackedSize;
+        }
+
+        /**
+         * Get the instance size with the fields packed optimally and all candidates applied. This
+         * size may be larger than the packed size if unboxing a field makes it larger than the
+         * reference it replaces.
+         *
+         * @return  The projected instance size.
+         */
+        long getProjectedSize()
+        {
+            return fProjectedSize;
+        }
+
+        /**
+         * Get the number of bytes per instance saved by packing the fields and applying all
+         * candidates, including the boxed objects no longer needed by the instance.
+         *
+         * @return  The number of bytes saved per instance.
+         */
+        long getBytesSaved()
+        {
+            return fInstanceSize - fProjectedSize + fBoxedSize;
+        }
+
+        List<Candidate> getCandidates()
+        {
+            return fCandidates;
+        }
+    }
+
+
+    /**
+     * A candidate change of the type of one or more fields.
+     */
+    static class Candidate
+    {
+        enum Kind
+        {
+            /** A boxed primitive field that could be a primitive field. */
+            UNBOX,
+            /** A field that could be narrowed if its values fit in the narrower type. */
+            NARROW,
+            /** Boolean fields that could be merged into a bit set. */
+            BITSET
+        }
+
+        private final Kind fKind;
+        private final String fField;
+        private final String fFromType;
+        private final String fToType;
+        private final long fSize;
+        private final List<String> fFieldNames = new ArrayList<>();
+        private int fCount = 1;
+        private long fBoxedSize;
+        private long fBytesSaved;
+
+        Candidate(Kind pKind, String pField, String pFromType, String pToType, long pSize)
+        {
+            fKind = pKind;
+            fField = pField;
+            fFromType = pFromType;
+            fToType = pToType;
+            fSize = pSize;
+            if (pKind != Kind.BITSET)
+                fFieldNames.add(pField);
+        }
+
+        Kind getKind()
+        {
+            return fKind;
+        }
+
+        /**
+         * Get the name of the field, or the comma separated names of the fields to merge into a
+         * bit set.
+         *
+         * @return  The field name(s).
+         */
+        String getField()
+        {
+            return fField;
+        }
+
+        String getFromType()
+        {
+            return fFromType;
+        }
+
+        String getToType()
+        {
+            return fToType;
+        }
+
+        /**
+         * Get the number of bytes per instance saved by applying only this candidate to the
+         * optimally packed fields. Since instance sizes are aligned, this value may be zero even
+         * if the candidate contributes to the savings when combined with other candidates. The
+         * savings of an unboxing candidate include the size of the boxed object, and are
+         * positive even if the primitive field makes the instance larger. {@code Boolean} and
+         * {@code Byte} fields only reference shared instances and have no boxed object to save.
+         * {@code Character}, {@code Short}, {@code Integer}, and {@code Long} fields also
+         * reference shared instances for values in the range -128 to 127, in which case the
+         * savings of the boxed object are not realized.
+         *
+         * @return  The number of bytes saved per instance.
+         */
+        long getBytesSaved()
+        {
+            return fBytesSaved;
+        }
+    }
+}
@@ -1,23 +1,36 @@
 /*
- * Copyright 2020 Peter Franzen. All rights reserved.
+ * Copyright 2020, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
 package org.myire.quill.jol;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import static java.util.Objects.requireNonNull;
 
 
 /**
  * Parameters for an analysis performed by Jol.
+ *<p>
+ * Besides the layout, data model, and alignment of the analysis, the parameters may contain a
+ * matrix of additional combinations of these values. Each analyzed class is then laid out once
+ * for every combination, which allows the instance sizes to be compared side by side without
+ * analyzing the classes once per combination.
  *
  * @author <a href="mailto:peter@myire.org">Peter Franzen</a>
  */
-public class JolParameters
+public class JolParameters implements Serializable
 {
+    static private final long serialVersionUID = 1L;
+
     public final Layout fLayout;
     public final DataModel fDataModel;
     public final int fAlignment;
+    public final int fMaxParallelism;
+    public final List<JolParameters> fMatrix;
 
 
     /**
@@ -32,10 +45,92 @@ public class JolParameters
      * @throws NullPointerException if {@code pLayout} or {@code pDataModel} is null.
      * */
     public JolParameters(Layout pLayout, DataModel pDataModel, int pAlignment)
+    {
+        this(pLayout, pDataModel, pAlignment, 1);
+    }
+
+
+    /**
+     * Create a new {@code JolParameters} instance.
+     *
+     * @param pLayout       The layout to use in the Jol analysis.
+     * @param pDataModel    The data model to use in the Jol analysis. Ignored by the
+     *                      {@link Layout#CURRENT} layout.
+     * @param pAlignment    The alignment to use in the Jol analysis. This value is currently only
+     *                      used by the {@link Layout#HOTSPOT} layout.
+     * @param pMaxParallelism
+     *                      The maximum number of threads to analyze the classes with. A value of 1
+     *                      or less means that the classes are analyzed on the calling thread.
+     *
+     * @throws NullPointerException if {@code pLayout} or {@code pDataModel} is null.
+     * */
+    public JolParameters(Layout pLayout, DataModel pDataModel, int pAlignment, int pMaxParallelism)
+    {
+        this(pLayout, pDataModel, pAlignment, pMaxParallelism, Collections.emptyList());
+    }
+
+
+    /**
+     * Create a new {@code JolParameters} instance.
+     *
+     * @param pLayout       The layout to use in the Jol analysis.
+     * @param pDataModel    The data model to use in the Jol analysis. Ignored by the
+     *                      {@link Layout#CURRENT} layout.
+     * @param pAlignment    The alignment to use in the Jol analysis. This value is currently only
+     *                      used by the {@link Layout#HOTSPOT} layout.
+     * @param pMaxParallelism
+     *                      The maximum number of threads to analyze the classes with. A value of 1
+     *                      or less means that the classes are analyzed on the calling thread.
+     * @param pMatrix       Additional combinations of layout, data model, and alignment to lay out
+     *                      the analyzed classes with. Only the layout, data model, and alignment of
+     *                      the elements are used.
+     *
+     * @throws NullPointerException if {@code pLayout}, {@code pDataModel}, or {@code pMatrix} is
+     *                              null.
+     * */
+    public JolParameters(
+        Layout pLayout,
+        DataModel pDataModel,
+        int pAlignment,
+        int pMaxParallelism,
+        List<JolParameters> pMatrix)
     {
         fLayout = requireNonNull(pLayout);
         fDataModel = requireNonNull(pDataModel);
         fAlignment = pAlignment;
+        fMaxParallelism = pMaxParallelism;
+        fMatrix = Collections.unmodifiableList(new ArrayList<>(pMatrix));
+    }
+
+
+    /**
+     * Check if the current layout is used by these parameters, either as the main layout or in
+     * the matrix.
+     *
+     * @return  True if the current layout is used, false if only simulated layouts are used.
+     */
+    public boolean usesCurrentLayout()
+    {
+        if (fLayout == Layout.CURRENT)
+            return true;
+
+        for (JolParameters aParameters : fMatrix)
+            if (aParameters.fLayout == Layout.CURRENT)
+                return true;
+
+        return false;
+    }
+
+
+    /**
+     * Get a copy of these parameters without the matrix.
+     *
+     * @return  A {@code JolParameters} with the same layout, data model, alignment, and maximum
+     *          parallelism as this instance, and an empty matrix.
+     */
+    public JolParameters withoutMatrix()
+    {
+        return fMatrix.isEmpty() ? this : new JolParameters(fLayout, fDataModel, fAlignment, fMaxParallelism);
     }
 
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2020 Peter Franzen. All rights reserved.
+ * Copyright 2020, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
@@ -7,10 +7,12 @@ package org.myire.quill.jol;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
 import static java.util.Objects.requireNonNull;
 
 
@@ -18,6 +20,19 @@ import static java.util.Objects.requireNonNull;
  * The result of a Jol analysis of a collection of class files. The result classes do not depend on
  * the jol-core classes and can thus be used from code executing with a class path that doesn't have
  * access to the jol-core classes.
+ *<p>
+ * Class layouts can be added to a result concurrently from several threads.
+ *<p>
+ * A result may also contain the results of analyzing the classes in dependencies, e.g. third-party
+ * jar files. These results are kept separate from the result's own packages, and are not part of
+ * the result's totals.
+ *<p>
+ * If heap histograms from a running application are available, the result may also contain the
+ * footprint of the analyzed classes, i.e. the number of bytes lost to their alignment gaps in all
+ * instances in the histograms.
+ *<p>
+ * If the analysis used a matrix of layouts, the result contains the results of laying out the same
+ * classes with each additional layout. These matrix results have no dependencies of their own.
  *
  * @author <a href="mailto:peter@myire.org">Peter Franzen</a>
  */
@@ -25,9 +40,12 @@ public class JolResult
 {
     private final String fVersion;
     private final String fDescription;
-    private final Map<String, PackageLayout> fPackages = new TreeMap<>();
-    private long fInternalAlignmentGapSize;
-    private long fExternalAlignmentGapSize;
+    private final Map<String, PackageLayout> fPackages = new ConcurrentSkipListMap<>();
+    private final LongAdder fInternalAlignmentGapSize = new LongAdder();
+    private final LongAdder fExternalAlignmentGapSize = new LongAdder();
+    private final Map<String, JolResult> fDependencies = new ConcurrentSkipListMap<>();
+    private final List<JolResult> fMatrixResults = new ArrayList<>();
+    private volatile JolFootprint fFootprint;
 
 
     /**
@@ -97,7 +115,7 @@ public class JolResult
      */
     public long getInternalAlignmentGapSize()
     {
-        return fInternalAlignmentGapSize;
+        return fInternalAlignmentGapSize.sum();
     }
 
 
@@ -108,7 +126,7 @@ public class JolResult
      */
     public long getExternalAlignmentGapSize()
     {
-        return fExternalAlignmentGapSize;
+        return fExternalAlignmentGapSize.sum();
     }
 
 
@@ -122,14 +140,91 @@ public class JolResult
     public void add(ClassLayout pClassLayout)
     {
         fPackages.computeIfAbsent(pClassLayout.getPackageName(), PackageLayout::new).add(pClassLayout);
-        fInternalAlignmentGapSize += pClassLayout.getInternalAlignmentGapSize();
-        fExternalAlignmentGapSize += pClassLayout.getExternalAlignmentGapSize();
+        fInternalAlignmentGapSize.add(pClassLayout.getInternalAlignmentGapSize());
+        fExternalAlignmentGapSize.add(pClassLayout.getExternalAlignmentGapSize());
+    }
+
+
+    /**
+     * Get the results of the analyzed dependencies. The dependencies will be sorted on name in
+     * ascending alphabetical order.
+     *
+     * @return  An unmodifiable map from dependency name to the result of analyzing the classes in
+     *          the dependency, possibly empty, never null.
+     */
+    public Map<String, JolResult> getDependencies()
+    {
+        return Collections.unmodifiableMap(fDependencies);
+    }
+
+
+    /**
+     * Add the result of analyzing the classes in a dependency to this result. Any previously added
+     * result for a dependency with the same name is replaced.
+     *
+     * @param pName         The name of the dependency, e.g. the name of a jar file.
+     * @param pDependency   The result of analyzing the dependency's classes.
+     *
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    public void addDependency(String pName, JolResult pDependency)
+    {
+        fDependencies.put(pName, pDependency);
+    }
+
+
+    /**
+     * Get the results of laying out the analyzed classes with the additional layouts of a layout
+     * matrix, in the order of the matrix.
+     *
+     * @return  An unmodifiable list with the matrix results, empty if no matrix was used.
+     */
+    public List<JolResult> getMatrixResults()
+    {
+        return Collections.unmodifiableList(fMatrixResults);
+    }
+
+
+    /**
+     * Add the result of laying out the analyzed classes with an additional layout of a layout
+     * matrix. This method is not thread safe.
+     *
+     * @param pMatrixResult The result to add.
+     *
+     * @throws NullPointerException if {@code pMatrixResult} is null.
+     */
+    public void addMatrixResult(JolResult pMatrixResult)
+    {
+        fMatrixResults.add(requireNonNull(pMatrixResult));
+    }
+
+
+    /**
+     * Get the footprint of the analyzed classes in a heap histogram.
+     *
+     * @return  The footprint, or null if no heap histogram was specified for the analysis.
+     */
+    public JolFootprint getFootprint()
+    {
+        return fFootprint;
+    }
+
+
+    /**
+     * Set the footprint of the analyzed classes in a heap histogram.
+     *
+     * @param pFootprint    The footprint, possibly null.
+     */
+    public void setFootprint(JolFootprint pFootprint)
+    {
+        fFootprint = pFootprint;
     }
 
 
     /**
      * A {@code PackageLayout} contains a collection of {@code ClassLayout} for the classes in a
-     * package.
+     * package. The methods of this class are synchronized to allow classes to be added
+     * concurrently.
      */
     static public class PackageLayout
     {
@@ -158,7 +253,7 @@ public class JolResult
          *
          * @throws NullPointerException if {@code pClassLayout} is null.
          */
-        void add(ClassLayout pClassLayout)
+        synchronized void add(ClassLayout pClassLayout)
         {
             fClasses.add(pClassLayout);
             fInternalAlignmentGapSize += pClassLayout.getInternalAlignmentGapSize();
@@ -182,23 +277,26 @@ public class JolResult
          *
          * @return  The number of classes.
          */
-        public int getNumClasses()
+        synchronized public int getNumClasses()
         {
             return fClasses.size();
         }
 
         /**
          * Get an {@code Iterable} with the layouts of the classes in this package. The layouts will
-         * be sorted on class name in ascending alphabetical order.
+         * be sorted on class name in ascending alphabetical order, and classes with the same name,
+         * e.g. anonymous classes in the same enclosing class, on their binary names.
          *
          * @return  An {@code Iterable} of {@code ClassLayout} instances, possibly empty, never
          *          null.
          */
-        public Iterable<ClassLayout> getClasses()
+        synchronized public Iterable<ClassLayout> getClasses()
         {
             if (!fIsSorted)
             {
-                fClasses.sort(Comparator.comparing(ClassLayout::getFullClassName));
+                fClasses.sort(
+                    Comparator.comparing(ClassLayout::getFullClassName)
+                        .thenComparing(ClassLayout::getBinaryName));
                 fIsSorted = true;
             }
 
@@ -211,7 +309,7 @@ public class JolResult
          *
          * @return  The total internal alignment gap size.
          */
-        public long getInternalAlignmentGapSize()
+        synchronized public long getInternalAlignmentGapSize()
         {
             return fInternalAlignmentGapSize;
         }
@@ -222,7 +320,7 @@ public class JolResult
          *
          * @return  The total external alignment gap size.
          */
-        public long getExternalAlignmentGapSize()
+        synchronized public long getExternalAlignmentGapSize()
         {
             return fExternalAlignmentGapSize;
         }
@@ -243,12 +341,39 @@ public class JolResult
         private final String fEnclosingClassName;
         private final String fFullClassName;
         private final String fFullyQualifiedName;
+        private final String fBinaryName;
         private final Collection<FieldLayout> fFields;
         private final int fHeaderSize;
         private final long fInstanceSize;
         private final long fInternalAlignmentGapSize;
         private final long fExternalAlignmentGapSize;
 
+        /**
+         * Create a new {@code ClassLayout}. The binary name of the class is derived from the
+         * fully qualified name, which is ambiguous for anonymous and local classes.
+         *
+         * @param pClassName    The name of the class for which to hold layout info.
+         * @param pPackageName  The name of the package the class belongs.
+         * @param pEnclosingClassName
+         *                      The name of any enclosing class.
+         * @param pHeaderSize   The object header size of the class' instances.
+         * @param pInstanceSize The size of the class' instances.
+         * @param pFields       The layout of the class' individual fields.
+         *
+         * @throws NullPointerException if {@code pClassName}, {@code pPackageName}, or
+         *                              {@code pFields} is null.
+         */
+        public ClassLayout(
+            String pClassName,
+            String pPackageName,
+            String pEnclosingClassName,
+            int pHeaderSize,
+            long pInstanceSize,
+            Collection<FieldLayout> pFields)
+        {
+            this(pClassName, pPackageName, pEnclosingClassName, null, pHeaderSize, pInstanceSize, pFields);
+        }
+
         /**
          * Create a new {@code ClassLayout}.
          *
@@ -256,6 +381,9 @@ public class JolResult
          * @param pPackageName  The name of the package the class belongs.
          * @param pEnclosingClassName
          *                      The name of any enclosing class.
+         * @param pBinaryName   The binary name of the class, e.g. &quot;org.myire.Outer$1&quot;.
+         *                      If null, the binary name is derived from the fully qualified
+         *                      name.
          * @param pHeaderSize   The object header size of the class' instances.
          * @param pInstanceSize The size of the class' instances.
          * @param pFields       The layout of the class' individual fields.
@@ -267,6 +395,7 @@ public class JolResult
             String pClassName,
             String pPackageName,
             String pEnclosingClassName,
+            String pBinaryName,
             int pHeaderSize,
             long pInstanceSize,
             Collection<FieldLayout> pFields)
@@ -276,6 +405,12 @@ public class JolResult
             fEnclosingClassName = pEnclosingClassName;
             fFullClassName = fEnclosingClassName != null ? fEnclosingClassName + '.' + fClassName : fClassName;
             fFullyQualifiedName = fPackageName.isEmpty() ? fFullClassName : fPackageName + '.' + fFullClassName;
+            if (pBinaryName != null)
+                fBinaryName = pBinaryName;
+            else if (fEnclosingClassName != null)
+                fBinaryName = (fPackageName.isEmpty() ? "" : fPackageName + '.') + fEnclosingClassName.replace('.', '$') + '$' + fClassName;
+            else
+                fBinaryName = fFullyQualifiedName;
 
             fHeaderSize = pHeaderSize;
             fInstanceSize = pInstanceSize;
@@ -291,7 +426,7 @@ public class JolResult
                 if (aGap > 0)
                 {
                     // Field alignment gap detected, add a gap "field" to the internal list.
-                    fFields.add(new FieldLayout(FIELD_ALIGNMENT, GAP, aNextExpectedOffset, aGap));
+                    fFields.add(new FieldLayout(FIELD_ALIGNMENT, GAP, aNextExpectedOffset, aGap, true));
                     aTotalFieldAlignmentGapSizes += aGap;
                 }
 
@@ -305,7 +440,7 @@ public class JolResult
                 // The instance size is greater than the offset of the last field's end, there is a
                 // gap caused by alignment with another object that follows this one.
                 fExternalAlignmentGapSize = pInstanceSize - aNextExpectedOffset;
-                fFields.add(new FieldLayout(NEXT_OBJECT_ALIGNMENT, GAP, aNextExpectedOffset, fExternalAlignmentGapSize));
+                fFields.add(new FieldLayout(NEXT_OBJECT_ALIGNMENT, GAP, aNextExpectedOffset, fExternalAlignmentGapSize, true));
             }
             else
                 fExternalAlignmentGapSize = 0;
@@ -364,6 +499,17 @@ public class JolResult
             return fFullyQualifiedName;
         }
 
+        /**
+         * Get the binary name of the class, as returned by {@code Class.getName()}. Unlike the
+         * fully qualified name, the binary name is unique also for anonymous and local classes.
+         *
+         * @return  The binary name, never null.
+         */
+        public String getBinaryName()
+        {
+            return fBinaryName;
+        }
+
         /**
          * Get the number of fields in this class.
          *
@@ -436,6 +582,9 @@ public class JolResult
         private final String fType;
         private final long fOffset;
         private final long fSize;
+        private final boolean fAlignmentGap;
+        private final boolean fVolatile;
+        private final boolean fContended;
 
         /**
          * Create a new {@code FieldLayout}.
@@ -448,11 +597,48 @@ public class JolResult
          * @throws NullPointerException if {@code pName} or {@code pType} is null.
          */
         public FieldLayout(String pName, String pType, long pOffset, long pSize)
+        {
+            this(pName, pType, pOffset, pSize, false, false);
+        }
+
+        /**
+         * Create a new {@code FieldLayout}.
+         *
+         * @param pName         The name of the field.
+         * @param pType         The field's type.
+         * @param pOffset       The offset of the field from the object's start.
+         * @param pSize         The size of the field.
+         * @param pVolatile     True if the field is declared {@code volatile}.
+         * @param pContended    True if the field is annotated with {@code @Contended}.
+         *
+         * @throws NullPointerException if {@code pName} or {@code pType} is null.
+         */
+        public FieldLayout(String pName, String pType, long pOffset, long pSize, boolean pVolatile, boolean pContended)
+        {
+            this(pName, pType, pOffset, pSize, false, pVolatile, pContended);
+        }
+
+        private FieldLayout(String pName, String pType, long pOffset, long pSize, boolean pAlignmentGap)
+        {
+            this(pName, pType, pOffset, pSize, pAlignmentGap, false, false);
+        }
+
+        private FieldLayout(
+            String pName,
+            String pType,
+            long pOffset,
+            long pSize,
+            boolean pAlignmentGap,
+            boolean pVolatile,
+            boolean pContended)
         {
             fName = requireNonNull(pName);
             fType = requireNonNull(pType);
             fOffset = pOffset;
             fSize = pSize;
+            fAlignmentGap = pAlignmentGap;
+            fVolatile = pVolatile;
+            fContended = pContended;
         }
 
         public String getName()
@@ -474,5 +660,32 @@ public class JolResult
         {
             return fSize;
         }
+
+        /**
+         * Check if this instance describes an alignment gap rather than an actual field. Gaps are
+         * added to the fields of a {@code ClassLayout} when it is created.
+         *
+         * @return  True if this instance is an alignment gap, false if it is a field.
+         */
+        public boolean isAlignmentGap()
+        {
+            return fAlignmentGap;
+        }
+
+        public boolean isVolatile()
+        {
+            return fVolatile;
+        }
+
+        /**
+         * Check if the field is annotated with {@code @Contended}, i.e. if the JVM is requested to
+         * pad the field to keep it on a cache line of its own.
+         *
+         * @return  True if the field is annotated with {@code @Contended}, false if not.
+         */
+        public boolean isContended()
+        {
+            return fContended;
+        }
     }
 }
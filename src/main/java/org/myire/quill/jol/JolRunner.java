@@ -1,10 +1,11 @@
 /*
- * Copyright 2020 Peter Franzen. All rights reserved.
+ * Copyright 2020, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
 package org.myire.quill.jol;
 
+import java.io.File;
 import java.util.Collection;
 
 
@@ -28,10 +29,73 @@ public interface JolRunner
      *
      * @param pClasses      The fully qualified names of the classes to analyze.
      * @param pParameters   The analysis parameters.
+     * @param pCacheDirectory
+     *                      The directory to cache the class layouts in, or null to analyze all
+     *                      classes. With a cache, only the classes whose class files or
+     *                      superclass files have changed since the previous analysis are analyzed.
      *
      * @return  A new {@code JolResult} with the analysis result, never null.
      *
-     * @throws NullPointerException if any of the parameters is null.
+     * @throws NullPointerException if {@code pClasses} or {@code pParameters} is null.
      */
-    JolResult analyze(Collection<String> pClasses, JolParameters pParameters);
+    JolResult analyze(Collection<String> pClasses, JolParameters pParameters, File pCacheDirectory);
+
+    /**
+     * Analyze a collection of classes and report their object layout without loading the classes.
+     * The instance fields of the classes and their superclasses are read from the class files
+     * found in a class path.
+     *
+     * @param pClasses      The fully qualified names of the classes to analyze.
+     * @param pClassPath    The directories and jar files containing the class files of the classes
+     *                      to analyze and their superclasses. Classes not found in the class path
+     *                      are looked up among the classes of the executing JVM.
+     * @param pParameters   The analysis parameters. The layout must be a simulated layout.
+     * @param pCacheDirectory
+     *                      The directory to cache the class layouts in, or null to analyze all
+     *                      classes. With a cache, only the classes whose class files or
+     *                      superclass files have changed since the previous analysis are analyzed.
+     *
+     * @return  A new {@code JolResult} with the analysis result, never null.
+     *
+     * @throws NullPointerException if {@code pClasses}, {@code pClassPath}, or
+     *                              {@code pParameters} is null.
+     * @throws IllegalArgumentException if the layout parameter is
+     *                                  {@link JolParameters.Layout#CURRENT}.
+     */
+    JolResult analyzeClassFiles(
+        Collection<String> pClasses,
+        Collection<File> pClassPath,
+        JolParameters pParameters,
+        File pCacheDirectory);
+
+    /**
+     * Analyze the classes in a collection of jar files without loading the classes, and add the
+     * object layouts to a result as one dependency per jar file. The class files are read directly
+     * from the jar files.
+     *
+     * @param pJars             The jar files to analyze.
+     * @param pIncludedPackages The packages to analyze the classes of. A package includes its
+     *                          subpackages. An empty collection means all packages.
+     * @param pExcludedPackages The packages not to analyze the classes of. A package includes its
+     *                          subpackages.
+     * @param pClassPath        The directories and jar files containing the class files of any
+     *                          superclasses not found in the jar files to analyze.
+     * @param pParameters       The analysis parameters. The layout must be a simulated layout.
+     * @param pCacheDirectory   The directory to cache the class layouts of each jar file in, or
+     *                          null to analyze all jar files.
+     * @param pResult           The result to add the dependencies to.
+     *
+     * @throws NullPointerException if any of the parameters except {@code pCacheDirectory} is
+     *                              null.
+     * @throws IllegalArgumentException if the layout parameter is
+     *                                  {@link JolParameters.Layout#CURRENT}.
+     */
+    void analyzeJars(
+        Collection<File> pJars,
+        Collection<String> pIncludedPackages,
+        Collection<String> pExcludedPackages,
+        Collection<File> pClassPath,
+        JolParameters pParameters,
+        File pCacheDirectory,
+        JolResult pResult);
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2020-2021 Peter Franzen. All rights reserved.
+ * Copyright 2020-2021, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
@@ -11,9 +11,16 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import static java.util.Objects.requireNonNull;
 
+import javax.inject.Inject;
+
 import groovy.lang.Closure;
 
 import org.gradle.api.Action;
@@ -22,17 +29,29 @@ import org.gradle.api.Project;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.reporting.SingleFileReport;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.LocalState;
 import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.util.PatternFilterable;
 import org.gradle.api.tasks.util.PatternSet;
 import org.gradle.util.ConfigureUtil;
+import org.gradle.workers.WorkerExecutor;
 
 import org.myire.quill.common.ExternalToolLoader;
+import org.myire.quill.common.ExternalToolWorkerSpec;
 import org.myire.quill.common.Projects;
+import org.myire.quill.common.WorkerIsolation;
 import org.myire.quill.report.ReportingEntity;
 import org.myire.quill.report.Reports;
 import org.myire.quill.report.TransformingReport;
@@ -43,6 +62,7 @@ import org.myire.quill.report.TransformingReport;
  *
  * @author <a href="mailto:peter@myire.org">Peter Franzen</a>
  */
+@CacheableTask
 public class JolTask extends DefaultTask implements ReportingEntity<JolReports>
 {
     // The default version of Jol to use.
@@ -56,14 +76,32 @@ public class JolTask extends DefaultTask implements ReportingEntity<JolReports>
     private JolParameters.Layout fLayout;
     private JolParameters.DataModel fDataModel;
     private int fAlignment = 8;
+    private final List<JolParameters> fLayoutMatrix = new ArrayList<>();
+    private boolean fIncludeTimestamp = true;
+    private int fMaxParallelism = Runtime.getRuntime().availableProcessors();
+    private boolean fClassFileAnalysis;
+    private boolean fIncremental;
+    private boolean fPackingAdvice;
+    private File fCacheDirectory;
+    private File fBaselineFile;
+    private boolean fUpdateBaseline;
+    private boolean fFailOnBudgetViolation;
+    private int fDefaultBudget;
+    private Map<String, Integer> fClassBudgets = new HashMap<>();
+    private Map<String, Integer> fPackageBudgets = new HashMap<>();
 
     private String fToolVersion;
 
     private Collection<String> fClasses = new ArrayList<>();
+    private FileCollection fDependencyJars;
+    private List<String> fDependencyIncludes = new ArrayList<>();
+    private List<String> fDependencyExcludes = new ArrayList<>();
+    private FileCollection fHeapHistograms;
     private FileCollection fAnalysisClassPath;
     private FileCollection fToolClassPath;
 
     private JolReportsImpl fReports;
+    private final ExternalToolWorkerSpec fWorkerSpec = new ExternalToolWorkerSpec();
 
     private final Collection<ClassesDirectory> fClassesDirectories = new ArrayList<>();
 
@@ -124,6 +162,334 @@ public class JolTask extends DefaultTask implements ReportingEntity<JolReports>
     }
 
 
+    /**
+     * Get the additional combinations of layout, data model, and alignment to lay out the analyzed
+     * classes with. Each class is parsed once and laid out with the task's {@code layout},
+     * {@code dataModel}, and {@code alignment} and with every combination in the matrix, and the
+     * report contains the instance sizes side by side. Default is an empty list.
+     *
+     * @return  The layout matrix, never null.
+     */
+    @Input
+    public List<JolParameters> getLayoutMatrix()
+    {
+        return fLayoutMatrix;
+    }
+
+
+    /**
+     * Add a combination of layout, data model, and alignment to the layout matrix.
+     *
+     * @param pLayout       The layout.
+     * @param pDataModel    The data model.
+     * @param pAlignment    The alignment.
+     *
+     * @throws NullPointerException if {@code pLayout} or {@code pDataModel} is null.
+     */
+    public void matrixLayout(JolParameters.Layout pLayout, JolParameters.DataModel pDataModel, int pAlignment)
+    {
+        fLayoutMatrix.add(new JolParameters(pLayout, pDataModel, pAlignment));
+    }
+
+
+    /**
+     * Add a combination of layout, data model, and alignment to the layout matrix, specifying the
+     * layout and data model with the names of their enum constants.
+     *
+     * @param pLayout       The name of the layout.
+     * @param pDataModel    The name of the data model.
+     * @param pAlignment    The alignment.
+     *
+     * @throws NullPointerException if {@code pLayout} or {@code pDataModel} is null.
+     * @throws IllegalArgumentException if {@code pLayout} or {@code pDataModel} isn't the name of
+     *                                  an enum constant.
+     */
+    public void matrixLayout(String pLayout, String pDataModel, int pAlignment)
+    {
+        matrixLayout(
+            JolParameters.Layout.valueOf(pLayout),
+            JolParameters.DataModel.valueOf(pDataModel),
+            pAlignment);
+    }
+
+
+    /**
+     * Get the flag specifying whether the date and time of the analysis should be included in the
+     * XML report. Excluding the timestamp makes the report depend on the task's inputs only, which
+     * allows identical reports to be reused from the build cache. Default is true.
+     *
+     * @return  True if the report should contain a timestamp, false if not.
+     */
+    @Input
+    public boolean isIncludeTimestamp()
+    {
+        return fIncludeTimestamp;
+    }
+
+
+    public void setIncludeTimestamp(boolean pIncludeTimestamp)
+    {
+        fIncludeTimestamp = pIncludeTimestamp;
+    }
+
+
+    /**
+     * Get the maximum number of threads to analyze the classes with. The result is identical to
+     * the one of an analysis on a single thread. A value of 1 or less disables the parallel
+     * analysis. Default is the number of processors available to the JVM.
+     *
+     * @return  The maximum number of threads to analyze the classes with.
+     */
+    @Internal
+    public int getMaxParallelism()
+    {
+        return fMaxParallelism;
+    }
+
+
+    public void setMaxParallelism(int pMaxParallelism)
+    {
+        fMaxParallelism = pMaxParallelism;
+    }
+
+
+    /**
+     * Get the flag specifying whether the classes should be analyzed from their class files
+     * rather than by loading them. When analyzing class files, the instance fields of the classes
+     * and their superclasses are read from the class files in the classes directories and the
+     * analysis class path, and no classes are loaded or initialized. This mode requires a
+     * simulated layout, i.e. not {@link JolParameters.Layout#CURRENT}. Default is false.
+     *
+     * @return  True if the class files should be analyzed, false if the classes should be loaded.
+     */
+    @Input
+    public boolean isClassFileAnalysis()
+    {
+        return fClassFileAnalysis;
+    }
+
+
+    public void setClassFileAnalysis(boolean pClassFileAnalysis)
+    {
+        fClassFileAnalysis = pClassFileAnalysis;
+    }
+
+
+    /**
+     * If true, the layout of each analyzed class is cached, and only classes whose class file or
+     * superclass class files have changed since the previous run, or that were analyzed with other
+     * parameters, are analyzed. The layouts of the other classes are taken from the cache. Default
+     * is false.
+     *
+     * @return  True if the classes should be analyzed incrementally, false if all classes should be
+     *          analyzed on every run.
+     */
+    @Internal
+    public boolean isIncremental()
+    {
+        return fIncremental;
+    }
+
+
+    public void setIncremental(boolean pIncremental)
+    {
+        fIncremental = pIncremental;
+    }
+
+
+    /**
+     * If true, the report contains packing advice for each class whose instance size can be
+     * reduced. The advice contains the instance size with optimally packed fields and candidate
+     * type changes that would reduce the instance size further: boxed primitive fields that could
+     * be primitive, {@code long} and {@code double} fields that could be narrowed, and
+     * {@code boolean} fields that could be merged into a bit set. Default is false.
+     *
+     * @return  True if packing advice should be reported, false if not.
+     */
+    @Input
+    public boolean isPackingAdvice()
+    {
+        return fPackingAdvice;
+    }
+
+
+    public void setPackingAdvice(boolean pPackingAdvice)
+    {
+        fPackingAdvice = pPackingAdvice;
+    }
+
+
+    /**
+     * Get the file with the baseline of the classes' instance sizes and alignment gap totals. If
+     * {@code updateBaseline} is true, the baseline is written to this file, otherwise the analyzed
+     * classes are compared with the baseline in the file, if it exists. Default is null, meaning
+     * that no regression check is made.
+     *
+     * @return  The baseline file, possibly null.
+     */
+    @Internal
+    public File getBaselineFile()
+    {
+        return fBaselineFile;
+    }
+
+
+    public void setBaselineFile(Object pBaselineFile)
+    {
+        fBaselineFile = pBaselineFile != null ? getProject().file(pBaselineFile) : null;
+    }
+
+
+    /**
+     * Get the baseline file to compare the analyzed classes with.
+     *
+     * @return  The baseline file, or null if the baseline file isn't specified, doesn't exist, or
+     *          should be updated.
+     */
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public File getBaselineInputFile()
+    {
+        return fBaselineFile != null && !fUpdateBaseline && fBaselineFile.exists() ? fBaselineFile : null;
+    }
+
+
+    /**
+     * Get the baseline file to write the sizes of the analyzed classes to.
+     *
+     * @return  The baseline file, or null if the baseline file isn't specified or shouldn't be
+     *          updated.
+     */
+    @OutputFile
+    @Optional
+    public File getBaselineOutputFile()
+    {
+        return fUpdateBaseline ? fBaselineFile : null;
+    }
+
+
+    /**
+     * If true, the baseline file is updated with the sizes of the analyzed classes instead of
+     * being compared with them. Default is false.
+     *
+     * @return  True if the baseline file should be updated, false if not.
+     */
+    @Input
+    public boolean isUpdateBaseline()
+    {
+        return fUpdateBaseline;
+    }
+
+
+    public void setUpdateBaseline(boolean pUpdateBaseline)
+    {
+        fUpdateBaseline = pUpdateBaseline;
+    }
+
+
+    /**
+     * If true, the build fails if the instance size or alignment gap total of a class has grown
+     * more than its budget compared to the baseline. If false, such classes are logged as
+     * warnings. Default is false.
+     *
+     * @return  True if a budget violation should fail the build, false if not.
+     */
+    @Input
+    public boolean isFailOnBudgetViolation()
+    {
+        return fFailOnBudgetViolation;
+    }
+
+
+    public void setFailOnBudgetViolation(boolean pFailOnBudgetViolation)
+    {
+        fFailOnBudgetViolation = pFailOnBudgetViolation;
+    }
+
+
+    /**
+     * Get the number of bytes the instance size and alignment gap total of classes without a
+     * class or package budget may grow compared to the baseline. Default is 0.
+     *
+     * @return  The default budget.
+     */
+    @Input
+    public int getDefaultBudget()
+    {
+        return fDefaultBudget;
+    }
+
+
+    public void setDefaultBudget(int pDefaultBudget)
+    {
+        fDefaultBudget = pDefaultBudget;
+    }
+
+
+    /**
+     * Get the number of bytes the instance size and alignment gap total of individual classes may
+     * grow compared to the baseline, keyed by fully qualified class name. Default is an empty map.
+     *
+     * @return  The class budgets, never null.
+     */
+    @Input
+    public Map<String, Integer> getClassBudgets()
+    {
+        return fClassBudgets;
+    }
+
+
+    public void setClassBudgets(Map<String, Integer> pClassBudgets)
+    {
+        fClassBudgets = new HashMap<>(requireNonNull(pClassBudgets));
+    }
+
+
+    /**
+     * Get the number of bytes the instance size and alignment gap total of the classes in
+     * packages may grow compared to the baseline, keyed by package name. A package budget applies
+     * to the classes in its subpackages too, unless they have a more specific budget. Default is
+     * an empty map.
+     *
+     * @return  The package budgets, never null.
+     */
+    @Input
+    public Map<String, Integer> getPackageBudgets()
+    {
+        return fPackageBudgets;
+    }
+
+
+    public void setPackageBudgets(Map<String, Integer> pPackageBudgets)
+    {
+        fPackageBudgets = new HashMap<>(requireNonNull(pPackageBudgets));
+    }
+
+
+    /**
+     * Get the directory where the layouts of the analyzed classes are cached when the
+     * {@code incremental} property is true. Default is a directory with the same name as the task
+     * in the project's temporary directory.
+     *
+     * @return  The cache directory.
+     */
+    @LocalState
+    public File getCacheDirectory()
+    {
+        if (fCacheDirectory == null)
+            fCacheDirectory = Projects.createTemporaryDirectorySpec(getProject(), getName());
+
+        return fCacheDirectory;
+    }
+
+
+    public void setCacheDirectory(Object pCacheDirectory)
+    {
+        fCacheDirectory = pCacheDirectory != null ? getProject().file(pCacheDirectory) : null;
+    }
+
+
     /**
      * Get the version of Jol to use. Default is &quot;0.10&quot;.
      *
@@ -173,7 +539,7 @@ public class JolTask extends DefaultTask implements ReportingEntity<JolReports>
      *
      * @return  The analysis class path, never null.
      */
-    @InputFiles
+    @Classpath
     public FileCollection getAnalysisClassPath()
     {
         return fAnalysisClassPath != null ? fAnalysisClassPath : getProject().files();
@@ -189,6 +555,100 @@ public class JolTask extends DefaultTask implements ReportingEntity<JolReports>
     }
 
 
+    /**
+     * Get the jar files with third-party classes to analyze in addition to the task's classes,
+     * typically a configuration like {@code configurations.runtimeClasspath}. The classes in each
+     * jar file are read directly from the jar file without being extracted or loaded, and the
+     * layouts are reported in a separate section per jar file. Jar files can only be analyzed with
+     * a simulated layout, i.e. not {@link JolParameters.Layout#CURRENT}. If the
+     * {@code incremental} property is true, the layouts of each jar file are cached, and a jar
+     * file is only analyzed again if it or the external superclasses of its classes have changed.
+     * Default is an empty collection.
+     *
+     * @return  The dependency jar files, never null.
+     */
+    @Classpath
+    public FileCollection getDependencyJars()
+    {
+        return fDependencyJars != null ? fDependencyJars : getProject().files();
+    }
+
+
+    public void setDependencyJars(Object pDependencyJars)
+    {
+        if (pDependencyJars != null)
+            fDependencyJars = getProject().files(pDependencyJars);
+        else
+            fDependencyJars = null;
+    }
+
+
+    /**
+     * Get the packages in the dependency jar files to analyze the classes of. A package includes
+     * its subpackages. An empty list means that the classes in all packages are analyzed. Default
+     * is an empty list.
+     *
+     * @return  The included dependency packages, never null.
+     */
+    @Input
+    public List<String> getDependencyIncludes()
+    {
+        return fDependencyIncludes;
+    }
+
+
+    public void setDependencyIncludes(List<String> pDependencyIncludes)
+    {
+        fDependencyIncludes = pDependencyIncludes != null ? pDependencyIncludes : new ArrayList<>();
+    }
+
+
+    /**
+     * Get the packages in the dependency jar files to exclude from the analysis. A package
+     * includes its subpackages. Excludes take precedence over includes. Default is an empty list.
+     *
+     * @return  The excluded dependency packages, never null.
+     */
+    @Input
+    public List<String> getDependencyExcludes()
+    {
+        return fDependencyExcludes;
+    }
+
+
+    public void setDependencyExcludes(List<String> pDependencyExcludes)
+    {
+        fDependencyExcludes = pDependencyExcludes != null ? pDependencyExcludes : new ArrayList<>();
+    }
+
+
+    /**
+     * Get the heap histogram files to compute the footprint of the analyzed classes from. A heap
+     * histogram is the text output of {@code jmap -histo} or {@code jcmd <pid> GC.class_histogram},
+     * typically captured from a production system. The instance counts in the histograms are
+     * summed and joined with the class layouts, including those of the dependency jars, and the
+     * number of bytes lost to alignment gaps in all instances is reported per class and package,
+     * ranked by impact. Default is an empty collection, meaning that no footprint is reported.
+     *
+     * @return  The heap histogram files, never null.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public FileCollection getHeapHistograms()
+    {
+        return fHeapHistograms != null ? fHeapHistograms : getProject().files();
+    }
+
+
+    public void setHeapHistograms(Object pHeapHistograms)
+    {
+        if (pHeapHistograms != null)
+            fHeapHistograms = getProject().files(pHeapHistograms);
+        else
+            fHeapHistograms = null;
+    }
+
+
     private void addToAnalysisClassPath(FileCollection pClassPath)
     {
         if (fAnalysisClassPath != null)
@@ -203,7 +663,7 @@ public class JolTask extends DefaultTask implements ReportingEntity<JolReports>
      *
      * @return  The tool class path.
      */
-    @InputFiles
+    @Classpath
     public FileCollection getToolClassPath()
     {
         return fToolClassPath != null ? fToolClassPath : getProject().files();
@@ -216,12 +676,74 @@ public class JolTask extends DefaultTask implements ReportingEntity<JolReports>
     }
 
 
+    /**
+     * Get the isolation mode to run the Jol analysis with. With {@link WorkerIsolation#CLASSLOADER}
+     * or {@link WorkerIsolation#PROCESS} the analysis is run through the Gradle Worker API, the
+     * latter in a separate JVM where Jol's use of {@code System.out} cannot interfere with other
+     * tasks. Default is {@link WorkerIsolation#NONE}, i.e. the analysis is run in the daemon on the
+     * task's thread.
+     *
+     * @return  The isolation mode.
+     */
+    @Internal
+    public WorkerIsolation getWorkerIsolation()
+    {
+        return fWorkerSpec.getIsolation();
+    }
+
+
+    public void setWorkerIsolation(WorkerIsolation pWorkerIsolation)
+    {
+        fWorkerSpec.setIsolation(pWorkerIsolation);
+    }
+
+
+    /**
+     * Get the maximum heap size of the worker process when {@code workerIsolation} is
+     * {@link WorkerIsolation#PROCESS}, e.g. &quot;2g&quot;. Default is Gradle's default heap size
+     * for worker processes.
+     *
+     * @return  The maximum heap size, possibly null.
+     */
+    @Internal
+    public String getMaxHeapSize()
+    {
+        return fWorkerSpec.getMaxHeapSize();
+    }
+
+
+    public void setMaxHeapSize(String pMaxHeapSize)
+    {
+        fWorkerSpec.setMaxHeapSize(pMaxHeapSize);
+    }
+
+
+    /**
+     * Get the extra JVM arguments of the worker process when {@code workerIsolation} is
+     * {@link WorkerIsolation#PROCESS}. Default is an empty list.
+     *
+     * @return  The JVM arguments, never null.
+     */
+    @Internal
+    public List<String> getJvmArgs()
+    {
+        return fWorkerSpec.getJvmArgs();
+    }
+
+
+    public void setJvmArgs(List<String> pJvmArgs)
+    {
+        fWorkerSpec.setJvmArgs(pJvmArgs);
+    }
+
+
     /**
      * Get the directories containing class files to analyze.
      *
      * @return  The class file directories, never null.
      */
     @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
     public Collection<File> getClassesDirectories()
     {
         return fClassesDirectories
@@ -372,6 +894,26 @@ public class JolTask extends DefaultTask implements ReportingEntity<JolReports>
         SingleFileReport aXmlReport = fReports.getXml();
         if (Reports.isRequired(aXmlReport))
         {
+            if (fWorkerSpec.isWorkerEnabled())
+            {
+                // Let a worker run the analysis and create the XML report.
+                File aXmlFile = Reports.getOutputLocation(aXmlReport);
+                try
+                {
+                    runJolAnalysisInWorker(aXmlFile);
+                }
+                finally
+                {
+                    // The worker fails on baseline budget violations after it has created the XML
+                    // report, the HTML report should be created in that case too.
+                    TransformingReport aHtmlReport = fReports.getHtml();
+                    if (Reports.isRequired(aHtmlReport) && aXmlFile.exists())
+                        aHtmlReport.transform();
+                }
+
+                return;
+            }
+
             // Run the analysis and create the XML report.
             JolResult aResult = runJolAnalysis();
             if (aResult != null)
@@ -382,6 +924,12 @@ public class JolTask extends DefaultTask implements ReportingEntity<JolReports>
                 TransformingReport aHtmlReport = fReports.getHtml();
                 if (Reports.isRequired(aHtmlReport))
                     aHtmlReport.transform();
+
+                // Check the result against the baseline last, a budget violation may fail the
+                // build and the reports should be available to examine the violation.
+                JolBaselineGate aGate = createBaselineGate();
+                if (aGate != null)
+                    aGate.apply(aResult, getLogger());
             }
         }
         else
@@ -431,18 +979,39 @@ public class JolTask extends DefaultTask implements ReportingEntity<JolReports>
     {
         try
         {
-            // Add the classes from any specified classes directories to the list of classes to
-            // analyze.
-            for (ClassesDirectory aClassesDirectory : fClassesDirectories)
-            {
-                getLogger().debug("Adding classes for analysis from {}", aClassesDirectory);
-                aClassesDirectory.addClassNames(fClasses, getProject());
-            }
+            addClassesDirectoriesClassNames();
 
             // Create the JolRunner instance and run the analysis with the analysis parameters
             // specified in this task's properties.
-            JolParameters aParameters = new JolParameters(getLayout(), getDataModel(), getAlignment());
-            return loadJolRunner().analyze(fClasses, aParameters);
+            JolParameters aParameters = createJolParameters();
+            File aCacheDirectory = fIncremental ? getCacheDirectory() : null;
+            JolRunner aRunner = loadJolRunner();
+            JolResult aResult;
+            if (fClassFileAnalysis)
+                aResult = aRunner.analyzeClassFiles(
+                    fClasses,
+                    getAnalysisClassPath().getFiles(),
+                    aParameters,
+                    aCacheDirectory);
+            else
+                aResult = aRunner.analyze(fClasses, aParameters, aCacheDirectory);
+
+            Set<File> aDependencyJars = getAnalyzableDependencyJars();
+            if (!aDependencyJars.isEmpty())
+                aRunner.analyzeJars(
+                    aDependencyJars,
+                    fDependencyIncludes,
+                    fDependencyExcludes,
+                    getAnalysisClassPath().getFiles(),
+                    aParameters,
+                    aCacheDirectory,
+                    aResult);
+
+            Set<File> aHeapHistograms = getHeapHistograms().getFiles();
+            if (!aHeapHistograms.isEmpty())
+                addFootprint(aResult, aHeapHistograms);
+
+            return aResult;
         }
         catch (ClassNotFoundException | IllegalAccessException | InstantiationException e)
         {
@@ -455,6 +1024,145 @@ public class JolTask extends DefaultTask implements ReportingEntity<JolReports>
     }
 
 
+    /**
+     * Run a Jol analysis on the classes specified in the task's configuration in a Gradle worker,
+     * and wait for the worker to write the result to the XML report.
+     *
+     * @param pXmlFile  The file to write the XML report to.
+     */
+    private void runJolAnalysisInWorker(File pXmlFile)
+    {
+        addClassesDirectoriesClassNames();
+
+        // Remove any report from a previous run, an XML report present after a failed worker must
+        // have been created by that worker.
+        if (pXmlFile.exists() && !pXmlFile.delete())
+            getLogger().warn("Could not delete the previous Jol report {}", pXmlFile);
+
+        getLogger().debug("Running Jol analysis in a worker with {} isolation", fWorkerSpec.getIsolation());
+        fWorkerSpec.createWorkQueue(getWorkerExecutor(), createJolRunnerClassPath()).submit(
+            JolWorkAction.class,
+            p -> {
+                p.getToolVersion().set(getToolVersion());
+                p.getClasses().set(fClasses);
+                p.getClassFileAnalysis().set(fClassFileAnalysis);
+                Set<File> aDependencyJars = getAnalyzableDependencyJars();
+                if (fClassFileAnalysis || !aDependencyJars.isEmpty())
+                    p.getAnalysisClassPath().from(getAnalysisClassPath());
+                p.getDependencyJars().from(aDependencyJars);
+                p.getDependencyIncludes().set(fDependencyIncludes);
+                p.getDependencyExcludes().set(fDependencyExcludes);
+                p.getHeapHistograms().from(getHeapHistograms());
+                if (fIncremental)
+                    p.getCacheDirectory().set(getCacheDirectory());
+                p.getJolParameters().set(createJolParameters());
+                p.getIncludeTimestamp().set(fIncludeTimestamp);
+                p.getPackingAdvice().set(fPackingAdvice);
+                p.getBaselineGate().set(createBaselineGate());
+                p.getReportFile().set(pXmlFile);
+            });
+
+        // The HTML report is created from the XML report and must wait for the worker.
+        getWorkerExecutor().await();
+    }
+
+
+    /**
+     * Compute the footprint of the classes in a result from a collection of heap histograms and
+     * add it to the result.
+     *
+     * @param pResult           The result.
+     * @param pHeapHistograms   The heap histogram files.
+     */
+    private void addFootprint(JolResult pResult, Collection<File> pHeapHistograms)
+    {
+        try
+        {
+            pResult.setFootprint(JolFootprint.create(pResult, HeapHistogram.read(pHeapHistograms)));
+        }
+        catch (IOException ioe)
+        {
+            getLogger().error("Could not read the heap histograms, no footprint will be reported", ioe);
+        }
+    }
+
+
+    /**
+     * Get the dependency jar files to analyze. Jar files are analyzed from their class files,
+     * which isn't possible with the current layout.
+     *
+     * @return  The dependency jar files to analyze, possibly empty, never null.
+     */
+    private Set<File> getAnalyzableDependencyJars()
+    {
+        Set<File> aDependencyJars = getDependencyJars().getFiles();
+        if (!aDependencyJars.isEmpty() && getLayout() == JolParameters.Layout.CURRENT)
+        {
+            getLogger().warn("Dependency jars cannot be analyzed with the current layout and will be ignored");
+            return Collections.emptySet();
+        }
+
+        return aDependencyJars;
+    }
+
+
+    /**
+     * Create the analysis parameters from the task's properties.
+     *
+     * @return  A new {@code JolParameters}, never null.
+     */
+    private JolParameters createJolParameters()
+    {
+        return new JolParameters(getLayout(), getDataModel(), getAlignment(), fMaxParallelism, fLayoutMatrix);
+    }
+
+
+    /**
+     * Create the gate that guards the analyzed classes against size regressions from the task's
+     * properties.
+     *
+     * @return  A new {@code JolBaselineGate}, or null if no baseline file is specified.
+     */
+    private JolBaselineGate createBaselineGate()
+    {
+        if (fBaselineFile == null)
+            return null;
+
+        return new JolBaselineGate(
+            fBaselineFile,
+            fUpdateBaseline,
+            new JolBaselineGate.Budgets(fDefaultBudget, fClassBudgets, fPackageBudgets),
+            fFailOnBudgetViolation);
+    }
+
+
+    /**
+     * Add the classes from any specified classes directories to the list of classes to analyze.
+     */
+    private void addClassesDirectoriesClassNames()
+    {
+        for (ClassesDirectory aClassesDirectory : fClassesDirectories)
+        {
+            getLogger().debug("Adding classes for analysis from {}", aClassesDirectory);
+            aClassesDirectory.addClassNames(fClasses, getProject());
+        }
+    }
+
+
+    /**
+     * Get the executor used to run the analysis when {@code workerIsolation} is something else
+     * than {@link WorkerIsolation#NONE}. This method is implemented by Gradle through service
+     * injection.
+     *
+     * @return  The worker executor.
+     */
+    @Inject
+    protected WorkerExecutor getWorkerExecutor()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+
     /**
      * Create an XML report from the result of a Jol analysis.
      *
@@ -465,7 +1173,8 @@ public class JolTask extends DefaultTask implements ReportingEntity<JolReports>
      */
     private void createXmlReport(JolResult pResult, SingleFileReport pXmlReport)
     {
-        try (JolXmlReportWriter aWriter = new JolXmlReportWriter(pXmlReport))
+        JolPackingAdvisor aAdvisor = fPackingAdvice ? JolPackingAdvisor.create(createJolParameters()) : null;
+        try (JolXmlReportWriter aWriter = new JolXmlReportWriter(Reports.getOutputLocation(pXmlReport), fIncludeTimestamp, aAdvisor))
         {
             aWriter.writeReport(pResult);
         }
@@ -505,9 +1214,19 @@ public class JolTask extends DefaultTask implements ReportingEntity<JolReports>
     }
 
 
+    /**
+     * Create the class path to load the {@code JolRunner} implementation from. When analyzing
+     * class files, the classes to analyze are not loaded and the class path only contains the Jol
+     * classes.
+     *
+     * @return  The class path.
+     */
     private FileCollection createJolRunnerClassPath()
     {
-        return getToolClassPath().plus(getAnalysisClassPath());
+        if (fClassFileAnalysis)
+            return getToolClassPath();
+        else
+            return getToolClassPath().plus(getAnalysisClassPath());
     }
 
 
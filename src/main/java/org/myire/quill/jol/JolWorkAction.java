@@ -0,0 +1,216 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.jol;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+
+/**
+ * Work action that performs a Jol analysis in a Gradle worker and writes the result to an XML
+ * report. The worker's class path must contain the Jol classes and, unless the class files are
+ * analyzed, the classes to analyze. This allows the {@code JolRunner} implementation to be loaded
+ * directly by the worker's class loader.
+ *
+ * @author <a href="mailto:peter@myire.org">Peter Franzen</a>
+ */
+public abstract class JolWorkAction implements WorkAction<JolWorkAction.Parameters>
+{
+    static private final String IMPLEMENTATION_CLASS = "org.myire.quill.jol.impl.JolRunnerImpl";
+
+    private final Logger fLogger = Logging.getLogger(JolWorkAction.class);
+
+
+    @Override
+    public void execute()
+    {
+        Parameters aParameters = getParameters();
+        JolResult aResult;
+        try
+        {
+            JolRunner aRunner =
+                Class.forName(IMPLEMENTATION_CLASS).asSubclass(JolRunner.class).newInstance();
+            aRunner.init(aParameters.getToolVersion().get());
+            if (aParameters.getClassFileAnalysis().get())
+                aResult =
+                    aRunner.analyzeClassFiles(
+                        aParameters.getClasses().get(),
+                        aParameters.getAnalysisClassPath().getFiles(),
+                        aParameters.getJolParameters().get(),
+                        aParameters.getCacheDirectory().getOrNull());
+            else
+                aResult =
+                    aRunner.analyze(
+                        aParameters.getClasses().get(),
+                        aParameters.getJolParameters().get(),
+                        aParameters.getCacheDirectory().getOrNull());
+
+            if (!aParameters.getDependencyJars().isEmpty())
+                aRunner.analyzeJars(
+                    aParameters.getDependencyJars().getFiles(),
+                    aParameters.getDependencyIncludes().get(),
+                    aParameters.getDependencyExcludes().get(),
+                    aParameters.getAnalysisClassPath().getFiles(),
+                    aParameters.getJolParameters().get(),
+                    aParameters.getCacheDirectory().getOrNull(),
+                    aResult);
+        }
+        catch (ClassNotFoundException | IllegalAccessException | InstantiationException e)
+        {
+            fLogger.error("Could not create an instance of '{}'", IMPLEMENTATION_CLASS, e);
+            return;
+        }
+
+        if (!aParameters.getHeapHistograms().isEmpty())
+        {
+            try
+            {
+                HeapHistogram aHistogram = HeapHistogram.read(aParameters.getHeapHistograms().getFiles());
+                aResult.setFootprint(JolFootprint.create(aResult, aHistogram));
+            }
+            catch (IOException ioe)
+            {
+                fLogger.error("Could not read the heap histograms, no footprint will be reported", ioe);
+            }
+        }
+
+        File aReportFile = aParameters.getReportFile().get();
+        JolPackingAdvisor aAdvisor =
+            aParameters.getPackingAdvice().get() ? JolPackingAdvisor.create(aParameters.getJolParameters().get()) : null;
+        try (JolXmlReportWriter aWriter = new JolXmlReportWriter(aReportFile, aParameters.getIncludeTimestamp().get(), aAdvisor))
+        {
+            aWriter.writeReport(aResult);
+        }
+        catch (IOException ioe)
+        {
+            fLogger.error("Failed to create Jol report {}", aReportFile, ioe);
+        }
+
+        // Check the result against the baseline after the report has been created, since a budget
+        // violation may fail the build.
+        JolBaselineGate aGate = aParameters.getBaselineGate().getOrNull();
+        if (aGate != null)
+            aGate.apply(aResult, fLogger);
+    }
+
+
+    /**
+     * The parameters passed from a {@code JolTask} to the worker.
+     */
+    public interface Parameters extends WorkParameters
+    {
+        /**
+         * Get the version of Jol the worker is running.
+         *
+         * @return  The Jol version string.
+         */
+        Property<String> getToolVersion();
+
+        /**
+         * Get the fully qualified names of the classes to analyze.
+         *
+         * @return  The class names.
+         */
+        ListProperty<String> getClasses();
+
+        /**
+         * Get the flag specifying whether the classes should be analyzed from their class files
+         * rather than by loading them.
+         *
+         * @return  The class file analysis flag.
+         */
+        Property<Boolean> getClassFileAnalysis();
+
+        /**
+         * Get the class path to read the class files from when analyzing class files or
+         * dependency jar files.
+         *
+         * @return  The analysis class path.
+         */
+        ConfigurableFileCollection getAnalysisClassPath();
+
+        /**
+         * Get the dependency jar files to analyze in addition to the classes.
+         *
+         * @return  The dependency jar files.
+         */
+        ConfigurableFileCollection getDependencyJars();
+
+        /**
+         * Get the packages in the dependency jar files to analyze the classes of.
+         *
+         * @return  The included dependency packages.
+         */
+        ListProperty<String> getDependencyIncludes();
+
+        /**
+         * Get the packages in the dependency jar files to exclude from the analysis.
+         *
+         * @return  The excluded dependency packages.
+         */
+        ListProperty<String> getDependencyExcludes();
+
+        /**
+         * Get the heap histogram files to compute the footprint of the analyzed classes from.
+         *
+         * @return  The heap histogram files.
+         */
+        ConfigurableFileCollection getHeapHistograms();
+
+        /**
+         * Get the directory to cache the class layouts in. Not set if the classes should not be
+         * analyzed incrementally.
+         *
+         * @return  The cache directory.
+         */
+        Property<File> getCacheDirectory();
+
+        /**
+         * Get the analysis parameters.
+         *
+         * @return  The Jol parameters.
+         */
+        Property<JolParameters> getJolParameters();
+
+        /**
+         * Get the flag specifying whether the date and time of the analysis should be included in
+         * the XML report.
+         *
+         * @return  The include timestamp flag.
+         */
+        Property<Boolean> getIncludeTimestamp();
+
+        /**
+         * Get the flag specifying whether packing advice should be written to the XML report.
+         *
+         * @return  The packing advice flag.
+         */
+        Property<Boolean> getPackingAdvice();
+
+        /**
+         * Get the gate that guards the analyzed classes against size regressions. Not set if no
+         * baseline file is specified.
+         *
+         * @return  The baseline gate.
+         */
+        Property<JolBaselineGate> getBaselineGate();
+
+        /**
+         * Get the file to write the XML report to.
+         *
+         * @return  The report file.
+         */
+        Property<File> getReportFile();
+    }
+}
@@ -1,16 +1,20 @@
 /*
- * Copyright 2020 Peter Franzen. All rights reserved.
+ * Copyright 2020, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
 package org.myire.quill.jol;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-
-import org.gradle.api.reporting.SingleFileReport;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 import org.myire.quill.report.XmlReportWriter;
 
@@ -23,23 +27,60 @@ import org.myire.quill.report.XmlReportWriter;
 class JolXmlReportWriter extends XmlReportWriter
 {
     static private final String ELEMENT_REPORT = "jol-report";
+    static private final String ELEMENT_DEPENDENCIES = "dependencies";
+    static private final String ELEMENT_DEPENDENCY = "dependency";
+    static private final String ELEMENT_FOOTPRINT = "footprint";
+    static private final String ELEMENT_MATRIX = "matrix";
+    static private final String ELEMENT_LAYOUT = "layout";
+    static private final String ELEMENT_SIZE = "size";
     static private final String ELEMENT_PACKAGES = "packages";
     static private final String ELEMENT_PACKAGE = "package";
     static private final String ELEMENT_CLASS = "class";
     static private final String ELEMENT_FIELD = "field";
+    static private final String ELEMENT_ADVICE = "advice";
+    static private final String ELEMENT_CANDIDATE = "candidate";
+    static private final String ELEMENT_CACHE_LINES = "cache-lines";
+    static private final String ELEMENT_CONTENTION = "contention";
+
+    static private final JolFalseSharingDetector FALSE_SHARING_DETECTOR = new JolFalseSharingDetector();
+
+    private final boolean fIncludeTimestamp;
+    private final JolPackingAdvisor fAdvisor;
+
+
+    /**
+     * Create a new {@code JolXmlReportWriter}.
+     *
+     * @param pReportFile       The file to write the Jol XML report to.
+     * @param pIncludeTimestamp If true, the date and time of the report's creation are written as
+     *                          attributes of the root element.
+     *
+     * @throws IOException  if opening the report file fails.
+     * @throws NullPointerException if {@code pReportFile} is null.
+     */
+    JolXmlReportWriter(File pReportFile, boolean pIncludeTimestamp) throws IOException
+    {
+        this(pReportFile, pIncludeTimestamp, null);
+    }
 
 
     /**
      * Create a new {@code JolXmlReportWriter}.
      *
-     * @param pReport   The Jol XMl report.
+     * @param pReportFile       The file to write the Jol XML report to.
+     * @param pIncludeTimestamp If true, the date and time of the report's creation are written as
+     *                          attributes of the root element.
+     * @param pAdvisor          The advisor to write packing advice for each class with, or null to
+     *                          write no packing advice.
      *
-     * @throws IOException  if opening the report's destination file fails.
-     * @throws NullPointerException if any of the parameters is null.
+     * @throws IOException  if opening the report file fails.
+     * @throws NullPointerException if {@code pReportFile} is null.
      */
-    JolXmlReportWriter(SingleFileReport pReport) throws IOException
+    JolXmlReportWriter(File pReportFile, boolean pIncludeTimestamp, JolPackingAdvisor pAdvisor) throws IOException
     {
-        super(pReport, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        super(pReportFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        fIncludeTimestamp = pIncludeTimestamp;
+        fAdvisor = pAdvisor;
     }
 
 
@@ -54,7 +95,241 @@ class JolXmlReportWriter extends XmlReportWriter
     void writeReport(JolResult pResult) throws IOException
     {
         writeProlog();
-        writeElement(ELEMENT_REPORT, this::writeReportAttributes, this::writePackages, pResult);
+        writeElement(ELEMENT_REPORT, this::writeReportAttributes, this::writeReportBody, pResult);
+    }
+
+
+    /**
+     * Write the body of the root element. The body contains the sequence of package elements,
+     * the matrix element if the classes were laid out with a layout matrix, the sequence of
+     * dependency elements if any dependencies were analyzed, and the footprint element if a heap
+     * histogram was specified.
+     *
+     * @param pResult   The instance holding the values for the element's body.
+     *
+     * @throws IOException if writing to the report file fails.
+     * @throws NullPointerException if {@code pResult} is null.
+     */
+    private void writeReportBody(JolResult pResult) throws IOException
+    {
+        writePackages(pResult);
+
+        if (!pResult.getMatrixResults().isEmpty())
+            writeElement(ELEMENT_MATRIX, this::writeMatrixBody, pResult);
+
+        Map<String, JolResult> aDependencies = pResult.getDependencies();
+        if (!aDependencies.isEmpty())
+        {
+            writeSequence(
+                ELEMENT_DEPENDENCIES,
+                ELEMENT_DEPENDENCY,
+                this::writeDependencyAttributes,
+                e -> writePackages(e.getValue()),
+                aDependencies.entrySet());
+        }
+
+        JolFootprint aFootprint = pResult.getFootprint();
+        if (aFootprint != null)
+            writeElement(ELEMENT_FOOTPRINT, this::writeFootprintAttributes, this::writeFootprintBody, aFootprint);
+    }
+
+
+    /**
+     * Write the body of the matrix element. The body contains one layout element for the result's
+     * own layout and each layout in the matrix, followed by one class element for each analyzed
+     * class. The class elements contain the class's sizes in each layout, in the same order as the
+     * layout elements.
+     *
+     * @param pResult   The result with the matrix results.
+     *
+     * @throws IOException if writing to the report file fails.
+     * @throws NullPointerException if {@code pResult} is null.
+     */
+    private void writeMatrixBody(JolResult pResult) throws IOException
+    {
+        List<JolResult> aResults = new ArrayList<>();
+        aResults.add(pResult);
+        aResults.addAll(pResult.getMatrixResults());
+
+        // Map the class layouts of each result from binary class name, which unlike the fully
+        // qualified name is unique also for anonymous classes.
+        List<Map<String, JolResult.ClassLayout>> aClassLayouts = new ArrayList<>(aResults.size());
+        for (JolResult aResult : aResults)
+        {
+            Map<String, JolResult.ClassLayout> aResultClassLayouts = new HashMap<>();
+            long aTotalInstanceSize = 0;
+            for (JolResult.PackageLayout aPackageLayout : aResult.getPackages())
+                for (JolResult.ClassLayout aClassLayout : aPackageLayout.getClasses())
+                {
+                    aResultClassLayouts.put(aClassLayout.getBinaryName(), aClassLayout);
+                    aTotalInstanceSize += aClassLayout.getInstanceSize();
+                }
+
+            aClassLayouts.add(aResultClassLayouts);
+            writeMatrixLayout(aResult, aTotalInstanceSize);
+        }
+
+        for (JolResult.PackageLayout aPackageLayout : pResult.getPackages())
+            for (JolResult.ClassLayout aClassLayout : aPackageLayout.getClasses())
+                writeElement(
+                    ELEMENT_CLASS,
+                    c -> writeAttribute("name", c.getFullyQualifiedName()),
+                    c -> writeMatrixSizes(c.getBinaryName(), aClassLayouts),
+                    aClassLayout);
+    }
+
+
+    /**
+     * Write a layout element in the matrix element.
+     *
+     * @param pResult               The result of laying out the classes with the layout.
+     * @param pTotalInstanceSize    The sum of the instance sizes of the classes in the result.
+     *
+     * @throws IOException if writing to the report file fails.
+     */
+    private void writeMatrixLayout(JolResult pResult, long pTotalInstanceSize) throws IOException
+    {
+        writeEmptyElement(
+            ELEMENT_LAYOUT,
+            r -> {
+                writeAttribute("description", r.getDescription());
+                writeAttribute("total-instance-size", pTotalInstanceSize);
+                writeAttribute("total-internal-gap-size", r.getInternalAlignmentGapSize());
+                writeAttribute("total-external-gap-size", r.getExternalAlignmentGapSize());
+            },
+            pResult);
+    }
+
+
+    /**
+     * Write the size elements of a class element in the matrix element.
+     *
+     * @param pClassName    The binary name of the class.
+     * @param pClassLayouts The class layouts of each layout in the matrix, mapped from binary
+     *                      class name.
+     *
+     * @throws IOException if writing to the report file fails.
+     */
+    private void writeMatrixSizes(
+        String pClassName,
+        List<Map<String, JolResult.ClassLayout>> pClassLayouts) throws IOException
+    {
+        for (Map<String, JolResult.ClassLayout> aClassLayouts : pClassLayouts)
+        {
+            JolResult.ClassLayout aClassLayout = aClassLayouts.get(pClassName);
+            if (aClassLayout != null)
+                writeEmptyElement(
+                    ELEMENT_SIZE,
+                    c -> {
+                        writeAttribute("instance-size", c.getInstanceSize());
+                        writeAttribute("internal-gaps", c.getInternalAlignmentGapSize());
+                        writeAttribute("external-gaps", c.getExternalAlignmentGapSize());
+                    },
+                    aClassLayout);
+            else
+                writeEmptyElement(ELEMENT_SIZE);
+        }
+    }
+
+
+    /**
+     * Write the attributes of the footprint element.
+     *
+     * @param pFootprint    The instance holding the values for the attributes.
+     *
+     * @throws IOException if writing to the report file fails.
+     * @throws NullPointerException if {@code pFootprint} is null.
+     */
+    private void writeFootprintAttributes(JolFootprint pFootprint) throws IOException
+    {
+        writeAttribute("histogram-classes", pFootprint.getNumHistogramClasses());
+        writeAttribute("total-internal-gap-bytes", pFootprint.getInternalGapBytes());
+        writeAttribute("total-external-gap-bytes", pFootprint.getExternalGapBytes());
+    }
+
+
+    /**
+     * Write the body of the footprint element. The body contains one package element for each
+     * package with classes that have alignment gaps and instances in the heap histogram, in the
+     * footprint's ranking order.
+     *
+     * @param pFootprint    The instance holding the values for the element's body.
+     *
+     * @throws IOException if writing to the report file fails.
+     * @throws NullPointerException if {@code pFootprint} is null.
+     */
+    private void writeFootprintBody(JolFootprint pFootprint) throws IOException
+    {
+        for (JolFootprint.PackageFootprint aPackage : pFootprint.getPackages())
+            writeElement(ELEMENT_PACKAGE, this::writePackageFootprintAttributes, this::writePackageFootprintBody, aPackage);
+    }
+
+
+    /**
+     * Write the attributes of a package element in the footprint element.
+     *
+     * @param pPackage  The instance holding the values for the attributes.
+     *
+     * @throws IOException if writing to the report file fails.
+     * @throws NullPointerException if {@code pPackage} is null.
+     */
+    private void writePackageFootprintAttributes(JolFootprint.PackageFootprint pPackage) throws IOException
+    {
+        writeAttribute("name", pPackage.getName());
+        writeAttribute("internal-gap-bytes", pPackage.getInternalGapBytes());
+        writeAttribute("external-gap-bytes", pPackage.getExternalGapBytes());
+    }
+
+
+    /**
+     * Write the body of a package element in the footprint element. The body contains one class
+     * element for each class in the package's footprint.
+     *
+     * @param pPackage  The instance holding the values for the element's body.
+     *
+     * @throws IOException if writing to the report file fails.
+     * @throws NullPointerException if {@code pPackage} is null.
+     */
+    private void writePackageFootprintBody(JolFootprint.PackageFootprint pPackage) throws IOException
+    {
+        for (JolFootprint.ClassFootprint aClass : pPackage.getClasses())
+            writeEmptyElement(ELEMENT_CLASS, this::writeClassFootprintAttributes, aClass);
+    }
+
+
+    /**
+     * Write the attributes of a class element in the footprint element.
+     *
+     * @param pClass    The instance holding the values for the attributes.
+     *
+     * @throws IOException if writing to the report file fails.
+     * @throws NullPointerException if {@code pClass} is null.
+     */
+    private void writeClassFootprintAttributes(JolFootprint.ClassFootprint pClass) throws IOException
+    {
+        writeAttribute("name", pClass.getClassLayout().getFullClassName());
+        writeAttribute("instances", pClass.getInstanceCount());
+        writeAttribute("instance-size", pClass.getClassLayout().getInstanceSize());
+        writeAttribute("internal-gaps", pClass.getClassLayout().getInternalAlignmentGapSize());
+        writeAttribute("external-gaps", pClass.getClassLayout().getExternalAlignmentGapSize());
+        writeAttribute("internal-gap-bytes", pClass.getInternalGapBytes());
+        writeAttribute("external-gap-bytes", pClass.getExternalGapBytes());
+    }
+
+
+    /**
+     * Write the attributes of a dependency element.
+     *
+     * @param pDependency   The dependency's name and analysis result.
+     *
+     * @throws IOException if writing to the report file fails.
+     * @throws NullPointerException if {@code pDependency} is null.
+     */
+    private void writeDependencyAttributes(Map.Entry<String, JolResult> pDependency) throws IOException
+    {
+        writeAttribute("name", pDependency.getKey());
+        writeAttribute("total-internal-gap-size", pDependency.getValue().getInternalAlignmentGapSize());
+        writeAttribute("total-external-gap-size", pDependency.getValue().getExternalAlignmentGapSize());
     }
 
 
@@ -68,9 +343,12 @@ class JolXmlReportWriter extends XmlReportWriter
      */
     private void writeReportAttributes(JolResult pResult) throws IOException
     {
-        LocalDateTime aTimestamp = LocalDateTime.now().withNano(0);
-        writeAttribute("date", DateTimeFormatter.ISO_DATE.format(aTimestamp));
-        writeAttribute("time", DateTimeFormatter.ISO_LOCAL_TIME.format(aTimestamp));
+        if (fIncludeTimestamp)
+        {
+            LocalDateTime aTimestamp = LocalDateTime.now().withNano(0);
+            writeAttribute("date", DateTimeFormatter.ISO_DATE.format(aTimestamp));
+            writeAttribute("time", DateTimeFormatter.ISO_LOCAL_TIME.format(aTimestamp));
+        }
 
         writeAttribute("version", pResult.getVersion());
         writeAttribute("description", pResult.getDescription());
@@ -163,7 +441,9 @@ class JolXmlReportWriter extends XmlReportWriter
 
     /**
      * Write the body of a class element. The body contains one field element for each field in the
-     * class.
+     * class, followed by an advice element if packing advice is enabled and the instance size of
+     * the class can be reduced, and a cache-lines element if the class has concurrently written
+     * fields or fields annotated with {@code @Contended}.
      *
      * @param pClassLayout  The instance holding the values for the element's body.
      *
@@ -174,6 +454,138 @@ class JolXmlReportWriter extends XmlReportWriter
     {
         for (JolResult.FieldLayout aFieldLayout : pClassLayout.getFields())
             writeEmptyElement(ELEMENT_FIELD, this::writeFieldAttributes, aFieldLayout);
+
+        JolPackingAdvisor.Advice aAdvice = fAdvisor != null ? fAdvisor.advise(pClassLayout) : null;
+        if (aAdvice != null)
+        {
+            if (aAdvice.getCandidates().isEmpty())
+                writeEmptyElement(ELEMENT_ADVICE, this::writeAdviceAttributes, aAdvice);
+            else
+                writeElement(ELEMENT_ADVICE, this::writeAdviceAttributes, this::writeAdviceBody, aAdvice);
+        }
+
+        JolFalseSharingDetector.Report aReport = FALSE_SHARING_DETECTOR.detect(pClassLayout);
+        if (aReport != null)
+            writeElement(ELEMENT_CACHE_LINES, this::writeCacheLinesAttributes, this::writeCacheLinesBody, aReport);
+    }
+
+
+    /**
+     * Write the attributes of a cache-lines element.
+     *
+     * @param pReport   The instance holding the values for the attributes.
+     *
+     * @throws IOException if writing to the report file fails.
+     * @throws NullPointerException if {@code pReport} is null.
+     */
+    private void writeCacheLinesAttributes(JolFalseSharingDetector.Report pReport) throws IOException
+    {
+        writeAttribute("size", pReport.getCacheLineSize());
+        writeAttribute("contentions", pReport.getContentions().size());
+    }
+
+
+    /**
+     * Write the body of a cache-lines element. The body contains one field element for each
+     * checked field, followed by one contention element for each pair of fields that may share a
+     * cache line.
+     *
+     * @param pReport   The instance holding the values for the element's body.
+     *
+     * @throws IOException if writing to the report file fails.
+     * @throws NullPointerException if {@code pReport} is null.
+     */
+    private void writeCacheLinesBody(JolFalseSharingDetector.Report pReport) throws IOException
+    {
+        for (JolFalseSharingDetector.Field aField : pReport.getFields())
+            writeEmptyElement(ELEMENT_FIELD, this::writeCacheLineFieldAttributes, aField);
+
+        for (JolFalseSharingDetector.Contention aContention : pReport.getContentions())
+            writeEmptyElement(ELEMENT_CONTENTION, this::writeContentionAttributes, aContention);
+    }
+
+
+    /**
+     * Write the attributes of a field element in a cache-lines element.
+     *
+     * @param pField    The instance holding the values for the attributes.
+     *
+     * @throws IOException if writing to the report file fails.
+     * @throws NullPointerException if {@code pField} is null.
+     */
+    private void writeCacheLineFieldAttributes(JolFalseSharingDetector.Field pField) throws IOException
+    {
+        writeAttribute("name", pField.getField().getName());
+        writeAttribute("offset", pField.getField().getOffset());
+        writeAttribute("kind", pField.getKind().name().toLowerCase(Locale.ROOT));
+        writeAttribute("contended", String.valueOf(pField.getField().isContended()));
+        writeAttribute("padding", pField.isPadded() ? "present" : "missing");
+    }
+
+
+    /**
+     * Write the attributes of a contention element.
+     *
+     * @param pContention   The instance holding the values for the attributes.
+     *
+     * @throws IOException if writing to the report file fails.
+     * @throws NullPointerException if {@code pContention} is null.
+     */
+    private void writeContentionAttributes(JolFalseSharingDetector.Contention pContention) throws IOException
+    {
+        writeAttribute("first", pContention.getFirst().getName());
+        writeAttribute("second", pContention.getSecond().getName());
+        writeAttribute("distance", pContention.getDistance());
+    }
+
+
+    /**
+     * Write the attributes of an advice element.
+     *
+     * @param pAdvice   The instance holding the values for the attributes.
+     *
+     * @throws IOException if writing to the report file fails.
+     * @throws NullPointerException if {@code pAdvice} is null.
+     */
+    private void writeAdviceAttributes(JolPackingAdvisor.Advice pAdvice) throws IOException
+    {
+        writeAttribute("packed-size", pAdvice.getPackedSize());
+        writeAttribute("projected-size", pAdvice.getProjectedSize());
+        writeAttribute("bytes-saved", pAdvice.getBytesSaved());
+    }
+
+
+    /**
+     * Write the body of an advice element. The body contains one candidate element for each
+     * candidate change of the class's fields.
+     *
+     * @param pAdvice   The instance holding the values for the element's body.
+     *
+     * @throws IOException if writing to the report file fails.
+     * @throws NullPointerException if {@code pAdvice} is null.
+     */
+    private void writeAdviceBody(JolPackingAdvisor.Advice pAdvice) throws IOException
+    {
+        for (JolPackingAdvisor.Candidate aCandidate : pAdvice.getCandidates())
+            writeEmptyElement(ELEMENT_CANDIDATE, this::writeCandidateAttributes, aCandidate);
+    }
+
+
+    /**
+     * Write the attributes of a candidate element.
+     *
+     * @param pCandidate    The instance holding the values for the attributes.
+     *
+     * @throws IOException if writing to the report file fails.
+     * @throws NullPointerException if {@code pCandidate} is null.
+     */
+    private void writeCandidateAttributes(JolPackingAdvisor.Candidate pCandidate) throws IOException
+    {
+        writeAttribute("kind", pCandidate.getKind().name().toLowerCase(Locale.ROOT));
+        writeAttribute("field", pCandidate.getField());
+        writeAttribute("from", pCandidate.getFromType());
+        writeAttribute("to", pCandidate.getToType());
+        writeAttribute("bytes-saved", pCandidate.getBytesSaved());
     }
 
 
@@ -191,5 +603,9 @@ class JolXmlReportWriter extends XmlReportWriter
         writeAttribute("type", pFieldLayout.getType());
         writeAttribute("offset", pFieldLayout.getOffset());
         writeAttribute("size", pFieldLayout.getSize());
+        if (pFieldLayout.isVolatile())
+            writeAttribute("volatile", "true");
+        if (pFieldLayout.isContended())
+            writeAttribute("contended", "true");
     }
 }
@@ -0,0 +1,564 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.jol.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.myire.quill.common.Digests;
+
+
+/**
+ * The parts of a class file that determine the layout of the class's instances: the class name,
+ * the superclass name, and the instance fields. The position of the class in a hierarchy of nested
+ * classes is also parsed, since it is part of the layout report.
+ *<p>
+ * Instances are created by parsing the bytes of a class file, without loading the class. A digest
+ * of the bytes is kept, which allows changes to the class file to be detected.
+ */
+final class ClassFile
+{
+    static private final int MAGIC = 0xCAFEBABE;
+
+    static private final int ACC_STATIC = 0x0008;
+    static private final int ACC_VOLATILE = 0x0040;
+
+    // Constant pool tags.
+    static private final int CONSTANT_UTF8 = 1;
+    static private final int CONSTANT_INTEGER = 3;
+    static private final int CONSTANT_FLOAT = 4;
+    static private final int CONSTANT_LONG = 5;
+    static private final int CONSTANT_DOUBLE = 6;
+    static private final int CONSTANT_CLASS = 7;
+    static private final int CONSTANT_STRING = 8;
+    static private final int CONSTANT_FIELD_REF = 9;
+    static private final int CONSTANT_METHOD_REF = 10;
+    static private final int CONSTANT_INTERFACE_METHOD_REF = 11;
+    static private final int CONSTANT_NAME_AND_TYPE = 12;
+    static private final int CONSTANT_METHOD_HANDLE = 15;
+    static private final int CONSTANT_METHOD_TYPE = 16;
+    static private final int CONSTANT_DYNAMIC = 17;
+    static private final int CONSTANT_INVOKE_DYNAMIC = 18;
+    static private final int CONSTANT_MODULE = 19;
+    static private final int CONSTANT_PACKAGE = 20;
+
+    static private final String INNER_CLASSES_ATTRIBUTE = "InnerClasses";
+    static private final String ENCLOSING_METHOD_ATTRIBUTE = "EnclosingMethod";
+    static private final String RUNTIME_VISIBLE_ANNOTATIONS_ATTRIBUTE = "RuntimeVisibleAnnotations";
+    static private final String RUNTIME_INVISIBLE_ANNOTATIONS_ATTRIBUTE = "RuntimeInvisibleAnnotations";
+
+    // The descriptors of the Contended annotation in Java 8 and in Java 9 and later.
+    static private final String CONTENDED_DESCRIPTOR_JAVA8 = "Lsun/misc/Contended;";
+    static private final String CONTENDED_DESCRIPTOR = "Ljdk/internal/vm/annotation/Contended;";
+
+    private final String fName;
+    private final String fSuperClassName;
+    private final String fSimpleName;
+    private final String fEnclosingClassName;
+    private final List<Field> fFields;
+    private final byte[] fDigest;
+
+
+    private ClassFile(
+        String pName,
+        String pSuperClassName,
+        String pSimpleName,
+        String pEnclosingClassName,
+        List<Field> pFields,
+        byte[] pDigest)
+    {
+        fName = pName;
+        fSuperClassName = pSuperClassName;
+        fSimpleName = pSimpleName;
+        fEnclosingClassName = pEnclosingClassName;
+        fFields = pFields;
+        fDigest = pDigest;
+    }
+
+
+    /**
+     * Parse a class file.
+     *
+     * @param pStream   A stream with the contents of the class file. The stream is not closed.
+     *
+     * @return  A new {@code ClassFile}, never null.
+     *
+     * @throws IOException  if reading from the stream fails or if it doesn't contain a valid class
+     *                      file.
+     * @throws NullPointerException if {@code pStream} is null.
+     */
+    static ClassFile parse(InputStream pStream) throws IOException
+    {
+        // Class files are small, read the entire file to compute its digest before parsing it.
+        ByteArrayOutputStream aBytes = new ByteArrayOutputStream(4096);
+        byte[] aBuffer = new byte[8192];
+        int aNumBytes;
+        while ((aNumBytes = pStream.read(aBuffer)) > 0)
+            aBytes.write(aBuffer, 0, aNumBytes);
+
+        byte[] aClassFileBytes = aBytes.toByteArray();
+        byte[] aDigest = Digests.createDigest().digest(aClassFileBytes);
+
+        DataInputStream aInput = new DataInputStream(new ByteArrayInputStream(aClassFileBytes));
+        if (aInput.readInt() != MAGIC)
+            throw new IOException("Not a class file");
+
+        // Skip the minor and major versions.
+        aInput.readInt();
+
+        ConstantPool aConstantPool = ConstantPool.read(aInput);
+
+        // Skip the access flags.
+        aInput.readUnsignedShort();
+        String aName = aConstantPool.getClassName(aInput.readUnsignedShort());
+        String aSuperClassName = aConstantPool.getClassName(aInput.readUnsignedShort());
+
+        // Skip the interfaces.
+        int aNumInterfaces = aInput.readUnsignedShort();
+        skipFully(aInput, aNumInterfaces * 2L);
+
+        // Collect the instance fields.
+        int aNumFields = aInput.readUnsignedShort();
+        List<Field> aFields = new ArrayList<>(aNumFields);
+        for (int i=0; i<aNumFields; i++)
+        {
+            int aAccessFlags = aInput.readUnsignedShort();
+            String aFieldName = aConstantPool.getUtf8(aInput.readUnsignedShort());
+            String aDescriptor = aConstantPool.getUtf8(aInput.readUnsignedShort());
+            boolean aContended = readFieldAttributes(aInput, aConstantPool);
+            if ((aAccessFlags & ACC_STATIC) == 0)
+                aFields.add(
+                    new Field(
+                        aFieldName,
+                        toTypeName(aDescriptor),
+                        (aAccessFlags & ACC_VOLATILE) != 0,
+                        aContended));
+        }
+
+        // Skip the methods.
+        int aNumMethods = aInput.readUnsignedShort();
+        for (int i=0; i<aNumMethods; i++)
+        {
+            skipFully(aInput, 6);
+            skipAttributes(aInput);
+        }
+
+        // Find the simple name and any enclosing class in the class attributes. Top level classes
+        // have neither an InnerClasses entry for themselves nor an EnclosingMethod attribute.
+        String aSimpleName = aName.substring(aName.lastIndexOf('.') + 1);
+        String aEnclosingClassName = null;
+        int aNumAttributes = aInput.readUnsignedShort();
+        for (int i=0; i<aNumAttributes; i++)
+        {
+            String aAttributeName = aConstantPool.getUtf8(aInput.readUnsignedShort());
+            long aLength = aInput.readInt() & 0xFFFFFFFFL;
+            if (INNER_CLASSES_ATTRIBUTE.equals(aAttributeName))
+            {
+                int aNumClasses = aInput.readUnsignedShort();
+                for (int j=0; j<aNumClasses; j++)
+                {
+                    String aInnerClassName = aConstantPool.getClassName(aInput.readUnsignedShort());
+                    String aOuterClassName = aConstantPool.getClassName(aInput.readUnsignedShort());
+                    int aInnerNameIndex = aInput.readUnsignedShort();
+                    aInput.readUnsignedShort();
+                    if (aName.equals(aInnerClassName))
+                    {
+                        // Anonymous classes have no inner name.
+                        aSimpleName = aInnerNameIndex != 0 ? aConstantPool.getUtf8(aInnerNameIndex) : "";
+                        if (aOuterClassName != null)
+                            aEnclosingClassName = aOuterClassName;
+                    }
+                }
+            }
+            else if (ENCLOSING_METHOD_ATTRIBUTE.equals(aAttributeName))
+            {
+                // Local and anonymous classes have no outer class in their InnerClasses entry, their
+                // enclosing class is specified in this attribute.
+                aEnclosingClassName = aConstantPool.getClassName(aInput.readUnsignedShort());
+                aInput.readUnsignedShort();
+            }
+            else
+                skipFully(aInput, aLength);
+        }
+
+        return new ClassFile(aName, aSuperClassName, aSimpleName, aEnclosingClassName, aFields, aDigest);
+    }
+
+
+    /**
+     * Get the binary name of the class, e.g. &quot;org.myire.Outer$Inner&quot;.
+     *
+     * @return  The class name, never null.
+     */
+    String getName()
+    {
+        return fName;
+    }
+
+
+    /**
+     * Get the name of the package the class belongs to.
+     *
+     * @return  The package name, or an empty string if the class is in the unnamed package.
+     */
+    String getPackageName()
+    {
+        int aLastDotPos = fName.lastIndexOf('.');
+        return aLastDotPos > 0 ? fName.substring(0, aLastDotPos) : "";
+    }
+
+
+    /**
+     * Get the simple name of the class, as returned by {@code Class.getSimpleName()}.
+     *
+     * @return  The simple name, or an empty string if the class is anonymous.
+     */
+    String getSimpleName()
+    {
+        return fSimpleName;
+    }
+
+
+    /**
+     * Get the binary name of the class's superclass.
+     *
+     * @return  The superclass name, or null if the class is {@code java.lang.Object}.
+     */
+    String getSuperClassName()
+    {
+        return fSuperClassName;
+    }
+
+
+    /**
+     * Get the binary name of the class's immediately enclosing class.
+     *
+     * @return  The enclosing class name, or null if the class is a top level class.
+     */
+    String getEnclosingClassName()
+    {
+        return fEnclosingClassName;
+    }
+
+
+    /**
+     * Get the instance fields declared by the class, in declaration order.
+     *
+     * @return  An unmodifiable list with the fields, never null.
+     */
+    List<Field> getFields()
+    {
+        return Collections.unmodifiableList(fFields);
+    }
+
+
+    /**
+     * Get the SHA-256 digest of the class file's bytes.
+     *
+     * @return  The digest. The returned array must not be modified.
+     */
+    byte[] getDigest()
+    {
+        return fDigest;
+    }
+
+
+    /**
+     * Convert a field descriptor to the type name Jol uses for the field's type, e.g.
+     * &quot;int&quot;, &quot;java.lang.String&quot;, or &quot;long[][]&quot;.
+     *
+     * @param pDescriptor   The field descriptor.
+     *
+     * @return  The type name.
+     *
+     * @throws IOException  if the descriptor is malformed.
+     */
+    static private String toTypeName(String pDescriptor) throws IOException
+    {
+        int aNumDimensions = 0;
+        while (aNumDimensions < pDescriptor.length() && pDescriptor.charAt(aNumDimensions) == '[')
+            aNumDimensions++;
+
+        if (aNumDimensions >= pDescriptor.length())
+            throw new IOException("Invalid field descriptor: " + pDescriptor);
+
+        String aElementType;
+        switch (pDescriptor.charAt(aNumDimensions))
+        {
+            case 'B':   aElementType = "byte"; break;
+            case 'C':   aElementType = "char"; break;
+            case 'D':   aElementType = "double"; break;
+            case 'F':   aElementType = "float"; break;
+            case 'I':   aElementType = "int"; break;
+            case 'J':   aElementType = "long"; break;
+            case 'S':   aElementType = "short"; break;
+            case 'Z':   aElementType = "boolean"; break;
+            case 'L':   aElementType = pDescriptor.substring(aNumDimensions + 1, pDescriptor.length() - 1).replace('/', '.');
+                        break;
+            default:    throw new IOException("Invalid field descriptor: " + pDescriptor);
+        }
+
+        if (aNumDimensions == 0)
+            return aElementType;
+
+        StringBuilder aBuilder = new StringBuilder(aElementType.length() + aNumDimensions * 2);
+        aBuilder.append(aElementType);
+        for (int i=0; i<aNumDimensions; i++)
+            aBuilder.append("[]");
+
+        return aBuilder.toString();
+    }
+
+
+    /**
+     * Read the attributes of a field and check if the field is annotated with {@code @Contended}.
+     * Other attributes are skipped.
+     *
+     * @param pInput        The stream to read the attributes from.
+     * @param pConstantPool The class file's constant pool.
+     *
+     * @return  True if the field is annotated with {@code @Contended}, false if not.
+     *
+     * @throws IOException  if reading from the stream fails or if the attributes are invalid.
+     */
+    static private boolean readFieldAttributes(DataInputStream pInput, ConstantPool pConstantPool) throws IOException
+    {
+        boolean aContended = false;
+        int aNumAttributes = pInput.readUnsignedShort();
+        for (int i=0; i<aNumAttributes; i++)
+        {
+            String aAttributeName = pConstantPool.getUtf8(pInput.readUnsignedShort());
+            long aLength = pInput.readInt() & 0xFFFFFFFFL;
+            if (RUNTIME_VISIBLE_ANNOTATIONS_ATTRIBUTE.equals(aAttributeName)
+                ||
+                RUNTIME_INVISIBLE_ANNOTATIONS_ATTRIBUTE.equals(aAttributeName))
+            {
+                int aNumAnnotations = pInput.readUnsignedShort();
+                for (int j=0; j<aNumAnnotations; j++)
+                {
+                    String aType = readAnnotation(pInput, pConstantPool);
+                    if (CONTENDED_DESCRIPTOR.equals(aType) || CONTENDED_DESCRIPTOR_JAVA8.equals(aType))
+                        aContended = true;
+                }
+            }
+            else
+                skipFully(pInput, aLength);
+        }
+
+        return aContended;
+    }
+
+
+    /**
+     * Read an annotation and skip its element values.
+     *
+     * @param pInput        The stream to read the annotation from.
+     * @param pConstantPool The class file's constant pool.
+     *
+     * @return  The descriptor of the annotation's type, never null.
+     *
+     * @throws IOException  if reading from the stream fails or if the annotation is invalid.
+     */
+    static private String readAnnotation(DataInputStream pInput, ConstantPool pConstantPool) throws IOException
+    {
+        String aType = pConstantPool.getUtf8(pInput.readUnsignedShort());
+        int aNumElementValuePairs = pInput.readUnsignedShort();
+        for (int i=0; i<aNumElementValuePairs; i++)
+        {
+            // Skip the element name index.
+            pInput.readUnsignedShort();
+            skipElementValue(pInput, pConstantPool);
+        }
+
+        return aType;
+    }
+
+
+    static private void skipElementValue(DataInputStream pInput, ConstantPool pConstantPool) throws IOException
+    {
+        int aTag = pInput.readUnsignedByte();
+        switch (aTag)
+        {
+            case 'B':
+            case 'C':
+            case 'D':
+            case 'F':
+            case 'I':
+            case 'J':
+            case 'S':
+            case 'Z':
+            case 's':
+            case 'c':
+                // Constant value index or class info index.
+                skipFully(pInput, 2);
+                break;
+            case 'e':
+                // Type name index and constant name index.
+                skipFully(pInput, 4);
+                break;
+            case '@':
+                readAnnotation(pInput, pConstantPool);
+                break;
+            case '[':
+                int aNumValues = pInput.readUnsignedShort();
+                for (int i=0; i<aNumValues; i++)
+                    skipElementValue(pInput, pConstantPool);
+                break;
+            default:
+                throw new IOException("Invalid element value tag " + aTag);
+        }
+    }
+
+
+    static private void skipAttributes(DataInputStream pInput) throws IOException
+    {
+        int aNumAttributes = pInput.readUnsignedShort();
+        for (int i=0; i<aNumAttributes; i++)
+        {
+            pInput.readUnsignedShort();
+            skipFully(pInput, pInput.readInt() & 0xFFFFFFFFL);
+        }
+    }
+
+
+    static private void skipFully(DataInputStream pInput, long pNumBytes) throws IOException
+    {
+        long aRemaining = pNumBytes;
+        while (aRemaining > 0)
+        {
+            long aSkipped = pInput.skip(aRemaining);
+            if (aSkipped <= 0)
+            {
+                // Skip may return 0 before the end of the stream; read a byte to tell the
+                // difference.
+                pInput.readByte();
+                aSkipped = 1;
+            }
+            aRemaining -= aSkipped;
+        }
+    }
+
+
+    /**
+     * An instance field declared in a class file.
+     */
+    static final class Field
+    {
+        final String fName;
+        final String fType;
+        final boolean fVolatile;
+        final boolean fContended;
+
+        Field(String pName, String pType, boolean pVolatile, boolean pContended)
+        {
+            fName = pName;
+            fType = pType;
+            fVolatile = pVolatile;
+            fContended = pContended;
+        }
+    }
+
+
+    /**
+     * The UTF-8 and class entries of a class file's constant pool. Other entries are skipped, since
+     * the layout data only refers to those two kinds.
+     */
+    static private final class ConstantPool
+    {
+        private final String[] fUtf8Entries;
+        private final int[] fClassNameIndexes;
+
+        private ConstantPool(int pSize)
+        {
+            fUtf8Entries = new String[pSize];
+            fClassNameIndexes = new int[pSize];
+        }
+
+        static ConstantPool read(DataInputStream pInput) throws IOException
+        {
+            // The first entry is unused, and the entries are indexed from 1.
+            ConstantPool aConstantPool = new ConstantPool(pInput.readUnsignedShort());
+            for (int i=1; i<aConstantPool.fUtf8Entries.length; i++)
+            {
+                int aTag = pInput.readUnsignedByte();
+                switch (aTag)
+                {
+                    case CONSTANT_UTF8:
+                        // The class file format uses the same modified UTF-8 as readUTF().
+                        aConstantPool.fUtf8Entries[i] = pInput.readUTF();
+                        break;
+                    case CONSTANT_CLASS:
+                        aConstantPool.fClassNameIndexes[i] = pInput.readUnsignedShort();
+                        break;
+                    case CONSTANT_STRING:
+                    case CONSTANT_METHOD_TYPE:
+                    case CONSTANT_MODULE:
+                    case CONSTANT_PACKAGE:
+                        skipFully(pInput, 2);
+                        break;
+                    case CONSTANT_METHOD_HANDLE:
+                        skipFully(pInput, 3);
+                        break;
+                    case CONSTANT_INTEGER:
+                    case CONSTANT_FLOAT:
+                    case CONSTANT_FIELD_REF:
+                    case CONSTANT_METHOD_REF:
+                    case CONSTANT_INTERFACE_METHOD_REF:
+                    case CONSTANT_NAME_AND_TYPE:
+                    case CONSTANT_DYNAMIC:
+                    case CONSTANT_INVOKE_DYNAMIC:
+                        skipFully(pInput, 4);
+                        break;
+                    case CONSTANT_LONG:
+                    case CONSTANT_DOUBLE:
+                        // Eight byte constants occupy two entries.
+                        skipFully(pInput, 8);
+                        i++;
+                        break;
+                    default:
+                        throw new IOException("Invalid constant pool tag " + aTag + " at index " + i);
+                }
+            }
+
+            return aConstantPool;
+        }
+
+        String getUtf8(int pIndex) throws IOException
+        {
+            String aValue = pIndex > 0 && pIndex < fUtf8Entries.length ? fUtf8Entries[pIndex] : null;
+            if (aValue == null)
+                throw new IOException("Invalid UTF-8 constant index " + pIndex);
+
+            return aValue;
+        }
+
+        /**
+         * Get the binary name of a class entry, e.g. &quot;java.util.Map$Entry&quot;.
+         *
+         * @param pIndex    The index of the class entry, 0 meaning no class.
+         *
+         * @return  The class name, or null if {@code pIndex} is 0.
+         *
+         * @throws IOException  if {@code pIndex} doesn't refer to a class entry.
+         */
+        String getClassName(int pIndex) throws IOException
+        {
+            if (pIndex == 0)
+                return null;
+
+            if (pIndex >= fClassNameIndexes.length || fClassNameIndexes[pIndex] == 0)
+                throw new IOException("Invalid class constant index " + pIndex);
+
+            return getUtf8(fClassNameIndexes[pIndex]).replace('/', '.');
+        }
+    }
+}
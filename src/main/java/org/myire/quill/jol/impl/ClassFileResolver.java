@@ -0,0 +1,181 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.jol.impl;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import static java.util.Objects.requireNonNull;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+
+/**
+ * A resolver of class names to parsed {@code ClassFile} instances. The class files are read from a
+ * class path consisting of directories and jar files, or from the resources of a class loader.
+ * Classes not found on the class path are looked up among the classes of the executing JVM, which
+ * allows superclass chains to be followed into the JDK.
+ *<p>
+ * No classes are loaded; the class files are only read and parsed. Each class file is parsed at
+ * most once, and the resolver can be used from several threads concurrently.
+ */
+final class ClassFileResolver implements AutoCloseable
+{
+    static private final String CLASS_FILE_SUFFIX = ".class";
+
+    private final Logger fLogger = Logging.getLogger(ClassFileResolver.class);
+
+    private final List<File> fDirectories = new ArrayList<>();
+    private final List<JarFile> fJarFiles = new ArrayList<>();
+    private final ClassLoader fClassLoader;
+    private final Map<String, Optional<ClassFile>> fClassFiles = new ConcurrentHashMap<>();
+
+
+    /**
+     * Create a new {@code ClassFileResolver}. The jar files on the class path are opened, which
+     * reads their central directories once rather than for every class file lookup.
+     *
+     * @param pClassPath    The directories and jar files to read class files from, in lookup order.
+     *                      Non-existing files are ignored.
+     *
+     * @throws NullPointerException if {@code pClassPath} is null.
+     */
+    ClassFileResolver(Collection<File> pClassPath)
+    {
+        fClassLoader = null;
+        for (File aFile : pClassPath)
+        {
+            if (aFile.isDirectory())
+                fDirectories.add(aFile);
+            else if (aFile.isFile())
+            {
+                try
+                {
+                    fJarFiles.add(new JarFile(aFile, false));
+                }
+                catch (IOException ioe)
+                {
+                    fLogger.warn("Could not open class path entry {}", aFile.getAbsolutePath(), ioe);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Create a new {@code ClassFileResolver} that reads the class files from the resources of a
+     * class loader. This allows the class files of the classes a class loader can load to be
+     * parsed without loading the classes.
+     *
+     * @param pClassLoader  The class loader.
+     *
+     * @throws NullPointerException if {@code pClassLoader} is null.
+     */
+    ClassFileResolver(ClassLoader pClassLoader)
+    {
+        fClassLoader = requireNonNull(pClassLoader);
+    }
+
+
+    /**
+     * Get the parsed class file of a class.
+     *
+     * @param pClassName    The binary name of the class, e.g. &quot;org.myire.Outer$Inner&quot;.
+     *
+     * @return  The parsed class file, or null if the class file wasn't found or could not be
+     *          parsed.
+     *
+     * @throws NullPointerException if {@code pClassName} is null.
+     */
+    ClassFile resolve(String pClassName)
+    {
+        return fClassFiles.computeIfAbsent(pClassName, this::read).orElse(null);
+    }
+
+
+    /**
+     * Close the jar files on the class path.
+     */
+    @Override
+    public void close()
+    {
+        for (JarFile aJarFile : fJarFiles)
+        {
+            try
+            {
+                aJarFile.close();
+            }
+            catch (IOException ioe)
+            {
+                fLogger.debug("Could not close {}", aJarFile.getName(), ioe);
+            }
+        }
+    }
+
+
+    private Optional<ClassFile> read(String pClassName)
+    {
+        String aPath = pClassName.replace('.', '/') + CLASS_FILE_SUFFIX;
+        try (InputStream aStream = open(aPath))
+        {
+            if (aStream != null)
+                return Optional.of(ClassFile.parse(new BufferedInputStream(aStream)));
+
+            fLogger.debug("No class file found for {}", pClassName);
+        }
+        catch (IOException ioe)
+        {
+            fLogger.warn("Could not parse the class file of {}", pClassName, ioe);
+        }
+
+        return Optional.empty();
+    }
+
+
+    /**
+     * Open a stream to a class file.
+     *
+     * @param pPath The class file's path relative to the class path roots, with '/' as separator.
+     *
+     * @return  A stream to the class file, or null if the class file wasn't found.
+     *
+     * @throws IOException  if opening the class file fails.
+     */
+    private InputStream open(String pPath) throws IOException
+    {
+        for (File aDirectory : fDirectories)
+        {
+            File aFile = new File(aDirectory, pPath);
+            if (aFile.isFile())
+                return new FileInputStream(aFile);
+        }
+
+        for (JarFile aJarFile : fJarFiles)
+        {
+            ZipEntry aEntry = aJarFile.getEntry(pPath);
+            if (aEntry != null)
+                return aJarFile.getInputStream(aEntry);
+        }
+
+        if (fClassLoader != null)
+            return fClassLoader.getResourceAsStream(pPath);
+
+        // Fall back to the class files of the executing JVM. Class file resources are accessible
+        // also when they belong to a named module.
+        return ClassLoader.getSystemResourceAsStream(pPath);
+    }
+}
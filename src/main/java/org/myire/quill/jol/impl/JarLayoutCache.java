@@ -0,0 +1,232 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.jol.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import org.myire.quill.common.Digests;
+import org.myire.quill.jol.JolResult;
+
+
+/**
+ * An on-disk cache of the class layouts of the classes in jar files. Each cache entry holds the
+ * layouts of the classes in one jar file and is keyed by a digest of the jar file's contents, the
+ * package filters applied to the jar file, and the settings the layouts were analyzed with.
+ *<p>
+ * The layout of a class also depends on its superclasses, which may be located outside the jar
+ * file. Each entry therefore also holds the digests of the class files of those external
+ * superclasses, and an entry is only used if all these class files are unchanged.
+ *<p>
+ * The methods of this class may be called concurrently for different keys.
+ */
+class JarLayoutCache
+{
+    static private final String ENTRY_FILE_EXTENSION = ".jar-layouts";
+
+    private final File fDirectory;
+    private final byte[] fSettings;
+    private final Logger fLogger = Logging.getLogger(JarLayoutCache.class);
+
+
+    /**
+     * Create a new {@code JarLayoutCache}.
+     *
+     * @param pDirectory    The directory to store the cache entries in.
+     * @param pSettings     A string describing the settings the layouts are analyzed with, e.g.
+     *                      the data model and the version of Jol.
+     *
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    JarLayoutCache(File pDirectory, String pSettings)
+    {
+        fDirectory = pDirectory;
+        fSettings = pSettings.getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Compute the cache key for a jar file from its contents, the package filters, and the cache's
+     * settings.
+     *
+     * @param pJarFile          The jar file.
+     * @param pIncludedPackages The packages to include from the jar file.
+     * @param pExcludedPackages The packages to exclude from the jar file.
+     *
+     * @return  The jar file's cache key, never null.
+     *
+     * @throws IOException  if reading the jar file fails.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    String computeKey(
+        File pJarFile,
+        Collection<String> pIncludedPackages,
+        Collection<String> pExcludedPackages) throws IOException
+    {
+        MessageDigest aDigest = Digests.createDigest();
+        aDigest.update(fSettings);
+        aDigest.update((byte) 0);
+        for (String aPackage : pIncludedPackages)
+            aDigest.update(('+' + aPackage + '\n').getBytes(StandardCharsets.UTF_8));
+        for (String aPackage : pExcludedPackages)
+            aDigest.update(('-' + aPackage + '\n').getBytes(StandardCharsets.UTF_8));
+        aDigest.update((byte) 0);
+
+        byte[] aBuffer = new byte[8192];
+        try (InputStream aStream = new FileInputStream(pJarFile))
+        {
+            int aNumBytes;
+            while ((aNumBytes = aStream.read(aBuffer)) > 0)
+                aDigest.update(aBuffer, 0, aNumBytes);
+        }
+
+        return Digests.toHexString(aDigest.digest());
+    }
+
+
+    /**
+     * Get the class layouts stored in the cache for a key.
+     *
+     * @param pKey      The key.
+     * @param pResolver The resolver to get the current class files of the external superclasses
+     *                  from.
+     *
+     * @return  The class layouts, or null if the cache has no entry for the key, if the entry
+     *          cannot be read, or if any of the entry's external superclasses has changed.
+     *
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    List<JolResult.ClassLayout> get(String pKey, ClassFileResolver pResolver)
+    {
+        File aEntryFile = getEntryFile(pKey);
+        if (!aEntryFile.isFile())
+            return null;
+
+        try (DataInputStream aStream = new DataInputStream(new BufferedInputStream(new FileInputStream(aEntryFile))))
+        {
+            int aNumExternalClasses = aStream.readInt();
+            for (int i=0; i<aNumExternalClasses; i++)
+            {
+                String aClassName = aStream.readUTF();
+                byte[] aDigest = new byte[aStream.readUnsignedShort()];
+                aStream.readFully(aDigest);
+                ClassFile aClassFile = pResolver.resolve(aClassName);
+                if (aClassFile == null || !Arrays.equals(aDigest, aClassFile.getDigest()))
+                {
+                    fLogger.debug("External superclass {} has changed, ignoring cache entry {}", aClassName, pKey);
+                    return null;
+                }
+            }
+
+            int aNumClasses = aStream.readInt();
+            List<JolResult.ClassLayout> aClassLayouts = new ArrayList<>(aNumClasses);
+            for (int i=0; i<aNumClasses; i++)
+                aClassLayouts.add(LayoutCache.readClassLayout(aStream));
+
+            return aClassLayouts;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            fLogger.warn("Could not read the jar layout cache entry " + aEntryFile + ": " + e.getMessage());
+            aEntryFile.delete();
+            return null;
+        }
+    }
+
+
+    /**
+     * Store the class layouts of a jar file in the cache.
+     *
+     * @param pKey              The jar file's cache key.
+     * @param pClassLayouts     The layouts of the classes in the jar file.
+     * @param pExternalClasses  The digests of the class files of the superclasses outside the jar
+     *                          file, keyed by class name.
+     *
+     * @throws IOException  if writing the cache entry fails.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    void put(
+        String pKey,
+        Collection<JolResult.ClassLayout> pClassLayouts,
+        Map<String, byte[]> pExternalClasses) throws IOException
+    {
+        fDirectory.mkdirs();
+        File aEntryFile = getEntryFile(pKey);
+        try (DataOutputStream aStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(aEntryFile))))
+        {
+            aStream.writeInt(pExternalClasses.size());
+            for (Map.Entry<String, byte[]> aExternalClass : pExternalClasses.entrySet())
+            {
+                aStream.writeUTF(aExternalClass.getKey());
+                aStream.writeShort(aExternalClass.getValue().length);
+                aStream.write(aExternalClass.getValue());
+            }
+
+            aStream.writeInt(pClassLayouts.size());
+            for (JolResult.ClassLayout aClassLayout : pClassLayouts)
+                LayoutCache.writeClassLayout(aClassLayout, aStream);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            // Don't leave a partially written entry in the cache.
+            aEntryFile.delete();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Remove all entries from the cache except the ones with the specified keys.
+     *
+     * @param pKeys The keys of the entries to keep.
+     *
+     * @throws NullPointerException if {@code pKeys} is null.
+     */
+    void retain(Set<String> pKeys)
+    {
+        File[] aEntryFiles = fDirectory.listFiles((d, n) -> n.endsWith(ENTRY_FILE_EXTENSION));
+        if (aEntryFiles == null)
+            return;
+
+        for (File aEntryFile : aEntryFiles)
+        {
+            String aName = aEntryFile.getName();
+            if (!pKeys.contains(aName.substring(0, aName.length() - ENTRY_FILE_EXTENSION.length())))
+                aEntryFile.delete();
+        }
+    }
+
+
+    /**
+     * Get the file holding the cache entry for a key. The file may not exist.
+     *
+     * @param pKey  The key.
+     *
+     * @return  The entry file for the key, never null.
+     */
+    private File getEntryFile(String pKey)
+    {
+        return new File(fDirectory, pKey + ENTRY_FILE_EXTENSION);
+    }
+}
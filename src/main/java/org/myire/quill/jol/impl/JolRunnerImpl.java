@@ -1,15 +1,33 @@
 /*
- * Copyright 2020 Peter Franzen. All rights reserved.
+ * Copyright 2020, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
 package org.myire.quill.jol.impl;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.stream.Collectors;
 
 import org.gradle.api.logging.Logger;
@@ -21,6 +39,7 @@ import org.openjdk.jol.datamodel.X86_64_COOPS_DataModel;
 import org.openjdk.jol.datamodel.X86_64_DataModel;
 import org.openjdk.jol.info.ClassData;
 import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.FieldData;
 import org.openjdk.jol.info.FieldLayout;
 import org.openjdk.jol.layouters.CurrentLayouter;
 import org.openjdk.jol.layouters.HotSpotLayouter;
@@ -41,6 +60,18 @@ import org.myire.quill.jol.JolRunner;
  */
 public class JolRunnerImpl implements JolRunner
 {
+    // The number of batches to divide the classes into per thread when analyzing in parallel. More
+    // batches than threads evens out the load when the classes differ in complexity.
+    static private final int BATCHES_PER_THREAD = 4;
+
+    static private final String CLASS_FILE_SUFFIX = ".class";
+    static private final String MODULE_INFO_FILE_NAME = "module-info.class";
+    static private final String META_INF_DIRECTORY = "META-INF/";
+
+    // The Contended annotation in Java 8 and in Java 9 and later.
+    static private final String CONTENDED_ANNOTATION_JAVA8 = "sun.misc.Contended";
+    static private final String CONTENDED_ANNOTATION = "jdk.internal.vm.annotation.Contended";
+
     private String fToolVersion = "unknown";
 
     private final Logger fLogger = Logging.getLogger(JolRunnerImpl.class);
@@ -54,7 +85,240 @@ public class JolRunnerImpl implements JolRunner
 
 
     @Override
-    public JolResult analyze(Collection<String> pClasses, JolParameters pParameters)
+    public JolResult analyze(Collection<String> pClasses, JolParameters pParameters, File pCacheDirectory)
+    {
+        if (pCacheDirectory == null)
+            return analyze(pClasses, pParameters, this::analyzeClass);
+
+        // The cache keys are computed from the class files of the classes to analyze, which are
+        // available as resources from the class loader that the classes will be loaded from.
+        try (ClassFileResolver aResolver = new ClassFileResolver(JolRunnerImpl.class.getClassLoader()))
+        {
+            return analyzeIncrementally(
+                pClasses,
+                pParameters,
+                this::analyzeClass,
+                pCacheDirectory,
+                aResolver);
+        }
+    }
+
+
+    @Override
+    public JolResult analyzeClassFiles(
+        Collection<String> pClasses,
+        Collection<File> pClassPath,
+        JolParameters pParameters,
+        File pCacheDirectory)
+    {
+        // The actual layout of the executing JVM can only be determined for loaded classes.
+        if (pParameters.usesCurrentLayout())
+            throw new IllegalArgumentException("The current layout cannot be used when analyzing class files");
+
+        try (ClassFileResolver aResolver = new ClassFileResolver(pClassPath))
+        {
+            ClassAnalyzer aAnalyzer = (c, l) -> analyzeClassFile(c, l, aResolver);
+            if (pCacheDirectory == null)
+                return analyze(pClasses, pParameters, aAnalyzer);
+            else
+                return analyzeIncrementally(pClasses, pParameters, aAnalyzer, pCacheDirectory, aResolver);
+        }
+    }
+
+
+    @Override
+    public void analyzeJars(
+        Collection<File> pJars,
+        Collection<String> pIncludedPackages,
+        Collection<String> pExcludedPackages,
+        Collection<File> pClassPath,
+        JolParameters pParameters,
+        File pCacheDirectory,
+        JolResult pResult)
+    {
+        if (pParameters.fLayout == JolParameters.Layout.CURRENT)
+            throw new IllegalArgumentException("The current layout cannot be used when analyzing jar files");
+
+        // Any layout matrix only applies to the main classes, not to the dependencies.
+        JolParameters aParameters = pParameters.withoutMatrix();
+        JarLayoutCache aCache =
+            pCacheDirectory != null ? new JarLayoutCache(pCacheDirectory, createCacheSettings(aParameters)) : null;
+        Set<String> aUsedKeys = new HashSet<>();
+
+        // The classes in the jar files may extend classes in the other jar files or in the class
+        // path.
+        List<File> aClassPath = new ArrayList<>(pJars);
+        aClassPath.addAll(pClassPath);
+        try (ClassFileResolver aResolver = new ClassFileResolver(aClassPath))
+        {
+            for (File aJar : pJars)
+            {
+                if (!aJar.isFile())
+                    continue;
+
+                JolResult aJarResult =
+                    analyzeJar(aJar, pIncludedPackages, pExcludedPackages, aParameters, aCache, aUsedKeys, aResolver);
+                if (aJarResult != null)
+                    pResult.addDependency(aJar.getName(), aJarResult);
+            }
+        }
+
+        if (aCache != null)
+            aCache.retain(aUsedKeys);
+    }
+
+
+    /**
+     * Analyze the classes in a jar file, or get their layouts from the cache if the jar file and
+     * the external superclasses of its classes are unchanged since they were cached.
+     *
+     * @param pJar              The jar file.
+     * @param pIncludedPackages The packages to analyze the classes of.
+     * @param pExcludedPackages The packages not to analyze the classes of.
+     * @param pParameters       The analysis parameters.
+     * @param pCache            The cache of jar file layouts, or null if no cache should be used.
+     * @param pUsedKeys         A set to add the cache key of the jar file to.
+     * @param pResolver         The resolver to read the class files with.
+     *
+     * @return  The result of the analysis, or null if the jar file could not be read.
+     */
+    private JolResult analyzeJar(
+        File pJar,
+        Collection<String> pIncludedPackages,
+        Collection<String> pExcludedPackages,
+        JolParameters pParameters,
+        JarLayoutCache pCache,
+        Set<String> pUsedKeys,
+        ClassFileResolver pResolver)
+    {
+        String aKey = null;
+        if (pCache != null)
+        {
+            try
+            {
+                aKey = pCache.computeKey(pJar, pIncludedPackages, pExcludedPackages);
+                pUsedKeys.add(aKey);
+                List<JolResult.ClassLayout> aCachedLayouts = pCache.get(aKey, pResolver);
+                if (aCachedLayouts != null)
+                {
+                    fLogger.debug("Using the cached layouts of the classes in {}", pJar.getName());
+                    JolResult aResult = new JolResult(fToolVersion, createLayouter(pParameters).toString());
+                    aCachedLayouts.forEach(aResult::add);
+                    return aResult;
+                }
+            }
+            catch (IOException ioe)
+            {
+                fLogger.warn("Could not compute the cache key of {}", pJar.getAbsolutePath(), ioe);
+            }
+        }
+
+        List<String> aJarClasses;
+        try
+        {
+            aJarClasses = getClassNames(pJar);
+        }
+        catch (IOException ioe)
+        {
+            fLogger.error("Could not read the jar file {}", pJar.getAbsolutePath(), ioe);
+            return null;
+        }
+
+        List<String> aClasses = new ArrayList<>();
+        for (String aClassName : aJarClasses)
+            if (isIncluded(getPackageName(aClassName), pIncludedPackages, pExcludedPackages))
+                aClasses.add(aClassName);
+
+        fLogger.debug("Analyzing {} of the {} classes in {}", aClasses.size(), aJarClasses.size(), pJar.getName());
+        JolResult aResult = analyze(aClasses, pParameters, (c, l) -> analyzeClassFile(c, l, pResolver));
+
+        if (aKey != null)
+        {
+            try
+            {
+                pCache.put(aKey, getClassLayouts(aResult), getExternalSuperClasses(aClasses, aJarClasses, pResolver));
+            }
+            catch (IOException ioe)
+            {
+                fLogger.warn("Could not cache the layouts of the classes in {}", pJar.getAbsolutePath(), ioe);
+            }
+        }
+
+        return aResult;
+    }
+
+
+    /**
+     * Analyze a collection of classes and report their object layout, using the layouts cached
+     * for classes whose class files and superclass files are unchanged since the previous analysis.
+     *
+     * @param pClasses          The fully qualified names of the classes to analyze.
+     * @param pParameters       The analysis parameters.
+     * @param pAnalyzer         The analyzer of the classes not found in the cache.
+     * @param pCacheDirectory   The directory containing the layout cache.
+     * @param pResolver         The resolver to get the class files to compute the cache keys from
+     *                          with.
+     *
+     * @return  A new {@code JolResult} with the analysis result, never null.
+     */
+    private JolResult analyzeIncrementally(
+        Collection<String> pClasses,
+        JolParameters pParameters,
+        ClassAnalyzer pAnalyzer,
+        File pCacheDirectory,
+        ClassFileResolver pResolver)
+    {
+        if (!pParameters.fMatrix.isEmpty())
+        {
+            // The cache holds one layout per class, and the classes must be analyzed anyway to lay
+            // them out with the layouts in the matrix.
+            fLogger.info("The layout cache is not used when analyzing with a layout matrix");
+            return analyze(pClasses, pParameters, pAnalyzer);
+        }
+
+        LayoutCache aCache = new LayoutCache(pCacheDirectory, createCacheSettings(pParameters));
+        aCache.load();
+
+        JolResult aResult = analyze(
+            pClasses,
+            pParameters,
+            (c, l) -> {
+                // Classes whose class file hierarchy isn't available have no key and are always
+                // analyzed.
+                String aKey = aCache.computeKey(c, pResolver);
+                JolResult.ClassLayout aClassLayout = aKey != null ? aCache.get(aKey) : null;
+                if (aClassLayout != null)
+                    return Collections.singletonList(aClassLayout);
+
+                List<JolResult.ClassLayout> aClassLayouts = pAnalyzer.analyze(c, l);
+                if (aClassLayouts != null && aKey != null)
+                    aCache.put(aKey, aClassLayouts.get(0));
+
+                return aClassLayouts;
+            });
+
+        fLogger.debug(
+            "Reused the cached layouts of {} of {} classes",
+            aCache.getNumRetrievedEntries(),
+            pClasses.size());
+        aCache.save();
+        return aResult;
+    }
+
+
+    /**
+     * Analyze a collection of classes and report their object layout.
+     *
+     * @param pClasses      The fully qualified names of the classes to analyze.
+     * @param pParameters   The analysis parameters.
+     * @param pAnalyzer     The analyzer of the individual classes.
+     *
+     * @return  A new {@code JolResult} with the analysis result, never null.
+     */
+    private JolResult analyze(
+        Collection<String> pClasses,
+        JolParameters pParameters,
+        ClassAnalyzer pAnalyzer)
     {
         // Jol writes to System.out during execution, capture that output and log it properly after
         // the analysis has finished.
@@ -65,20 +329,27 @@ public class JolRunnerImpl implements JolRunner
 
         try
         {
-            // Create the Layouter specified by the parameters.
-            Layouter aLayouter = createLayouter(pParameters);
+            // Create the Layouter specified by the parameters, followed by the Layouters of any
+            // matrix, and one result per Layouter.
+            List<Layouter> aLayouters = new ArrayList<>(1 + pParameters.fMatrix.size());
+            aLayouters.add(createLayouter(pParameters));
+            for (JolParameters aMatrixParameters : pParameters.fMatrix)
+                aLayouters.add(createLayouter(aMatrixParameters));
 
-            // Load all classes to analyze and perform the layout analysis/simulation.
-            JolResult aResult = new JolResult(fToolVersion, aLayouter.toString());
-            for (String aClassName : pClasses)
-            {
-                Class<?> aClass = loadClass(aClassName);
-                if (aClass != null)
-                {
-                    ClassLayout aClassLayout = aLayouter.layout(ClassData.parseClass(aClass));
-                    aResult.add(toResult(aClass, aClassLayout));
-                }
-            }
+            List<JolResult> aResults = new ArrayList<>(aLayouters.size());
+            for (Layouter aLayouter : aLayouters)
+                aResults.add(new JolResult(fToolVersion, aLayouter.toString()));
+
+            // Perform the layout analysis/simulation of all classes to analyze.
+            List<String> aClasses = new ArrayList<>(pClasses);
+            if (pParameters.fMaxParallelism > 1 && aClasses.size() > 1)
+                analyzeInParallel(aClasses, aLayouters, pAnalyzer, pParameters.fMaxParallelism, aResults);
+            else
+                analyzeClasses(aClasses, aLayouters, pAnalyzer, aResults);
+
+            JolResult aResult = aResults.get(0);
+            for (int i=1; i<aResults.size(); i++)
+                aResult.addMatrixResult(aResults.get(i));
 
             return aResult;
         }
@@ -96,6 +367,192 @@ public class JolRunnerImpl implements JolRunner
     }
 
 
+    /**
+     * Analyze the layout of classes on the calling thread.
+     *
+     * @param pClasses      The fully qualified names of the classes to analyze.
+     * @param pLayouters    The layouters to analyze the classes with.
+     * @param pAnalyzer     The analyzer of the individual classes.
+     * @param pResults      The results to add the class layouts to, one per layouter.
+     */
+    static private void analyzeClasses(
+        List<String> pClasses,
+        List<Layouter> pLayouters,
+        ClassAnalyzer pAnalyzer,
+        List<JolResult> pResults)
+    {
+        for (String aClassName : pClasses)
+        {
+            List<JolResult.ClassLayout> aClassLayouts = pAnalyzer.analyze(aClassName, pLayouters);
+            if (aClassLayouts != null)
+                for (int i=0; i<aClassLayouts.size(); i++)
+                    pResults.get(i).add(aClassLayouts.get(i));
+        }
+    }
+
+
+    /**
+     * Analyze the layout of classes in parallel. The classes are divided into batches, which are
+     * analyzed on a thread pool. The layouters have no mutable state and can be shared between the
+     * threads, and the result supports concurrent additions. Since the result sorts the layouts,
+     * it is identical to the result of a serial analysis.
+     *
+     * @param pClasses          The fully qualified names of the classes to analyze.
+     * @param pLayouters        The layouters to analyze the classes with.
+     * @param pAnalyzer         The analyzer of the individual classes.
+     * @param pMaxParallelism   The maximum number of threads to use.
+     * @param pResults          The results to add the class layouts to, one per layouter.
+     *
+     * @throws IllegalStateException    if the calling thread is interrupted while waiting for the
+     *                                  analysis to finish.
+     */
+    private void analyzeInParallel(
+        List<String> pClasses,
+        List<Layouter> pLayouters,
+        ClassAnalyzer pAnalyzer,
+        int pMaxParallelism,
+        List<JolResult> pResults)
+    {
+        int aNumBatches = Math.min(pClasses.size(), pMaxParallelism * BATCHES_PER_THREAD);
+        fLogger.debug(
+            "Analyzing {} classes in {} batches using at most {} threads",
+            pClasses.size(),
+            aNumBatches,
+            pMaxParallelism);
+
+        ExecutorService aExecutor = Executors.newFixedThreadPool(Math.min(pMaxParallelism, aNumBatches));
+        try
+        {
+            List<Future<?>> aResults = new ArrayList<>(aNumBatches);
+            for (int i=0; i<aNumBatches; i++)
+            {
+                List<String> aBatch =
+                    pClasses.subList(
+                        i * pClasses.size() / aNumBatches,
+                        (i + 1) * pClasses.size() / aNumBatches);
+                aResults.add(aExecutor.submit(() -> analyzeClasses(aBatch, pLayouters, pAnalyzer, pResults)));
+            }
+
+            for (Future<?> aResult : aResults)
+                aResult.get();
+        }
+        catch (ExecutionException e)
+        {
+            Throwable aCause = e.getCause();
+            if (aCause instanceof Error)
+                throw (Error) aCause;
+            else if (aCause instanceof RuntimeException)
+                throw (RuntimeException) aCause;
+            else
+                throw new IllegalStateException("Could not analyze classes", aCause);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while analyzing classes", e);
+        }
+        finally
+        {
+            aExecutor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Load a class and analyze its layout. The class is parsed once and laid out with each of the
+     * layouters.
+     *
+     * @param pClassName    The fully qualified name of the class.
+     * @param pLayouters    The layouters to analyze the class with.
+     *
+     * @return  The layouts of the class, one per layouter, or null if the class could not be
+     *          loaded.
+     */
+    private List<JolResult.ClassLayout> analyzeClass(String pClassName, List<Layouter> pLayouters)
+    {
+        Class<?> aClass = loadClass(pClassName);
+        if (aClass == null)
+            return null;
+
+        ClassData aClassData = ClassData.parseClass(aClass);
+        FieldModifiers aModifiers = getFieldModifiers(aClass);
+        List<JolResult.ClassLayout> aClassLayouts = new ArrayList<>(pLayouters.size());
+        for (Layouter aLayouter : pLayouters)
+            aClassLayouts.add(toResult(aClass, aLayouter.layout(aClassData), aModifiers));
+
+        return aClassLayouts;
+    }
+
+
+    /**
+     * Analyze the layout of a class from its class file, without loading the class. The class file
+     * is parsed once and laid out with each of the layouters.
+     *
+     * @param pClassName    The fully qualified name of the class.
+     * @param pLayouters    The layouters to analyze the class with.
+     * @param pResolver     The resolver to read the class file and its superclasses' class files
+     *                      with.
+     *
+     * @return  The layouts of the class, one per layouter, or null if the class file could not be
+     *          read.
+     */
+    private List<JolResult.ClassLayout> analyzeClassFile(
+        String pClassName,
+        List<Layouter> pLayouters,
+        ClassFileResolver pResolver)
+    {
+        ClassFile aClassFile = pResolver.resolve(pClassName);
+        if (aClassFile == null)
+        {
+            fLogger.error("Could not read the class file of {} for layout analysis", pClassName);
+            return null;
+        }
+
+        ClassData aClassData = toClassData(aClassFile, pResolver);
+        FieldModifiers aModifiers = getFieldModifiers(aClassFile, pResolver);
+        List<JolResult.ClassLayout> aClassLayouts = new ArrayList<>(pLayouters.size());
+        for (Layouter aLayouter : pLayouters)
+            aClassLayouts.add(toResult(aClassFile, aLayouter.layout(aClassData), pResolver, aModifiers));
+
+        return aClassLayouts;
+    }
+
+
+    /**
+     * Create the Jol class data of a class file. The fields of the class's superclasses are added
+     * in the same way as {@code ClassData.parseClass()} adds them for a loaded class.
+     *
+     * @param pClassFile    The class file.
+     * @param pResolver     The resolver to read the superclasses' class files with.
+     *
+     * @return  A new {@code ClassData}, never null.
+     */
+    private ClassData toClassData(ClassFile pClassFile, ClassFileResolver pResolver)
+    {
+        ClassData aClassData = new ClassData(pClassFile.getName());
+        ClassFile aClassFile = pClassFile;
+        while (aClassFile != null)
+        {
+            for (ClassFile.Field aField : aClassFile.getFields())
+                aClassData.addField(FieldData.create(aClassFile.getName(), aField.fName, aField.fType));
+
+            aClassData.addSuperClass(aClassFile.getName());
+
+            String aSuperClassName = aClassFile.getSuperClassName();
+            if (aSuperClassName == null)
+                break;
+
+            aClassFile = pResolver.resolve(aSuperClassName);
+            if (aClassFile == null)
+                fLogger.warn("Superclass {} of {} not found, its fields are not part of the layout",
+                             aSuperClassName,
+                             pClassFile.getName());
+        }
+
+        return aClassData;
+    }
+
+
     /**
      * Load a class.
      *
@@ -124,23 +581,90 @@ public class JolRunnerImpl implements JolRunner
      *
      * @param pClass        The analyzed class.
      * @param pClassLayout  The result of the class layout analysis.
+     * @param pModifiers    The modifiers of the fields in the class's hierarchy.
+     *
+     * @return  A new {@code JolResult.ClassLayout}, never null.
+     *
+     * @throws NullPointerException if any of the parameter is null.
+     */
+    static private JolResult.ClassLayout toResult(
+        Class<?> pClass,
+        ClassLayout pClassLayout,
+        FieldModifiers pModifiers)
+    {
+        return toResult(
+            pClass.getSimpleName(),
+            getPackageName(pClass),
+            getEnclosingClassName(pClass),
+            pClass.getName(),
+            pClassLayout,
+            pModifiers);
+    }
+
+
+    /**
+     * Create a {@code JolResult.ClassLayout} instance from a {@code ClassFile} and a
+     * {@code ClassLayout}.
+     *
+     * @param pClassFile    The analyzed class file.
+     * @param pClassLayout  The result of the class layout analysis.
+     * @param pResolver     The resolver to read the class files of enclosing classes with.
+     * @param pModifiers    The modifiers of the fields in the class's hierarchy.
      *
      * @return  A new {@code JolResult.ClassLayout}, never null.
      *
      * @throws NullPointerException if any of the parameter is null.
      */
-    static private JolResult.ClassLayout toResult(Class<?> pClass, ClassLayout pClassLayout)
+    static private JolResult.ClassLayout toResult(
+        ClassFile pClassFile,
+        ClassLayout pClassLayout,
+        ClassFileResolver pResolver,
+        FieldModifiers pModifiers)
+    {
+        return toResult(
+            pClassFile.getSimpleName(),
+            pClassFile.getPackageName(),
+            getEnclosingClassName(pClassFile, pResolver),
+            pClassFile.getName(),
+            pClassLayout,
+            pModifiers);
+    }
+
+
+    /**
+     * Create a {@code JolResult.ClassLayout} instance from the names of a class and a
+     * {@code ClassLayout}.
+     *
+     * @param pSimpleName           The simple name of the analyzed class.
+     * @param pPackageName          The name of the analyzed class's package.
+     * @param pEnclosingClassName   The name of the analyzed class's enclosing class, possibly null.
+     * @param pBinaryName           The binary name of the analyzed class.
+     * @param pClassLayout          The result of the class layout analysis.
+     * @param pModifiers            The modifiers of the fields in the class's hierarchy.
+     *
+     * @return  A new {@code JolResult.ClassLayout}, never null.
+     *
+     * @throws NullPointerException if {@code pClassLayout} or {@code pModifiers} is null.
+     */
+    static private JolResult.ClassLayout toResult(
+        String pSimpleName,
+        String pPackageName,
+        String pEnclosingClassName,
+        String pBinaryName,
+        ClassLayout pClassLayout,
+        FieldModifiers pModifiers)
     {
         Collection<JolResult.FieldLayout> aFields =
             pClassLayout.fields()
                 .stream()
-                .map(JolRunnerImpl::toResult)
+                .map(f -> toResult(f, pModifiers))
                 .collect(Collectors.toList());
 
         return new JolResult.ClassLayout(
-            pClass.getSimpleName(),
-            getPackageName(pClass),
-            getEnclosingClassName(pClass),
+            pSimpleName,
+            pPackageName,
+            pEnclosingClassName,
+            pBinaryName,
             pClassLayout.headerSize(),
             pClassLayout.instanceSize(),
             aFields);
@@ -151,22 +675,249 @@ public class JolRunnerImpl implements JolRunner
      * Create a {@code JolResult.FieldLayout} instance from a {@code FieldLayout}.
      *
      * @param pFieldLayout  The result of the field layout analysis.
+     * @param pModifiers    The modifiers of the fields in the class's hierarchy.
      *
      * @return  A new {@code JolResult.FieldLayout}, never null.
      *
-     * @throws NullPointerException if {@code pFieldLayout} is null.
+     * @throws NullPointerException if any of the parameters is null.
      */
-    static private JolResult.FieldLayout toResult(FieldLayout pFieldLayout)
+    static private JolResult.FieldLayout toResult(FieldLayout pFieldLayout, FieldModifiers pModifiers)
     {
+        int aModifiers = pModifiers.get(pFieldLayout.hostClass(), pFieldLayout.name());
         return new JolResult.FieldLayout(
             pFieldLayout.name(),
             pFieldLayout.typeClass(),
             pFieldLayout.offset(),
-            pFieldLayout.size()
+            pFieldLayout.size(),
+            (aModifiers & FieldModifiers.VOLATILE) != 0,
+            (aModifiers & FieldModifiers.CONTENDED) != 0
         );
     }
 
 
+    /**
+     * Get the modifiers of the instance fields in the hierarchy of a loaded class.
+     *
+     * @param pClass    The class.
+     *
+     * @return  A new {@code FieldModifiers}, never null.
+     */
+    static private FieldModifiers getFieldModifiers(Class<?> pClass)
+    {
+        FieldModifiers aModifiers = new FieldModifiers();
+        for (Class<?> aClass = pClass; aClass != null; aClass = aClass.getSuperclass())
+        {
+            for (Field aField : aClass.getDeclaredFields())
+            {
+                if (Modifier.isStatic(aField.getModifiers()))
+                    continue;
+
+                boolean aContended = false;
+                for (Annotation aAnnotation : aField.getAnnotations())
+                {
+                    String aName = aAnnotation.annotationType().getName();
+                    if (CONTENDED_ANNOTATION.equals(aName) || CONTENDED_ANNOTATION_JAVA8.equals(aName))
+                        aContended = true;
+                }
+
+                aModifiers.add(aClass.getName(), aField.getName(), Modifier.isVolatile(aField.getModifiers()), aContended);
+            }
+        }
+
+        return aModifiers;
+    }
+
+
+    /**
+     * Get the modifiers of the instance fields in the hierarchy of a class file. Superclasses whose
+     * class files cannot be read are ignored.
+     *
+     * @param pClassFile    The class file.
+     * @param pResolver     The resolver to read the superclasses' class files with.
+     *
+     * @return  A new {@code FieldModifiers}, never null.
+     */
+    static private FieldModifiers getFieldModifiers(ClassFile pClassFile, ClassFileResolver pResolver)
+    {
+        FieldModifiers aModifiers = new FieldModifiers();
+        ClassFile aClassFile = pClassFile;
+        while (aClassFile != null)
+        {
+            for (ClassFile.Field aField : aClassFile.getFields())
+                aModifiers.add(aClassFile.getName(), aField.fName, aField.fVolatile, aField.fContended);
+
+            String aSuperClassName = aClassFile.getSuperClassName();
+            aClassFile = aSuperClassName != null ? pResolver.resolve(aSuperClassName) : null;
+        }
+
+        return aModifiers;
+    }
+
+
+    /**
+     * Get the fully qualified names of the classes in a jar file. The entries of the jar file are
+     * read from its central directory, no entries are extracted. Module descriptors and entries
+     * under META-INF, e.g. version specific classes in multi-release jar files, are excluded.
+     *
+     * @param pJar  The jar file.
+     *
+     * @return  A list with the class names, never null.
+     *
+     * @throws IOException  if reading the jar file fails.
+     */
+    static private List<String> getClassNames(File pJar) throws IOException
+    {
+        List<String> aClassNames = new ArrayList<>();
+        try (JarFile aJarFile = new JarFile(pJar, false))
+        {
+            Enumeration<JarEntry> aEntries = aJarFile.entries();
+            while (aEntries.hasMoreElements())
+            {
+                String aName = aEntries.nextElement().getName();
+                if (aName.endsWith(CLASS_FILE_SUFFIX)
+                    && !aName.startsWith(META_INF_DIRECTORY)
+                    && !aName.endsWith(MODULE_INFO_FILE_NAME))
+                {
+                    aName = aName.substring(0, aName.length() - CLASS_FILE_SUFFIX.length());
+                    aClassNames.add(aName.replace('/', '.'));
+                }
+            }
+        }
+
+        return aClassNames;
+    }
+
+
+    /**
+     * Check if a package passes a package filter.
+     *
+     * @param pPackageName      The name of the package.
+     * @param pIncludedPackages The included packages, an empty collection means all packages.
+     * @param pExcludedPackages The excluded packages.
+     *
+     * @return  True if the package is in one of the included packages and not in any of the
+     *          excluded packages.
+     */
+    static private boolean isIncluded(
+        String pPackageName,
+        Collection<String> pIncludedPackages,
+        Collection<String> pExcludedPackages)
+    {
+        if (!pIncludedPackages.isEmpty() && pIncludedPackages.stream().noneMatch(p -> isInPackage(pPackageName, p)))
+            return false;
+
+        return pExcludedPackages.stream().noneMatch(p -> isInPackage(pPackageName, p));
+    }
+
+
+    /**
+     * Check if a package is equal to or a subpackage of another package.
+     *
+     * @param pPackageName  The name of the package to check.
+     * @param pParentName   The name of the possible parent package.
+     *
+     * @return  True if {@code pPackageName} is {@code pParentName} or one of its subpackages.
+     */
+    static private boolean isInPackage(String pPackageName, String pParentName)
+    {
+        if (!pPackageName.startsWith(pParentName))
+            return false;
+
+        return pPackageName.length() == pParentName.length() || pPackageName.charAt(pParentName.length()) == '.';
+    }
+
+
+    /**
+     * Get the name of a class's package from the class's fully qualified name.
+     *
+     * @param pClassName    The fully qualified class name.
+     *
+     * @return  The package name, or an empty string if the class is in the unnamed package.
+     */
+    static private String getPackageName(String pClassName)
+    {
+        int aLastDotPos = pClassName.lastIndexOf('.');
+        return aLastDotPos > 0 ? pClassName.substring(0, aLastDotPos) : "";
+    }
+
+
+    /**
+     * Get the class layouts of all classes in a result.
+     *
+     * @param pResult   The result.
+     *
+     * @return  A list with the class layouts, never null.
+     */
+    static private List<JolResult.ClassLayout> getClassLayouts(JolResult pResult)
+    {
+        List<JolResult.ClassLayout> aClassLayouts = new ArrayList<>();
+        for (JolResult.PackageLayout aPackageLayout : pResult.getPackages())
+            for (JolResult.ClassLayout aClassLayout : aPackageLayout.getClasses())
+                aClassLayouts.add(aClassLayout);
+
+        return aClassLayouts;
+    }
+
+
+    /**
+     * Get the superclasses of a collection of classes that are not located in the same jar file
+     * as the classes.
+     *
+     * @param pClasses      The names of the classes.
+     * @param pJarClasses   The names of all classes in the jar file.
+     * @param pResolver     The resolver to read the class files with.
+     *
+     * @return  A map from the names of the external superclasses to the digests of their class
+     *          files, never null.
+     */
+    static private Map<String, byte[]> getExternalSuperClasses(
+        Collection<String> pClasses,
+        Collection<String> pJarClasses,
+        ClassFileResolver pResolver)
+    {
+        Set<String> aJarClasses = new HashSet<>(pJarClasses);
+        Map<String, byte[]> aExternalClasses = new LinkedHashMap<>();
+        for (String aClassName : pClasses)
+        {
+            ClassFile aClassFile = pResolver.resolve(aClassName);
+            while (aClassFile != null && aClassFile.getSuperClassName() != null)
+            {
+                String aSuperClassName = aClassFile.getSuperClassName();
+                aClassFile = pResolver.resolve(aSuperClassName);
+                if (aClassFile != null && !aJarClasses.contains(aSuperClassName))
+                    aExternalClasses.put(aSuperClassName, aClassFile.getDigest());
+            }
+        }
+
+        return aExternalClasses;
+    }
+
+
+    /**
+     * Create a string describing the settings that affect the result of a class layout analysis.
+     *
+     * @param pParameters   The analysis parameters.
+     *
+     * @return  A new string, never null.
+     */
+    private String createCacheSettings(JolParameters pParameters)
+    {
+        StringBuilder aBuilder = new StringBuilder("jol ").append(fToolVersion);
+        aBuilder.append(" format ").append(LayoutCache.FORMAT_VERSION);
+        aBuilder.append(' ').append(pParameters.fLayout);
+        aBuilder.append(' ').append(pParameters.fDataModel);
+        aBuilder.append(' ').append(pParameters.fAlignment);
+        if (pParameters.fLayout == JolParameters.Layout.CURRENT)
+        {
+            // The actual layout depends on the executing JVM.
+            aBuilder.append(' ').append(System.getProperty("java.vm.name"));
+            aBuilder.append(' ').append(System.getProperty("java.vm.version"));
+        }
+
+        return aBuilder.toString();
+    }
+
+
     /**
      * Create a new {@code Layouter} instance.
      *
@@ -244,37 +995,149 @@ public class JolRunnerImpl implements JolRunner
      */
     static private String getEnclosingClassName(Class<?> pClass)
     {
-        // Create a list of the hierarchy of enclosing classes with the top level class last in
-        // the list.
-        int aNumClassNameChars = 0;
-        List<Class<?>> aClassHierarchy = new ArrayList<>();
+        // Create a list of the simple names of the hierarchy of enclosing classes with the top
+        // level class last in the list.
+        List<String> aClassHierarchy = new ArrayList<>();
         Class<?> aEnclosingClass = pClass.getEnclosingClass();
         while (aEnclosingClass != null)
         {
-            aNumClassNameChars += aEnclosingClass.getSimpleName().length();
-            aClassHierarchy.add(aEnclosingClass);
+            aClassHierarchy.add(aEnclosingClass.getSimpleName());
             aEnclosingClass = aEnclosingClass.getEnclosingClass();
         }
 
-        if (aClassHierarchy.isEmpty())
+        return toEnclosingClassName(aClassHierarchy);
+    }
+
+
+    /**
+     * Get the name of a class file's enclosing class.
+     *
+     * @param pClassFile    The class file.
+     * @param pResolver     The resolver to read the class files of the enclosing classes with.
+     *
+     * @return  The name of the enclosing class, or null if the class has no enclosing class.
+     *
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    static private String getEnclosingClassName(ClassFile pClassFile, ClassFileResolver pResolver)
+    {
+        // Create a list of the simple names of the hierarchy of enclosing classes with the top
+        // level class last in the list. The hierarchy ends at any enclosing class whose class file
+        // isn't available.
+        List<String> aClassHierarchy = new ArrayList<>();
+        String aEnclosingClassName = pClassFile.getEnclosingClassName();
+        while (aEnclosingClassName != null)
+        {
+            ClassFile aEnclosingClass = pResolver.resolve(aEnclosingClassName);
+            if (aEnclosingClass == null)
+                break;
+
+            aClassHierarchy.add(aEnclosingClass.getSimpleName());
+            aEnclosingClassName = aEnclosingClass.getEnclosingClassName();
+        }
+
+        return toEnclosingClassName(aClassHierarchy);
+    }
+
+
+    /**
+     * Create the name of an enclosing class from the simple names of a hierarchy of enclosing
+     * classes.
+     *
+     * @param pClassHierarchy   The simple names of the enclosing classes, with the immediately
+     *                          enclosing class first and the top level class last.
+     *
+     * @return  The name of the enclosing class on the form X.Y.Z, or null if
+     *          {@code pClassHierarchy} is empty.
+     */
+    static private String toEnclosingClassName(List<String> pClassHierarchy)
+    {
+        if (pClassHierarchy.isEmpty())
             // No enclosing classes.
             return null;
-        else if (aClassHierarchy.size() == 1)
+        else if (pClassHierarchy.size() == 1)
             // One enclosing class.
-            return aClassHierarchy.get(0).getSimpleName();
+            return pClassHierarchy.get(0);
+
+        int aNumClassNameChars = 0;
+        for (String aClassName : pClassHierarchy)
+            aNumClassNameChars += aClassName.length();
 
         // A hierarchy of at least two enclosing classes. Create a string of the enclosing class
         // names on the form X.Y.Z. The string's length is the number of chars in all class
         // names + the number of separating chars.
-        StringBuilder aBuffer = new StringBuilder(aNumClassNameChars + aClassHierarchy.size());
+        StringBuilder aBuffer = new StringBuilder(aNumClassNameChars + pClassHierarchy.size());
 
         // Append the names of all but the immediately enclosing class (first in the list)
         // separated by dots ('.'), starting with the outermost class (last in the list).
-        for (int i=aClassHierarchy.size()-1; i>0; i--)
-            aBuffer.append(aClassHierarchy.get(i).getSimpleName()).append('.');
+        for (int i=pClassHierarchy.size()-1; i>0; i--)
+            aBuffer.append(pClassHierarchy.get(i)).append('.');
 
         // Append the immediately enclosing class without a trailing '.'.
-        aBuffer.append(aClassHierarchy.get(0).getSimpleName());
+        aBuffer.append(pClassHierarchy.get(0));
         return aBuffer.toString();
     }
+
+
+    /**
+     * The modifiers of the instance fields in a class hierarchy that are relevant for cache line
+     * contention, keyed by the name of the declaring class and the field name. The modifiers of a
+     * field can also be looked up by its name only, which finds the field declared furthest down in
+     * the hierarchy.
+     */
+    static private final class FieldModifiers
+    {
+        static final int VOLATILE = 1;
+        static final int CONTENDED = 2;
+
+        private final Map<String, Integer> fModifiers = new HashMap<>();
+        private final Map<String, Integer> fModifiersByFieldName = new HashMap<>();
+
+        /**
+         * Add the modifiers of a field. Fields must be added from the class at the bottom of the
+         * hierarchy and upwards.
+         */
+        void add(String pClassName, String pFieldName, boolean pVolatile, boolean pContended)
+        {
+            int aModifiers = (pVolatile ? VOLATILE : 0) | (pContended ? CONTENDED : 0);
+            fModifiers.put(pClassName + '#' + pFieldName, aModifiers);
+            fModifiersByFieldName.putIfAbsent(pFieldName, aModifiers);
+        }
+
+        /**
+         * Get the modifiers of a field.
+         *
+         * @param pClassName    The name of the class declaring the field, possibly null.
+         * @param pFieldName    The name of the field.
+         *
+         * @return  The field's modifiers, 0 if the field isn't known.
+         */
+        int get(String pClassName, String pFieldName)
+        {
+            Integer aModifiers = fModifiers.get(pClassName + '#' + pFieldName);
+            if (aModifiers == null)
+                aModifiers = fModifiersByFieldName.get(pFieldName);
+
+            return aModifiers != null ? aModifiers.intValue() : 0;
+        }
+    }
+
+
+    /**
+     * Analyzer of the layout of a single class.
+     */
+    @FunctionalInterface
+    private interface ClassAnalyzer
+    {
+        /**
+         * Analyze the layout of a class with one or more layouters.
+         *
+         * @param pClassName    The fully qualified name of the class.
+         * @param pLayouters    The layouters to analyze the class with.
+         *
+         * @return  The layouts of the class, one per layouter and in the same order, or null if
+         *          the class could not be analyzed.
+         */
+        List<JolResult.ClassLayout> analyze(String pClassName, List<Layouter> pLayouters);
+    }
 }
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.jol.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import org.myire.quill.common.Digests;
+import org.myire.quill.jol.JolResult;
+
+
+/**
+ * An on-disk cache of class layouts. Each cache entry is keyed by a digest of the class files of
+ * the class and all its superclasses and of the settings the layout was analyzed with, which means
+ * that a modified class or superclass or modified settings always results in a new key.
+ *<p>
+ * All entries are stored in a single file, which is read when the cache is loaded and rewritten
+ * when the cache is saved. Only the entries that were used or added since the cache was loaded are
+ * saved, entries for removed or modified classes are thus dropped.
+ *<p>
+ * The methods {@code computeKey}, {@code get}, and {@code put} may be called concurrently.
+ */
+class LayoutCache
+{
+    static private final String CACHE_FILE_NAME = "layouts.bin";
+
+    // The version of the class layout format, also used by the entries in JarLayoutCache.
+    static final int FORMAT_VERSION = 3;
+
+    private final File fDirectory;
+    private final byte[] fSettings;
+    private final Map<String, JolResult.ClassLayout> fLoadedEntries = new ConcurrentHashMap<>();
+    private final Map<String, JolResult.ClassLayout> fUsedEntries = new ConcurrentHashMap<>();
+    private final Logger fLogger = Logging.getLogger(LayoutCache.class);
+
+
+    /**
+     * Create a new {@code LayoutCache}.
+     *
+     * @param pDirectory    The directory to store the cache file in.
+     * @param pSettings     A string describing the settings the layouts are analyzed with, e.g.
+     *                      the data model and the version of Jol.
+     *
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    LayoutCache(File pDirectory, String pSettings)
+    {
+        fDirectory = pDirectory;
+        fSettings = pSettings.getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Load the cache's entries from disk. If the entries cannot be loaded the cache will behave as
+     * if it was empty.
+     */
+    void load()
+    {
+        File aCacheFile = new File(fDirectory, CACHE_FILE_NAME);
+        if (!aCacheFile.isFile())
+            return;
+
+        try (DataInputStream aStream = new DataInputStream(new BufferedInputStream(new FileInputStream(aCacheFile))))
+        {
+            if (aStream.readInt() != FORMAT_VERSION)
+                return;
+
+            int aNumEntries = aStream.readInt();
+            for (int i=0; i<aNumEntries; i++)
+            {
+                String aKey = aStream.readUTF();
+                fLoadedEntries.put(aKey, readClassLayout(aStream));
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            fLogger.warn("Could not load the layout cache " + aCacheFile + ": " + e.getMessage());
+            fLoadedEntries.clear();
+        }
+    }
+
+
+    /**
+     * Compute the cache key for a class from the digests of its class file and the class files of
+     * its superclasses, and from the cache's settings.
+     *
+     * @param pClassName    The fully qualified name of the class.
+     * @param pResolver     The resolver to get the class files from.
+     *
+     * @return  The class's cache key, or null if the class file of the class or any of its
+     *          superclasses isn't available.
+     *
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    String computeKey(String pClassName, ClassFileResolver pResolver)
+    {
+        MessageDigest aDigest = Digests.createDigest();
+        aDigest.update(fSettings);
+
+        String aClassName = pClassName;
+        while (aClassName != null)
+        {
+            ClassFile aClassFile = pResolver.resolve(aClassName);
+            if (aClassFile == null)
+                return null;
+
+            aDigest.update((byte) 0);
+            aDigest.update(aClassFile.getDigest());
+            aClassName = aClassFile.getSuperClassName();
+        }
+
+        return Digests.toHexString(aDigest.digest());
+    }
+
+
+    /**
+     * Get the class layout stored in the cache for a key. The entry is retained when the cache is
+     * saved.
+     *
+     * @param pKey  The key.
+     *
+     * @return  The class layout, or null if the cache has no entry for the key.
+     *
+     * @throws NullPointerException if {@code pKey} is null.
+     */
+    JolResult.ClassLayout get(String pKey)
+    {
+        JolResult.ClassLayout aClassLayout = fLoadedEntries.get(pKey);
+        if (aClassLayout != null)
+            fUsedEntries.put(pKey, aClassLayout);
+
+        return aClassLayout;
+    }
+
+
+    /**
+     * Store a class layout in the cache.
+     *
+     * @param pKey          The class's cache key.
+     * @param pClassLayout  The class layout.
+     *
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    void put(String pKey, JolResult.ClassLayout pClassLayout)
+    {
+        fUsedEntries.put(pKey, pClassLayout);
+    }
+
+
+    /**
+     * Get the number of entries that have been retrieved from the cache since it was loaded.
+     *
+     * @return  The number of retrieved entries.
+     */
+    int getNumRetrievedEntries()
+    {
+        int aNumRetrieved = 0;
+        for (String aKey : fUsedEntries.keySet())
+            if (fLoadedEntries.containsKey(aKey))
+                aNumRetrieved++;
+
+        return aNumRetrieved;
+    }
+
+
+    /**
+     * Save the entries that have been retrieved from or stored in the cache since it was loaded to
+     * disk. All other entries are dropped.
+     */
+    void save()
+    {
+        fDirectory.mkdirs();
+        File aCacheFile = new File(fDirectory, CACHE_FILE_NAME);
+        try (DataOutputStream aStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(aCacheFile))))
+        {
+            // Copy the entries to get a consistent entry count.
+            List<Map.Entry<String, JolResult.ClassLayout>> aEntries = new ArrayList<>(fUsedEntries.entrySet());
+            aStream.writeInt(FORMAT_VERSION);
+            aStream.writeInt(aEntries.size());
+            for (Map.Entry<String, JolResult.ClassLayout> aEntry : aEntries)
+            {
+                aStream.writeUTF(aEntry.getKey());
+                writeClassLayout(aEntry.getValue(), aStream);
+            }
+        }
+        catch (IOException e)
+        {
+            fLogger.warn("Could not save the layout cache " + aCacheFile + ": " + e.getMessage());
+
+            // Don't leave a partially written cache file.
+            aCacheFile.delete();
+        }
+    }
+
+
+    /**
+     * Write a class layout to a stream. The alignment gaps are not written, they are recreated
+     * from the fields' offsets and sizes when the layout is read.
+     *
+     * @param pClassLayout  The class layout.
+     * @param pStream       The stream to write to.
+     *
+     * @throws IOException  if writing to the stream fails.
+     */
+    static void writeClassLayout(JolResult.ClassLayout pClassLayout, DataOutputStream pStream) throws IOException
+    {
+        pStream.writeUTF(pClassLayout.getClassName());
+        pStream.writeUTF(pClassLayout.getPackageName());
+        String aEnclosingClassName = pClassLayout.getEnclosingClassName();
+        pStream.writeBoolean(aEnclosingClassName != null);
+        if (aEnclosingClassName != null)
+            pStream.writeUTF(aEnclosingClassName);
+
+        pStream.writeUTF(pClassLayout.getBinaryName());
+        pStream.writeInt(pClassLayout.getHeaderSize());
+        pStream.writeLong(pClassLayout.getInstanceSize());
+
+        List<JolResult.FieldLayout> aFields = new ArrayList<>();
+        for (JolResult.FieldLayout aField : pClassLayout.getFields())
+            if (!aField.isAlignmentGap())
+                aFields.add(aField);
+
+        pStream.writeInt(aFields.size());
+        for (JolResult.FieldLayout aField : aFields)
+        {
+            pStream.writeUTF(aField.getName());
+            pStream.writeUTF(aField.getType());
+            pStream.writeLong(aField.getOffset());
+            pStream.writeLong(aField.getSize());
+            pStream.writeBoolean(aField.isVolatile());
+            pStream.writeBoolean(aField.isContended());
+        }
+    }
+
+
+    /**
+     * Read a class layout written by {@code writeClassLayout}.
+     *
+     * @param pStream   The stream to read from.
+     *
+     * @return  The class layout, never null.
+     *
+     * @throws IOException  if reading from the stream fails.
+     */
+    static JolResult.ClassLayout readClassLayout(DataInputStream pStream) throws IOException
+    {
+        String aClassName = pStream.readUTF();
+        String aPackageName = pStream.readUTF();
+        String aEnclosingClassName = pStream.readBoolean() ? pStream.readUTF() : null;
+        String aBinaryName = pStream.readUTF();
+        int aHeaderSize = pStream.readInt();
+        long aInstanceSize = pStream.readLong();
+
+        int aNumFields = pStream.readInt();
+        List<JolResult.FieldLayout> aFields = new ArrayList<>(aNumFields);
+        for (int i=0; i<aNumFields; i++)
+        {
+            String aName = pStream.readUTF();
+            String aType = pStream.readUTF();
+            long aOffset = pStream.readLong();
+            long aSize = pStream.readLong();
+            boolean aVolatile = pStream.readBoolean();
+            aFields.add(new JolResult.FieldLayout(aName, aType, aOffset, aSize, aVolatile, pStream.readBoolean()));
+        }
+
+        return new JolResult.ClassLayout(
+            aClassName,
+            aPackageName,
+            aEnclosingClassName,
+            aBinaryName,
+            aHeaderSize,
+            aInstanceSize,
+            aFields);
+    }
+}
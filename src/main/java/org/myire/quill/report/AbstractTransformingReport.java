@@ -1,5 +1,5 @@
 /*
- * Copyright 2015, 2018, 2019-2021, 2024 Peter Franzen. All rights reserved.
+ * Copyright 2015, 2018, 2019-2021, 2024, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
@@ -7,6 +7,7 @@ package org.myire.quill.report;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.Map;
 
@@ -28,6 +29,7 @@ abstract class AbstractTransformingReport extends DefaultSingleFileReport implem
     private final String fXslResource;
     private File fXslFile;
     private final Map<String, Object> fXslParameters;
+    private XmlSummaryExtractor fSummaryExtractor;
 
 
     /**
@@ -70,6 +72,20 @@ abstract class AbstractTransformingReport extends DefaultSingleFileReport implem
     }
 
 
+    @Override
+    public XmlSummaryExtractor getSummaryExtractor()
+    {
+        return fSummaryExtractor;
+    }
+
+
+    @Override
+    public void setSummaryExtractor(XmlSummaryExtractor pSummaryExtractor)
+    {
+        fSummaryExtractor = pSummaryExtractor;
+    }
+
+
     @Override
     public boolean checkUpToDate()
     {
@@ -84,7 +100,12 @@ abstract class AbstractTransformingReport extends DefaultSingleFileReport implem
             return true;
 
         File aDestination = Reports.getOutputLocation(this);
-        return aDestination.exists() && aDestination.lastModified() >= aInputFile.lastModified();
+        if (!aDestination.exists() || aDestination.lastModified() < aInputFile.lastModified())
+            return false;
+
+        // The summary extracted from the input file is part of the report's output.
+        File aSummaryFile = ReportSummaries.getSummaryFile(this);
+        return aSummaryFile == null || aSummaryFile.lastModified() >= aInputFile.lastModified();
     }
 
 
@@ -124,6 +145,8 @@ abstract class AbstractTransformingReport extends DefaultSingleFileReport implem
 
     /**
      * Apply the transformation to an XML file and write the result to this report's destination.
+     * If this report has a summary extractor, the summary is extracted while transforming the file
+     * and written to the summary file next to the destination, see {@code ReportSummaries}.
      *
      * @param pXmlFile  The XML file to transform.
      */
@@ -136,7 +159,7 @@ abstract class AbstractTransformingReport extends DefaultSingleFileReport implem
             if (fXslFile != null)
             {
                 // An XSL file has been specified, use only its style sheet for the transformation.
-                aReportBuilder.transform(pXmlFile, fXslFile, fXslParameters);
+                transformFile(aReportBuilder, pXmlFile, fXslFile, null);
             }
             else
             {
@@ -147,7 +170,7 @@ abstract class AbstractTransformingReport extends DefaultSingleFileReport implem
                 aReportBuilder.write("</title><style type=\"text/css\">");
                 aReportBuilder.copy(HTML_RESOURCE_REPORT_CSS);
                 aReportBuilder.write("</style></head><body>");
-                aReportBuilder.transform(pXmlFile, fXslResource, fXslParameters);
+                transformFile(aReportBuilder, pXmlFile, null, fXslResource);
                 aReportBuilder.write("</body></html>");
             }
 
@@ -158,4 +181,49 @@ abstract class AbstractTransformingReport extends DefaultSingleFileReport implem
             getProjectLogger().error("Could not create destination file '{}'", aDestination, fnfe);
         }
     }
+
+
+    /**
+     * Apply the transformation to an XML file, and extract its summary if this report has a
+     * summary extractor.
+     *
+     * @param pReportBuilder    The report builder to write the result to.
+     * @param pXmlFile          The XML file to transform.
+     * @param pXslFile          The XSL file with the style sheet to apply, or null to apply the
+     *                          style sheet in {@code pXslResource}.
+     * @param pXslResource      The XSL resource with the style sheet to apply.
+     */
+    private void transformFile(ReportBuilder pReportBuilder, File pXmlFile, File pXslFile, String pXslResource)
+    {
+        XmlSummaryExtractor aExtractor = fSummaryExtractor;
+        if (aExtractor == null)
+        {
+            if (pXslFile != null)
+                pReportBuilder.transform(pXmlFile, pXslFile, fXslParameters);
+            else
+                pReportBuilder.transform(pXmlFile, pXslResource, fXslParameters);
+
+            return;
+        }
+
+        String aSummary;
+        if (pXslFile != null)
+            aSummary = pReportBuilder.transform(pXmlFile, pXslFile, fXslParameters, aExtractor);
+        else
+            aSummary = pReportBuilder.transform(pXmlFile, pXslResource, fXslParameters, aExtractor);
+
+        // A failed extraction deletes any previous summary file, which would be stale.
+        File aDestination = pReportBuilder.getDestination();
+        try
+        {
+            ReportSummaries.write(aDestination, aSummary);
+        }
+        catch (IOException ioe)
+        {
+            getProjectLogger().error(
+                "Could not write the summary file '{}'",
+                ReportSummaries.getSummaryFile(aDestination),
+                ioe);
+        }
+    }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2020-2021, 2024 Peter Franzen. All rights reserved.
+ * Copyright 2020-2021, 2024, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
@@ -13,6 +13,7 @@ import groovy.lang.Closure;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.reporting.Report;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.util.ConfigureUtil;
 
 import org.myire.quill.common.Projects;
@@ -136,13 +137,18 @@ abstract public class AbstractXmlHtmlReportSet<T extends XmlHtmlReportSet<T>> im
         Tasks.inputProperty(pTask, "xmlReportEnabled", () -> Reports.isRequired(fXmlReport));
         Tasks.inputProperty(pTask, "htmlReportEnabled", () -> Reports.isRequired(fHtmlReport));
 
-        // The XSL file used to create the HTML report is an optional input file.
-        Tasks.optionalInputFile(pTask, fHtmlReport::getXslFile);
+        // The XSL file used to create the HTML report is an optional input file, where only the
+        // contents matter for the build cache.
+        Tasks.optionalInputFile(pTask, fHtmlReport::getXslFile, PathSensitivity.NONE);
 
         // Add the destination of both reports as output files of this task.
         Tasks.outputFile(pTask, () -> Reports.getOutputLocation(fXmlReport));
         Tasks.outputFile(pTask, () -> Reports.getOutputLocation(fHtmlReport));
 
+        // The summary extracted when the HTML report is created is an output if the HTML report
+        // has a summary extractor.
+        Tasks.optionalOutputFile(pTask, () -> ReportSummaries.getSummaryFile(fHtmlReport));
+
         // Let the HTML report decide if it is up to date.
         pTask.getOutputs().upToDateWhen(_ignore -> fHtmlReport.checkUpToDate());
     }
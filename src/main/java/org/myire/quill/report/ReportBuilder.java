@@ -1,10 +1,11 @@
 /*
- * Copyright 2015, 2018-2019 Peter Franzen. All rights reserved.
+ * Copyright 2015, 2018-2019, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
 package org.myire.quill.report;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -20,10 +21,16 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
@@ -42,6 +49,15 @@ public class ReportBuilder
 
     static private final TransformerFactory cFactory = TransformerFactory .newInstance();
 
+    // The compiled style sheets are shared by all builders in the class loader of the plugin,
+    // which is reused by all builds in a Gradle daemon as long as the plugin's classpath is
+    // unchanged.
+    static private final TemplatesCache cTemplatesCache = new TemplatesCache(cFactory);
+
+    // Transforming a file while extracting a summary from it requires a factory that can create
+    // transformers accepting SAX events.
+    static private final boolean cSupportsTransformerHandlers = cFactory.getFeature(SAXTransformerFactory.FEATURE);
+
 
     // The report file this builder is creating.
     private final File fDestination;
@@ -66,6 +82,19 @@ public class ReportBuilder
     }
 
 
+    /**
+     * Create a new {@code ReportBuilder} that writes to an arbitrary stream.
+     *
+     * @param pDestination  The file the report is logically written to.
+     * @param pOutputStream The stream to write the report contents to.
+     */
+    private ReportBuilder(File pDestination, OutputStream pOutputStream)
+    {
+        fDestination = pDestination;
+        fOutputStream = pOutputStream;
+    }
+
+
     /**
      * Get the file this builder is creating.
      *
@@ -77,6 +106,46 @@ public class ReportBuilder
     }
 
 
+    /**
+     * Create a builder for a fragment of this builder's report. The fragment builder has the same
+     * destination as this builder, but writes its contents to memory. The contents are added to
+     * this builder's report by passing the fragment builder to {@link #append(ReportBuilder)}.
+     *<p>
+     * Fragment builders allow parts of a report to be created concurrently on different threads,
+     * as long as each fragment builder is only accessed by one thread at the time.
+     *
+     * @return  A new fragment builder, never null.
+     */
+    public ReportBuilder createFragment()
+    {
+        return new ReportBuilder(fDestination, new ByteArrayOutputStream(8192));
+    }
+
+
+    /**
+     * Write the contents of a fragment builder to this builder's destination.
+     *
+     * @param pFragment A builder created by {@link #createFragment()}.
+     *
+     * @throws IllegalArgumentException if {@code pFragment} isn't a fragment builder.
+     * @throws NullPointerException if {@code pFragment} is null.
+     */
+    public void append(ReportBuilder pFragment)
+    {
+        if (!(pFragment.fOutputStream instanceof ByteArrayOutputStream))
+            throw new IllegalArgumentException("Report builder for " + pFragment.fDestination + " is not a fragment");
+
+        try
+        {
+            ((ByteArrayOutputStream) pFragment.fOutputStream).writeTo(fOutputStream);
+        }
+        catch (IOException ioe)
+        {
+            cLogger.error("Failed to append report fragment", ioe);
+        }
+    }
+
+
     /**
      * Close the builder's underlying destination. Future calls to other methods on this instance
      * will fail.
@@ -203,6 +272,51 @@ public class ReportBuilder
     }
 
 
+    /**
+     * Transform an XML file by applying the style sheet from an XSL file and write the result to
+     * this builder's destination. A summary of the XML file is extracted while it is transformed,
+     * which means that the file is only parsed once to produce both the transformation result and
+     * the summary.
+     *
+     * @param pXmlFile      The XML file to transform.
+     * @param pXslFile      The XSL file with the style sheet to apply.
+     * @param pParameters   Any XSL parameters to pass to the transformation.
+     * @param pExtractor    The extractor of the summary.
+     *
+     * @return  The extracted summary, or null if the transformation or the extraction fails.
+     *
+     * @throws NullPointerException if {@code pExtractor} is null.
+     */
+    public String transform(File pXmlFile, File pXslFile, Map<String, Object> pParameters, XmlSummaryExtractor pExtractor)
+    {
+        Templates aTemplates = getTemplates(pXslFile);
+        return aTemplates != null ? doTransform(aTemplates, pXmlFile, pParameters, pExtractor) : null;
+    }
+
+
+    /**
+     * Transform an XML file by applying the style sheet from an XSL resource and write the result
+     * to this builder's destination. A summary of the XML file is extracted while it is
+     * transformed, which means that the file is only parsed once to produce both the
+     * transformation result and the summary. The resource will be accessed through the class
+     * loader of this builder.
+     *
+     * @param pXmlFile      The XML file to transform.
+     * @param pXslResource  The XSL resource with the style sheet to apply.
+     * @param pParameters   Any XSL parameters to pass to the transformation.
+     * @param pExtractor    The extractor of the summary.
+     *
+     * @return  The extracted summary, or null if the transformation or the extraction fails.
+     *
+     * @throws NullPointerException if {@code pExtractor} is null.
+     */
+    public String transform(File pXmlFile, String pXslResource, Map<String, Object> pParameters, XmlSummaryExtractor pExtractor)
+    {
+        Templates aTemplates = getTemplates(pXslResource);
+        return aTemplates != null ? doTransform(aTemplates, pXmlFile, pParameters, pExtractor) : null;
+    }
+
+
     /**
      * Transform an XML string by applying the style sheet from an XSL resource and write the result
      * to this builder's destination. The resource will be accessed through the class loader of this
@@ -220,6 +334,40 @@ public class ReportBuilder
     }
 
 
+    /**
+     * Transform an XML string by applying the style sheet from an XSL file and write the result to
+     * this builder's destination.
+     *
+     * @param pXml          The XML string to transform.
+     * @param pXslFile      The XSL file with the style sheet to apply.
+     * @param pParameters   Any XSL parameters to pass to the transformation.
+     */
+    public void transform(String pXml, File pXslFile, Map<String, Object> pParameters)
+    {
+        Transformer aTransformer = createTransformer(pXslFile);
+        if (aTransformer != null)
+            doTransform(aTransformer, pXml, pParameters);
+    }
+
+
+    /**
+     * Apply the XSL parameters holding the date and time of an XML file's last modification
+     * timestamp. Those parameters are used by the built-in XSL style sheets, and are passed
+     * automatically when an XML file is transformed. This method allows the parameters to be
+     * passed when transforming an XML string derived from the file.
+     *
+     * @param pXmlFile  The XML file.
+     * @param pConsumer The consumer of the parameter names and values.
+     */
+    static public void applyXmlModifiedParameters(File pXmlFile, BiConsumer<String, Object> pConsumer)
+    {
+        LocalDateTime aLastModified =
+            LocalDateTime.ofInstant(Instant.ofEpochMilli(pXmlFile.lastModified()), ZoneId.systemDefault());
+        pConsumer.accept("xml-modified-date", DateTimeFormatter.ISO_LOCAL_DATE.format(aLastModified));
+        pConsumer.accept("xml-modified-time", DateTimeFormatter.ISO_LOCAL_TIME.format(aLastModified));
+    }
+
+
     /**
      * Perform an XSL transformation.
      *
@@ -231,10 +379,7 @@ public class ReportBuilder
     {
         // Set the XSL parameters holding the date and time of the XML file's last modification
         // timestamp, those parameters are used by the built-in XSL style sheets.
-        LocalDateTime aLastModified =
-            LocalDateTime.ofInstant(Instant.ofEpochMilli(pXmlFile.lastModified()), ZoneId.systemDefault());
-        pTransformer.setParameter("xml-modified-date", DateTimeFormatter.ISO_LOCAL_DATE.format(aLastModified));
-        pTransformer.setParameter("xml-modified-time", DateTimeFormatter.ISO_LOCAL_TIME.format(aLastModified));
+        applyXmlModifiedParameters(pXmlFile, pTransformer::setParameter);
 
         // Set any additional XSL parameters.
         if (pParameters != null)
@@ -257,6 +402,66 @@ public class ReportBuilder
     }
 
 
+    /**
+     * Perform an XSL transformation and extract a summary from the transformed XML file. The file
+     * is parsed as a stream, and the parsed events are passed both to the summary extractor and to
+     * the transformer.
+     *
+     * @param pTemplates    The compiled style sheet to apply.
+     * @param pXmlFile      The XML file to transform.
+     * @param pParameters   Any XSL parameters to pass to the transformation.
+     * @param pExtractor    The extractor of the summary.
+     *
+     * @return  The extracted summary, or null if an error occurs.
+     */
+    private String doTransform(
+        Templates pTemplates,
+        File pXmlFile,
+        Map<String, Object> pParameters,
+        XmlSummaryExtractor pExtractor)
+    {
+        if (!cSupportsTransformerHandlers)
+        {
+            // Transform without extracting the summary, it will have to be extracted from the file
+            // when needed.
+            Transformer aTransformer = newTransformer(pTemplates);
+            if (aTransformer != null)
+                doTransform(aTransformer, pXmlFile, pParameters);
+
+            return null;
+        }
+
+        TransformerHandler aHandler = newTransformerHandler(pTemplates);
+        if (aHandler == null)
+            return null;
+
+        // Set the XSL parameters in the same way as when transforming from the file directly.
+        Transformer aTransformer = aHandler.getTransformer();
+        applyXmlModifiedParameters(pXmlFile, aTransformer::setParameter);
+        if (pParameters != null)
+            pParameters.forEach(aTransformer::setParameter);
+
+        aHandler.setResult(new StreamResult(fOutputStream));
+
+        // Wrap the XML file in a stream that filters out any DOCTYPE XML declaration to avoid
+        // potential network access when validating the input XML.
+        try (InputStream aFileStream = new DocTypeFilterStream(new FileInputStream(pXmlFile)))
+        {
+            return SaxForwardingStreamReader.transform(aFileStream, aHandler, pExtractor);
+        }
+        catch (IOException e)
+        {
+            cLogger.error("Failed to access XML file '{}'", pXmlFile.getAbsolutePath(), e);
+        }
+        catch (XMLStreamException e)
+        {
+            cLogger.error("Failed to transform XML file '{}'", pXmlFile.getAbsolutePath(), e);
+        }
+
+        return null;
+    }
+
+
     /**
      * Perform an XSL transformation.
      *
@@ -284,18 +489,55 @@ public class ReportBuilder
 
 
     /**
-     * Create a {@code Transformer} from an XSL file.
+     * Create a {@code Transformer} from an XSL file. The style sheet in the file is only compiled
+     * if it hasn't been compiled before or if the file has been modified since then.
      *
      * @param pXslFile  The XSL file.
      *
      * @return  A new {@code Transformer}, or null if an error occurs.
      */
     static private Transformer createTransformer(File pXslFile)
+    {
+        cLogger.debug("Creating transformer from file '{}'", pXslFile.getAbsolutePath());
+        Templates aTemplates = getTemplates(pXslFile);
+        return aTemplates != null ? newTransformer(aTemplates) : null;
+    }
+
+
+    /**
+     * Create a {@code Transformer} from an XSL resource on the classpath. The resource will be
+     * accessed using the class loader of {@code ReportBuilder}, and its style sheet is only
+     * compiled the first time it is used.
+     *
+     * @param pXslResource  The name of the XSL resource.
+     *
+     * @return  A new {@code Transformer}, or null if an error occurs.
+     */
+    static private Transformer createTransformer(String pXslResource)
+    {
+        cLogger.debug("Creating transformer from XSL resource '{}'", pXslResource);
+        Templates aTemplates = getTemplates(pXslResource);
+        return aTemplates != null ? newTransformer(aTemplates) : null;
+    }
+
+
+    /**
+     * Get the compiled style sheet from an XSL file.
+     *
+     * @param pXslFile  The XSL file.
+     *
+     * @return  The compiled style sheet, or null if an error occurs.
+     */
+    static private Templates getTemplates(File pXslFile)
     {
         try
         {
-            cLogger.debug("Creating transformer from file '{}'", pXslFile.getAbsolutePath());
-            return cFactory.newTransformer(new StreamSource(pXslFile));
+            return cTemplatesCache.get(pXslFile);
+        }
+        catch (IOException ioe)
+        {
+            cLogger.error("Could not load XSL file '{}'", pXslFile.getAbsolutePath(), ioe);
+            return null;
         }
         catch (TransformerException e)
         {
@@ -306,29 +548,22 @@ public class ReportBuilder
 
 
     /**
-     * Create a {@code Transformer} from an XSL resource on the classpath. The resource will be
-     * accessed using the class loader of {@code ReportBuilder}.
+     * Get the compiled style sheet from an XSL resource on the classpath.
      *
      * @param pXslResource  The name of the XSL resource.
      *
-     * @return  A new {@code Transformer}, or null if an error occurs.
+     * @return  The compiled style sheet, or null if an error occurs.
      */
-    static private Transformer createTransformer(String pXslResource)
+    static private Templates getTemplates(String pXslResource)
     {
-        cLogger.debug("Loading XSL resource '{}'", pXslResource);
-
-        // Try to load the resource.
-        try (InputStream aResourceStream = ReportBuilder.class.getResourceAsStream(pXslResource))
+        try
         {
-            if (aResourceStream != null)
-            {
-                // Resource loaded, create a transformer from it.
-                cLogger.debug("Creating transformer from XSL resource '{}'", pXslResource);
-                return cFactory.newTransformer(new StreamSource(aResourceStream));
-            }
-            else
+            Templates aTemplates = cTemplatesCache.get(pXslResource);
+            if (aTemplates == null)
                 // Resource not found.
                 cLogger.error("Could not load XSL resource '{}'", pXslResource);
+
+            return aTemplates;
         }
         catch (IOException ioe)
         {
@@ -342,4 +577,50 @@ public class ReportBuilder
 
         return null;
     }
+
+
+    /**
+     * Create a {@code Transformer} from a compiled style sheet.
+     *
+     * @param pTemplates    The compiled style sheet.
+     *
+     * @return  A new {@code Transformer}, or null if an error occurs.
+     */
+    static private Transformer newTransformer(Templates pTemplates)
+    {
+        try
+        {
+            return pTemplates.newTransformer();
+        }
+        catch (TransformerConfigurationException e)
+        {
+            cLogger.error("Failed to create a transformer", e);
+            return null;
+        }
+    }
+
+
+    /**
+     * Create a {@code TransformerHandler} from a compiled style sheet.
+     *
+     * @param pTemplates    The compiled style sheet.
+     *
+     * @return  A new {@code TransformerHandler}, or null if an error occurs.
+     */
+    static private TransformerHandler newTransformerHandler(Templates pTemplates)
+    {
+        try
+        {
+            // Factories aren't thread safe, see TemplatesCache.
+            synchronized (cFactory)
+            {
+                return ((SAXTransformerFactory) cFactory).newTransformerHandler(pTemplates);
+            }
+        }
+        catch (TransformerConfigurationException e)
+        {
+            cLogger.error("Failed to create a transformer", e);
+            return null;
+        }
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+
+/**
+ * Utility methods for the summaries extracted from XML reports while they are transformed. A
+ * summary is written to a file next to the transformed report, where the file name is the
+ * transformed report's base name followed by {@code .summary.xml}. The summary file is an output
+ * of the task creating the reports, and is thus restored together with the reports when the task
+ * is loaded from the build cache.
+ *<p>
+ * A summary file can be used instead of extracting the summary from the XML report again, as long
+ * as it hasn't been modified before the XML report.
+ */
+public final class ReportSummaries
+{
+    static private final String SUMMARY_FILE_SUFFIX = ".summary.xml";
+
+
+    /**
+     * Private constructor to disallow instantiations of utility method class.
+     */
+    private ReportSummaries()
+    {
+        // Empty default ctor, defined to override access scope.
+    }
+
+
+    /**
+     * Get the file a transforming report writes the summary of its XML input to.
+     *
+     * @param pReport   The transforming report.
+     *
+     * @return  The summary file, or null if the report doesn't have a summary extractor or isn't
+     *          required.
+     *
+     * @throws NullPointerException if {@code pReport} is null.
+     */
+    static public File getSummaryFile(TransformingReport pReport)
+    {
+        if (pReport.getSummaryExtractor() == null || !Reports.isRequired(pReport))
+            return null;
+
+        File aDestination = Reports.getOutputLocation(pReport);
+        return aDestination != null ? getSummaryFile(aDestination) : null;
+    }
+
+
+    /**
+     * Get the summary extracted from an XML report when a transforming report was created from it.
+     *
+     * @param pXmlReport    The XML report file.
+     * @param pReport       The transforming report created from the XML report.
+     * @param pExtractor    The extractor the summary should have been extracted with.
+     *
+     * @return  The summary, or null if the transforming report doesn't extract summaries with
+     *          {@code pExtractor}, or if its summary file doesn't exist, can't be read, or is older
+     *          than the XML report.
+     *
+     * @throws NullPointerException if {@code pXmlReport} or {@code pReport} is null.
+     */
+    static public String read(File pXmlReport, TransformingReport pReport, XmlSummaryExtractor pExtractor)
+    {
+        if (pReport.getSummaryExtractor() != pExtractor)
+            return null;
+
+        File aSummaryFile = getSummaryFile(pReport);
+        if (aSummaryFile == null
+            || !aSummaryFile.isFile()
+            || aSummaryFile.lastModified() < pXmlReport.lastModified())
+            return null;
+
+        try
+        {
+            return new String(Files.readAllBytes(aSummaryFile.toPath()), StandardCharsets.UTF_8);
+        }
+        catch (IOException ignore)
+        {
+            return null;
+        }
+    }
+
+
+    /**
+     * Write the summary of the XML input of a transformed report. The summary is written to a
+     * temporary file that is then moved to the summary file, which means that a summary file is
+     * never partially written.
+     *
+     * @param pDestination  The transformed report file.
+     * @param pSummary      The summary, or null to delete any existing summary file.
+     *
+     * @throws IOException  if writing the summary file fails.
+     * @throws NullPointerException if {@code pDestination} is null.
+     */
+    static void write(File pDestination, String pSummary) throws IOException
+    {
+        File aSummaryFile = getSummaryFile(pDestination);
+        if (pSummary == null)
+        {
+            Files.deleteIfExists(aSummaryFile.toPath());
+            return;
+        }
+
+        File aTempFile = new File(aSummaryFile.getPath() + ".tmp");
+        Files.write(aTempFile.toPath(), pSummary.getBytes(StandardCharsets.UTF_8));
+        Files.move(aTempFile.toPath(), aSummaryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+
+    /**
+     * Get the summary file for a transformed report file.
+     *
+     * @param pDestination  The transformed report file.
+     *
+     * @return  The summary file, never null.
+     */
+    static File getSummaryFile(File pDestination)
+    {
+        String aName = pDestination.getName();
+        int aDot = aName.lastIndexOf('.');
+        String aBaseName = aDot > 0 ? aName.substring(0, aDot) : aName;
+        return new File(pDestination.getAbsoluteFile().getParentFile(), aBaseName + SUMMARY_FILE_SUFFIX);
+    }
+}
@@ -1,11 +1,12 @@
 /*
- * Copyright 2020 Peter Franzen. All rights reserved.
+ * Copyright 2020, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
 package org.myire.quill.report;
 
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
@@ -45,10 +46,29 @@ public class ReportWriter implements Closeable
         SingleFileReport pReport,
         Charset pCharset,
         OpenOption... pOpenOptions) throws IOException
+    {
+        this(Reports.getOutputLocation(pReport), pCharset, pOpenOptions);
+    }
+
+
+    /**
+     * Create a new {@code ReportWriter}.
+     *
+     * @param pReportFile   The file to write the report to.
+     * @param pCharset      The character set to encode the report with.
+     * @param pOpenOptions  Any options to specify when opening the report file.
+     *
+     * @throws IOException  if opening the report file fails.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    public ReportWriter(
+        File pReportFile,
+        Charset pCharset,
+        OpenOption... pOpenOptions) throws IOException
     {
         fWriter =
             new OutputStreamWriter(
-                Files.newOutputStream(Reports.getOutputLocation(pReport).toPath(), pOpenOptions),
+                Files.newOutputStream(pReportFile.toPath(), pOpenOptions),
                 pCharset);
     }
 
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.report;
+
+import java.io.InputStream;
+import java.io.StringWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.stream.util.StreamReaderDelegate;
+import javax.xml.transform.sax.TransformerHandler;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+
+/**
+ * A stream reader that forwards the events it reads to a {@code TransformerHandler} as SAX events.
+ * This allows a summary extractor to pull events from an XML document while an XSL transformation
+ * is applied to the same events, which means that the document is only parsed once.
+ *<p>
+ * All events reach the handler through {@link #next()}, regardless of which method the extractor
+ * uses to move the reader forward.
+ */
+final class SaxForwardingStreamReader extends StreamReaderDelegate
+{
+    static private final XMLInputFactory cInputFactory = createInputFactory();
+    static private final XMLOutputFactory cOutputFactory = XMLOutputFactory.newInstance();
+
+    private final TransformerHandler fHandler;
+    private final AttributesImpl fAttributes = new AttributesImpl();
+
+    // The number of open elements, character data outside the root element is not forwarded.
+    private int fDepth;
+
+
+    /**
+     * Create a new {@code SaxForwardingStreamReader}.
+     *
+     * @param pReader   The reader to read events from.
+     * @param pHandler  The handler to forward the events to.
+     */
+    private SaxForwardingStreamReader(XMLStreamReader pReader, TransformerHandler pHandler)
+    {
+        super(pReader);
+        fHandler = pHandler;
+    }
+
+
+    /**
+     * Parse an XML document, pass it to a transformer handler, and extract a summary of it. The
+     * handler's result must have been set before calling this method.
+     *
+     * @param pXml          The stream to read the XML document from.
+     * @param pHandler      The handler to pass the document to.
+     * @param pExtractor    The extractor of the summary.
+     *
+     * @return  The summary, never null.
+     *
+     * @throws XMLStreamException   if parsing the document, extracting the summary, or
+     *                              transforming the document fails.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    static String transform(
+        InputStream pXml,
+        TransformerHandler pHandler,
+        XmlSummaryExtractor pExtractor) throws XMLStreamException
+    {
+        XMLStreamReader aStreamReader;
+        synchronized (cInputFactory)
+        {
+            aStreamReader = cInputFactory.createXMLStreamReader(pXml);
+        }
+
+        StringWriter aSummary = new StringWriter(512);
+        XMLStreamWriter aWriter;
+        synchronized (cOutputFactory)
+        {
+            aWriter = cOutputFactory.createXMLStreamWriter(aSummary);
+        }
+
+        SaxForwardingStreamReader aReader = new SaxForwardingStreamReader(aStreamReader, pHandler);
+        try
+        {
+            // The stream reader is positioned at the start of the document when created.
+            aReader.forward(START_DOCUMENT);
+
+            pExtractor.extract(aReader, aWriter);
+            aWriter.writeEndDocument();
+            aWriter.close();
+
+            // The extractor may have stopped reading before the end of the document, the rest of
+            // it must still be passed to the transformation.
+            while (aReader.hasNext())
+                aReader.next();
+        }
+        finally
+        {
+            aStreamReader.close();
+        }
+
+        return aSummary.toString();
+    }
+
+
+    @Override
+    public int next() throws XMLStreamException
+    {
+        int aEvent = super.next();
+        forward(aEvent);
+        return aEvent;
+    }
+
+
+    @Override
+    public int nextTag() throws XMLStreamException
+    {
+        int aEvent = next();
+        while (aEvent == SPACE || aEvent == COMMENT || aEvent == PROCESSING_INSTRUCTION
+               || ((aEvent == CHARACTERS || aEvent == CDATA) && isWhiteSpace()))
+            aEvent = next();
+
+        if (aEvent != START_ELEMENT && aEvent != END_ELEMENT)
+            throw new XMLStreamException("Expected a start or end tag", getLocation());
+
+        return aEvent;
+    }
+
+
+    @Override
+    public String getElementText() throws XMLStreamException
+    {
+        if (getEventType() != START_ELEMENT)
+            throw new XMLStreamException("Not positioned at a start tag", getLocation());
+
+        StringBuilder aText = new StringBuilder();
+        int aEvent = next();
+        while (aEvent != END_ELEMENT)
+        {
+            if (aEvent == CHARACTERS || aEvent == CDATA || aEvent == SPACE || aEvent == ENTITY_REFERENCE)
+                aText.append(getText());
+            else if (aEvent == START_ELEMENT || aEvent == END_DOCUMENT)
+                throw new XMLStreamException("Element text contains more than text", getLocation());
+
+            aEvent = next();
+        }
+
+        return aText.toString();
+    }
+
+
+    /**
+     * Forward the event the reader is positioned at to the handler.
+     *
+     * @param pEvent    The event type.
+     *
+     * @throws XMLStreamException   if the handler throws an exception.
+     */
+    private void forward(int pEvent) throws XMLStreamException
+    {
+        try
+        {
+            switch (pEvent)
+            {
+                case START_DOCUMENT:
+                    fHandler.startDocument();
+                    break;
+                case END_DOCUMENT:
+                    fHandler.endDocument();
+                    break;
+                case START_ELEMENT:
+                    forwardStartElement();
+                    break;
+                case END_ELEMENT:
+                    forwardEndElement();
+                    break;
+                case CHARACTERS:
+                case CDATA:
+                case SPACE:
+                    // A SAX parser doesn't report the whitespace outside of the root element.
+                    if (fDepth > 0)
+                        fHandler.characters(getTextCharacters(), getTextStart(), getTextLength());
+                    break;
+                case COMMENT:
+                    fHandler.comment(getTextCharacters(), getTextStart(), getTextLength());
+                    break;
+                case PROCESSING_INSTRUCTION:
+                    fHandler.processingInstruction(getPITarget(), nonNull(getPIData()));
+                    break;
+                default:
+                    // DTD events and entity references have no counterpart in the transformation's
+                    // input, since any DOCTYPE declaration is filtered out before parsing.
+                    break;
+            }
+        }
+        catch (SAXException e)
+        {
+            throw new XMLStreamException("Failed to transform the parsed XML", getLocation(), e);
+        }
+    }
+
+
+    private void forwardStartElement() throws SAXException
+    {
+        fDepth++;
+
+        for (int i=0; i<getNamespaceCount(); i++)
+            fHandler.startPrefixMapping(nonNull(getNamespacePrefix(i)), nonNull(getNamespaceURI(i)));
+
+        fAttributes.clear();
+        for (int i=0; i<getAttributeCount(); i++)
+        {
+            String aLocalName = getAttributeLocalName(i);
+            String aType = getAttributeType(i);
+            fAttributes.addAttribute(
+                nonNull(getAttributeNamespace(i)),
+                aLocalName,
+                qualifiedName(getAttributePrefix(i), aLocalName),
+                aType != null ? aType : "CDATA",
+                getAttributeValue(i));
+        }
+
+        fHandler.startElement(
+            nonNull(getNamespaceURI()),
+            getLocalName(),
+            qualifiedName(getPrefix(), getLocalName()),
+            fAttributes);
+    }
+
+
+    private void forwardEndElement() throws SAXException
+    {
+        fHandler.endElement(nonNull(getNamespaceURI()), getLocalName(), qualifiedName(getPrefix(), getLocalName()));
+
+        for (int i=0; i<getNamespaceCount(); i++)
+            fHandler.endPrefixMapping(nonNull(getNamespacePrefix(i)));
+
+        fDepth--;
+    }
+
+
+    static private String qualifiedName(String pPrefix, String pLocalName)
+    {
+        return pPrefix == null || pPrefix.isEmpty() ? pLocalName : pPrefix + ':' + pLocalName;
+    }
+
+
+    static private String nonNull(String pString)
+    {
+        return pString != null ? pString : "";
+    }
+
+
+    static private XMLInputFactory createInputFactory()
+    {
+        // DOCTYPE declarations are filtered out by the caller, but any that slip through must not
+        // cause network access.
+        XMLInputFactory aFactory = XMLInputFactory.newInstance();
+        aFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        aFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return aFactory;
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.report;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.stream.StreamSource;
+
+import org.myire.quill.common.Digests;
+
+
+/**
+ * A cache of compiled XSL style sheets. Compiling a style sheet is far more expensive than
+ * creating a {@code Transformer} from the compiled {@code Templates}, and the same style sheets
+ * are applied by many tasks in a multi-project build.
+ *<p>
+ * Style sheets loaded from classpath resources are keyed by resource name, since the contents of
+ * a resource cannot change for the lifetime of the class loader. The number of such style sheets
+ * is limited to those bundled with the plugin.
+ *<p>
+ * Style sheets loaded from files are keyed by the file's absolute path and are compiled again if
+ * a digest of the file's contents and the contents of the files it imports or includes, directly
+ * or indirectly, has changed since they were cached. Only the most recently used style sheets
+ * loaded from files are kept in the cache.
+ *<p>
+ * Instances are thread safe. The compiled {@code Templates} are thread safe too, but the
+ * {@code Transformer} instances created from them are not.
+ */
+class TemplatesCache
+{
+    static private final int DEFAULT_MAX_FILE_TEMPLATES = 32;
+
+    private final TransformerFactory fFactory;
+    private final Map<String, Templates> fResourceTemplates = new ConcurrentHashMap<>();
+    private final Map<String, FileTemplates> fFileTemplates;
+    private final AtomicInteger fNumCompilations = new AtomicInteger();
+
+
+    /**
+     * Create a new {@code TemplatesCache} that holds at most 32 style sheets loaded from files.
+     *
+     * @param pFactory  The factory to compile the style sheets with. The factory will only be
+     *                  accessed while holding its monitor, since factories aren't thread safe.
+     *
+     * @throws NullPointerException if {@code pFactory} is null.
+     */
+    TemplatesCache(TransformerFactory pFactory)
+    {
+        this(pFactory, DEFAULT_MAX_FILE_TEMPLATES);
+    }
+
+
+    /**
+     * Create a new {@code TemplatesCache}.
+     *
+     * @param pFactory          The factory to compile the style sheets with. The factory will only
+     *                          be accessed while holding its monitor, since factories aren't
+     *                          thread safe.
+     * @param pMaxFileTemplates The maximum number of style sheets loaded from files to hold. When
+     *                          this number is exceeded, the least recently used style sheet is
+     *                          removed.
+     *
+     * @throws NullPointerException if {@code pFactory} is null.
+     */
+    TemplatesCache(TransformerFactory pFactory, int pMaxFileTemplates)
+    {
+        fFactory = pFactory;
+        fFileTemplates = Collections.synchronizedMap(new LruMap<>(Math.max(pMaxFileTemplates, 1)));
+    }
+
+
+    /**
+     * Get the compiled style sheet from an XSL file, compiling it if it isn't cached or if the
+     * file has been modified since it was cached.
+     *
+     * @param pXslFile  The XSL file.
+     *
+     * @return  The compiled style sheet, never null.
+     *
+     * @throws IOException  if reading the file fails.
+     * @throws TransformerConfigurationException    if the file doesn't contain a valid style sheet.
+     * @throws NullPointerException if {@code pXslFile} is null.
+     */
+    Templates get(File pXslFile) throws IOException, TransformerConfigurationException
+    {
+        byte[] aContents = Files.readAllBytes(pXslFile.toPath());
+        String aKey = pXslFile.getAbsolutePath();
+
+        FileTemplates aCached = fFileTemplates.get(aKey);
+        if (aCached != null
+            && aCached.fDigest != null
+            && Arrays.equals(aCached.fDigest, digest(aContents, aCached.fDependencies)))
+            return aCached.fTemplates;
+
+        // The system ID allows relative includes and imports in the style sheet to be resolved.
+        StreamSource aSource = new StreamSource(new ByteArrayInputStream(aContents), pXslFile.toURI().toString());
+        List<File> aDependencies = new ArrayList<>();
+        Templates aTemplates = compile(aSource, aDependencies);
+
+        // A dependency that disappeared during the compilation will have a null digest, and the
+        // style sheet is then compiled again on the next request.
+        fFileTemplates.put(aKey, new FileTemplates(digest(aContents, aDependencies), aDependencies, aTemplates));
+        return aTemplates;
+    }
+
+
+    /**
+     * Get the compiled style sheet from an XSL resource, compiling it if it isn't cached. The
+     * resource is accessed through the class loader of this class.
+     *
+     * @param pXslResource  The name of the XSL resource.
+     *
+     * @return  The compiled style sheet, or null if the resource doesn't exist.
+     *
+     * @throws IOException  if reading the resource fails.
+     * @throws TransformerConfigurationException    if the resource doesn't contain a valid style
+     *                                              sheet.
+     * @throws NullPointerException if {@code pXslResource} is null.
+     */
+    Templates get(String pXslResource) throws IOException, TransformerConfigurationException
+    {
+        Templates aTemplates = fResourceTemplates.get(pXslResource);
+        if (aTemplates != null)
+            return aTemplates;
+
+        byte[] aContents;
+        try (InputStream aResourceStream = TemplatesCache.class.getResourceAsStream(pXslResource))
+        {
+            if (aResourceStream == null)
+                return null;
+
+            aContents = readAll(aResourceStream);
+        }
+
+        // Another thread may have compiled the same resource concurrently, keep the first one.
+        aTemplates = compile(new StreamSource(new ByteArrayInputStream(aContents)), null);
+        Templates aExisting = fResourceTemplates.putIfAbsent(pXslResource, aTemplates);
+        return aExisting != null ? aExisting : aTemplates;
+    }
+
+
+    /**
+     * Get the number of style sheets compiled by this cache.
+     *
+     * @return  The number of compilations.
+     */
+    int getNumCompilations()
+    {
+        return fNumCompilations.get();
+    }
+
+
+    /**
+     * Compile a style sheet.
+     *
+     * @param pSource       The style sheet's source.
+     * @param pDependencies A list to add the local files imported or included by the style sheet
+     *                      to, or null to not record the imported and included files.
+     *
+     * @return  The compiled style sheet, never null.
+     *
+     * @throws TransformerConfigurationException    if the source isn't a valid style sheet.
+     */
+    private Templates compile(StreamSource pSource, List<File> pDependencies) throws TransformerConfigurationException
+    {
+        synchronized (fFactory)
+        {
+            URIResolver aResolver = fFactory.getURIResolver();
+            if (pDependencies != null)
+                fFactory.setURIResolver(new RecordingResolver(aResolver, pDependencies));
+
+            try
+            {
+                Templates aTemplates = fFactory.newTemplates(pSource);
+                fNumCompilations.incrementAndGet();
+                return aTemplates;
+            }
+            finally
+            {
+                fFactory.setURIResolver(aResolver);
+            }
+        }
+    }
+
+
+    /**
+     * Compute the digest of a style sheet's contents and the contents of the files it depends on.
+     *
+     * @param pContents     The style sheet's contents.
+     * @param pDependencies The files imported or included by the style sheet.
+     *
+     * @return  The digest, or null if any of the files doesn't exist.
+     *
+     * @throws IOException  if reading any of the files fails.
+     */
+    static private byte[] digest(byte[] pContents, List<File> pDependencies) throws IOException
+    {
+        MessageDigest aDigest = Digests.createDigest();
+        aDigest.update(pContents);
+        for (File aDependency : pDependencies)
+        {
+            aDigest.update(aDependency.getPath().getBytes(StandardCharsets.UTF_8));
+            try
+            {
+                aDigest.update(Files.readAllBytes(aDependency.toPath()));
+            }
+            catch (NoSuchFileException ignore)
+            {
+                return null;
+            }
+        }
+
+        return aDigest.digest();
+    }
+
+
+    static private byte[] readAll(InputStream pStream) throws IOException
+    {
+        ByteArrayOutputStream aBytes = new ByteArrayOutputStream(16384);
+        byte[] aBuffer = new byte[8192];
+        int aNumBytes;
+        while ((aNumBytes = pStream.read(aBuffer)) > 0)
+            aBytes.write(aBuffer, 0, aNumBytes);
+
+        return aBytes.toByteArray();
+    }
+
+
+    /**
+     * A style sheet compiled from a file, the files it imports or includes, and the digest of the
+     * contents of all those files.
+     */
+    static private final class FileTemplates
+    {
+        final byte[] fDigest;
+        final List<File> fDependencies;
+        final Templates fTemplates;
+
+        FileTemplates(byte[] pDigest, List<File> pDependencies, Templates pTemplates)
+        {
+            fDigest = pDigest;
+            fDependencies = pDependencies;
+            fTemplates = pTemplates;
+        }
+    }
+
+
+    /**
+     * A map that removes its least recently accessed entry when its maximum size is exceeded.
+     */
+    static private final class LruMap<K, V> extends LinkedHashMap<K, V>
+    {
+        static private final long serialVersionUID = 1L;
+
+        private final int fMaxSize;
+
+        LruMap(int pMaxSize)
+        {
+            super(16, 0.75f, true);
+            fMaxSize = pMaxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> pEldest)
+        {
+            return size() > fMaxSize;
+        }
+    }
+
+
+    /**
+     * A URI resolver that records the local files resolved for the imports and includes of a
+     * style sheet being compiled. The resolution itself is left to the factory's original
+     * resolver, or to the factory's default resolution if it has no resolver.
+     */
+    static private final class RecordingResolver implements URIResolver
+    {
+        private final URIResolver fDelegate;
+        private final List<File> fFiles;
+
+        RecordingResolver(URIResolver pDelegate, List<File> pFiles)
+        {
+            fDelegate = pDelegate;
+            fFiles = pFiles;
+        }
+
+        @Override
+        public Source resolve(String pHref, String pBase) throws TransformerException
+        {
+            Source aSource = fDelegate != null ? fDelegate.resolve(pHref, pBase) : null;
+            try
+            {
+                URI aUri;
+                if (aSource != null && aSource.getSystemId() != null)
+                    aUri = new URI(aSource.getSystemId());
+                else if (pBase != null)
+                    aUri = new URI(pBase).resolve(pHref);
+                else
+                    aUri = new URI(pHref);
+
+                if ("file".equals(aUri.getScheme()))
+                {
+                    File aFile = new File(aUri);
+                    if (!fFiles.contains(aFile))
+                        fFiles.add(aFile);
+                }
+            }
+            catch (URISyntaxException | IllegalArgumentException ignore)
+            {
+                // Not a local file, nothing to record.
+            }
+
+            return aSource;
+        }
+    }
+}
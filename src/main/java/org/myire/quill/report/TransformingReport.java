@@ -1,5 +1,5 @@
 /*
- * Copyright 2015, 2018, 2019, 2024 Peter Franzen. All rights reserved.
+ * Copyright 2015, 2018, 2019, 2024, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
@@ -10,7 +10,10 @@ import java.util.function.BiFunction;
 
 import org.gradle.api.Project;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 
 
 /**
@@ -27,6 +30,7 @@ public interface TransformingReport extends CompatibleSingleFileReport
      */
     @InputFile
     @Optional
+    @PathSensitive(PathSensitivity.NONE)
     File getXslFile();
 
     /**
@@ -36,6 +40,23 @@ public interface TransformingReport extends CompatibleSingleFileReport
      */
     void setXslFile(Object pFile);
 
+    /**
+     * Get the extractor of the summary to extract from the XML input while it is transformed. The
+     * extracted summary is written to a file next to the report, see {@link ReportSummaries}, which
+     * allows e.g. a dashboard section to use it without parsing the XML input again.
+     *
+     * @return  The summary extractor, or null if no summary should be extracted.
+     */
+    @Internal
+    XmlSummaryExtractor getSummaryExtractor();
+
+    /**
+     * Set the extractor of the summary to extract from the XML input while it is transformed.
+     *
+     * @param pSummaryExtractor The summary extractor, possibly null.
+     */
+    void setSummaryExtractor(XmlSummaryExtractor pSummaryExtractor);
+
     /**
      * Check if the report is up to date with respect to its XML input.
      *
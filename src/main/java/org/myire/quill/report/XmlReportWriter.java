@@ -1,10 +1,11 @@
 /*
- * Copyright 2020 Peter Franzen. All rights reserved.
+ * Copyright 2020, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
 package org.myire.quill.report;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.OpenOption;
@@ -39,6 +40,21 @@ public class XmlReportWriter extends ReportWriter
     }
 
 
+    /**
+     * Create a new {@code XmlReportWriter}.
+     *
+     * @param pReportFile   The file to write the report to.
+     * @param pOpenOptions  Any options to specify when opening the report file.
+     *
+     * @throws IOException  if opening the report file fails.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    public XmlReportWriter(File pReportFile, OpenOption... pOpenOptions) throws IOException
+    {
+        super(pReportFile, StandardCharsets.UTF_8, pOpenOptions);
+    }
+
+
     /**
      * Write the XML prolog to the underlying stream.
      *
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.report;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+
+/**
+ * An XML summary extractor reads an XML report as a stream and writes a small XML document with
+ * selected values from the report. A {@code TransformingReport} with an extractor extracts the
+ * summary while it transforms its XML input, see {@link ReportSummaries}.
+ *<p>
+ * Implementations are typically stateless and may be called concurrently. Any state needed while
+ * reading a report must therefore be local to an invocation of
+ * {@link #extract(XMLStreamReader, XMLStreamWriter)}.
+ *<p>
+ * The reader passed to an extractor may feed the parsed report to an XSL transformation at the
+ * same time. Extractors should therefore only move the reader forward with {@code next()},
+ * {@code nextTag()}, or {@code getElementText()}, and never close it.
+ */
+@FunctionalInterface
+public interface XmlSummaryExtractor
+{
+    /**
+     * Read an XML report and write a summary of it.
+     *
+     * @param pReader   The reader to read the report from, positioned at the start of the
+     *                  document.
+     * @param pWriter   The writer to write the summary's root element to. The end of the document
+     *                  is written by the caller, which also closes any elements left open.
+     *
+     * @throws XMLStreamException   if reading the report or writing the summary fails.
+     */
+    void extract(XMLStreamReader pReader, XMLStreamWriter pWriter) throws XMLStreamException;
+}
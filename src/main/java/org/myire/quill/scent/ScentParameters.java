@@ -0,0 +1,119 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.scent;
+
+import java.io.Serializable;
+
+
+/**
+ * The parameters that can be passed to a {@code ScentRunner} to control the metrics collection.
+ */
+public class ScentParameters implements Serializable
+{
+    static private final long serialVersionUID = 1L;
+
+    private int fLanguageLevel;
+    private boolean fEnableLanguagePreviews;
+
+    private int fMaxParallelism = Runtime.getRuntime().availableProcessors();
+    private boolean fStreamingReport;
+
+    private boolean fIncludeTimestamp = true;
+
+
+    /**
+     * The language level to parse the sources with. A value of {@code 0} means the default version.
+     *
+     * @return  The language level.
+     */
+    public int getLanguageLevel()
+    {
+        return fLanguageLevel;
+    }
+
+
+    public void setLanguageLevel(int pLanguageLevel)
+    {
+        fLanguageLevel = pLanguageLevel;
+    }
+
+
+    /**
+     * If true, the language feature previews of the language level specified by
+     * {@link #setLanguageLevel(int)} will be enabled. Default is false, i.e. language feature
+     * previews will be disabled when parsing the sources.
+     *
+     * @return  True if language feature previews should be enabled, false if they should be
+     *          disabled.
+     */
+    public boolean isEnableLanguagePreviews()
+    {
+        return fEnableLanguagePreviews;
+    }
+
+
+    public void setEnableLanguagePreviews(boolean pEnableLanguagePreviews)
+    {
+        fEnableLanguagePreviews = pEnableLanguagePreviews;
+    }
+
+
+    /**
+     * Get the maximum number of threads to collect metrics with. A value of 1 or less means that
+     * the files will be processed on the calling thread. Default is the number of processors
+     * available to the JVM.
+     *
+     * @return  The maximum number of threads to collect metrics with.
+     */
+    public int getMaxParallelism()
+    {
+        return fMaxParallelism;
+    }
+
+
+    public void setMaxParallelism(int pMaxParallelism)
+    {
+        fMaxParallelism = pMaxParallelism;
+    }
+
+
+    /**
+     * If true, the metrics collected from the files in each directory are written to a temporary
+     * report as soon as they have been collected, and the final report is created by merging the
+     * temporary reports. This limits the amount of memory used to the metrics of one directory per
+     * thread. Default is false.
+     *
+     * @return  True if the collected metrics should be streamed to the report, false if not.
+     */
+    public boolean isStreamingReport()
+    {
+        return fStreamingReport;
+    }
+
+
+    public void setStreamingReport(boolean pStreamingReport)
+    {
+        fStreamingReport = pStreamingReport;
+    }
+
+
+    /**
+     * If true, the date and time of the metrics collection are included in the report. Default is
+     * true.
+     *
+     * @return  True if the report should contain a timestamp, false if not.
+     */
+    public boolean isIncludeTimestamp()
+    {
+        return fIncludeTimestamp;
+    }
+
+
+    public void setIncludeTimestamp(boolean pIncludeTimestamp)
+    {
+        fIncludeTimestamp = pIncludeTimestamp;
+    }
+}
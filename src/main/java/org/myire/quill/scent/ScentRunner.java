@@ -1,5 +1,5 @@
 /*
- * Copyright 2018, 2022 Peter Franzen. All rights reserved.
+ * Copyright 2018, 2022, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
@@ -24,21 +24,27 @@ public interface ScentRunner
      *
      * @param pFiles            The files and/or directories to collect Java file metrics from.
      * @param pCharset          The charset the Java files are encoded in.
-     * @param pLanguageLevel    The Java language level to use when parsing the source files. Pass
-     *                          {@code 0} to use the default language level.
-     * @param pEnableLanguagePreviews
-     *                          If true, language feature previews at the specified language level
-     *                          will be enabled.
+     * @param pParameters       The parameters controlling the metrics collection.
+     * @param pCacheDirectory   The directory of the cache with metrics collected from individual
+     *                          files in previous runs, or null to collect the metrics without
+     *                          using a cache.
+     * @param pModifiedFiles    The files that have been added or modified since the previous run,
+     *                          or null if unknown. Only used when a cache directory is specified.
+     * @param pTemporaryDirectory
+     *                          The directory to create temporary files in.
      * @param pReportFile       The file to write the XML report to.
      *
      * @throws IOException  if writing the report file fails.
      *
-     * @throws NullPointerException if any of the parameters is null.
+     * @throws NullPointerException if {@code pFiles}, {@code pCharset}, {@code pParameters},
+     *                              {@code pTemporaryDirectory}, or {@code pReportFile} is null.
      */
     void collectMetricsAsXml(
         Collection<File> pFiles,
         Charset pCharset,
-        int pLanguageLevel,
-        boolean pEnableLanguagePreviews,
+        ScentParameters pParameters,
+        File pCacheDirectory,
+        Collection<File> pModifiedFiles,
+        File pTemporaryDirectory,
         File pReportFile) throws IOException;
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2016, 2018-2022 Peter Franzen. All rights reserved.
+ * Copyright 2016, 2018-2022, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
@@ -8,6 +8,11 @@ package org.myire.quill.scent;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.inject.Inject;
 
 import groovy.lang.Closure;
 
@@ -15,17 +20,29 @@ import org.gradle.api.Action;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.reporting.SingleFileReport;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.LocalState;
 import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.SkipWhenEmpty;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceTask;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.ChangeType;
+import org.gradle.work.FileChange;
+import org.gradle.work.InputChanges;
+import org.gradle.workers.WorkerExecutor;
 
 import org.myire.quill.common.ExternalToolLoader;
+import org.myire.quill.common.ExternalToolWorkerSpec;
 import org.myire.quill.common.Projects;
+import org.myire.quill.common.WorkerIsolation;
 import org.myire.quill.report.ReportingEntity;
 import org.myire.quill.report.Reports;
 import org.myire.quill.report.TransformingReport;
@@ -34,6 +51,7 @@ import org.myire.quill.report.TransformingReport;
 /**
  * Task for creating source code metrics reports using the Scent library.
  */
+@CacheableTask
 public class ScentTask extends SourceTask implements ReportingEntity<ScentReports>
 {
     // The default version of Scent to use.
@@ -47,8 +65,10 @@ public class ScentTask extends SourceTask implements ReportingEntity<ScentReport
     // Task properties.
     private String fToolVersion;
     private String fSourceEncoding;
-    private int fLanguageLevel;
-    private boolean fEnableLanguagePreviews;
+    private final ScentParameters fParameters = new ScentParameters();
+    private final ExternalToolWorkerSpec fWorkerSpec = new ExternalToolWorkerSpec();
+    private boolean fIncremental;
+    private File fCacheDirectory;
     private FileCollection fScentClasspath;
     private ScentReportsImpl fReports;
 
@@ -99,13 +119,13 @@ public class ScentTask extends SourceTask implements ReportingEntity<ScentReport
     @Input
     public int getLanguageLevel()
     {
-        return fLanguageLevel;
+        return fParameters.getLanguageLevel();
     }
 
 
     public void setLanguageLevel(int pLanguageLevel)
     {
-        fLanguageLevel = pLanguageLevel;
+        fParameters.setLanguageLevel(pLanguageLevel);
     }
 
 
@@ -120,13 +140,184 @@ public class ScentTask extends SourceTask implements ReportingEntity<ScentReport
     @Input
     public boolean isEnableLanguagePreviews()
     {
-        return fEnableLanguagePreviews;
+        return fParameters.isEnableLanguagePreviews();
     }
 
 
     public void setEnableLanguagePreviews(boolean pEnableLanguagePreviews)
     {
-        fEnableLanguagePreviews = pEnableLanguagePreviews;
+        fParameters.setEnableLanguagePreviews(pEnableLanguagePreviews);
+    }
+
+
+    /**
+     * Get the maximum number of threads to collect metrics with. The source files are divided
+     * into batches that are processed in parallel, and the metrics from the batches are merged into
+     * a report that is identical to the one created when processing the files on a single thread.
+     * A value of 1 or less disables the parallel processing. Default is the number of processors
+     * available to the JVM.
+     *
+     * @return  The maximum number of threads to collect metrics with.
+     */
+    @Internal
+    public int getMaxParallelism()
+    {
+        return fParameters.getMaxParallelism();
+    }
+
+
+    public void setMaxParallelism(int pMaxParallelism)
+    {
+        fParameters.setMaxParallelism(pMaxParallelism);
+    }
+
+
+    /**
+     * If true, the metrics collected from the source files in each directory are written to a
+     * temporary report as soon as they have been collected, and the XML report is created by
+     * merging the temporary reports one package at a time. This keeps the memory needed to
+     * collect the metrics proportional to the size of a package rather than to the size of all
+     * source files. Default is false, i.e. the metrics for all source files are held in memory
+     * until the XML report is written.
+     *
+     * @return  True if the collected metrics should be streamed to the report, false if not.
+     */
+    @Internal
+    public boolean isStreamingReport()
+    {
+        return fParameters.isStreamingReport();
+    }
+
+
+    public void setStreamingReport(boolean pStreamingReport)
+    {
+        fParameters.setStreamingReport(pStreamingReport);
+    }
+
+
+    /**
+     * If true, the date and time of the metrics collection are included in the XML report. Setting
+     * this property to false makes the report depend on the task's inputs only, which allows the
+     * report to be reused from the build cache without carrying a misleading timestamp. Default is
+     * true.
+     *
+     * @return  True if the XML report should contain a timestamp, false if not.
+     */
+    @Input
+    public boolean isIncludeTimestamp()
+    {
+        return fParameters.isIncludeTimestamp();
+    }
+
+
+    public void setIncludeTimestamp(boolean pIncludeTimestamp)
+    {
+        fParameters.setIncludeTimestamp(pIncludeTimestamp);
+    }
+
+
+    /**
+     * If true, the metrics collected from each source file are cached, and only source files that
+     * have been added or modified since the previous run are parsed. The metrics from the other
+     * files are taken from the cache. Default is false.
+     *
+     * @return  True if the metrics should be collected incrementally, false if all source files
+     *          should be parsed on every run.
+     */
+    @Internal
+    public boolean isIncremental()
+    {
+        return fIncremental;
+    }
+
+
+    public void setIncremental(boolean pIncremental)
+    {
+        fIncremental = pIncremental;
+    }
+
+
+    /**
+     * Get the directory where the metrics collected from individual source files are cached when
+     * the {@code incremental} property is true. Default is a directory with the same name as the
+     * task in the project's temporary directory.
+     *
+     * @return  The cache directory.
+     */
+    @LocalState
+    public File getCacheDirectory()
+    {
+        if (fCacheDirectory == null)
+            fCacheDirectory = Projects.createTemporaryDirectorySpec(getProject(), getName());
+
+        return fCacheDirectory;
+    }
+
+
+    public void setCacheDirectory(Object pCacheDirectory)
+    {
+        fCacheDirectory = pCacheDirectory != null ? getProject().file(pCacheDirectory) : null;
+    }
+
+
+    /**
+     * Get the isolation mode to collect the metrics with. With {@link WorkerIsolation#CLASSLOADER}
+     * or {@link WorkerIsolation#PROCESS} the metrics are collected through the Gradle Worker API,
+     * the latter in a separate JVM that doesn't use the Gradle daemon's heap. Default is
+     * {@link WorkerIsolation#NONE}, i.e. the metrics are collected in the daemon on the task's
+     * thread.
+     *
+     * @return  The isolation mode.
+     */
+    @Internal
+    public WorkerIsolation getWorkerIsolation()
+    {
+        return fWorkerSpec.getIsolation();
+    }
+
+
+    public void setWorkerIsolation(WorkerIsolation pWorkerIsolation)
+    {
+        fWorkerSpec.setIsolation(pWorkerIsolation);
+    }
+
+
+    /**
+     * Get the maximum heap size of the worker process when {@code workerIsolation} is
+     * {@link WorkerIsolation#PROCESS}, e.g. &quot;2g&quot;. Default is Gradle's default heap size
+     * for worker processes.
+     *
+     * @return  The maximum heap size, possibly null.
+     */
+    @Internal
+    public String getMaxHeapSize()
+    {
+        return fWorkerSpec.getMaxHeapSize();
+    }
+
+
+    public void setMaxHeapSize(String pMaxHeapSize)
+    {
+        fWorkerSpec.setMaxHeapSize(pMaxHeapSize);
+    }
+
+
+    /**
+     * Get the extra JVM arguments of the worker process when {@code workerIsolation} is
+     * {@link WorkerIsolation#PROCESS}. Default is an empty list.
+     *
+     * @return  The JVM arguments, never null.
+     */
+    @Internal
+    public List<String> getJvmArgs()
+    {
+        return fWorkerSpec.getJvmArgs();
+    }
+
+
+    public void setJvmArgs(List<String> pJvmArgs)
+    {
+        fWorkerSpec.setJvmArgs(pJvmArgs);
     }
 
 
@@ -136,7 +327,7 @@ public class ScentTask extends SourceTask implements ReportingEntity<ScentReport
      *
      * @return  The Scent classpath.
      */
-    @InputFiles
+    @Classpath
     public FileCollection getScentClasspath()
     {
         return fScentClasspath;
@@ -157,6 +348,7 @@ public class ScentTask extends SourceTask implements ReportingEntity<ScentReport
     @Override
     @InputFiles
     @SkipWhenEmpty
+    @PathSensitive(PathSensitivity.RELATIVE)
     public FileTree getSource()
     {
         FileTree aSource = super.getSource();
@@ -220,15 +412,17 @@ public class ScentTask extends SourceTask implements ReportingEntity<ScentReport
 
     /**
      * Calculate code metrics for the sources and produce the enabled report(s).
+     *
+     * @param pInputChanges The changes to the task's inputs since the previous run.
      */
     @TaskAction
-    public void run()
+    public void run(InputChanges pInputChanges)
     {
         SingleFileReport aXmlReport = fReports.getXml();
         if (Reports.isRequired(aXmlReport))
         {
             // Collect the code metrics and create the XML report.
-            collectMetricsAsXml(Reports.getOutputLocation(aXmlReport));
+            collectMetricsAsXml(Reports.getOutputLocation(aXmlReport), pInputChanges);
 
             // Create the HTML report if enabled.
             TransformingReport aHtmlReport = fReports.getHtml();
@@ -259,9 +453,10 @@ public class ScentTask extends SourceTask implements ReportingEntity<ScentReport
     /**
      * Create the XML report file.
      *
-     * @param pXmlFile  The file to write the XML to.
+     * @param pXmlFile      The file to write the XML to.
+     * @param pInputChanges The changes to the task's inputs since the previous run.
      */
-    private void collectMetricsAsXml(File pXmlFile)
+    private void collectMetricsAsXml(File pXmlFile, InputChanges pInputChanges)
     {
         try
         {
@@ -279,11 +474,20 @@ public class ScentTask extends SourceTask implements ReportingEntity<ScentReport
                 pXmlFile);
 
             // Collect the metrics and write the XML report.
+            Collection<File> aModifiedFiles = fIncremental ? getModifiedSourceFiles(pInputChanges) : null;
+            if (fWorkerSpec.isWorkerEnabled())
+            {
+                collectMetricsInWorker(pXmlFile, aCharset, aModifiedFiles);
+                return;
+            }
+
             loadScentRunner().collectMetricsAsXml(
                 getSource().getFiles(),
                 aCharset,
-                fLanguageLevel,
-                fEnableLanguagePreviews,
+                fParameters,
+                fIncremental ? getCacheDirectory() : null,
+                aModifiedFiles,
+                getTemporaryDir(),
                 pXmlFile);
         }
         catch (ClassNotFoundException | IllegalAccessException | InstantiationException e)
@@ -300,6 +504,77 @@ public class ScentTask extends SourceTask implements ReportingEntity<ScentReport
     }
 
 
+    /**
+     * Collect the metrics in a Gradle worker and wait for the worker to create the XML report.
+     *
+     * @param pXmlFile          The file to write the XML to.
+     * @param pCharset          The charset the source files are encoded in.
+     * @param pModifiedFiles    The source files added or modified since the previous run, or null
+     *                          if all source files should be considered modified.
+     */
+    private void collectMetricsInWorker(File pXmlFile, Charset pCharset, Collection<File> pModifiedFiles)
+    {
+        getLogger().debug("Collecting scent metrics in a worker with {} isolation", fWorkerSpec.getIsolation());
+        fWorkerSpec.createWorkQueue(getWorkerExecutor(), getScentClasspath()).submit(
+            ScentWorkAction.class,
+            p -> {
+                p.getSourceFiles().from(getSource().getFiles());
+                p.getCharset().set(pCharset.name());
+                p.getScentParameters().set(fParameters);
+                if (fIncremental)
+                    p.getCacheDirectory().set(getCacheDirectory());
+                p.getAllFilesModified().set(pModifiedFiles == null);
+                if (pModifiedFiles != null)
+                    p.getModifiedFiles().from(pModifiedFiles);
+                p.getTemporaryDirectory().set(getTemporaryDir());
+                p.getReportFile().set(pXmlFile);
+            });
+
+        // The HTML report is created from the XML report and must wait for the worker.
+        getWorkerExecutor().await();
+    }
+
+
+    /**
+     * Get the executor used to collect the metrics when {@code workerIsolation} is something else
+     * than {@link WorkerIsolation#NONE}. This method is implemented by Gradle through service
+     * injection.
+     *
+     * @return  The worker executor.
+     */
+    @Inject
+    protected WorkerExecutor getWorkerExecutor()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+
+    /**
+     * Get the source files that have been added or modified since the previous run of the task.
+     *
+     * @param pInputChanges The changes to the task's inputs since the previous run.
+     *
+     * @return  The added and modified source files, or null if the previous run is unknown or its
+     *          outputs have been modified, in which case all source files should be considered
+     *          modified.
+     */
+    private Collection<File> getModifiedSourceFiles(InputChanges pInputChanges)
+    {
+        if (!pInputChanges.isIncremental())
+            return null;
+
+        Collection<File> aModifiedFiles = new HashSet<>();
+        for (FileChange aChange : pInputChanges.getFileChanges(getSource()))
+        {
+            if (aChange.getChangeType() != ChangeType.REMOVED)
+                aModifiedFiles.add(aChange.getFile());
+        }
+
+        getLogger().debug("{} source files added or modified since the previous run", aModifiedFiles.size());
+        return aModifiedFiles;
+    }
+
+
     /**
      * Load the {@code ScentRunner} implementation and thereby the Scent classes specified by the
      * {@code scentClasspath} property.
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.scent;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+
+/**
+ * Work action that collects Scent metrics in a Gradle worker. The worker's class path must contain
+ * the Scent classes, which allows the {@code ScentRunner} implementation to be loaded directly by
+ * the worker's class loader.
+ */
+public abstract class ScentWorkAction implements WorkAction<ScentWorkAction.Parameters>
+{
+    static private final String IMPLEMENTATION_CLASS = "org.myire.quill.scent.impl.ScentRunnerImpl";
+
+    private final Logger fLogger = Logging.getLogger(ScentWorkAction.class);
+
+
+    @Override
+    public void execute()
+    {
+        Parameters aParameters = getParameters();
+        File aReportFile = aParameters.getReportFile().get();
+        try
+        {
+            ScentRunner aRunner =
+                Class.forName(IMPLEMENTATION_CLASS).asSubclass(ScentRunner.class).newInstance();
+
+            // The modified files are only relevant when collecting with a cache.
+            boolean aModifiedFilesKnown =
+                aParameters.getCacheDirectory().isPresent() &&
+                !aParameters.getAllFilesModified().getOrElse(true);
+
+            aRunner.collectMetricsAsXml(
+                aParameters.getSourceFiles().getFiles(),
+                Charset.forName(aParameters.getCharset().get()),
+                aParameters.getScentParameters().get(),
+                aParameters.getCacheDirectory().getOrNull(),
+                aModifiedFilesKnown ? aParameters.getModifiedFiles().getFiles() : null,
+                aParameters.getTemporaryDirectory().get(),
+                aReportFile);
+        }
+        catch (ClassNotFoundException | IllegalAccessException | InstantiationException e)
+        {
+            fLogger.error("Could not create an instance of '{}'", IMPLEMENTATION_CLASS, e);
+        }
+        catch (IOException ioe)
+        {
+            fLogger.error("Could not write the metrics report to '{}'", aReportFile, ioe);
+        }
+    }
+
+
+    /**
+     * The parameters passed from a {@code ScentTask} to the worker.
+     */
+    public interface Parameters extends WorkParameters
+    {
+        /**
+         * Get the files to collect metrics from.
+         *
+         * @return  The source files.
+         */
+        ConfigurableFileCollection getSourceFiles();
+
+        /**
+         * Get the name of the charset the source files are encoded in.
+         *
+         * @return  The charset name.
+         */
+        Property<String> getCharset();
+
+        /**
+         * Get the parameters controlling the metrics collection.
+         *
+         * @return  The Scent parameters.
+         */
+        Property<ScentParameters> getScentParameters();
+
+        /**
+         * Get the directory of the metrics cache. No value means that the metrics should be
+         * collected without a cache.
+         *
+         * @return  The cache directory.
+         */
+        Property<File> getCacheDirectory();
+
+        /**
+         * Get the flag specifying whether all source files should be considered modified since the
+         * previous run, in which case the {@code modifiedFiles} parameter is ignored.
+         *
+         * @return  The all files modified flag.
+         */
+        Property<Boolean> getAllFilesModified();
+
+        /**
+         * Get the source files that have been added or modified since the previous run.
+         *
+         * @return  The modified source files.
+         */
+        ConfigurableFileCollection getModifiedFiles();
+
+        /**
+         * Get the directory to create temporary files in.
+         *
+         * @return  The temporary directory.
+         */
+        Property<File> getTemporaryDirectory();
+
+        /**
+         * Get the file to write the XML report to.
+         *
+         * @return  The report file.
+         */
+        Property<File> getReportFile();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.scent.impl;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+
+/**
+ * A {@code SimpleFileVisitor} that records the regular files it visits in the order they are
+ * visited. Errors are logged through Gradle logging in the same way as {@link CollectingFileVisitor}
+ * logs them.
+ */
+class FileListingVisitor extends SimpleFileVisitor<Path>
+{
+    static private final String ERROR_LOG_TEMPLATE = "Failed to collect source code metrics from %s: %s";
+
+    private final List<Path> fFiles = new ArrayList<>();
+    private final Logger fLogger = Logging.getLogger(FileListingVisitor.class);
+
+
+    /**
+     * Get the files visited so far.
+     *
+     * @return  The visited files, in the order they were visited, never null.
+     */
+    List<Path> getFiles()
+    {
+        return fFiles;
+    }
+
+
+    /**
+     * Record a visited file if it is a regular file.
+     *
+     * @param pFile         The path to the file.
+     * @param pAttributes   The file's attributes.
+     *
+     * @return  Always {@code FileVisitResult.CONTINUE}.
+     */
+    @Override
+    public FileVisitResult visitFile(Path pFile, BasicFileAttributes pAttributes)
+    {
+        if (pAttributes.isRegularFile())
+            fFiles.add(pFile);
+
+        return FileVisitResult.CONTINUE;
+    }
+
+
+    /**
+     * Log an exception thrown when opening a file or when reading its attributes.
+     *
+     * @param pFile         The path to the file.
+     * @param pException    The exception.
+     *
+     * @return  Always {@code FileVisitResult.CONTINUE}.
+     */
+    @Override
+    public FileVisitResult visitFileFailed(Path pFile, IOException pException)
+    {
+        fLogger.error(String.format(ERROR_LOG_TEMPLATE, pFile, pException.getMessage()));
+        return FileVisitResult.CONTINUE;
+    }
+
+
+    /**
+     * Log any exception thrown when iterating over the items in a directory.
+     *
+     * @param pDirectory    The path to the directory.
+     * @param pException    The exception, or null if the directory was visited successfully.
+     *
+     * @return  Always {@code FileVisitResult.CONTINUE}.
+     */
+    @Override
+    public FileVisitResult postVisitDirectory(Path pDirectory, IOException pException)
+    {
+        if (pException != null)
+            fLogger.error(String.format(ERROR_LOG_TEMPLATE, pDirectory, pException.getMessage()));
+
+        return FileVisitResult.CONTINUE;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.scent.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.myire.scent.metrics.CompilationUnitMetrics;
+import org.myire.scent.metrics.JavaMetrics;
+import org.myire.scent.metrics.PackageMetrics;
+
+
+/**
+ * Merges the metrics collected in separate {@code JavaMetrics} instances into one instance.
+ * Packages are added to the merged metrics in the order they are first encountered, and the
+ * compilation units of a package are added in the order they are encountered. Merging the metrics
+ * from consecutive parts of a file sequence in the sequence's order thus produces the same result
+ * as collecting the metrics from the entire sequence with one collector.
+ *<p>
+ * Note that the merged metrics may share {@code PackageMetrics} instances with the merged
+ * instances, which should not be used after they have been merged.
+ */
+class JavaMetricsMerger
+{
+    private final JavaMetrics fMergedMetrics = new JavaMetrics();
+    private final Map<String, PackageMetrics> fPackages = new HashMap<>();
+
+
+    /**
+     * Get the merged metrics.
+     *
+     * @return  The metrics merged so far, never null.
+     */
+    JavaMetrics getMergedMetrics()
+    {
+        return fMergedMetrics;
+    }
+
+
+    /**
+     * Merge the packages and compilation units in a {@code JavaMetrics} into the merged metrics.
+     *
+     * @param pMetrics  The metrics to merge.
+     *
+     * @throws NullPointerException if {@code pMetrics} is null.
+     */
+    void merge(JavaMetrics pMetrics)
+    {
+        for (PackageMetrics aPackage : pMetrics.getPackages())
+        {
+            PackageMetrics aMergedPackage = fPackages.get(aPackage.getName());
+            if (aMergedPackage == null)
+            {
+                // First occurrence of the package, add it as it is.
+                fPackages.put(aPackage.getName(), aPackage);
+                fMergedMetrics.add(aPackage);
+            }
+            else
+            {
+                for (CompilationUnitMetrics aCompilationUnit : aPackage.getCompilationUnits())
+                    aMergedPackage.add(aCompilationUnit);
+            }
+        }
+    }
+}
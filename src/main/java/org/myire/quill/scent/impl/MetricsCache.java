@@ -0,0 +1,237 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.scent.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import org.myire.scent.metrics.JavaMetrics;
+import org.myire.scent.report.MetricsReportMetaData;
+import org.myire.scent.report.XmlReportWriter;
+
+import org.myire.quill.common.Digests;
+
+
+/**
+ * An on-disk cache of the metrics collected from individual Java files. The metrics for a file are
+ * stored as a Scent XML report containing that file only. Each cache entry is keyed by a digest of
+ * the file's path and contents and of the settings the metrics were collected with, which means
+ * that a modified file or modified settings always results in a new key.
+ *<p>
+ * The cache also maintains an index that maps file paths to the keys of the entries most recently
+ * stored for them. This allows the key of a file that is known to be unmodified to be retrieved
+ * without reading the file.
+ */
+class MetricsCache
+{
+    static private final String INDEX_FILE_NAME = "index.properties";
+    static private final String ENTRY_FILE_EXTENSION = ".xml";
+
+    private final File fDirectory;
+    private final byte[] fSettings;
+    private final Properties fIndex = new Properties();
+    private final Logger fLogger = Logging.getLogger(MetricsCache.class);
+
+
+    /**
+     * Create a new {@code MetricsCache}.
+     *
+     * @param pDirectory    The directory to store the cache entries and the index in.
+     * @param pSettings     A string describing the settings the metrics are collected with, e.g.
+     *                      the language level and the version of Scent.
+     *
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    MetricsCache(File pDirectory, String pSettings)
+    {
+        fDirectory = pDirectory;
+        fSettings = pSettings.getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Load the cache's index from disk. If the index cannot be loaded the cache will behave as if
+     * the index was empty.
+     */
+    void loadIndex()
+    {
+        File aIndexFile = new File(fDirectory, INDEX_FILE_NAME);
+        if (!aIndexFile.isFile())
+            return;
+
+        try (InputStream aStream = new FileInputStream(aIndexFile))
+        {
+            fIndex.load(aStream);
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            fLogger.warn("Could not load the metrics cache index " + aIndexFile + ": " + e.getMessage());
+            fIndex.clear();
+        }
+    }
+
+
+    /**
+     * Get the key of the entry most recently stored in the cache for a file.
+     *
+     * @param pFile The path to the file.
+     *
+     * @return  The key for the file according to the index, or null if the index has no key for
+     *          the file.
+     *
+     * @throws NullPointerException if {@code pFile} is null.
+     */
+    String getIndexedKey(Path pFile)
+    {
+        return fIndex.getProperty(pFile.toString());
+    }
+
+
+    /**
+     * Compute the cache key for a file from its path, its contents, and the cache's settings.
+     *
+     * @param pFile The path to the file.
+     *
+     * @return  The file's cache key, never null.
+     *
+     * @throws IOException  if reading the file fails.
+     * @throws NullPointerException if {@code pFile} is null.
+     */
+    String computeKey(Path pFile) throws IOException
+    {
+        MessageDigest aDigest = Digests.createDigest();
+        aDigest.update(fSettings);
+        aDigest.update((byte) 0);
+        aDigest.update(pFile.toString().getBytes(StandardCharsets.UTF_8));
+        aDigest.update((byte) 0);
+
+        byte[] aBuffer = new byte[8192];
+        try (InputStream aStream = Files.newInputStream(pFile))
+        {
+            int aNumBytes;
+            while ((aNumBytes = aStream.read(aBuffer)) > 0)
+                aDigest.update(aBuffer, 0, aNumBytes);
+        }
+
+        return Digests.toHexString(aDigest.digest());
+    }
+
+
+    /**
+     * Check if the cache contains an entry for a key.
+     *
+     * @param pKey  The key.
+     *
+     * @return  True if there is an entry for the key, false if not.
+     *
+     * @throws NullPointerException if {@code pKey} is null.
+     */
+    boolean contains(String pKey)
+    {
+        return getEntryFile(pKey).isFile();
+    }
+
+
+    /**
+     * Get the file holding the cache entry for a key. The file may not exist.
+     *
+     * @param pKey  The key.
+     *
+     * @return  The entry file for the key, never null.
+     *
+     * @throws NullPointerException if {@code pKey} is null.
+     */
+    File getEntryFile(String pKey)
+    {
+        return new File(fDirectory, pKey + ENTRY_FILE_EXTENSION);
+    }
+
+
+    /**
+     * Store the metrics collected from a file in the cache.
+     *
+     * @param pKey      The file's cache key.
+     * @param pMetrics  The metrics.
+     *
+     * @throws IOException  if writing the cache entry fails.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    void put(String pKey, JavaMetrics pMetrics) throws IOException
+    {
+        fDirectory.mkdirs();
+        File aEntryFile = getEntryFile(pKey);
+        try (OutputStream aStream = new FileOutputStream(aEntryFile))
+        {
+            // The metadata is not used when the cached reports are merged.
+            MetricsReportMetaData aMetaData = new MetricsReportMetaData(
+                LocalDateTime.now().withNano(0),
+                org.myire.scent.Main.class.getPackage().getImplementationVersion());
+            new XmlReportWriter(aStream).writeReport(pMetrics, aMetaData);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            // Don't leave a partially written entry in the cache.
+            aEntryFile.delete();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Replace the cache's index with the specified keys and save it to disk. Entries that aren't
+     * referenced by the new index are removed from the cache.
+     *
+     * @param pKeys The new index, mapping file paths to the keys of their cache entries.
+     *
+     * @throws NullPointerException if {@code pKeys} is null.
+     */
+    void updateIndex(Map<Path, String> pKeys)
+    {
+        fIndex.clear();
+        Set<String> aReferencedEntries = new HashSet<>();
+        for (Map.Entry<Path, String> aEntry : pKeys.entrySet())
+        {
+            fIndex.setProperty(aEntry.getKey().toString(), aEntry.getValue());
+            aReferencedEntries.add(aEntry.getValue() + ENTRY_FILE_EXTENSION);
+        }
+
+        fDirectory.mkdirs();
+        File aIndexFile = new File(fDirectory, INDEX_FILE_NAME);
+        try (OutputStream aStream = new FileOutputStream(aIndexFile))
+        {
+            fIndex.store(aStream, null);
+        }
+        catch (IOException e)
+        {
+            fLogger.warn("Could not save the metrics cache index " + aIndexFile + ": " + e.getMessage());
+        }
+
+        // Remove the entries for files that have been modified or removed.
+        File[] aEntryFiles = fDirectory.listFiles((d, n) -> n.endsWith(ENTRY_FILE_EXTENSION));
+        if (aEntryFiles != null)
+        {
+            for (File aEntryFile : aEntryFiles)
+                if (!aReferencedEntries.contains(aEntryFile.getName()))
+                    aEntryFile.delete();
+        }
+    }
+}
@@ -0,0 +1,533 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.scent.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+
+/**
+ * Merges Scent XML reports into one report. The packages in the merged report are ordered by
+ * their first occurrence in the merged reports, and the contents of each package are ordered as
+ * the merged reports. The summaries of the merged report and of its packages are calculated by
+ * adding the corresponding summary attribute values in the merged reports.
+ *<p>
+ * The reports are merged in two passes. The first pass, performed when a report is added, only
+ * reads the summaries and the package names of the report. The second pass, performed when the
+ * merged report is written, reads the package contents of the added reports one package at a
+ * time and copies them to the merged report. The full contents of the merged reports are thus
+ * never held in memory.
+ */
+class MetricsReportMerger
+{
+    static private final String SUMMARY_ELEMENT = "summary";
+    static private final String PACKAGES_ELEMENT = "packages";
+    static private final String PACKAGE_ELEMENT = "package";
+    static private final String NAME_ATTRIBUTE = "name";
+    static private final String PACKAGES_ATTRIBUTE = "packages";
+    static private final String DATE_ATTRIBUTE = "date";
+    static private final String TIME_ATTRIBUTE = "time";
+
+    static private final String ENCODING = "UTF-8";
+
+    private final XMLInputFactory fInputFactory = XMLInputFactory.newInstance();
+    private final XMLOutputFactory fOutputFactory = XMLOutputFactory.newInstance();
+
+    private final Map<String, String> fSummary = new LinkedHashMap<>();
+    private final Map<String, PackageEntry> fPackages = new LinkedHashMap<>();
+
+
+    /**
+     * Add a Scent XML report to the reports to merge.
+     *
+     * @param pReport   The report file.
+     *
+     * @throws IOException  if reading or parsing the report fails.
+     * @throws NullPointerException if {@code pReport} is null.
+     */
+    void add(File pReport) throws IOException
+    {
+        try (InputStream aStream = new FileInputStream(pReport))
+        {
+            XMLStreamReader aReader = fInputFactory.createXMLStreamReader(aStream);
+            try
+            {
+                scanReport(aReader, pReport);
+            }
+            finally
+            {
+                aReader.close();
+            }
+        }
+        catch (XMLStreamException e)
+        {
+            throw new IOException("Could not parse the metrics report " + pReport, e);
+        }
+    }
+
+
+    /**
+     * Write the merged report. The name and attributes of the merged report's root element are
+     * taken from a template report, typically an empty report created with the current report
+     * metadata. The template's summary attributes are used as the initial values of the merged
+     * summary.
+     *
+     * @param pTemplate         The template report.
+     * @param pIncludeTimestamp If false, the template's date and time attributes will not be
+     *                          written to the merged report.
+     * @param pStream           The stream to write the merged report to.
+     *
+     * @throws IOException  if reading the template or any of the added reports fails, or if
+     *                      writing to the stream fails.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    void write(InputStream pTemplate, boolean pIncludeTimestamp, OutputStream pStream) throws IOException
+    {
+        try
+        {
+            // Get the root element and the initial summary values from the template.
+            Map<String, String> aRootAttributes = new LinkedHashMap<>();
+            Map<String, String> aSummary = new LinkedHashMap<>();
+            String aRootElement = scanTemplate(pTemplate, aRootAttributes, aSummary);
+            if (!pIncludeTimestamp)
+            {
+                aRootAttributes.remove(DATE_ATTRIBUTE);
+                aRootAttributes.remove(TIME_ATTRIBUTE);
+            }
+
+            addAttributes(fSummary, aSummary);
+            aSummary.put(PACKAGES_ATTRIBUTE, String.valueOf(fPackages.size()));
+
+            XMLStreamWriter aWriter = fOutputFactory.createXMLStreamWriter(pStream, ENCODING);
+            aWriter.writeStartDocument(ENCODING, "1.0");
+            aWriter.writeCharacters("\n");
+            aWriter.writeStartElement(aRootElement);
+            writeAttributes(aWriter, aRootAttributes);
+            aWriter.writeCharacters("\n  ");
+            aWriter.writeEmptyElement(SUMMARY_ELEMENT);
+            writeAttributes(aWriter, aSummary);
+            aWriter.writeCharacters("\n  ");
+            aWriter.writeStartElement(PACKAGES_ELEMENT);
+            for (PackageEntry aPackage : fPackages.values())
+                writePackage(aWriter, aPackage);
+            aWriter.writeCharacters("\n  ");
+            aWriter.writeEndElement();
+            aWriter.writeCharacters("\n");
+            aWriter.writeEndElement();
+            aWriter.writeEndDocument();
+            aWriter.close();
+        }
+        catch (XMLStreamException e)
+        {
+            throw new IOException("Could not write the merged metrics report", e);
+        }
+    }
+
+
+    /**
+     * Read the summaries and the package names from a report.
+     *
+     * @param pReader   The reader to read the report from.
+     * @param pReport   The report file.
+     *
+     * @throws XMLStreamException   if parsing the report fails.
+     */
+    private void scanReport(XMLStreamReader pReader, File pReport) throws XMLStreamException
+    {
+        int aDepth = 0;
+        boolean aInPackages = false;
+        PackageEntry aPackage = null;
+        while (pReader.hasNext())
+        {
+            int aEvent = pReader.next();
+            if (aEvent == XMLStreamConstants.START_ELEMENT)
+            {
+                aDepth++;
+                String aName = pReader.getLocalName();
+                if (aDepth == 2 && SUMMARY_ELEMENT.equals(aName))
+                    addAttributes(getAttributes(pReader), fSummary);
+                else if (aDepth == 2 && PACKAGES_ELEMENT.equals(aName))
+                    aInPackages = true;
+                else if (aDepth == 3 && aInPackages && PACKAGE_ELEMENT.equals(aName))
+                {
+                    aPackage = getPackage(pReader);
+                    aPackage.fReports.add(pReport);
+                }
+                else if (aDepth == 4 && aPackage != null && SUMMARY_ELEMENT.equals(aName))
+                    addAttributes(getAttributes(pReader), aPackage.fSummary);
+            }
+            else if (aEvent == XMLStreamConstants.END_ELEMENT)
+            {
+                if (aDepth == 3)
+                    aPackage = null;
+                else if (aDepth == 2)
+                    aInPackages = false;
+
+                aDepth--;
+            }
+        }
+    }
+
+
+    /**
+     * Read the root element and the summary attributes from a template report.
+     *
+     * @param pTemplate         The template report.
+     * @param pRootAttributes   A map to put the root element's attributes into.
+     * @param pSummary          A map to put the summary attributes into.
+     *
+     * @return  The name of the template's root element.
+     *
+     * @throws XMLStreamException   if parsing the template fails or if it has no root element.
+     */
+    private String scanTemplate(
+        InputStream pTemplate,
+        Map<String, String> pRootAttributes,
+        Map<String, String> pSummary) throws XMLStreamException
+    {
+        XMLStreamReader aReader = fInputFactory.createXMLStreamReader(pTemplate);
+        try
+        {
+            String aRootElement = null;
+            int aDepth = 0;
+            while (aReader.hasNext())
+            {
+                int aEvent = aReader.next();
+                if (aEvent == XMLStreamConstants.START_ELEMENT)
+                {
+                    aDepth++;
+                    if (aDepth == 1)
+                    {
+                        aRootElement = aReader.getLocalName();
+                        pRootAttributes.putAll(getAttributes(aReader));
+                    }
+                    else if (aDepth == 2 && SUMMARY_ELEMENT.equals(aReader.getLocalName()))
+                        pSummary.putAll(getAttributes(aReader));
+                }
+                else if (aEvent == XMLStreamConstants.END_ELEMENT)
+                    aDepth--;
+            }
+
+            if (aRootElement == null)
+                throw new XMLStreamException("Template report has no root element");
+
+            return aRootElement;
+        }
+        finally
+        {
+            aReader.close();
+        }
+    }
+
+
+    /**
+     * Write a package element with its summary and the package contents from all reports the
+     * package occurs in.
+     *
+     * @param pWriter   The writer to write the package to.
+     * @param pPackage  The package.
+     *
+     * @throws IOException  if reading any of the package's reports fails.
+     * @throws XMLStreamException   if parsing any of the reports or writing the package fails.
+     */
+    private void writePackage(XMLStreamWriter pWriter, PackageEntry pPackage)
+        throws IOException, XMLStreamException
+    {
+        pWriter.writeCharacters("\n    ");
+        pWriter.writeStartElement(PACKAGE_ELEMENT);
+        writeAttributes(pWriter, pPackage.fAttributes);
+        pWriter.writeCharacters("\n      ");
+        pWriter.writeEmptyElement(SUMMARY_ELEMENT);
+        writeAttributes(pWriter, pPackage.fSummary);
+        for (File aReport : pPackage.fReports)
+            copyPackageContents(pWriter, aReport, pPackage.fName);
+        pWriter.writeCharacters("\n    ");
+        pWriter.writeEndElement();
+    }
+
+
+    /**
+     * Copy the child elements of a package element in a report, except for its summary, to a
+     * writer.
+     *
+     * @param pWriter       The writer to copy the elements to.
+     * @param pReport       The report file.
+     * @param pPackageName  The name of the package.
+     *
+     * @throws IOException  if reading the report fails.
+     * @throws XMLStreamException   if parsing the report or writing the elements fails.
+     */
+    private void copyPackageContents(
+        XMLStreamWriter pWriter,
+        File pReport,
+        String pPackageName) throws IOException, XMLStreamException
+    {
+        try (InputStream aStream = new FileInputStream(pReport))
+        {
+            XMLStreamReader aReader = fInputFactory.createXMLStreamReader(aStream);
+            try
+            {
+                // Find the package element.
+                int aDepth = 0;
+                while (aReader.hasNext())
+                {
+                    int aEvent = aReader.next();
+                    if (aEvent == XMLStreamConstants.START_ELEMENT)
+                    {
+                        if (++aDepth == 3 && isPackage(aReader, pPackageName))
+                            break;
+                    }
+                    else if (aEvent == XMLStreamConstants.END_ELEMENT)
+                        aDepth--;
+                }
+
+                // Copy the package's child elements except the summary.
+                while (aReader.hasNext())
+                {
+                    int aEvent = aReader.next();
+                    if (aEvent == XMLStreamConstants.START_ELEMENT)
+                    {
+                        if (SUMMARY_ELEMENT.equals(aReader.getLocalName()))
+                            skipElement(aReader);
+                        else
+                        {
+                            pWriter.writeCharacters("\n      ");
+                            copyElement(aReader, pWriter);
+                        }
+                    }
+                    else if (aEvent == XMLStreamConstants.END_ELEMENT)
+                        // End of the package element.
+                        break;
+                }
+            }
+            finally
+            {
+                aReader.close();
+            }
+        }
+    }
+
+
+    /**
+     * Copy the element at the current position of a reader, including its attributes and
+     * contents, to a writer. When this method returns the reader is positioned at the element's
+     * end tag. Elements without content are written as empty elements.
+     *
+     * @param pReader   The reader, positioned at the start tag of the element to copy.
+     * @param pWriter   The writer to copy the element to.
+     *
+     * @throws XMLStreamException   if reading or writing fails.
+     */
+    static private void copyElement(XMLStreamReader pReader, XMLStreamWriter pWriter)
+        throws XMLStreamException
+    {
+        // The element start tag is written when the next event is known, since an element without
+        // content should be written as an empty element.
+        boolean aPendingStartElement = true;
+        String aPendingName = pReader.getLocalName();
+        Map<String, String> aPendingAttributes = getAttributes(pReader);
+        int aDepth = 1;
+        while (aDepth > 0 && pReader.hasNext())
+        {
+            int aEvent = pReader.next();
+            if (aPendingStartElement)
+            {
+                if (aEvent == XMLStreamConstants.END_ELEMENT)
+                    pWriter.writeEmptyElement(aPendingName);
+                else
+                    pWriter.writeStartElement(aPendingName);
+
+                writeAttributes(pWriter, aPendingAttributes);
+                aPendingStartElement = false;
+                if (aEvent == XMLStreamConstants.END_ELEMENT)
+                {
+                    aDepth--;
+                    continue;
+                }
+            }
+
+            switch (aEvent)
+            {
+                case XMLStreamConstants.START_ELEMENT:
+                    aDepth++;
+                    aPendingStartElement = true;
+                    aPendingName = pReader.getLocalName();
+                    aPendingAttributes = getAttributes(pReader);
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    aDepth--;
+                    pWriter.writeEndElement();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.SPACE:
+                    pWriter.writeCharacters(pReader.getText());
+                    break;
+                case XMLStreamConstants.CDATA:
+                    pWriter.writeCData(pReader.getText());
+                    break;
+                default:
+                    // Comments and processing instructions are not copied.
+                    break;
+            }
+        }
+    }
+
+
+    /**
+     * Skip the element at the current position of a reader. When this method returns the reader
+     * is positioned at the element's end tag.
+     *
+     * @param pReader   The reader, positioned at the start tag of the element to skip.
+     *
+     * @throws XMLStreamException   if reading fails.
+     */
+    static private void skipElement(XMLStreamReader pReader) throws XMLStreamException
+    {
+        int aDepth = 1;
+        while (aDepth > 0 && pReader.hasNext())
+        {
+            int aEvent = pReader.next();
+            if (aEvent == XMLStreamConstants.START_ELEMENT)
+                aDepth++;
+            else if (aEvent == XMLStreamConstants.END_ELEMENT)
+                aDepth--;
+        }
+    }
+
+
+    /**
+     * Write attributes to the element most recently started by a writer.
+     *
+     * @param pWriter       The writer.
+     * @param pAttributes   The attributes to write.
+     *
+     * @throws XMLStreamException   if writing fails.
+     */
+    static private void writeAttributes(XMLStreamWriter pWriter, Map<String, String> pAttributes)
+        throws XMLStreamException
+    {
+        for (Map.Entry<String, String> aAttribute : pAttributes.entrySet())
+            pWriter.writeAttribute(aAttribute.getKey(), aAttribute.getValue());
+    }
+
+
+    /**
+     * Get the entry for the package element at the current position of a reader, creating the
+     * entry if it doesn't exist.
+     *
+     * @param pReader   The reader positioned at a package start element.
+     *
+     * @return  The package entry, never null.
+     */
+    private PackageEntry getPackage(XMLStreamReader pReader)
+    {
+        Map<String, String> aAttributes = getAttributes(pReader);
+        String aName = aAttributes.getOrDefault(NAME_ATTRIBUTE, "");
+        return fPackages.computeIfAbsent(aName, n -> new PackageEntry(n, aAttributes));
+    }
+
+
+    /**
+     * Check if the start element at the current position of a reader is a package element for a
+     * specific package.
+     *
+     * @param pReader       The reader.
+     * @param pPackageName  The name of the package.
+     *
+     * @return  True if the element is a package element with the specified name, false if not.
+     */
+    static private boolean isPackage(XMLStreamReader pReader, String pPackageName)
+    {
+        if (!PACKAGE_ELEMENT.equals(pReader.getLocalName()))
+            return false;
+
+        String aName = pReader.getAttributeValue(null, NAME_ATTRIBUTE);
+        return pPackageName.equals(aName != null ? aName : "");
+    }
+
+
+    /**
+     * Get the attributes of the start element at the current position of a reader.
+     *
+     * @param pReader   The reader.
+     *
+     * @return  A map with the attribute values keyed by the attribute names, in document order.
+     */
+    static private Map<String, String> getAttributes(XMLStreamReader pReader)
+    {
+        Map<String, String> aAttributes = new LinkedHashMap<>();
+        for (int i=0; i<pReader.getAttributeCount(); i++)
+            aAttributes.put(pReader.getAttributeLocalName(i), pReader.getAttributeValue(i));
+
+        return aAttributes;
+    }
+
+
+    /**
+     * Add summary attribute values to a map of attribute sums. Numeric values are added to the
+     * existing sum; for non-numeric values the first value is kept.
+     *
+     * @param pValues   The values to add.
+     * @param pSums     The sums to add the values to.
+     */
+    static private void addAttributes(Map<String, String> pValues, Map<String, String> pSums)
+    {
+        for (Map.Entry<String, String> aValue : pValues.entrySet())
+            pSums.merge(aValue.getKey(), aValue.getValue(), MetricsReportMerger::add);
+    }
+
+
+    /**
+     * Add two numeric attribute values.
+     *
+     * @param pValue1   The first value.
+     * @param pValue2   The second value.
+     *
+     * @return  The sum of the values, or the first value if any of the values isn't an integer.
+     */
+    static private String add(String pValue1, String pValue2)
+    {
+        try
+        {
+            return String.valueOf(Long.parseLong(pValue1) + Long.parseLong(pValue2));
+        }
+        catch (NumberFormatException ignore)
+        {
+            return pValue1;
+        }
+    }
+
+
+    /**
+     * The summary and the report files of a package in the merged report.
+     */
+    static private class PackageEntry
+    {
+        final String fName;
+        final Map<String, String> fAttributes;
+        final Map<String, String> fSummary = new LinkedHashMap<>();
+        final List<File> fReports = new ArrayList<>();
+
+        PackageEntry(String pName, Map<String, String> pAttributes)
+        {
+            fName = pName;
+            fAttributes = pAttributes;
+        }
+    }
+}
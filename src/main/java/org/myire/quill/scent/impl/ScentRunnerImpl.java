@@ -1,26 +1,45 @@
 /*
- * Copyright 2016, 2018, 2022 Peter Franzen. All rights reserved.
+ * Copyright 2016, 2018, 2022, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
 package org.myire.quill.scent.impl;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 
 import org.myire.scent.collect.JavaLanguageLevel;
 import org.myire.scent.collect.JavaMetricsCollector;
+import org.myire.scent.metrics.JavaMetrics;
 import org.myire.scent.report.MetricsReportMetaData;
 import org.myire.scent.report.XmlReportWriter;
 
+import org.myire.quill.scent.ScentParameters;
 import org.myire.quill.scent.ScentRunner;
 
 
@@ -31,6 +50,10 @@ import org.myire.quill.scent.ScentRunner;
  */
 public class ScentRunnerImpl implements ScentRunner
 {
+    // The number of file batches to create per thread when collecting metrics in parallel. More
+    // batches than threads evens out the load when the batches take different time to process.
+    static private final int BATCHES_PER_THREAD = 4;
+
     private final Logger fLogger = Logging.getLogger(ScentRunnerImpl.class);
 
 
@@ -39,42 +62,118 @@ public class ScentRunnerImpl implements ScentRunner
      * for them, and create an XML report from the collected metrics.
      *
      * @param pFiles            The files and/or directories to collect Java file metrics from.
-     * @param pLanguageLevel    The Java language level to use when parsing the source files. Pass
-     *                          {@code 0} to use the default language level.
-     * @param pEnableLanguagePreviews
-     *                          If true, language feature previews at the specified language level
-     *                          will be enabled.
      * @param pCharset          The charset the Java files are encoded with.
+     * @param pParameters       The parameters controlling the metrics collection.
+     * @param pCacheDirectory   The directory of the cache with metrics collected from individual
+     *                          files in previous runs, or null to collect the metrics without
+     *                          using a cache.
+     * @param pModifiedFiles    The files that have been added or modified since the previous run,
+     *                          or null if unknown. Only used when a cache directory is specified.
+     * @param pTemporaryDirectory
+     *                          The directory to create temporary files in.
      * @param pReportFile       The file to write the XML report to.
      *
-     * @throws IOException  if writing the report file fails.
-     *
-     * @throws NullPointerException if any of the parameters is null.
+     * @throws IOException  if writing the report file fails, or if the calling thread is
+     *                      interrupted while waiting for the metrics to be collected.
      *
+     * @throws NullPointerException if {@code pFiles}, {@code pCharset}, {@code pParameters},
+     *                              {@code pTemporaryDirectory}, or {@code pReportFile} is null.
      */
     @Override
     public void collectMetricsAsXml(
         Collection<File> pFiles,
         Charset pCharset,
-        int pLanguageLevel,
-        boolean pEnableLanguagePreviews,
+        ScentParameters pParameters,
+        File pCacheDirectory,
+        Collection<File> pModifiedFiles,
+        File pTemporaryDirectory,
         File pReportFile) throws IOException
     {
+        int aLanguageLevelValue = pParameters.getLanguageLevel();
         JavaLanguageLevel aLanguageLevel =
-            pLanguageLevel == 0 ?
+            aLanguageLevelValue == 0 ?
                 JavaLanguageLevel.getDefault():
-                    JavaLanguageLevel.forNumericValue(pLanguageLevel);
+                    JavaLanguageLevel.forNumericValue(aLanguageLevelValue);
         if (aLanguageLevel == null)
         {
             aLanguageLevel = JavaLanguageLevel.getDefault();
             fLogger.error(
                 "Java language level " +
-                pLanguageLevel +
+                aLanguageLevelValue +
                 " is not supported, using default level " +
                 aLanguageLevel.getNumericValue());
         }
 
-        JavaMetricsCollector aCollector = new JavaMetricsCollector(aLanguageLevel, pEnableLanguagePreviews);
+        boolean aEnableLanguagePreviews = pParameters.isEnableLanguagePreviews();
+        int aMaxParallelism = pParameters.getMaxParallelism();
+        boolean aIncludeTimestamp = pParameters.isIncludeTimestamp();
+        if (pCacheDirectory != null)
+        {
+            collectWithCache(
+                pFiles,
+                pModifiedFiles,
+                pCharset,
+                aLanguageLevel,
+                aEnableLanguagePreviews,
+                aMaxParallelism,
+                pCacheDirectory,
+                aIncludeTimestamp,
+                pReportFile);
+        }
+        else if (pParameters.isStreamingReport())
+        {
+            collectStreaming(
+                pFiles,
+                pCharset,
+                aLanguageLevel,
+                aEnableLanguagePreviews,
+                aMaxParallelism,
+                aIncludeTimestamp,
+                pTemporaryDirectory,
+                pReportFile);
+        }
+        else
+        {
+            JavaMetrics aMetrics =
+                aMaxParallelism > 1 ?
+                    collectInParallel(pFiles, pCharset, aLanguageLevel, aEnableLanguagePreviews, aMaxParallelism) :
+                    collect(pFiles, pCharset, aLanguageLevel, aEnableLanguagePreviews);
+
+            // Write the collected metrics as an XML report.
+            if (aIncludeTimestamp)
+            {
+                try (FileOutputStream aStream = new FileOutputStream(pReportFile))
+                {
+                    writeReport(aMetrics, aStream);
+                }
+            }
+            else
+                writeReportWithoutTimestamp(aMetrics, pReportFile);
+        }
+    }
+
+
+    /**
+     * Collect metrics from a collection of files on the calling thread.
+     *
+     * @param pFiles            The files and/or directories to collect Java file metrics from.
+     * @param pCharset          The charset the Java files are encoded with.
+     * @param pLanguageLevel    The Java language level to use when parsing the source files.
+     * @param pEnableLanguagePreviews
+     *                          If true, language feature previews at the specified language level
+     *                          will be enabled.
+     *
+     * @return  The collected metrics, never null.
+     *
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    private JavaMetrics collect(
+        Collection<File> pFiles,
+        Charset pCharset,
+        JavaLanguageLevel pLanguageLevel,
+        boolean pEnableLanguagePreviews)
+    {
+        JavaMetricsCollector aCollector = new JavaMetricsCollector(pLanguageLevel, pEnableLanguagePreviews);
 
         // Visit each file/directory in the collection and pass the Java files to the
         // JavaMetricsCollector.
@@ -92,17 +191,603 @@ public class ScentRunnerImpl implements ScentRunner
             }
         }
 
-        // Write the XML report.
+        return aCollector.getCollectedMetrics();
+    }
+
+
+    /**
+     * Collect metrics from a collection of files using a pool of threads. The files are divided
+     * into consecutive batches that are processed by separate {@code JavaMetricsCollector}
+     * instances, and the metrics from the batches are merged in the order the files would have
+     * been visited by {@link #collect(Collection, Charset, JavaLanguageLevel, boolean)}. The result
+     * is thus the same as if the files had been processed serially.
+     *
+     * @param pFiles            The files and/or directories to collect Java file metrics from.
+     * @param pCharset          The charset the Java files are encoded with.
+     * @param pLanguageLevel    The Java language level to use when parsing the source files.
+     * @param pEnableLanguagePreviews
+     *                          If true, language feature previews at the specified language level
+     *                          will be enabled.
+     * @param pMaxParallelism   The maximum number of threads to use.
+     *
+     * @return  The collected metrics, never null.
+     *
+     * @throws InterruptedIOException   if the calling thread is interrupted while waiting for the
+     *                                  metrics to be collected.
+     * @throws NullPointerException     if any of the parameters is null.
+     */
+    private JavaMetrics collectInParallel(
+        Collection<File> pFiles,
+        Charset pCharset,
+        JavaLanguageLevel pLanguageLevel,
+        boolean pEnableLanguagePreviews,
+        int pMaxParallelism) throws InterruptedIOException
+    {
+        // Find the files to collect metrics from, in the order a serial collection visits them.
+        List<Path> aPaths = listFiles(pFiles);
+
+        // Merge the batch results in the order of the batches.
+        JavaMetricsMerger aMerger = new JavaMetricsMerger();
+        List<JavaMetrics> aBatchMetrics =
+            processInBatches(
+                aPaths,
+                pMaxParallelism,
+                b -> collectBatch(b, pCharset, pLanguageLevel, pEnableLanguagePreviews));
+        for (JavaMetrics aMetrics : aBatchMetrics)
+            aMerger.merge(aMetrics);
+
+        return aMerger.getMergedMetrics();
+    }
+
+
+    /**
+     * Collect metrics from a collection of files and write them to an XML report, using a cache
+     * with metrics collected from individual files in previous runs. Only files that aren't in the
+     * cache are parsed, and the metrics from those files are added to the cache. The report is
+     * then created by merging the cached metrics of all files.
+     *
+     * @param pFiles            The files and/or directories to collect Java file metrics from.
+     * @param pModifiedFiles    The files that have been added or modified since the previous run,
+     *                          or null if unknown, in which case the cache keys of all files are
+     *                          computed from their contents.
+     * @param pCharset          The charset the Java files are encoded with.
+     * @param pLanguageLevel    The Java language level to use when parsing the source files.
+     * @param pEnableLanguagePreviews
+     *                          If true, language feature previews at the specified language level
+     *                          will be enabled.
+     * @param pMaxParallelism   The maximum number of threads to parse files with.
+     * @param pCacheDirectory   The cache directory.
+     * @param pIncludeTimestamp If true, the report will contain the current date and time.
+     * @param pReportFile       The file to write the XML report to.
+     *
+     * @throws IOException  if reading the cache or writing the report file fails, or if the calling
+     *                      thread is interrupted while waiting for the metrics to be collected.
+     * @throws NullPointerException if any of the parameters except {@code pModifiedFiles} is null.
+     */
+    private void collectWithCache(
+        Collection<File> pFiles,
+        Collection<File> pModifiedFiles,
+        Charset pCharset,
+        JavaLanguageLevel pLanguageLevel,
+        boolean pEnableLanguagePreviews,
+        int pMaxParallelism,
+        File pCacheDirectory,
+        boolean pIncludeTimestamp,
+        File pReportFile) throws IOException
+    {
+        String aSettings =
+            "languageLevel=" + pLanguageLevel.getNumericValue() +
+            ";enableLanguagePreviews=" + pEnableLanguagePreviews +
+            ";charset=" + pCharset.name() +
+            ";scent=" + org.myire.scent.Main.class.getPackage().getImplementationVersion();
+        MetricsCache aCache = new MetricsCache(pCacheDirectory, aSettings);
+        if (pModifiedFiles != null)
+            aCache.loadIndex();
+
+        // Get the cache key of each file. The key of a file known to be unmodified is taken from
+        // the cache index, the keys of all other files are computed from their contents.
+        List<Path> aPaths = listFiles(pFiles);
+        Map<Path, String> aKeys = new LinkedHashMap<>();
+        List<Path> aUncachedFiles = new ArrayList<>();
+        for (Path aPath : aPaths)
+        {
+            try
+            {
+                String aKey =
+                    pModifiedFiles != null && !pModifiedFiles.contains(aPath.toFile()) ?
+                        aCache.getIndexedKey(aPath) :
+                        null;
+                if (aKey == null || !aCache.contains(aKey))
+                {
+                    aKey = aCache.computeKey(aPath);
+                    if (!aCache.contains(aKey))
+                        aUncachedFiles.add(aPath);
+                }
+
+                aKeys.put(aPath, aKey);
+            }
+            catch (IOException e)
+            {
+                // Log and continue with the next file.
+                fLogger.error("Error when collecting metrics from " + aPath + ": " + e.getMessage());
+            }
+        }
+
+        fLogger.debug("Collecting metrics from {} of {} files", aUncachedFiles.size(), aPaths.size());
+
+        // Collect metrics from the files not in the cache.
+        processInBatches(
+            aUncachedFiles,
+            pMaxParallelism,
+            b -> collectIntoCache(b, aKeys, aCache, pCharset, pLanguageLevel, pEnableLanguagePreviews));
+
+        // Files that metrics couldn't be collected from are not in the cache and will not be part
+        // of the report, as is the case when not using a cache.
+        aKeys.values().removeIf(k -> !aCache.contains(k));
+        aCache.updateIndex(aKeys);
+
+        // Merge the cached metrics into the report.
+        MetricsReportMerger aMerger = new MetricsReportMerger();
+        for (String aKey : aKeys.values())
+            aMerger.add(aCache.getEntryFile(aKey));
+
+        writeMergedReport(aMerger, pIncludeTimestamp, pReportFile);
+    }
+
+
+    /**
+     * Collect metrics from a collection of files and write them to an XML report without holding
+     * all collected metrics in memory. The files are grouped by directory, and the metrics of each
+     * group are written to a temporary report as soon as they have been collected. The final
+     * report is then created by merging the temporary reports, which is done one package at a
+     * time. The result is the same as if the metrics for all files were collected before writing
+     * the report.
+     *
+     * @param pFiles            The files and/or directories to collect Java file metrics from.
+     * @param pCharset          The charset the Java files are encoded with.
+     * @param pLanguageLevel    The Java language level to use when parsing the source files.
+     * @param pEnableLanguagePreviews
+     *                          If true, language feature previews at the specified language level
+     *                          will be enabled.
+     * @param pMaxParallelism   The maximum number of threads to parse files with.
+     * @param pIncludeTimestamp If true, the report will contain the current date and time.
+     * @param pTemporaryDirectory
+     *                          The directory to create the temporary reports in.
+     * @param pReportFile       The file to write the XML report to.
+     *
+     * @throws IOException  if creating the temporary reports or writing the report file fails, or
+     *                      if the calling thread is interrupted while waiting for the metrics to
+     *                      be collected.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    private void collectStreaming(
+        Collection<File> pFiles,
+        Charset pCharset,
+        JavaLanguageLevel pLanguageLevel,
+        boolean pEnableLanguagePreviews,
+        int pMaxParallelism,
+        boolean pIncludeTimestamp,
+        File pTemporaryDirectory,
+        File pReportFile) throws IOException
+    {
+        // Consecutive files in the same directory normally belong to the same package.
+        List<List<Path>> aDirectories = groupByDirectory(listFiles(pFiles));
+
+        // The temporary reports are created in a directory of their own, which allows them to be
+        // deleted without affecting other files in the temporary directory, e.g. a metrics cache.
+        Files.createDirectories(pTemporaryDirectory.toPath());
+        Path aFragmentDirectory = Files.createTempDirectory(pTemporaryDirectory.toPath(), "fragments");
+        try
+        {
+            List<List<File>> aFragments =
+                processInBatches(
+                    aDirectories,
+                    pMaxParallelism,
+                    b -> collectIntoFragments(b, aFragmentDirectory, pCharset, pLanguageLevel, pEnableLanguagePreviews));
+
+            // Merge the temporary reports in the order they were created in.
+            MetricsReportMerger aMerger = new MetricsReportMerger();
+            for (List<File> aBatchFragments : aFragments)
+                for (File aFragment : aBatchFragments)
+                    aMerger.add(aFragment);
+
+            writeMergedReport(aMerger, pIncludeTimestamp, pReportFile);
+        }
+        finally
+        {
+            deleteDirectory(aFragmentDirectory.toFile());
+        }
+    }
+
+
+    /**
+     * Process a list of items, e.g. files, in consecutive batches using a pool of threads. If the
+     * maximum parallelism is less than 2, or if the items are too few to be divided into more than
+     * one batch, all items are processed on the calling thread.
+     *
+     * @param pItems            The items to process.
+     * @param pMaxParallelism   The maximum number of threads to use.
+     * @param pBatchProcessor   The function that processes a batch of items.
+     *
+     * @param <E>   The type of the items to process.
+     * @param <T>   The type of the batch processing result.
+     *
+     * @return  The results of the batches, in the order of the batches in the item list.
+     *
+     * @throws InterruptedIOException   if the calling thread is interrupted while waiting for the
+     *                                  batches to be processed.
+     * @throws IllegalStateException    if processing a batch throws a checked exception. Unchecked
+     *                                  exceptions and errors are rethrown as they are.
+     * @throws NullPointerException     if any of the parameters is null.
+     */
+    <E, T> List<T> processInBatches(
+        List<E> pItems,
+        int pMaxParallelism,
+        Function<List<E>, T> pBatchProcessor) throws InterruptedIOException
+    {
+        int aNumBatches = Math.min(pItems.size(), pMaxParallelism * BATCHES_PER_THREAD);
+        if (pMaxParallelism <= 1 || aNumBatches <= 1)
+            return Collections.singletonList(pBatchProcessor.apply(pItems));
+
+        fLogger.debug(
+            "Processing {} items in {} batches using at most {} threads",
+            pItems.size(),
+            aNumBatches,
+            pMaxParallelism);
+
+        ExecutorService aExecutor = Executors.newFixedThreadPool(Math.min(pMaxParallelism, aNumBatches));
+        try
+        {
+            // Submit the batches, which are consecutive ranges of the item list.
+            List<Future<T>> aBatches = new ArrayList<>(aNumBatches);
+            for (int i=0; i<aNumBatches; i++)
+            {
+                List<E> aBatch =
+                    pItems.subList(
+                        i * pItems.size() / aNumBatches,
+                        (i + 1) * pItems.size() / aNumBatches);
+                aBatches.add(aExecutor.submit(() -> pBatchProcessor.apply(aBatch)));
+            }
+
+            // Collect the batch results in the order of the batches.
+            List<T> aResults = new ArrayList<>(aNumBatches);
+            for (Future<T> aBatch : aBatches)
+            {
+                try
+                {
+                    aResults.add(aBatch.get());
+                }
+                catch (ExecutionException e)
+                {
+                    // Errors in individual files are handled by the batch processor, an exception
+                    // from a batch would leave the batch's files out of the report and is rethrown
+                    // in the same way as when the items are processed on the calling thread.
+                    Throwable aCause = e.getCause();
+                    if (aCause instanceof Error)
+                        throw (Error) aCause;
+                    else if (aCause instanceof RuntimeException)
+                        throw (RuntimeException) aCause;
+                    else
+                        throw new IllegalStateException("Could not collect metrics", aCause);
+                }
+            }
+
+            return aResults;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while collecting metrics");
+        }
+        finally
+        {
+            aExecutor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Collect metrics from a batch of files with a new {@code JavaMetricsCollector}.
+     *
+     * @param pFiles            The files to collect Java file metrics from.
+     * @param pCharset          The charset the Java files are encoded with.
+     * @param pLanguageLevel    The Java language level to use when parsing the source files.
+     * @param pEnableLanguagePreviews
+     *                          If true, language feature previews at the specified language level
+     *                          will be enabled.
+     *
+     * @return  The collected metrics, never null.
+     *
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    private JavaMetrics collectBatch(
+        List<Path> pFiles,
+        Charset pCharset,
+        JavaLanguageLevel pLanguageLevel,
+        boolean pEnableLanguagePreviews)
+    {
+        JavaMetricsCollector aCollector = new JavaMetricsCollector(pLanguageLevel, pEnableLanguagePreviews);
+        CollectingFileVisitor aVisitor = new CollectingFileVisitor(aCollector, pCharset);
+        for (Path aFile : pFiles)
+            visitFile(aVisitor, aFile);
+
+        return aCollector.getCollectedMetrics();
+    }
+
+
+    /**
+     * Collect metrics from a batch of files and add them to a cache. The metrics of each file are
+     * collected with a new {@code JavaMetricsCollector} to keep them separated from the metrics of
+     * the other files.
+     *
+     * @param pFiles            The files to collect Java file metrics from.
+     * @param pKeys             The cache keys of the files.
+     * @param pCache            The cache to add the metrics to.
+     * @param pCharset          The charset the Java files are encoded with.
+     * @param pLanguageLevel    The Java language level to use when parsing the source files.
+     * @param pEnableLanguagePreviews
+     *                          If true, language feature previews at the specified language level
+     *                          will be enabled.
+     *
+     * @return  The number of files whose metrics were added to the cache.
+     *
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    private int collectIntoCache(
+        List<Path> pFiles,
+        Map<Path, String> pKeys,
+        MetricsCache pCache,
+        Charset pCharset,
+        JavaLanguageLevel pLanguageLevel,
+        boolean pEnableLanguagePreviews)
+    {
+        int aNumCachedFiles = 0;
+        for (Path aFile : pFiles)
+        {
+            JavaMetricsCollector aCollector = new JavaMetricsCollector(pLanguageLevel, pEnableLanguagePreviews);
+            visitFile(new CollectingFileVisitor(aCollector, pCharset), aFile);
+
+            // Files that couldn't be parsed have no metrics and are not cached.
+            JavaMetrics aMetrics = aCollector.getCollectedMetrics();
+            if (aMetrics.getPackages().iterator().hasNext())
+            {
+                try
+                {
+                    pCache.put(pKeys.get(aFile), aMetrics);
+                    aNumCachedFiles++;
+                }
+                catch (IOException e)
+                {
+                    // Log and continue with the next file.
+                    fLogger.error("Could not cache the metrics collected from " + aFile + ": " + e.getMessage());
+                }
+            }
+        }
+
+        return aNumCachedFiles;
+    }
+
+
+    /**
+     * Collect metrics from batches of files and write the metrics of each batch to a temporary
+     * report. The metrics of a batch are released before the next batch is processed.
+     *
+     * @param pBatches              The batches of files to collect Java file metrics from.
+     * @param pFragmentDirectory    The directory to create the temporary reports in.
+     * @param pCharset              The charset the Java files are encoded with.
+     * @param pLanguageLevel        The Java language level to use when parsing the source files.
+     * @param pEnableLanguagePreviews
+     *                              If true, language feature previews at the specified language
+     *                              level will be enabled.
+     *
+     * @return  The temporary reports, in the order of the batches, never null. Batches without
+     *          metrics don't have a temporary report.
+     *
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    private List<File> collectIntoFragments(
+        List<List<Path>> pBatches,
+        Path pFragmentDirectory,
+        Charset pCharset,
+        JavaLanguageLevel pLanguageLevel,
+        boolean pEnableLanguagePreviews)
+    {
+        List<File> aFragments = new ArrayList<>(pBatches.size());
+        for (List<Path> aBatch : pBatches)
+        {
+            JavaMetrics aMetrics = collectBatch(aBatch, pCharset, pLanguageLevel, pEnableLanguagePreviews);
+            if (!aMetrics.getPackages().iterator().hasNext())
+                continue;
+
+            try
+            {
+                File aFragment = Files.createTempFile(pFragmentDirectory, "metrics", ".xml").toFile();
+                try (FileOutputStream aStream = new FileOutputStream(aFragment))
+                {
+                    writeReport(aMetrics, aStream);
+                }
+
+                aFragments.add(aFragment);
+            }
+            catch (IOException e)
+            {
+                // Log and continue with the next batch.
+                fLogger.error(
+                    "Could not write the metrics collected from " +
+                    aBatch.get(0).getParent() +
+                    ": " +
+                    e.getMessage());
+            }
+        }
+
+        return aFragments;
+    }
+
+
+    /**
+     * Let a {@code CollectingFileVisitor} visit a single file.
+     *
+     * @param pVisitor  The visitor.
+     * @param pFile     The file to visit.
+     *
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    static private void visitFile(CollectingFileVisitor pVisitor, Path pFile)
+    {
+        try
+        {
+            pVisitor.visitFile(pFile, Files.readAttributes(pFile, BasicFileAttributes.class));
+        }
+        catch (IOException e)
+        {
+            pVisitor.visitFileFailed(pFile, e);
+        }
+    }
+
+
+    /**
+     * List all regular files in a collection of files and directories. Directories are walked
+     * recursively in the same way as {@link #collect(Collection, Charset, JavaLanguageLevel, boolean)}
+     * walks them.
+     *
+     * @param pFiles    The files and/or directories to list.
+     *
+     * @return  A list with the regular files, in the order they were visited, never null.
+     *
+     * @throws NullPointerException if {@code pFiles} is null.
+     */
+    private List<Path> listFiles(Collection<File> pFiles)
+    {
+        FileListingVisitor aVisitor = new FileListingVisitor();
+        for (File aFile : pFiles)
+        {
+            try
+            {
+                Files.walkFileTree(aFile.toPath(), aVisitor);
+            }
+            catch (IOException e)
+            {
+                // Log and continue with the next file.
+                fLogger.error("Error when collecting metrics from " + aFile + ": " + e.getMessage());
+            }
+        }
+
+        return aVisitor.getFiles();
+    }
+
+
+    /**
+     * Write metrics as an XML report with the current time and the Scent library version as
+     * report metadata.
+     *
+     * @param pMetrics  The metrics.
+     * @param pStream   The stream to write the report to.
+     *
+     * @throws IOException  if writing to the stream fails.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    static private void writeReport(JavaMetrics pMetrics, OutputStream pStream) throws IOException
+    {
+        // Get the current timestamp and the version string of the Scent library.
+        MetricsReportMetaData aReportMetaData = new MetricsReportMetaData(
+            LocalDateTime.now().withNano(0),
+            org.myire.scent.Main.class.getPackage().getImplementationVersion());
+
+        XmlReportWriter aReportWriter = new XmlReportWriter(pStream);
+        aReportWriter.writeReport(pMetrics, aReportMetaData);
+    }
+
+
+    /**
+     * Write metrics as an XML report without the date and time attributes normally written by
+     * Scent. The attributes are removed from the report's root element while it is written.
+     *
+     * @param pMetrics      The metrics.
+     * @param pReportFile   The file to write the report to.
+     *
+     * @throws IOException  if writing the report file fails.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    static private void writeReportWithoutTimestamp(JavaMetrics pMetrics, File pReportFile) throws IOException
+    {
+        try (OutputStream aStream = new TimestampFilterStream(new FileOutputStream(pReportFile)))
+        {
+            writeReport(pMetrics, aStream);
+        }
+    }
+
+
+    /**
+     * Write a merged report, using an empty report with the current report metadata as template.
+     *
+     * @param pMerger           The merger holding the reports to merge.
+     * @param pIncludeTimestamp If true, the report will contain the current date and time.
+     * @param pReportFile       The file to write the merged report to.
+     *
+     * @throws IOException  if reading any of the merged reports or writing the report file fails.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    static private void writeMergedReport(
+        MetricsReportMerger pMerger,
+        boolean pIncludeTimestamp,
+        File pReportFile) throws IOException
+    {
+        ByteArrayOutputStream aTemplate = new ByteArrayOutputStream();
+        writeReport(new JavaMetrics(), aTemplate);
         try (FileOutputStream aStream = new FileOutputStream(pReportFile))
         {
-            // Get the current timestamp and the version string of the Scent library.
-            MetricsReportMetaData aReportMetaData = new MetricsReportMetaData(
-                LocalDateTime.now().withNano(0),
-                org.myire.scent.Main.class.getPackage().getImplementationVersion());
+            pMerger.write(new ByteArrayInputStream(aTemplate.toByteArray()), pIncludeTimestamp, aStream);
+        }
+    }
 
-            // Write the collected metrics as an XML report.
-            XmlReportWriter aReportWriter = new XmlReportWriter(aStream);
-            aReportWriter.writeReport(aCollector.getCollectedMetrics(), aReportMetaData);
+
+    /**
+     * Group a list of files into consecutive runs of files in the same directory.
+     *
+     * @param pFiles    The files to group.
+     *
+     * @return  A list with the groups, in the order of the files, never null.
+     *
+     * @throws NullPointerException if {@code pFiles} is null.
+     */
+    static private List<List<Path>> groupByDirectory(List<Path> pFiles)
+    {
+        List<List<Path>> aGroups = new ArrayList<>();
+        List<Path> aGroup = null;
+        Path aDirectory = null;
+        for (Path aFile : pFiles)
+        {
+            Path aParent = aFile.getParent();
+            if (aGroup == null || !Objects.equals(aParent, aDirectory))
+            {
+                aGroup = new ArrayList<>();
+                aGroups.add(aGroup);
+                aDirectory = aParent;
+            }
+
+            aGroup.add(aFile);
+        }
+
+        return aGroups;
+    }
+
+
+    /**
+     * Delete a directory and the files in it. Errors are ignored.
+     *
+     * @param pDirectory    The directory to delete.
+     *
+     * @throws NullPointerException if {@code pDirectory} is null.
+     */
+    static private void deleteDirectory(File pDirectory)
+    {
+        File[] aFiles = pDirectory.listFiles();
+        if (aFiles != null)
+        {
+            for (File aFile : aFiles)
+                aFile.delete();
         }
+
+        pDirectory.delete();
     }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.scent.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+
+/**
+ * An output stream that removes the date and time attributes from the root element of an XML
+ * report written to it. The bytes up to and including the root element's start tag are held back
+ * until the start tag is complete, all subsequent bytes are passed directly to the underlying
+ * stream.
+ *<p>
+ * The start tag is decoded as ISO-8859-1, which maps each byte to one character and back, and the
+ * bytes of any multi-byte characters are thus left untouched.
+ */
+class TimestampFilterStream extends FilterOutputStream
+{
+    static private final Pattern TIMESTAMP_ATTRIBUTES =
+        Pattern.compile("\\s+(date|time)\\s*=\\s*(\"[^\"]*\"|'[^']*')");
+    static private final Charset BYTE_CHARSET = StandardCharsets.ISO_8859_1;
+
+    // The bytes written before the end of the root element's start tag, null when they have been
+    // passed to the underlying stream.
+    private ByteArrayOutputStream fHead = new ByteArrayOutputStream(256);
+
+    // The position in the head of the most recent '<'.
+    private int fTagStart = -1;
+
+
+    /**
+     * Create a new {@code TimestampFilterStream}.
+     *
+     * @param pStream   The stream to write the filtered report to.
+     */
+    TimestampFilterStream(OutputStream pStream)
+    {
+        super(pStream);
+    }
+
+
+    @Override
+    public void write(int pByte) throws IOException
+    {
+        if (fHead == null)
+        {
+            out.write(pByte);
+            return;
+        }
+
+        if (pByte == '<')
+            fTagStart = fHead.size();
+
+        fHead.write(pByte);
+        if (pByte == '>' && fTagStart >= 0 && isElementStart())
+            writeHead(true);
+    }
+
+
+    @Override
+    public void write(byte[] pBytes, int pOffset, int pLength) throws IOException
+    {
+        int i = pOffset;
+        int aEnd = pOffset + pLength;
+        while (fHead != null && i < aEnd)
+            write(pBytes[i++]);
+
+        if (i < aEnd)
+            out.write(pBytes, i, aEnd - i);
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        // Pass on anything held back if the root element's start tag never was completed.
+        if (fHead != null)
+            writeHead(false);
+
+        super.close();
+    }
+
+
+    /**
+     * Check if the tag starting at the most recent '&lt;' in the head is an element, i.e. not an
+     * XML declaration, a processing instruction, a comment, or a DOCTYPE declaration.
+     *
+     * @return  True if the tag is an element's start tag, false if not.
+     */
+    private boolean isElementStart()
+    {
+        byte[] aHead = fHead.toByteArray();
+        if (fTagStart + 1 >= aHead.length)
+            return false;
+
+        byte aFirst = aHead[fTagStart + 1];
+        return aFirst != '?' && aFirst != '!';
+    }
+
+
+    /**
+     * Write the bytes held back to the underlying stream, optionally removing the timestamp
+     * attributes from them.
+     *
+     * @param pFilter   If true, the timestamp attributes will be removed.
+     *
+     * @throws IOException  if writing to the underlying stream fails.
+     */
+    private void writeHead(boolean pFilter) throws IOException
+    {
+        byte[] aHead = fHead.toByteArray();
+        fHead = null;
+
+        if (pFilter)
+        {
+            String aPrologue = new String(aHead, 0, fTagStart, BYTE_CHARSET);
+            String aStartTag = new String(aHead, fTagStart, aHead.length - fTagStart, BYTE_CHARSET);
+            aHead = (aPrologue + TIMESTAMP_ATTRIBUTES.matcher(aStartTag).replaceAll("")).getBytes(BYTE_CHARSET);
+        }
+
+        out.write(aHead);
+    }
+}
@@ -7,6 +7,7 @@
  *
  * 2014-03-14 /PF    Created from the full report XSL.
  * 2015-11-25 /PF    Updated to new dashboard look.
+ * 2026-10-17 /PF    Added template for the summary extracted by the dashboard.
  *
  *******************************************************************************
 -->
@@ -30,17 +31,48 @@
 
   <!-- Main template for the document root -->
   <xsl:template match="/">
-    <xsl:apply-templates select="checkstyle"/>
+    <xsl:apply-templates select="checkstyle|checkstyle-summary"/>
   </xsl:template>
 
 
   <!-- Template for the checkstyle element, which is the top-level element in
        the Checkstyle report -->
   <xsl:template match="checkstyle">
+    <xsl:call-template name="output-summary-section">
+      <xsl:with-param name="version" select="@version"/>
+      <!-- Checkstyle may loop through the fileset multiple times depending on
+           which checks are run, and a file may thus occur more than once in
+           the output -->
+      <xsl:with-param name="num-analyzed-files"
+                      select="count(file[generate-id() = generate-id(key('filename', @name)[1])])"/>
+      <xsl:with-param name="num-files-with-violations"
+                      select="count(file/error[generate-id() = generate-id(key('violatingfilename', ../@name)[1])])"/>
+      <xsl:with-param name="num-errors" select="count(file/error[@severity='error'])"/>
+      <xsl:with-param name="num-warnings" select="count(file/error[@severity='warning'])"/>
+    </xsl:call-template>
+  </xsl:template>
+
+
+  <!-- Template for the checkstyle-summary element, which holds the counts
+       extracted from a Checkstyle report by the reports dashboard -->
+  <xsl:template match="checkstyle-summary">
+    <xsl:call-template name="output-summary-section">
+      <xsl:with-param name="version" select="@version"/>
+      <xsl:with-param name="num-analyzed-files" select="@files"/>
+      <xsl:with-param name="num-files-with-violations" select="@files-with-violations"/>
+      <xsl:with-param name="num-errors" select="@errors"/>
+      <xsl:with-param name="num-warnings" select="@warnings"/>
+    </xsl:call-template>
+  </xsl:template>
+
 
-  <!-- Count the total number of errors and warnings -->
-  <xsl:variable name="num-errors" select="count(file/error[@severity='error'])"/>
-  <xsl:variable name="num-warnings" select="count(file/error[@severity='warning'])"/>
+  <!-- Output the Checkstyle summary section -->
+  <xsl:template name="output-summary-section">
+    <xsl:param name="version"/>
+    <xsl:param name="num-analyzed-files"/>
+    <xsl:param name="num-files-with-violations"/>
+    <xsl:param name="num-errors"/>
+    <xsl:param name="num-warnings"/>
 
     <!-- The Checkstyle summary section -->
     <div class="summarysection">
@@ -51,7 +83,7 @@
       <!-- Intro text -->
       <div class="summarysectionitem">
         <span class="summaryintro">
-          Checkstyle <xsl:value-of select="@version"/> report created
+          Checkstyle <xsl:value-of select="$version"/> report created
           <xsl:value-of select="$xml-modified-date"/>&#160;<xsl:value-of select="$xml-modified-time"/>
         </span>
       </div>
@@ -59,13 +91,8 @@
         <!-- Summary table -->
       <div class="summarysectionitem">
         <xsl:call-template name="output-summary-table">
-          <!-- Checkstyle may loop through the fileset multiple times depending on
-               which checks are run, and a file may thus occur more than once in
-               the output -->
-          <xsl:with-param name="num-analyzed-files"
-                          select="count(file[generate-id() = generate-id(key('filename', @name)[1])])"/>
-          <xsl:with-param name="num-files-with-violations"
-                          select="count(file/error[generate-id() = generate-id(key('violatingfilename', ../@name)[1])])"/>
+          <xsl:with-param name="num-analyzed-files" select="$num-analyzed-files"/>
+          <xsl:with-param name="num-files-with-violations" select="$num-files-with-violations"/>
           <xsl:with-param name="num-errors" select="$num-errors"/>
           <xsl:with-param name="num-warnings" select="$num-warnings"/>
         </xsl:call-template>
@@ -103,6 +103,7 @@
     <div class="level2header">
       Duplication of <xsl:value-of select="@lines"/> lines /
       <xsl:value-of select="@tokens"/> tokens
+      <xsl:if test="@language"> (<xsl:value-of select="@language"/>)</xsl:if>
     </div>
     <table class="level2sectionitem" width="100%" cellpadding="2" cellspacing="0" border="0">
       <colgroup>
@@ -130,6 +131,10 @@
             </xsl:when>
             <xsl:otherwise><xsl:value-of select="@path"/></xsl:otherwise>
           </xsl:choose>
+          <!-- Module of the file in aggregated reports -->
+          <xsl:if test="@module">
+            <xsl:text>&#32;(</xsl:text><xsl:value-of select="@module"/><xsl:text>)</xsl:text>
+          </xsl:if>
         </td>
         <td/>
         <td class="data" align="right">
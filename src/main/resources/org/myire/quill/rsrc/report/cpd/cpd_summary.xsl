@@ -6,6 +6,7 @@
  *
  * 2010-04-10 /PF    Created from the full version.
  * 2015-11-25 /PF    Updated to new dashboard look.
+ * 2026-10-17 /PF    Added template for the summary extracted by the dashboard.
  *
  *******************************************************************************
 -->
@@ -27,16 +28,34 @@
 
   <!-- Main template for the document root -->
   <xsl:template match="/">
-    <xsl:apply-templates select="pmd-cpd"/>
+    <xsl:apply-templates select="pmd-cpd|cpd-summary"/>
   </xsl:template>
 
 
   <!-- Template for the pmd-cpd element, which is the top-level element in the
        CPD report -->
   <xsl:template match="pmd-cpd">
+    <xsl:call-template name="output-summary-section">
+      <xsl:with-param name="num-duplications" select="count(duplication)"/>
+      <xsl:with-param name="num-lines" select="sum(duplication/@lines)"/>
+    </xsl:call-template>
+  </xsl:template>
+
+
+  <!-- Template for the cpd-summary element, which holds the totals extracted
+       from a CPD report by the reports dashboard -->
+  <xsl:template match="cpd-summary">
+    <xsl:call-template name="output-summary-section">
+      <xsl:with-param name="num-duplications" select="@duplications"/>
+      <xsl:with-param name="num-lines" select="@lines"/>
+    </xsl:call-template>
+  </xsl:template>
 
-    <!-- Count the total number of duplications -->
-    <xsl:variable name="num-duplications" select="count(duplication)"/>
+
+  <!-- Output the CPD summary section -->
+  <xsl:template name="output-summary-section">
+    <xsl:param name="num-duplications"/>
+    <xsl:param name="num-lines"/>
 
     <!-- The CPD summary section -->
     <div class="summarysection">
@@ -56,7 +75,7 @@
       <div class="summarysectionitem">
        <xsl:call-template name="output-summary-table">
           <xsl:with-param name="num-duplications" select="$num-duplications"/>
-          <xsl:with-param name="num-lines" select="sum(duplication/@lines)"/>
+          <xsl:with-param name="num-lines" select="$num-lines"/>
         </xsl:call-template>
       </div>
 
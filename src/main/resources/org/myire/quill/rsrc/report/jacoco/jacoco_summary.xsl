@@ -20,10 +20,28 @@
 
   <!-- Template for the report element, which is the top-level element in the Jacoco report -->
   <xsl:template match="report">
+    <xsl:call-template name="output-summary-section">
+      <xsl:with-param name="num-packages" select="count(package)"/>
+      <xsl:with-param name="num-types" select="count(package/class)"/>
+    </xsl:call-template>
+  </xsl:template>
+
+
+  <!-- Template for the jacoco-summary element, which holds the counts and the report level
+       counters extracted from a Jacoco report by the reports dashboard -->
+  <xsl:template match="jacoco-summary">
+    <xsl:call-template name="output-summary-section">
+      <xsl:with-param name="num-packages" select="@packages"/>
+      <xsl:with-param name="num-types" select="@types"/>
+    </xsl:call-template>
+  </xsl:template>
 
-  <!-- Count the total number of packages and files -->
-  <xsl:variable name="num-packages" select="count(package)"/>
-  <xsl:variable name="num-types" select="count(package/class)"/>
+
+  <!-- Output the Jacoco summary section. The context node must have the report level counters as
+       children -->
+  <xsl:template name="output-summary-section">
+    <xsl:param name="num-packages"/>
+    <xsl:param name="num-types"/>
 
     <!-- The Jacoco summary section -->
     <div class="summarysection">
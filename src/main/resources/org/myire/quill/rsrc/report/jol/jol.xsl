@@ -5,6 +5,11 @@
  * XSL style sheet for transforming a Jol XML report into part of an HTML page.
  *
  * 2020-03-12 /PF    Created.
+ * 2026-10-17 /PF    Added the dependencies section.
+ * 2026-10-17 /PF    Added the footprint section.
+ * 2026-10-17 /PF    Added the packing advice tables.
+ * 2026-10-17 /PF    Added the layout matrix section.
+ * 2026-10-17 /PF    Added the cache line contention section and tables.
  *
  *******************************************************************************
 -->
@@ -37,6 +42,176 @@
 
         </div>
 
+        <!-- Instance sizes side by side for each layout in the matrix -->
+        <xsl:apply-templates select="matrix"/>
+
+        <!-- Alignment gap bytes in the heap histogram instances, ranked by impact -->
+        <xsl:apply-templates select="footprint"/>
+
+        <!-- Classes with concurrently written fields that may share a cache line -->
+        <xsl:if test="packages/package/class/cache-lines[@contentions &gt; 0]">
+            <xsl:call-template name="output-contention-section"/>
+        </xsl:if>
+
+        <!-- Statistics and layout info for each analyzed dependency -->
+        <xsl:for-each select="dependencies/dependency">
+            <div class="mainsection">
+                <div class="mainheader">Object Layout of <xsl:value-of select="@name"/></div>
+                <xsl:call-template name="output-total-table" />
+                <xsl:call-template name="output-layout-info-table" />
+            </div>
+        </xsl:for-each>
+
+    </xsl:template>
+
+
+    <!-- Template for the matrix element -->
+    <xsl:template match="matrix">
+        <div class="mainsection">
+            <div class="mainheader">Layout Matrix</div>
+            <table class="mainsectionitem" width="100%" cellpadding="2" cellspacing="0" border="0">
+                <tr class="altrow">
+                    <td class="colheader" align="left">Class</td>
+                    <xsl:for-each select="layout">
+                        <td class="colheader" align="right"><xsl:value-of select="@description"/></td>
+                    </xsl:for-each>
+                </tr>
+                <tr>
+                    <td class="label">Total instance size</td>
+                    <xsl:for-each select="layout">
+                        <td class="emphasizeddata" align="right"><xsl:value-of select="@total-instance-size"/></td>
+                    </xsl:for-each>
+                </tr>
+                <tr>
+                    <td class="label">Total alignment gap size</td>
+                    <xsl:for-each select="layout">
+                        <xsl:call-template name="output-non-zero-emphasized-value">
+                            <xsl:with-param name="value" select="@total-internal-gap-size + @total-external-gap-size"/>
+                        </xsl:call-template>
+                    </xsl:for-each>
+                </tr>
+                <xsl:for-each select="class">
+                    <tr>
+                        <xsl:if test="position() mod 2 = 0">
+                            <xsl:attribute name="class">altrow</xsl:attribute>
+                        </xsl:if>
+                        <td class="data"><xsl:value-of select="@name"/></td>
+                        <xsl:for-each select="size">
+                            <td class="data" align="right"><xsl:value-of select="@instance-size"/></td>
+                        </xsl:for-each>
+                    </tr>
+                </xsl:for-each>
+            </table>
+        </div>
+    </xsl:template>
+
+
+    <!-- Template for the footprint element -->
+    <xsl:template match="footprint">
+        <div class="mainsection">
+            <div class="mainheader">Heap Footprint of Alignment Gaps</div>
+            <table class="mainsectionitem" width="30%" cellpadding="2" cellspacing="0" border="0">
+                <colgroup>
+                    <col width="80%"/><col width="20%"/>
+                </colgroup>
+                <tr>
+                    <td class="label">Number of classes in heap histograms:</td>
+                    <td class="data" align="right"><xsl:value-of select="@histogram-classes"/></td>
+                </tr>
+                <tr>
+                    <td class="label">Number of classes with gaps in heap histograms:</td>
+                    <td class="data" align="right"><xsl:value-of select="count(package/class)"/></td>
+                </tr>
+                <tr>
+                    <td class="label">Bytes lost to internal alignment gaps:</td>
+                    <xsl:call-template name="output-non-zero-emphasized-value">
+                        <xsl:with-param name="value" select="@total-internal-gap-bytes"/>
+                    </xsl:call-template>
+                </tr>
+                <tr>
+                    <td class="label">Bytes lost to external alignment gaps:</td>
+                    <xsl:call-template name="output-non-zero-emphasized-value">
+                        <xsl:with-param name="value" select="@total-external-gap-bytes"/>
+                    </xsl:call-template>
+                </tr>
+            </table>
+            <xsl:for-each select="package">
+                <div class="level1section">
+                    <div class="level1header">
+                        <xsl:value-of select="@name"/>
+                        (<xsl:value-of select="@internal-gap-bytes + @external-gap-bytes"/> bytes)
+                    </div>
+                    <xsl:call-template name="output-footprint-classes-table"/>
+                </div>
+            </xsl:for-each>
+        </div>
+    </xsl:template>
+
+
+    <!-- Output a section with the classes that have concurrently written fields that may share a cache line -->
+    <xsl:template name="output-contention-section">
+        <div class="mainsection">
+            <div class="mainheader">Cache Line Contention</div>
+            <table class="mainsectionitem" width="100%" cellpadding="2" cellspacing="0" border="0">
+                <colgroup>
+                    <col width="70%"/><col width="15%"/><col width="15%"/>
+                </colgroup>
+                <tr class="altrow">
+                    <td class="colheader" align="left">Class</td>
+                    <td class="colheader" align="right">Contentions</td>
+                    <td class="colheader" align="right">Unpadded @Contended fields</td>
+                </tr>
+                <xsl:for-each select="packages/package/class[cache-lines/@contentions &gt; 0]">
+                    <tr>
+                        <xsl:if test="position() mod 2 = 0">
+                            <xsl:attribute name="class">altrow</xsl:attribute>
+                        </xsl:if>
+                        <td class="data"><xsl:value-of select="../@name"/>.<xsl:value-of select="@name"/></td>
+                        <td class="emphasizeddata" align="right"><xsl:value-of select="cache-lines/@contentions"/></td>
+                        <xsl:call-template name="output-non-zero-emphasized-value">
+                            <xsl:with-param name="value" select="count(cache-lines/field[@contended='true' and @padding='missing'])"/>
+                        </xsl:call-template>
+                    </tr>
+                </xsl:for-each>
+            </table>
+        </div>
+    </xsl:template>
+
+
+    <!-- Output a table with the footprint of the classes in the current package node -->
+    <xsl:template name="output-footprint-classes-table">
+        <table class="level1sectionitem" width="100%" cellpadding="2" cellspacing="0" border="0">
+            <colgroup>
+                <col width="40%"/><col width="10%"/><col width="10%"/><col width="10%"/><col width="10%"/><col width="10%"/><col width="10%"/>
+            </colgroup>
+            <tr class="altrow">
+                <td class="colheader" align="left">Class</td>
+                <td class="colheader" align="right">Instances</td>
+                <td class="colheader" align="right">Instance size</td>
+                <td class="colheader" align="right">Internal gaps</td>
+                <td class="colheader" align="right">External gaps</td>
+                <td class="colheader" align="right">Internal gap bytes</td>
+                <td class="colheader" align="right">External gap bytes</td>
+            </tr>
+            <xsl:for-each select="class">
+                <tr>
+                    <xsl:if test="position() mod 2 = 0">
+                        <xsl:attribute name="class">altrow</xsl:attribute>
+                    </xsl:if>
+                    <td class="data"><xsl:value-of select="@name"/></td>
+                    <td class="data" align="right"><xsl:value-of select="@instances"/></td>
+                    <td class="data" align="right"><xsl:value-of select="@instance-size"/></td>
+                    <td class="data" align="right"><xsl:value-of select="@internal-gaps"/></td>
+                    <td class="data" align="right"><xsl:value-of select="@external-gaps"/></td>
+                    <xsl:call-template name="output-non-zero-emphasized-value">
+                        <xsl:with-param name="value" select="@internal-gap-bytes"/>
+                    </xsl:call-template>
+                    <xsl:call-template name="output-non-zero-emphasized-value">
+                        <xsl:with-param name="value" select="@external-gap-bytes"/>
+                    </xsl:call-template>
+                </tr>
+            </xsl:for-each>
+        </table>
     </xsl:template>
 
 
@@ -45,11 +220,14 @@
         <table class="mainsectionitem" width="100%" cellpadding="2" cellspacing="0" border="0">
             <tr>
                 <td class="data">
-                    Jol analysis run on<xsl:text>&#32;</xsl:text>
-                    <xsl:value-of select="@date"/>
-                    <xsl:text>&#32;</xsl:text>
-                    <xsl:value-of select="@time"/>
-                    <br/>Jol version: <xsl:value-of select="@version"/>
+                    <xsl:if test="@date">
+                        Jol analysis run on<xsl:text>&#32;</xsl:text>
+                        <xsl:value-of select="@date"/>
+                        <xsl:text>&#32;</xsl:text>
+                        <xsl:value-of select="@time"/>
+                        <br/>
+                    </xsl:if>
+                    Jol version: <xsl:value-of select="@version"/>
                     <br/>Analysis type: <xsl:value-of select="@description"/>
                 </td>
             </tr>
@@ -97,6 +275,14 @@
                             <!-- Fields table -->
                             <xsl:call-template name="output-fields-table"/>
                         </xsl:if>
+                        <xsl:if test="advice">
+                            <!-- Packing advice table -->
+                            <xsl:apply-templates select="advice"/>
+                        </xsl:if>
+                        <xsl:if test="cache-lines">
+                            <!-- Cache line contention table -->
+                            <xsl:apply-templates select="cache-lines"/>
+                        </xsl:if>
                     </div>
                 </xsl:for-each>
            </div>
@@ -178,6 +364,117 @@
     </xsl:template>
 
 
+    <!-- Template for the packing advice of a class -->
+    <xsl:template match="advice">
+        <table class="level2sectionitem" width="25%" cellpadding="2" cellspacing="0" border="0">
+            <colgroup>
+                <col width="80%"/><col width="20%"/>
+            </colgroup>
+            <tr>
+                <td class="label">Instance size with packed fields:</td>
+                <td class="data" align="right"><xsl:value-of select="@packed-size"/></td>
+            </tr>
+            <tr>
+                <td class="label">Projected instance size:</td>
+                <td class="data" align="right"><xsl:value-of select="@projected-size"/></td>
+            </tr>
+            <tr>
+                <td class="label">Bytes saved per instance:</td>
+                <td class="emphasizeddata" align="right"><xsl:value-of select="@bytes-saved"/></td>
+            </tr>
+        </table>
+        <xsl:if test="candidate">
+            <table class="level2sectionitem" width="100%" cellpadding="2" cellspacing="0" border="0">
+                <colgroup>
+                    <col width="10%"/><col width="50%"/><col width="15%"/><col width="15%"/><col width="10%"/>
+                </colgroup>
+                <tr class="altrow">
+                    <td class="colheader" align="left">Candidate</td>
+                    <td class="colheader" align="left">Field</td>
+                    <td class="colheader" align="left">From</td>
+                    <td class="colheader" align="left">To</td>
+                    <td class="colheader" align="right">Bytes saved</td>
+                </tr>
+                <xsl:for-each select="candidate">
+                    <tr>
+                        <xsl:if test="position() mod 2 = 0">
+                            <xsl:attribute name="class">altrow</xsl:attribute>
+                        </xsl:if>
+                        <td class="data"><xsl:value-of select="@kind"/></td>
+                        <td class="data"><xsl:value-of select="@field"/></td>
+                        <td class="data"><xsl:value-of select="@from"/></td>
+                        <td class="data"><xsl:value-of select="@to"/></td>
+                        <xsl:call-template name="output-non-zero-emphasized-value">
+                            <xsl:with-param name="value" select="@bytes-saved"/>
+                        </xsl:call-template>
+                    </tr>
+                </xsl:for-each>
+            </table>
+        </xsl:if>
+    </xsl:template>
+
+
+    <!-- Template for the cache line check of a class -->
+    <xsl:template match="cache-lines">
+        <table class="level2sectionitem" width="60%" cellpadding="2" cellspacing="0" border="0">
+            <colgroup>
+                <col width="40%"/><col width="15%"/><col width="15%"/><col width="15%"/><col width="15%"/>
+            </colgroup>
+            <tr class="altrow">
+                <td class="colheader" align="left">Concurrent field</td>
+                <td class="colheader" align="right">Offset</td>
+                <td class="colheader" align="left">Kind</td>
+                <td class="colheader" align="left">@Contended</td>
+                <td class="colheader" align="left">Padding</td>
+            </tr>
+            <xsl:for-each select="field">
+                <tr>
+                    <xsl:if test="position() mod 2 = 0">
+                        <xsl:attribute name="class">altrow</xsl:attribute>
+                    </xsl:if>
+                    <td class="data"><xsl:value-of select="@name"/></td>
+                    <td class="data" align="right"><xsl:value-of select="@offset"/></td>
+                    <td class="data"><xsl:value-of select="@kind"/></td>
+                    <td class="data"><xsl:value-of select="@contended"/></td>
+                    <td>
+                        <xsl:choose>
+                            <xsl:when test="@padding='missing' and (@contended='true' or ../contention[@first=current()/@name or @second=current()/@name])">
+                                <xsl:attribute name="class">emphasizeddata</xsl:attribute>
+                            </xsl:when>
+                            <xsl:otherwise>
+                                <xsl:attribute name="class">data</xsl:attribute>
+                            </xsl:otherwise>
+                        </xsl:choose>
+                        <xsl:value-of select="@padding"/>
+                    </td>
+                </tr>
+            </xsl:for-each>
+        </table>
+        <xsl:if test="contention">
+            <table class="level2sectionitem" width="60%" cellpadding="2" cellspacing="0" border="0">
+                <colgroup>
+                    <col width="40%"/><col width="40%"/><col width="20%"/>
+                </colgroup>
+                <tr class="altrow">
+                    <td class="colheader" align="left">Field</td>
+                    <td class="colheader" align="left">May share a <xsl:value-of select="@size"/> byte cache line with</td>
+                    <td class="colheader" align="right">Distance</td>
+                </tr>
+                <xsl:for-each select="contention">
+                    <tr>
+                        <xsl:if test="position() mod 2 = 0">
+                            <xsl:attribute name="class">altrow</xsl:attribute>
+                        </xsl:if>
+                        <td class="emphasizeddata"><xsl:value-of select="@first"/></td>
+                        <td class="emphasizeddata"><xsl:value-of select="@second"/></td>
+                        <td class="data" align="right"><xsl:value-of select="@distance"/></td>
+                    </tr>
+                </xsl:for-each>
+            </table>
+        </xsl:if>
+    </xsl:template>
+
+
     <!-- Output a table cell as emphasized data if the value if non-zero, otherwise as normal data -->
     <xsl:template name="output-non-zero-emphasized-value">
         <xsl:param name="value"/>
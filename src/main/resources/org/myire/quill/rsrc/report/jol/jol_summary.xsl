@@ -5,6 +5,7 @@
  * XSL style sheet for transforming a Jol XML report into part of an HTML page.
  *
  * 2020-03-15 /PF    Created.
+ * 2026-10-17 /PF    Added template for the summary extracted by the dashboard.
  *
  *******************************************************************************
 -->
@@ -17,12 +18,31 @@
 
     <!-- Main template for the document root -->
     <xsl:template match="/">
-        <xsl:apply-templates select="jol-report"/>
+        <xsl:apply-templates select="jol-report|jol-summary"/>
     </xsl:template>
 
 
     <!-- Template for the jol-report element, which is the top-level element in the Jol report -->
     <xsl:template match="jol-report">
+        <xsl:call-template name="output-summary-section">
+            <xsl:with-param name="num-classes" select="count(packages/package/class)"/>
+        </xsl:call-template>
+    </xsl:template>
+
+
+    <!-- Template for the jol-summary element, which holds the attributes of the jol-report
+         element and the number of classes extracted from a Jol report by the reports dashboard -->
+    <xsl:template match="jol-summary">
+        <xsl:call-template name="output-summary-section">
+            <xsl:with-param name="num-classes" select="@classes"/>
+        </xsl:call-template>
+    </xsl:template>
+
+
+    <!-- Output the Jol summary section. The context node must have the attributes of the
+         jol-report element -->
+    <xsl:template name="output-summary-section">
+        <xsl:param name="num-classes"/>
 
         <!-- The Jol summary section -->
         <div class="summarysection">
@@ -33,14 +53,16 @@
             <!-- Intro text -->
             <div class="summarysectionitem">
                 <span class="summaryintro">
-                    Jol <xsl:value-of select="@version"/> report created
-                    <xsl:value-of select="@date"/>&#160;<xsl:value-of select="@time"/>
+                    Jol <xsl:value-of select="@version"/> report
+                    <xsl:if test="@date">created <xsl:value-of select="@date"/>&#160;<xsl:value-of select="@time"/></xsl:if>
                 </span>
             </div>
 
             <!-- Summary table -->
             <div class="summarysectionitem">
-                <xsl:call-template name="output-summary-table"/>
+                <xsl:call-template name="output-summary-table">
+                    <xsl:with-param name="num-classes" select="$num-classes"/>
+                </xsl:call-template>
             </div>
 
             <!-- Output a link to the detailed html report if it is defined -->
@@ -58,10 +80,11 @@
 
     <!-- Output a table with a summary of the Jol analysis -->
     <xsl:template name="output-summary-table">
+        <xsl:param name="num-classes"/>
         <table class="neutralbg">
             <!-- Output the table row -->
             <tr>
-                <td class="summaryvalue"><xsl:value-of select="count(packages/package/class)"/></td>
+                <td class="summaryvalue"><xsl:value-of select="$num-classes"/></td>
                 <td class="summaryvalue"><xsl:value-of select="@total-internal-gap-size"/></td>
                 <td class="summaryvalue"><xsl:value-of select="@total-external-gap-size"/></td>
             </tr>
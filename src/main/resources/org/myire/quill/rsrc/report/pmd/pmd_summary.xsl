@@ -26,16 +26,37 @@
 
   <!-- Main template for the document root -->
   <xsl:template match="/">
-    <xsl:apply-templates select="pmd:pmd"/>
+    <xsl:apply-templates select="pmd:pmd|pmd-summary"/>
   </xsl:template>
 
 
   <!-- Template for the pmd element, which is the top-level element in the PMD
        report -->
   <xsl:template match="pmd:pmd">
+    <xsl:call-template name="output-summary-section">
+      <xsl:with-param name="version" select="@version"/>
+      <xsl:with-param name="num-files-with-violations" select="count(pmd:file)"/>
+      <xsl:with-param name="num-violations" select="count(pmd:file/pmd:violation)"/>
+    </xsl:call-template>
+  </xsl:template>
+
+
+  <!-- Template for the pmd-summary element, which holds the counts extracted
+       from a PMD report by the reports dashboard -->
+  <xsl:template match="pmd-summary">
+    <xsl:call-template name="output-summary-section">
+      <xsl:with-param name="version" select="@version"/>
+      <xsl:with-param name="num-files-with-violations" select="@files-with-violations"/>
+      <xsl:with-param name="num-violations" select="@violations"/>
+    </xsl:call-template>
+  </xsl:template>
 
-    <!-- Count the number of files with violations -->
-    <xsl:variable name="num-files-with-violations" select="count(pmd:file)"/>
+
+  <!-- Output the PMD summary section -->
+  <xsl:template name="output-summary-section">
+    <xsl:param name="version"/>
+    <xsl:param name="num-files-with-violations"/>
+    <xsl:param name="num-violations"/>
 
     <!-- The PMD summary section -->
     <div class="summarysection">
@@ -46,7 +67,7 @@
       <!-- Intro text -->
       <div class="summarysectionitem">
         <span class="summaryintro">
-          PMD <xsl:value-of select="@version"/> report created
+          PMD <xsl:value-of select="$version"/> report created
           <xsl:value-of select="$xml-modified-date"/>&#160;<xsl:value-of select="$xml-modified-time"/>
         </span>
       </div>
@@ -55,7 +76,7 @@
       <div class="summarysectionitem">
         <xsl:call-template name="output-summary-table">
           <xsl:with-param name="num-files-with-violations" select="$num-files-with-violations"/>
-          <xsl:with-param name="num-violations" select="count(pmd:file/pmd:violation)"/>
+          <xsl:with-param name="num-violations" select="$num-violations"/>
         </xsl:call-template>
       </div>
 
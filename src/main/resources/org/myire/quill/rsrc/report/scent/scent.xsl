@@ -50,11 +50,14 @@
         <table class="mainsectionitem" width="100%" cellpadding="2" cellspacing="0" border="0">
             <tr>
                 <td class="data">
-                    Analysis run on<xsl:text>&#32;</xsl:text>
-                    <xsl:value-of select="@date"/>
-                    <xsl:text>&#32;</xsl:text>
-                    <xsl:value-of select="@time"/>
-                    <br/>Scent version: <xsl:value-of select="@version"/>
+                    <xsl:if test="@date">
+                        Analysis run on<xsl:text>&#32;</xsl:text>
+                        <xsl:value-of select="@date"/>
+                        <xsl:text>&#32;</xsl:text>
+                        <xsl:value-of select="@time"/>
+                        <br/>
+                    </xsl:if>
+                    Scent version: <xsl:value-of select="@version"/>
                 </td>
             </tr>
         </table>
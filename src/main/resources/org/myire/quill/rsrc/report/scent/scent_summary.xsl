@@ -34,8 +34,8 @@
       <!-- Intro text -->
       <div class="summarysectionitem">
         <span class="summaryintro">
-          Scent <xsl:value-of select="@version"/> report created
-          <xsl:value-of select="@date"/>&#160;<xsl:value-of select="@time"/>
+          Scent <xsl:value-of select="@version"/> report
+          <xsl:if test="@date">created <xsl:value-of select="@date"/>&#160;<xsl:value-of select="@time"/></xsl:if>
         </span>
       </div>
 
@@ -24,16 +24,40 @@
 
   <!-- Main template for the document root -->
   <xsl:template match="/">
-    <xsl:apply-templates select="BugCollection"/>
+    <xsl:apply-templates select="BugCollection|spotbugs-summary"/>
   </xsl:template>
 
 
   <!-- Template for the BugCollection element, which is the top-level element in
        the SpotBugs report -->
   <xsl:template match="BugCollection">
+    <xsl:call-template name="output-summary-section">
+      <xsl:with-param name="version" select="@version"/>
+      <xsl:with-param name="num-analyzed-packages" select="FindBugsSummary/@num_packages"/>
+      <xsl:with-param name="num-analyzed-classes" select="FindBugsSummary/@total_classes"/>
+      <xsl:with-param name="num-bugs" select="count(BugInstance)"/>
+    </xsl:call-template>
+  </xsl:template>
+
+
+  <!-- Template for the spotbugs-summary element, which holds the counts
+       extracted from a SpotBugs report by the reports dashboard -->
+  <xsl:template match="spotbugs-summary">
+    <xsl:call-template name="output-summary-section">
+      <xsl:with-param name="version" select="@version"/>
+      <xsl:with-param name="num-analyzed-packages" select="@packages"/>
+      <xsl:with-param name="num-analyzed-classes" select="@classes"/>
+      <xsl:with-param name="num-bugs" select="@bugs"/>
+    </xsl:call-template>
+  </xsl:template>
 
-    <!-- Count the total number of bugs -->
-    <xsl:variable name="num-bugs" select="count(BugInstance)"/>
+
+  <!-- Output the SpotBugs summary section -->
+  <xsl:template name="output-summary-section">
+    <xsl:param name="version"/>
+    <xsl:param name="num-analyzed-packages"/>
+    <xsl:param name="num-analyzed-classes"/>
+    <xsl:param name="num-bugs"/>
 
     <!-- The SpotBugs summary section -->
     <div class="summarysection">
@@ -44,7 +68,7 @@
       <!-- Intro text -->
       <div class="summarysectionitem">
         <span class="summaryintro">
-          SpotBugs <xsl:value-of select="@version"/> report created
+          SpotBugs <xsl:value-of select="$version"/> report created
           <xsl:value-of select="$xml-modified-date"/>&#160;<xsl:value-of select="$xml-modified-time"/>
         </span>
       </div>
@@ -52,8 +76,8 @@
       <!-- Summary table -->
       <div class="summarysectionitem">
         <xsl:call-template name="output-statistics-table">
-          <xsl:with-param name="num-analyzed-packages" select="FindBugsSummary/@num_packages"/>
-          <xsl:with-param name="num-analyzed-classes" select="FindBugsSummary/@total_classes"/>
+          <xsl:with-param name="num-analyzed-packages" select="$num-analyzed-packages"/>
+          <xsl:with-param name="num-analyzed-classes" select="$num-analyzed-classes"/>
           <xsl:with-param name="num-problems" select="$num-bugs"/>
         </xsl:call-template>
       </div>
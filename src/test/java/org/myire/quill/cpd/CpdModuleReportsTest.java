@@ -0,0 +1,190 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.cpd;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.myire.quill.test.FileBasedTest;
+
+
+/**
+ * Unit tests for {@code CpdModuleReports}.
+ */
+public class CpdModuleReportsTest extends FileBasedTest
+{
+    static private final File ROOT_DIR = new File("/build/root");
+    static private final File MODULE_DIR = new File(ROOT_DIR, "module");
+
+
+    /**
+     * A file should be attributed to the module with the longest matching directory.
+     */
+    @Test
+    public void fileIsAttributedToInnermostModule()
+    {
+        // Given
+        CpdModuleReports aReports = new CpdModuleReports(createModuleDirectories(), ROOT_DIR);
+
+        // Then
+        assertEquals(":", aReports.getModule(new File(ROOT_DIR, "src/X.java").getPath()));
+        assertEquals(":module", aReports.getModule(new File(MODULE_DIR, "src/Y.java").getPath()));
+        assertEquals(":", aReports.getModule(new File(ROOT_DIR, "module2/src/Z.java").getPath()));
+        assertNull(aReports.getModule("/elsewhere/W.java"));
+    }
+
+
+    /**
+     * A relative file path should be resolved against the base directory.
+     */
+    @Test
+    public void relativePathIsResolvedAgainstBaseDirectory()
+    {
+        // Given
+        CpdModuleReports aReports = new CpdModuleReports(createModuleDirectories(), ROOT_DIR);
+
+        // Then
+        assertEquals(":", aReports.getModule("src/X.java"));
+        assertEquals(":module", aReports.getModule("module/src/Y.java"));
+        assertEquals(":", aReports.getModule("module/../src/Z.java"));
+        assertNull(aReports.getModule("../elsewhere/W.java"));
+    }
+
+
+    /**
+     * The files in the rewritten report should have a module attribute, and the module reports
+     * should only contain the duplications involving the module's files.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void moduleReportsContainTheModulesDuplications() throws IOException
+    {
+        // Given
+        String aRootFile = new File(ROOT_DIR, "src/X.java").getAbsolutePath();
+        String aModuleFile = new File(MODULE_DIR, "src/Y.java").getAbsolutePath();
+        Path aReport = createTemporaryFile("cpd", ".xml", Arrays.asList(
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>",
+            "<pmd-cpd>",
+            "<duplication lines=\"3\" tokens=\"20\">",
+            "<file line=\"1\" path=\"" + aRootFile + "\"/>",
+            "<file line=\"9\" path=\"" + aModuleFile + "\"/>",
+            "<codefragment><![CDATA[int x = a[b[0]]]]><![CDATA[>1;]]></codefragment>",
+            "</duplication>",
+            "<duplication lines=\"2\" tokens=\"10\">",
+            "<file line=\"4\" path=\"" + aRootFile + "\"/>",
+            "<file line=\"8\" path=\"" + aRootFile + "\"/>",
+            "<codefragment><![CDATA[return;]]></codefragment>",
+            "</duplication>",
+            "</pmd-cpd>"));
+        Path aModuleReportsDir = Files.createTempDirectory("cpd-modules");
+        Map<String, String> aReportNames = new LinkedHashMap<>();
+        aReportNames.put(":", "root.xml");
+        aReportNames.put(":module", "module.xml");
+        for (String aName : aReportNames.values())
+            addTemporaryFile(aModuleReportsDir.resolve(aName));
+        addTemporaryFile(aModuleReportsDir);
+
+        // When
+        CpdModuleReports aReports = new CpdModuleReports(createModuleDirectories(), ROOT_DIR);
+        aReports.writeReports(aReport.toFile(), aModuleReportsDir.toFile(), aReportNames);
+
+        // Then
+        String aFullReport = new String(Files.readAllBytes(aReport), StandardCharsets.UTF_8);
+        assertTrue(aFullReport.contains("module=\":module\""));
+        assertTrue(aFullReport.contains("module=\":\""));
+        assertTrue(aFullReport.contains("a[b[0]]"));
+        assertTrue(aFullReport.contains(">1;"));
+
+        String aRootReport = readReport(aModuleReportsDir.resolve("root.xml"));
+        assertEquals(2, countOccurrences(aRootReport, "<duplication "));
+
+        String aModuleReport = readReport(aModuleReportsDir.resolve("module.xml"));
+        assertEquals(1, countOccurrences(aModuleReport, "<duplication "));
+        assertFalse(aModuleReport.contains("return;"));
+    }
+
+
+    /**
+     * A module without any duplications should get an empty report.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void moduleWithoutDuplicationsGetsEmptyReport() throws IOException
+    {
+        // Given
+        String aRootFile = new File(ROOT_DIR, "src/X.java").getAbsolutePath();
+        Path aReport = createTemporaryFile("cpd", ".xml", Arrays.asList(
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>",
+            "<pmd-cpd>",
+            "<duplication lines=\"2\" tokens=\"10\">",
+            "<file line=\"4\" path=\"" + aRootFile + "\"/>",
+            "<file line=\"8\" path=\"" + aRootFile + "\"/>",
+            "<codefragment><![CDATA[return;]]></codefragment>",
+            "</duplication>",
+            "</pmd-cpd>"));
+        Path aModuleReportsDir = Files.createTempDirectory("cpd-modules");
+        Map<String, String> aReportNames = new LinkedHashMap<>();
+        aReportNames.put(":", "root.xml");
+        aReportNames.put(":module", "module.xml");
+        for (String aName : aReportNames.values())
+            addTemporaryFile(aModuleReportsDir.resolve(aName));
+        addTemporaryFile(aModuleReportsDir);
+
+        // When
+        CpdModuleReports aReports = new CpdModuleReports(createModuleDirectories(), ROOT_DIR);
+        aReports.writeReports(aReport.toFile(), aModuleReportsDir.toFile(), aReportNames);
+
+        // Then
+        String aModuleReport = readReport(aModuleReportsDir.resolve("module.xml"));
+        assertTrue(aModuleReport.contains("<pmd-cpd>"));
+        assertTrue(aModuleReport.contains("</pmd-cpd>"));
+        assertEquals(0, countOccurrences(aModuleReport, "<duplication "));
+        assertEquals(1, countOccurrences(readReport(aModuleReportsDir.resolve("root.xml")), "<duplication "));
+    }
+
+
+    static private Map<String, File> createModuleDirectories()
+    {
+        Map<String, File> aDirectories = new LinkedHashMap<>();
+        aDirectories.put(":", ROOT_DIR);
+        aDirectories.put(":module", MODULE_DIR);
+        return aDirectories;
+    }
+
+
+    static private String readReport(Path pPath) throws IOException
+    {
+        return new String(Files.readAllBytes(pPath), StandardCharsets.UTF_8);
+    }
+
+
+    static private int countOccurrences(String pString, String pSubstring)
+    {
+        int aCount = 0;
+        int aIndex = pString.indexOf(pSubstring);
+        while (aIndex >= 0)
+        {
+            aCount++;
+            aIndex = pString.indexOf(pSubstring, aIndex + 1);
+        }
+
+        return aCount;
+    }
+}
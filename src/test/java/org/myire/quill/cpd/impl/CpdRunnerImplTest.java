@@ -1,5 +1,5 @@
 /*
- * Copyright 2019 Peter Franzen. All rights reserved.
+ * Copyright 2019, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
@@ -10,14 +10,21 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.myire.quill.cpd.CpdParameters;
@@ -77,7 +84,7 @@ public class CpdRunnerImplTest extends ExternalToolTest<CpdRunner>
         File aReportFile = createReportFileSpec("report.xml");
 
         // When
-        newToolProxy().runCpd(null, aReportFile, "xml", new CpdParameters());
+        newToolProxy().runCpd(null, aReportFile, "xml", new CpdParameters(), null, null);
     }
 
 
@@ -88,7 +95,7 @@ public class CpdRunnerImplTest extends ExternalToolTest<CpdRunner>
     @Test(expected = NullPointerException.class)
     public void runCpdThrowsForNullReportFile() throws IOException
     {
-        newToolProxy().runCpd(Collections.emptyList(), null, "xml", new CpdParameters());
+        newToolProxy().runCpd(Collections.emptyList(), null, "xml", new CpdParameters(), null, null);
     }
 
 
@@ -103,7 +110,7 @@ public class CpdRunnerImplTest extends ExternalToolTest<CpdRunner>
         File aReportFile = createReportFileSpec("report");
 
         // When
-        newToolProxy().runCpd(Collections.emptyList(), aReportFile, null, new CpdParameters());
+        newToolProxy().runCpd(Collections.emptyList(), aReportFile, null, new CpdParameters(), null, null);
     }
 
 
@@ -118,7 +125,7 @@ public class CpdRunnerImplTest extends ExternalToolTest<CpdRunner>
         File aReportFile = createReportFileSpec("report.csv");
 
         // When
-        newToolProxy().runCpd(Collections.emptyList(), aReportFile, "csv", null);
+        newToolProxy().runCpd(Collections.emptyList(), aReportFile, "csv", null, null, null);
     }
 
 
@@ -131,7 +138,7 @@ public class CpdRunnerImplTest extends ExternalToolTest<CpdRunner>
     @Test(expected = IOException.class)
     public void runCpdThrowsForNonExistingReportFileDirectory() throws IOException
     {
-        newToolProxy().runCpd(Collections.emptyList(), new File("/does/not/exist/report"), "text", new CpdParameters());
+        newToolProxy().runCpd(Collections.emptyList(), new File("/does/not/exist/report"), "text", new CpdParameters(), null, null);
     }
 
 
@@ -160,7 +167,7 @@ public class CpdRunnerImplTest extends ExternalToolTest<CpdRunner>
         aParameters.setMinimumTokenCount(11);
 
         // When
-        aCpdRunner.runCpd(Collections.singleton(aCodeFile), aReportFile1, "text", aParameters);
+        aCpdRunner.runCpd(Collections.singleton(aCodeFile), aReportFile1, "text", aParameters, null, null);
 
         // Then
         assertTrue(aReportFile1.exists());
@@ -170,7 +177,7 @@ public class CpdRunnerImplTest extends ExternalToolTest<CpdRunner>
         aParameters.setMinimumTokenCount(10);
 
         // When
-        aCpdRunner.runCpd(Collections.singleton(aCodeFile), aReportFile2, "text", aParameters);
+        aCpdRunner.runCpd(Collections.singleton(aCodeFile), aReportFile2, "text", aParameters, null, null);
 
         // Then
         assertTrue(aReportFile2.exists());
@@ -203,7 +210,7 @@ public class CpdRunnerImplTest extends ExternalToolTest<CpdRunner>
         aParameters.setMinimumTokenCount(10);
 
         // When
-        aCpdRunner.runCpd(Collections.singleton(aCodeFile), aReportFile1, "text", aParameters);
+        aCpdRunner.runCpd(Collections.singleton(aCodeFile), aReportFile1, "text", aParameters, null, null);
 
         // Then
         assertTrue(aReportFile1.exists());
@@ -213,7 +220,7 @@ public class CpdRunnerImplTest extends ExternalToolTest<CpdRunner>
         aParameters.setIgnoreLiterals(true);
 
         // When
-        aCpdRunner.runCpd(Collections.singleton(aCodeFile), aReportFile2, "text", aParameters);
+        aCpdRunner.runCpd(Collections.singleton(aCodeFile), aReportFile2, "text", aParameters, null, null);
 
         // Then
         assertTrue(aReportFile2.exists());
@@ -246,7 +253,7 @@ public class CpdRunnerImplTest extends ExternalToolTest<CpdRunner>
         aParameters.setMinimumTokenCount(10);
 
         // When
-        aCpdRunner.runCpd(Collections.singleton(aCodeFile), aReportFile1, "text", aParameters);
+        aCpdRunner.runCpd(Collections.singleton(aCodeFile), aReportFile1, "text", aParameters, null, null);
 
         // Then
         assertTrue(aReportFile1.exists());
@@ -256,7 +263,7 @@ public class CpdRunnerImplTest extends ExternalToolTest<CpdRunner>
         aParameters.setIgnoreIdentifiers(true);
 
         // When
-        aCpdRunner.runCpd(Collections.singleton(aCodeFile), aReportFile2, "text", aParameters);
+        aCpdRunner.runCpd(Collections.singleton(aCodeFile), aReportFile2, "text", aParameters, null, null);
 
         // Then
         assertTrue(aReportFile2.exists());
@@ -264,6 +271,457 @@ public class CpdRunnerImplTest extends ExternalToolTest<CpdRunner>
     }
 
 
+    /**
+     * Tokenizing the files in parallel should produce the same report as tokenizing them on a
+     * single thread.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void parallelTokenizationProducesSameReportAsSerialTokenization() throws IOException
+    {
+        // Given
+        CpdRunner aCpdRunner = newToolProxy();
+        File aReportFile1 = createReportFileSpec("report1.xml");
+        File aReportFile2 = createReportFileSpec("report2.xml");
+        List<File> aCodeFiles = new ArrayList<>();
+        for (int i=0; i<10; i++)
+            aCodeFiles.add(
+                createJavaFile(
+                    "public class X" + i + " {",
+                    "int method1(int p) {",
+                    "  return p * 4711;",
+                    "}",
+                    "int method" + i + "(int q) {",
+                    "  return q * " + i + ";",
+                    "}",
+                    "}"
+                ));
+
+        CpdParameters aParameters = new CpdParameters();
+        aParameters.setMinimumTokenCount(10);
+
+        // When
+        aParameters.setMaxParallelism(1);
+        aCpdRunner.runCpd(aCodeFiles, aReportFile1, "xml", aParameters, null, null);
+        aParameters.setMaxParallelism(4);
+        aCpdRunner.runCpd(aCodeFiles, aReportFile2, "xml", aParameters, null, null);
+
+        // Then
+        assertTrue(aReportFile1.length() > 0);
+        assertArrayEquals(Files.readAllBytes(aReportFile1.toPath()), Files.readAllBytes(aReportFile2.toPath()));
+    }
+
+
+    /**
+     * Analyzing files with tokens from the token cache should produce the same report as
+     * tokenizing the files without a cache.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void cachedTokensProduceSameReportAsUncachedTokens() throws IOException
+    {
+        // Given
+        CpdRunner aCpdRunner = newToolProxy();
+        File aReportFile1 = createReportFileSpec("report1.xml");
+        File aReportFile2 = createReportFileSpec("report2.xml");
+        File aReportFile3 = createReportFileSpec("report3.xml");
+        Path aCacheDirectory = Files.createTempDirectory("cpd-cache");
+        addTemporaryFile(aCacheDirectory);
+        List<File> aCodeFiles = new ArrayList<>();
+        for (int i=0; i<3; i++)
+            aCodeFiles.add(
+                createJavaFile(
+                    "public class X" + i + " {",
+                    "int method1(int p) {",
+                    "  return p * 4711;",
+                    "}",
+                    "}"
+                ));
+
+        CpdParameters aParameters = new CpdParameters();
+        aParameters.setMinimumTokenCount(10);
+
+        // When
+        aCpdRunner.runCpd(aCodeFiles, aReportFile1, "xml", aParameters, null, null);
+        aCpdRunner.runCpd(aCodeFiles, aReportFile2, "xml", aParameters, aCacheDirectory.toFile(), null);
+        aCpdRunner.runCpd(aCodeFiles, aReportFile3, "xml", aParameters, aCacheDirectory.toFile(), null);
+
+        // Then
+        String[] aCacheEntries = aCacheDirectory.toFile().list();
+        assertEquals(aCodeFiles.size(), aCacheEntries != null ? aCacheEntries.length : 0);
+        assertTrue(aReportFile1.length() > 0);
+        assertArrayEquals(Files.readAllBytes(aReportFile1.toPath()), Files.readAllBytes(aReportFile2.toPath()));
+        assertArrayEquals(Files.readAllBytes(aReportFile1.toPath()), Files.readAllBytes(aReportFile3.toPath()));
+    }
+
+
+    /**
+     * Analyzing files with the tokens stored off the Java heap should produce the same report as
+     * analyzing them with the tokens on the heap, and the token store files should be deleted
+     * after the analysis.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void offHeapTokensProduceSameReportAsOnHeapTokens() throws IOException
+    {
+        // Given
+        CpdRunner aCpdRunner = newToolProxy();
+        File aReportFile1 = createReportFileSpec("report1.xml");
+        File aReportFile2 = createReportFileSpec("report2.xml");
+        Path aTokenStoreDirectory = Files.createTempDirectory("cpd-tokens");
+        addTemporaryFile(aTokenStoreDirectory);
+        List<File> aCodeFiles = new ArrayList<>();
+        for (int i=0; i<5; i++)
+            aCodeFiles.add(
+                createJavaFile(
+                    "public class X" + i + " {",
+                    "int method1(int p) {",
+                    "  return p * 4711;",
+                    "}",
+                    "int method" + i + "(int q) {",
+                    "  return q * " + (i % 2) + ";",
+                    "}",
+                    "}"
+                ));
+
+        CpdParameters aParameters = new CpdParameters();
+        aParameters.setMinimumTokenCount(10);
+
+        // When
+        aCpdRunner.runCpd(aCodeFiles, aReportFile1, "xml", aParameters, null, null);
+        aParameters.setTokenStoreDirectory(aTokenStoreDirectory.toFile());
+        aCpdRunner.runCpd(aCodeFiles, aReportFile2, "xml", aParameters, null, null);
+
+        // Then
+        String[] aStoreFiles = aTokenStoreDirectory.toFile().list();
+        assertEquals(0, aStoreFiles != null ? aStoreFiles.length : 0);
+        assertTrue(aReportFile1.length() > 0);
+        assertArrayEquals(Files.readAllBytes(aReportFile1.toPath()), Files.readAllBytes(aReportFile2.toPath()));
+    }
+
+
+    /**
+     * Analyzing files with the tokens stored off the Java heap should find the same matches as
+     * CPD's own match algorithm for files with duplications of different lengths, duplications
+     * occurring more than twice, and duplications within the same file.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void offHeapTokensProduceSameMatchesAsCpdForVariedDuplications() throws IOException
+    {
+        // Given
+        CpdRunner aCpdRunner = newToolProxy();
+        Path aTokenStoreDirectory = Files.createTempDirectory("cpd-tokens");
+        addTemporaryFile(aTokenStoreDirectory);
+        String[] aStatements = {
+            "  int x = p * 17;",
+            "  x += q - 4711;",
+            "  if (x > 10) { x = x / 2; }",
+            "  for (int i = 0; i < q; i++) { x += i; }",
+            "  return x;",
+        };
+
+        // A fixed seed makes the files the same in every test run.
+        Random aRandom = new Random(4711);
+        List<File> aCodeFiles = new ArrayList<>();
+        for (int i=0; i<12; i++)
+        {
+            List<String> aLines = new ArrayList<>();
+            aLines.add("public class X" + i + " {");
+            for (int j=0; j<3; j++)
+            {
+                aLines.add("int method" + j + "(int p, int q) {");
+                int aNumStatements = 1 + aRandom.nextInt(aStatements.length);
+                for (int k=0; k<aNumStatements; k++)
+                    aLines.add(aStatements[aRandom.nextInt(aStatements.length)]);
+                aLines.add("  return p;");
+                aLines.add("}");
+            }
+            aLines.add("}");
+            aCodeFiles.add(createJavaFile(aLines.toArray(new String[0])));
+        }
+
+        for (int aMinimumTokenCount : new int[] {10, 25})
+        {
+            File aReportFile1 = createReportFileSpec("report1-" + aMinimumTokenCount + ".xml");
+            File aReportFile2 = createReportFileSpec("report2-" + aMinimumTokenCount + ".xml");
+            CpdParameters aParameters = new CpdParameters();
+            aParameters.setMinimumTokenCount(aMinimumTokenCount);
+
+            // When
+            aCpdRunner.runCpd(aCodeFiles, aReportFile1, "xml", aParameters, null, null);
+            aParameters.setTokenStoreDirectory(aTokenStoreDirectory.toFile());
+            aCpdRunner.runCpd(aCodeFiles, aReportFile2, "xml", aParameters, null, null);
+
+            // Then
+            String aReport = new String(Files.readAllBytes(aReportFile1.toPath()));
+            assertTrue(aReport.contains("<duplication "));
+            assertArrayEquals(Files.readAllBytes(aReportFile1.toPath()), Files.readAllBytes(aReportFile2.toPath()));
+        }
+    }
+
+
+    /**
+     * Analyzing several languages concurrently with the tokens stored off the Java heap should
+     * produce the same report as analyzing them one at a time with the tokens on the heap.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void concurrentOffHeapAnalysesProduceSameReportAsSerialOnHeapAnalyses() throws IOException
+    {
+        // Given
+        CpdRunner aCpdRunner = newToolProxy();
+        File aReportFile1 = createReportFileSpec("report1.xml");
+        File aReportFile2 = createReportFileSpec("report2.xml");
+        Path aTokenStoreDirectory = Files.createTempDirectory("cpd-tokens");
+        addTemporaryFile(aTokenStoreDirectory);
+        List<File> aJavaFiles = new ArrayList<>();
+        List<File> aCppFiles = new ArrayList<>();
+        for (int i=0; i<4; i++)
+        {
+            aJavaFiles.add(
+                createJavaFile(
+                    "public class X" + i + " {",
+                    "int method1(int p) {",
+                    "  return p * 4711;",
+                    "}",
+                    "}"
+                ));
+            aCppFiles.add(
+                createSourceFile(
+                    ".cpp",
+                    "int compute" + i + "(int a, int b) {",
+                    "  int r = 0;",
+                    "  for (int i = 0; i < a; i++) { r += b * i; }",
+                    "  return r;",
+                    "}"
+                ));
+        }
+
+        Map<String, List<File>> aFilesByLanguage = new LinkedHashMap<>();
+        aFilesByLanguage.put("java", aJavaFiles);
+        aFilesByLanguage.put("cpp", aCppFiles);
+        CpdParameters aParameters = new CpdParameters();
+        aParameters.setMinimumTokenCount(10);
+
+        // When
+        aParameters.setMaxParallelism(1);
+        aCpdRunner.runMultiLanguageCpd(aFilesByLanguage, aReportFile1, "xml", aParameters, null, null);
+        aParameters.setMaxParallelism(2);
+        aParameters.setTokenStoreDirectory(aTokenStoreDirectory.toFile());
+        aCpdRunner.runMultiLanguageCpd(aFilesByLanguage, aReportFile2, "xml", aParameters, null, null);
+
+        // Then
+        String[] aStoreFiles = aTokenStoreDirectory.toFile().list();
+        assertEquals(0, aStoreFiles != null ? aStoreFiles.length : 0);
+        assertTrue(aReportFile1.length() > 0);
+        assertArrayEquals(Files.readAllBytes(aReportFile1.toPath()), Files.readAllBytes(aReportFile2.toPath()));
+    }
+
+
+    /**
+     * The code fragments should be left out of an XML report if {@code includeCodeFragments} is
+     * false, and be truncated if {@code maxCodeFragmentLines} is less than the number of duplicated
+     * lines.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void codeFragmentsInXmlReportAreLimitedAccordingToParameters() throws IOException
+    {
+        // Given
+        CpdRunner aCpdRunner = newToolProxy();
+        File aReportFile1 = createReportFileSpec("report1.xml");
+        File aReportFile2 = createReportFileSpec("report2.xml");
+        File aReportFile3 = createReportFileSpec("report3.xml");
+        File aCodeFile = createJavaFile(
+            "public class X {",
+            "int method1(int p) {",
+            "  int x = p * 17;",
+            "  return x * 4711;",
+            "}",
+            "int method2(int p) {",
+            "  int x = p * 17;",
+            "  return x * 4711;",
+            "}",
+            "}"
+        );
+
+        CpdParameters aParameters = new CpdParameters();
+        aParameters.setMinimumTokenCount(10);
+
+        // When
+        aCpdRunner.runCpd(Collections.singleton(aCodeFile), aReportFile1, "xml", aParameters, null, null);
+        aParameters.setMaxCodeFragmentLines(1);
+        aCpdRunner.runCpd(Collections.singleton(aCodeFile), aReportFile2, "xml", aParameters, null, null);
+        aParameters.setIncludeCodeFragments(false);
+        aCpdRunner.runCpd(Collections.singleton(aCodeFile), aReportFile3, "xml", aParameters, null, null);
+
+        // Then
+        String aReport1 = new String(Files.readAllBytes(aReportFile1.toPath()));
+        String aReport2 = new String(Files.readAllBytes(aReportFile2.toPath()));
+        String aReport3 = new String(Files.readAllBytes(aReportFile3.toPath()));
+        assertTrue(aReport1.contains("<duplication "));
+        assertTrue(aReport1.contains("return x * 4711;"));
+        assertTrue(aReport2.contains("<codefragment>"));
+        assertFalse(aReport2.contains("return x * 4711;"));
+        assertTrue(aReport3.contains("<duplication "));
+        assertFalse(aReport3.contains("<codefragment>"));
+    }
+
+
+    /**
+     * Only duplications involving at least one of the changed files should be reported when
+     * changed files are specified.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void onlyDuplicationsInvolvingChangedFilesAreReported() throws IOException
+    {
+        // Given
+        CpdRunner aCpdRunner = newToolProxy();
+        File aReportFile = createReportFileSpec("report.xml");
+        Path aCacheDirectory = Files.createTempDirectory("cpd-cache");
+        addTemporaryFile(aCacheDirectory);
+        List<File> aCodeFiles = new ArrayList<>();
+        for (int i=0; i<4; i++)
+            aCodeFiles.add(
+                createJavaFile(
+                    "public class X" + i + " {",
+                    i < 2 ? "int method1(int p) {" : "void method2(String s) {",
+                    i < 2 ? "  return p * 4711;" : "  System.out.println(s + s.length());",
+                    "}",
+                    "}"
+                ));
+
+        CpdParameters aParameters = new CpdParameters();
+        aParameters.setMinimumTokenCount(10);
+
+        // When
+        aCpdRunner.runCpd(
+            aCodeFiles,
+            aReportFile,
+            "xml",
+            aParameters,
+            aCacheDirectory.toFile(),
+            Collections.singleton(aCodeFiles.get(0)));
+
+        // Then
+        String aReport = new String(Files.readAllBytes(aReportFile.toPath()));
+        assertTrue(aReport.contains(aCodeFiles.get(0).getName()));
+        assertTrue(aReport.contains(aCodeFiles.get(1).getName()));
+        assertFalse(aReport.contains(aCodeFiles.get(2).getName()));
+        assertFalse(aReport.contains(aCodeFiles.get(3).getName()));
+    }
+
+
+    /**
+     * Analyzing files in several languages should report the duplications of each language with
+     * its language in the XML report.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void duplicationsOfAllLanguagesAreReportedInMultiLanguageAnalysis() throws IOException
+    {
+        // Given
+        CpdRunner aCpdRunner = newToolProxy();
+        File aReportFile = createReportFileSpec("report.xml");
+        List<File> aJavaFiles = new ArrayList<>();
+        List<File> aCppFiles = new ArrayList<>();
+        for (int i=0; i<2; i++)
+        {
+            aJavaFiles.add(
+                createJavaFile(
+                    "public class X" + i + " {",
+                    "int method1(int p) {",
+                    "  return p * 4711;",
+                    "}",
+                    "}"
+                ));
+            aCppFiles.add(
+                createSourceFile(
+                    ".cpp",
+                    "int compute" + i + "(int a, int b) {",
+                    "  int r = 0;",
+                    "  for (int i = 0; i < a; i++) { r += b * i; }",
+                    "  return r;",
+                    "}"
+                ));
+        }
+
+        Map<String, List<File>> aFilesByLanguage = new LinkedHashMap<>();
+        aFilesByLanguage.put("java", aJavaFiles);
+        aFilesByLanguage.put("cpp", aCppFiles);
+        CpdParameters aParameters = new CpdParameters();
+        aParameters.setMinimumTokenCount(10);
+
+        // When
+        aCpdRunner.runMultiLanguageCpd(aFilesByLanguage, aReportFile, "xml", aParameters, null, null);
+
+        // Then
+        String aReport = new String(Files.readAllBytes(aReportFile.toPath()));
+        assertTrue(aReport.contains("language=\"java\""));
+        assertTrue(aReport.contains("language=\"cpp\""));
+        assertTrue(aReport.indexOf("language=\"java\"") < aReport.indexOf("language=\"cpp\""));
+        for (File aFile : aCppFiles)
+            assertTrue(aReport.contains(aFile.getName()));
+    }
+
+
+    /**
+     * The paths of the files in a report base directory should be written relative to that
+     * directory in both XML reports and reports written by the CPD renderers.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void filePathsAreRelativeToReportBaseDirectory() throws IOException
+    {
+        // Given
+        CpdRunner aCpdRunner = newToolProxy();
+        File aXmlReportFile = createReportFileSpec("report.xml");
+        File aTextReportFile = createReportFileSpec("report.txt");
+        List<File> aCodeFiles = new ArrayList<>();
+        for (int i=0; i<2; i++)
+            aCodeFiles.add(
+                createJavaFile(
+                    "public class X" + i + " {",
+                    "int method1(int p) {",
+                    "  return p * 4711;",
+                    "}",
+                    "}"
+                ));
+
+        File aBaseDirectory = new File("").getAbsoluteFile();
+        CpdParameters aParameters = new CpdParameters();
+        aParameters.setMinimumTokenCount(10);
+        aParameters.setReportBaseDirectory(aBaseDirectory);
+
+        // When
+        aCpdRunner.runCpd(aCodeFiles, aXmlReportFile, "xml", aParameters, null, null);
+        aCpdRunner.runCpd(aCodeFiles, aTextReportFile, "text", aParameters, null, null);
+
+        // Then
+        String aXmlReport = new String(Files.readAllBytes(aXmlReportFile.toPath()));
+        String aTextReport = new String(Files.readAllBytes(aTextReportFile.toPath()));
+        for (File aFile : aCodeFiles)
+        {
+            assertTrue(aXmlReport.contains("path=\"" + aFile.getName() + "\""));
+            assertTrue(aTextReport.contains(aFile.getName()));
+        }
+
+        assertFalse(aXmlReport.contains(aBaseDirectory.getPath()));
+        assertFalse(aTextReport.contains(aBaseDirectory.getPath()));
+    }
+
+
     private File createReportFileSpec(String pFileName)
     {
         File aReportFileSpec = new File(pFileName);
@@ -273,10 +731,16 @@ public class CpdRunnerImplTest extends ExternalToolTest<CpdRunner>
 
 
     private File createJavaFile(String... pContents) throws IOException
+    {
+        return createSourceFile(".java", pContents);
+    }
+
+
+    private File createSourceFile(String pExtension, String... pContents) throws IOException
     {
         // Can't use createTemporaryFile(), since CPD sometimes thinks files in the system temporary
         // directory are symbolic links.
-        Path aPath = Files.createFile(Paths.get("Cpd-" + ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE) +  ".java"));
+        Path aPath = Files.createFile(Paths.get("Cpd-" + ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE) + pExtension));
         addTemporaryFile(aPath);
         Files.write(aPath, Arrays.asList(pContents));
         return aPath.toFile();
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.cpd.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.myire.quill.test.FileBasedTest;
+
+
+/**
+ * Unit tests for {@code TokenCache}.
+ */
+public class TokenCacheTest extends FileBasedTest
+{
+    static private final String SETTINGS = "java|100";
+
+
+    /**
+     * The key of a file should be a hexadecimal SHA-256 digest, and should be the same for an
+     * unmodified file.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void keyOfUnmodifiedFileIsStable() throws IOException
+    {
+        // Given
+        TokenCache aCache = new TokenCache(createCacheDirectory(), SETTINGS);
+        Path aFile = createTemporaryFile("Cached", ".java", Collections.singletonList("class Cached {}"));
+
+        // When
+        String aKey1 = aCache.computeKey(aFile);
+        String aKey2 = aCache.computeKey(aFile);
+
+        // Then
+        assertEquals(aKey1, aKey2);
+        assertTrue(aKey1.matches("[0-9a-f]{64}"));
+    }
+
+
+    /**
+     * Modifying the contents of a file should give the file a new key.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void modifiedFileGetsNewKey() throws IOException
+    {
+        // Given
+        TokenCache aCache = new TokenCache(createCacheDirectory(), SETTINGS);
+        Path aFile = createTemporaryFile("Cached", ".java", Collections.singletonList("class Cached {}"));
+        String aOriginalKey = aCache.computeKey(aFile);
+
+        // When
+        Files.write(aFile, Collections.singletonList("class Cached { int i; }"));
+
+        // Then
+        assertNotEquals(aOriginalKey, aCache.computeKey(aFile));
+    }
+
+
+    /**
+     * Different settings should give a file different keys.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void modifiedSettingsGiveNewKey() throws IOException
+    {
+        // Given
+        File aDirectory = createCacheDirectory();
+        Path aFile = createTemporaryFile("Cached", ".java", Collections.singletonList("class Cached {}"));
+
+        // When
+        String aKey1 = new TokenCache(aDirectory, SETTINGS).computeKey(aFile);
+        String aKey2 = new TokenCache(aDirectory, "java|50").computeKey(aFile);
+
+        // Then
+        assertNotEquals(aKey1, aKey2);
+    }
+
+
+    private File createCacheDirectory() throws IOException
+    {
+        Path aDirectory = Files.createTempDirectory("token-cache");
+        addTemporaryFile(aDirectory);
+        return aDirectory.toFile();
+    }
+}
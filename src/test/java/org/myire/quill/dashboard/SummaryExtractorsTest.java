@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.dashboard;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * JUnit tests for {@code SummaryExtractors}.
+ */
+public class SummaryExtractorsTest
+{
+    @Test
+    public void checkstyleFilesAreCountedOnce() throws IOException
+    {
+        // Given
+        File aReport = createReport(
+            "<checkstyle version=\"8.45\">" +
+                "<file name=\"A.java\"><error severity=\"error\"/><error severity=\"warning\"/></file>" +
+                "<file name=\"B.java\"/>" +
+                "<file name=\"A.java\"><error severity=\"warning\"/></file>" +
+            "</checkstyle>");
+
+        // When
+        String aSummary = SummaryExtractors.extract(aReport, SummaryExtractors.CHECKSTYLE);
+
+        // Then
+        assertEquals(
+            "<checkstyle-summary version=\"8.45\" files=\"2\" files-with-violations=\"1\" errors=\"1\" warnings=\"2\"/>",
+            aSummary);
+    }
+
+
+    @Test
+    public void jacocoReportLevelCountersAreCopied() throws IOException
+    {
+        // Given
+        File aReport = createReport(
+            "<!DOCTYPE report PUBLIC \"-//JACOCO//DTD Report 1.1//EN\" \"report.dtd\">" +
+            "<report name=\"r\">" +
+                "<package name=\"p\">" +
+                    "<class name=\"p/A\"><counter type=\"METHOD\" missed=\"1\" covered=\"1\"/></class>" +
+                    "<class name=\"p/B\"/>" +
+                    "<counter type=\"CLASS\" missed=\"0\" covered=\"2\"/>" +
+                "</package>" +
+                "<counter type=\"CLASS\" missed=\"0\" covered=\"2\"/>" +
+            "</report>");
+
+        // When
+        String aSummary = SummaryExtractors.extract(aReport, SummaryExtractors.JACOCO);
+
+        // Then
+        assertEquals(
+            "<jacoco-summary packages=\"1\" types=\"2\"><counter type=\"CLASS\" missed=\"0\" covered=\"2\"/></jacoco-summary>",
+            aSummary);
+    }
+
+
+    @Test
+    public void pmdViolationsAreCountedInNamespace() throws IOException
+    {
+        // Given
+        File aReport = createReport(
+            "<pmd xmlns=\"http://pmd.sourceforge.net/report/2.0.0\" version=\"6.41.0\">" +
+                "<file name=\"A\"><violation rule=\"r\"/><violation rule=\"s\"/></file>" +
+                "<file name=\"B\"><violation rule=\"r\"/></file>" +
+            "</pmd>");
+
+        // When
+        String aSummary = SummaryExtractors.extract(aReport, SummaryExtractors.PMD);
+
+        // Then
+        assertEquals("<pmd-summary version=\"6.41.0\" files-with-violations=\"2\" violations=\"3\"/>", aSummary);
+    }
+
+
+    @Test
+    public void unexpectedRootElementGivesNoSummary() throws IOException
+    {
+        // Given
+        File aReport = createReport("<pmd version=\"6.41.0\"><file name=\"A\"/></pmd>");
+
+        // When
+        String aSummary = SummaryExtractors.extract(aReport, SummaryExtractors.PMD);
+
+        // Then
+        assertEquals("<no-summary/>", aSummary);
+    }
+
+
+    @Test(expected = IOException.class)
+    public void malformedReportThrows() throws IOException
+    {
+        // When
+        SummaryExtractors.extract(createReport("<pmd-cpd><duplication>"), SummaryExtractors.CPD);
+    }
+
+
+    static private File createReport(String pXml) throws IOException
+    {
+        File aFile = Files.createTempFile("report", ".xml").toFile();
+        aFile.deleteOnExit();
+        Files.write(aFile.toPath(), pXml.getBytes(StandardCharsets.UTF_8));
+        return aFile;
+    }
+}
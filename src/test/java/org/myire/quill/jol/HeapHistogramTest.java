@@ -0,0 +1,75 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.jol;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Unit tests for {@code HeapHistogram}.
+ *
+ * @author <a href="mailto:peter@myire.org">Peter Franzen</a>
+ */
+public class HeapHistogramTest
+{
+    static private final String HISTOGRAM =
+        " num     #instances         #bytes  class name (module)\n" +
+        "-------------------------------------------------------\n" +
+        "   1:        123456        9876543  [B (java.base@17.0.2)\n" +
+        "   2:         50000        1200000  java.lang.String (java.base@17.0.2)\n" +
+        "   3:          2000          64000  org.myire.Outer$Inner\n" +
+        "Total        175456       11140543\n";
+
+
+    @Test
+    public void instanceCountsAreParsedWithAndWithoutModule() throws IOException
+    {
+        // Given
+        HeapHistogram aHistogram = new HeapHistogram();
+
+        // When
+        aHistogram.read(new StringReader(HISTOGRAM));
+
+        // Then
+        assertEquals(50000, aHistogram.getInstanceCount("java.lang.String"));
+        assertEquals(2000, aHistogram.getInstanceCount("org.myire.Outer$Inner"));
+        assertEquals(0, aHistogram.getInstanceCount("org.myire.Outer.Inner"));
+    }
+
+
+    @Test
+    public void arrayClassesAndOtherLinesAreIgnored() throws IOException
+    {
+        // Given
+        HeapHistogram aHistogram = new HeapHistogram();
+
+        // When
+        aHistogram.read(new StringReader(HISTOGRAM));
+
+        // Then
+        assertEquals(2, aHistogram.getNumClasses());
+        assertEquals(0, aHistogram.getInstanceCount("[B"));
+    }
+
+
+    @Test
+    public void instanceCountsFromSeveralHistogramsAreSummed() throws IOException
+    {
+        // Given
+        HeapHistogram aHistogram = new HeapHistogram();
+
+        // When
+        aHistogram.read(new StringReader(HISTOGRAM));
+        aHistogram.read(new StringReader("   1:     10     240  java.lang.String\n"));
+
+        // Then
+        assertEquals(50010, aHistogram.getInstanceCount("java.lang.String"));
+    }
+}
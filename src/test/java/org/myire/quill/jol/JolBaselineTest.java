@@ -0,0 +1,169 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.jol;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Unit tests for {@code JolBaseline}.
+ *
+ * @author <a href="mailto:peter@myire.org">Peter Franzen</a>
+ */
+public class JolBaselineTest
+{
+    static private final JolBaselineGate.Budgets NO_BUDGETS =
+        new JolBaselineGate.Budgets(0, Collections.emptyMap(), Collections.emptyMap());
+
+
+    @Test
+    public void writtenBaselineCanBeRead() throws IOException
+    {
+        // Given
+        JolResult aResult = new JolResult("0.10", "layout");
+        aResult.add(createClassLayout("org.myire", "A", 4));
+        StringWriter aWriter = new StringWriter();
+
+        // When
+        JolBaseline.create(aResult).write(aWriter);
+        JolBaseline aBaseline = JolBaseline.read(new StringReader(aWriter.toString()));
+
+        // Then
+        assertEquals("# layout\norg.myire.A 20 4\n", aWriter.toString());
+        assertEquals("layout", aBaseline.getDescription());
+        assertEquals(1, aBaseline.getNumClasses());
+        assertEquals(20, aBaseline.getSizes("org.myire.A").getInstanceSize());
+        assertEquals(4, aBaseline.getSizes("org.myire.A").getGapSize());
+        assertNull(aBaseline.getSizes("org.myire.B"));
+    }
+
+
+    @Test
+    public void classesWithSameNameAreKeyedOnBinaryName()
+    {
+        // Given
+        JolResult aResult = new JolResult("0.10", "layout");
+        aResult.add(createClassLayout("org.myire", "A$1", "", 4));
+        aResult.add(createClassLayout("org.myire", "B$1", "", 8));
+
+        // When
+        JolBaseline aBaseline = JolBaseline.create(aResult);
+
+        // Then
+        assertEquals(2, aBaseline.getNumClasses());
+        assertEquals(4, aBaseline.getSizes("org.myire.A$1").getGapSize());
+        assertEquals(8, aBaseline.getSizes("org.myire.B$1").getGapSize());
+    }
+
+
+    @Test(expected = IOException.class)
+    public void readThrowsForMissingDescription() throws IOException
+    {
+        // When
+        JolBaseline.read(new StringReader("org.myire.A 20 4\n"));
+    }
+
+
+    @Test
+    public void classesThatHaveGrownMoreThanTheirBudgetAreViolations() throws IOException
+    {
+        // Given
+        JolBaseline aBaseline = JolBaseline.read(new StringReader("# layout\norg.myire.A 16 0\norg.myire.B 16 0\n"));
+        JolResult aResult = new JolResult("0.10", "layout");
+        aResult.add(createClassLayout("org.myire", "A", 8));
+        aResult.add(createClassLayout("org.myire", "B", 0));
+        aResult.add(createClassLayout("org.myire", "New", 8));
+
+        // When
+        List<JolBaseline.Violation> aViolations = aBaseline.compare(aResult, NO_BUDGETS);
+
+        // Then
+        assertEquals(1, aViolations.size());
+        assertEquals("org.myire.A", aViolations.get(0).getClassName());
+        assertEquals(24, aViolations.get(0).getCurrentSizes().getInstanceSize());
+    }
+
+
+    @Test
+    public void growthWithinBudgetIsNotAViolation() throws IOException
+    {
+        // Given
+        JolBaseline aBaseline = JolBaseline.read(new StringReader("# layout\norg.myire.A 16 0\n"));
+        JolResult aResult = new JolResult("0.10", "layout");
+        aResult.add(createClassLayout("org.myire", "A", 8));
+        JolBaselineGate.Budgets aBudgets =
+            new JolBaselineGate.Budgets(0, Collections.emptyMap(), Collections.singletonMap("org", 8));
+
+        // Then
+        assertTrue(aBaseline.compare(aResult, aBudgets).isEmpty());
+    }
+
+
+    @Test
+    public void mostSpecificBudgetIsUsed()
+    {
+        // Given
+        JolBaselineGate.Budgets aBudgets =
+            new JolBaselineGate.Budgets(
+                1,
+                Collections.singletonMap("org.myire.A", 2),
+                Collections.singletonMap("org.myire", 3));
+
+        // Then
+        assertEquals(2, aBudgets.getBudget("org.myire.A"));
+        assertEquals(3, aBudgets.getBudget("org.myire.sub.B"));
+        assertEquals(1, aBudgets.getBudget("com.other.C"));
+    }
+
+
+    @Test
+    public void nestedClassBudgetIsFoundWithQualifiedName()
+    {
+        // Given
+        JolBaselineGate.Budgets aBudgets =
+            new JolBaselineGate.Budgets(
+                1,
+                Collections.singletonMap("org.myire.A.Nested", 2),
+                Collections.singletonMap("org.myire.B", 3));
+
+        // Then
+        assertEquals(2, aBudgets.getBudget("org.myire.A$Nested"));
+        assertEquals(3, aBudgets.getBudget("org.myire.B$1"));
+    }
+
+
+    static private JolResult.ClassLayout createClassLayout(String pPackageName, String pClassName, int pGapSize)
+    {
+        return createClassLayout(pPackageName, null, pClassName, pGapSize);
+    }
+
+
+    static private JolResult.ClassLayout createClassLayout(
+        String pPackageName,
+        String pBinaryName,
+        String pClassName,
+        int pGapSize)
+    {
+        // A 12 byte header and one int field, followed by the gap.
+        return new JolResult.ClassLayout(
+            pClassName,
+            pPackageName,
+            null,
+            pBinaryName != null ? pPackageName + '.' + pBinaryName : null,
+            12,
+            16 + pGapSize,
+            Collections.singletonList(new JolResult.FieldLayout("fInt", "int", 12, 4)));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.jol;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Unit tests for {@code JolFalseSharingDetector}.
+ *
+ * @author <a href="mailto:peter@myire.org">Peter Franzen</a>
+ */
+public class JolFalseSharingDetectorTest
+{
+    @Test
+    public void classWithoutConcurrentFieldsIsNotReported()
+    {
+        // Given
+        JolResult.ClassLayout aClassLayout = createClassLayout(
+            24,
+            new JolResult.FieldLayout("fInt", "int", 12, 4),
+            new JolResult.FieldLayout("fLong", "long", 16, 8));
+
+        // Then
+        assertNull(new JolFalseSharingDetector().detect(aClassLayout));
+    }
+
+
+    @Test
+    public void adjacentVolatileAndAtomicFieldsAreContentions()
+    {
+        // Given
+        JolResult.ClassLayout aClassLayout = createClassLayout(
+            32,
+            new JolResult.FieldLayout("fHead", "long", 16, 8, true, false),
+            new JolResult.FieldLayout("fCount", "java.util.concurrent.atomic.AtomicLong", 12, 4),
+            new JolResult.FieldLayout("fPlain", "int", 24, 4));
+
+        // When
+        JolFalseSharingDetector.Report aReport = new JolFalseSharingDetector().detect(aClassLayout);
+
+        // Then
+        assertNotNull(aReport);
+        List<JolFalseSharingDetector.Field> aFields = aReport.getFields();
+        assertEquals(2, aFields.size());
+        assertEquals("fCount", aFields.get(0).getField().getName());
+        assertEquals(JolFalseSharingDetector.Field.Kind.ATOMIC, aFields.get(0).getKind());
+        assertEquals(JolFalseSharingDetector.Field.Kind.VOLATILE, aFields.get(1).getKind());
+        assertFalse(aFields.get(1).isPadded());
+
+        assertEquals(1, aReport.getContentions().size());
+        JolFalseSharingDetector.Contention aContention = aReport.getContentions().get(0);
+        assertEquals("fCount", aContention.getFirst().getName());
+        assertEquals("fHead", aContention.getSecond().getName());
+        assertEquals(0, aContention.getDistance());
+    }
+
+
+    @Test
+    public void fieldsACacheLineApartAreNotContentions()
+    {
+        // Given
+        JolResult.ClassLayout aClassLayout = createClassLayout(
+            96,
+            new JolResult.FieldLayout("fFirst", "long", 16, 8, true, false),
+            new JolResult.FieldLayout("fSecond", "long", 88, 8, true, false));
+
+        // When
+        JolFalseSharingDetector.Report aReport = new JolFalseSharingDetector().detect(aClassLayout);
+
+        // Then
+        assertNotNull(aReport);
+        assertTrue(aReport.getContentions().isEmpty());
+    }
+
+
+    @Test
+    public void paddingOfContendedFieldIsChecked()
+    {
+        // Given
+        JolResult.ClassLayout aClassLayout = createClassLayout(
+            160,
+            new JolResult.FieldLayout("fInt", "int", 12, 4),
+            new JolResult.FieldLayout("fPadded", "long", 80, 8, false, true),
+            new JolResult.FieldLayout("fUnpadded", "int", 152, 4, false, true));
+
+        // When
+        JolFalseSharingDetector.Report aReport = new JolFalseSharingDetector().detect(aClassLayout);
+
+        // Then
+        assertNotNull(aReport);
+        List<JolFalseSharingDetector.Field> aFields = aReport.getFields();
+        assertEquals(2, aFields.size());
+        assertEquals(JolFalseSharingDetector.Field.Kind.PLAIN, aFields.get(0).getKind());
+        assertTrue(aFields.get(0).isPadded());
+        assertFalse(aFields.get(1).isPadded());
+        assertTrue(aReport.getContentions().isEmpty());
+    }
+
+
+    static private JolResult.ClassLayout createClassLayout(long pInstanceSize, JolResult.FieldLayout... pFields)
+    {
+        return new JolResult.ClassLayout("C", "org.myire", null, 12, pInstanceSize, Arrays.asList(pFields));
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.jol;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+
+/**
+ * Unit tests for {@code JolFootprint}.
+ *
+ * @author <a href="mailto:peter@myire.org">Peter Franzen</a>
+ */
+public class JolFootprintTest
+{
+    @Test
+    public void classesAreRankedOnTotalGapBytes() throws IOException
+    {
+        // Given
+        JolResult aResult = new JolResult("0.10", "");
+        aResult.add(createClassLayout("org.myire", "Small", 4));
+        aResult.add(createClassLayout("org.myire", "Large", 4));
+        HeapHistogram aHistogram = createHistogram(
+            "   1:    10    160  org.myire.Small\n" +
+            "   2:  1000  16000  org.myire.Large\n");
+
+        // When
+        JolFootprint aFootprint = JolFootprint.create(aResult, aHistogram);
+
+        // Then
+        JolFootprint.PackageFootprint aPackage = aFootprint.getPackages().iterator().next();
+        List<String> aNames = new ArrayList<>();
+        for (JolFootprint.ClassFootprint aClass : aPackage.getClasses())
+            aNames.add(aClass.getClassLayout().getClassName());
+
+        assertEquals(Arrays.asList("Large", "Small"), aNames);
+        assertEquals(4040, aPackage.getExternalGapBytes());
+        assertEquals(4040, aFootprint.getExternalGapBytes());
+    }
+
+
+    @Test
+    public void packagesAreRankedOnTotalGapBytes() throws IOException
+    {
+        // Given
+        JolResult aResult = new JolResult("0.10", "");
+        aResult.add(createClassLayout("a", "A", 4));
+        aResult.add(createClassLayout("b", "B", 4));
+        HeapHistogram aHistogram = createHistogram(
+            "   1:    1    16  a.A\n" +
+            "   2:    2    32  b.B\n");
+
+        // When
+        JolFootprint aFootprint = JolFootprint.create(aResult, aHistogram);
+
+        // Then
+        List<String> aNames = new ArrayList<>();
+        for (JolFootprint.PackageFootprint aPackage : aFootprint.getPackages())
+            aNames.add(aPackage.getName());
+
+        assertEquals(Arrays.asList("b", "a"), aNames);
+    }
+
+
+    @Test
+    public void classesWithoutGapsOrInstancesAreExcluded() throws IOException
+    {
+        // Given
+        JolResult aResult = new JolResult("0.10", "");
+        aResult.add(createClassLayout("a", "NoGaps", 0));
+        aResult.add(createClassLayout("a", "NoInstances", 4));
+        HeapHistogram aHistogram = createHistogram("   1:    1    16  a.NoGaps\n");
+
+        // When
+        JolFootprint aFootprint = JolFootprint.create(aResult, aHistogram);
+
+        // Then
+        assertFalse(aFootprint.getPackages().iterator().hasNext());
+        assertEquals(1, aFootprint.getNumHistogramClasses());
+    }
+
+
+    @Test
+    public void classesInDependenciesAreIncluded() throws IOException
+    {
+        // Given
+        JolResult aDependency = new JolResult("0.10", "");
+        aDependency.add(createClassLayout("lib", "L", 4));
+        JolResult aResult = new JolResult("0.10", "");
+        aResult.addDependency("lib.jar", aDependency);
+        HeapHistogram aHistogram = createHistogram("   1:    3    48  lib.L\n");
+
+        // When
+        JolFootprint aFootprint = JolFootprint.create(aResult, aHistogram);
+
+        // Then
+        assertEquals(12, aFootprint.getExternalGapBytes());
+    }
+
+
+    @Test
+    public void anonymousAndLocalClassesAreJoinedOnBinaryName() throws IOException
+    {
+        // Given
+        JolResult aResult = new JolResult("0.10", "");
+        aResult.add(createClassLayout("org.x", "Outer", "1", "org.x.Outer$1", 4));
+        aResult.add(createClassLayout("org.x", "Outer", "Local", "org.x.Outer$1Local", 4));
+        aResult.add(createClassLayout("org.x", "Outer", "Local", null, 4));
+        HeapHistogram aHistogram = createHistogram(
+            "   1:    2    32  org.x.Outer$1\n" +
+            "   2:    5    80  org.x.Outer$1Local\n");
+
+        // When
+        JolFootprint aFootprint = JolFootprint.create(aResult, aHistogram);
+
+        // Then
+        JolFootprint.PackageFootprint aPackage = aFootprint.getPackages().iterator().next();
+        List<String> aNames = new ArrayList<>();
+        List<Long> aInstanceCounts = new ArrayList<>();
+        for (JolFootprint.ClassFootprint aClass : aPackage.getClasses())
+        {
+            aNames.add(aClass.getClassLayout().getBinaryName());
+            aInstanceCounts.add(aClass.getInstanceCount());
+        }
+
+        assertEquals(Arrays.asList("org.x.Outer$1Local", "org.x.Outer$1"), aNames);
+        assertEquals(Arrays.asList(5L, 2L), aInstanceCounts);
+    }
+
+
+    static private JolResult.ClassLayout createClassLayout(String pPackageName, String pClassName, int pGapSize)
+    {
+        return createClassLayout(pPackageName, null, pClassName, null, pGapSize);
+    }
+
+
+    static private JolResult.ClassLayout createClassLayout(
+        String pPackageName,
+        String pEnclosingClassName,
+        String pClassName,
+        String pBinaryName,
+        int pGapSize)
+    {
+        // A 12 byte header and one int field, followed by the gap.
+        return new JolResult.ClassLayout(
+            pClassName,
+            pPackageName,
+            pEnclosingClassName,
+            pBinaryName,
+            12,
+            16 + pGapSize,
+            Collections.singletonList(new JolResult.FieldLayout("fInt", "int", 12, 4)));
+    }
+
+
+    static private HeapHistogram createHistogram(String pHistogram) throws IOException
+    {
+        HeapHistogram aHistogram = new HeapHistogram();
+        aHistogram.read(new StringReader(pHistogram));
+        return aHistogram;
+    }
+}
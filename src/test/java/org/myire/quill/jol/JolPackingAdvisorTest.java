@@ -0,0 +1,229 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.jol;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+
+/**
+ * Unit tests for {@code JolPackingAdvisor}.
+ *
+ * @author <a href="mailto:peter@myire.org">Peter Franzen</a>
+ */
+public class JolPackingAdvisorTest
+{
+    @Test
+    public void optimalLayoutGetsNoAdvice()
+    {
+        // Given
+        JolResult.ClassLayout aClassLayout = createClassLayout(
+            16,
+            new JolResult.FieldLayout("fInt", "int", 12, 4));
+
+        // Then
+        assertNull(new JolPackingAdvisor(8, true).advise(aClassLayout));
+    }
+
+
+    @Test
+    public void packedSizeFillsGapsWithSmallerFields()
+    {
+        // Given
+        JolResult.ClassLayout aClassLayout = createClassLayout(
+            32,
+            new JolResult.FieldLayout("fLong", "java.lang.Object", 16, 8),
+            new JolResult.FieldLayout("fByte", "byte", 24, 1),
+            new JolResult.FieldLayout("fShort", "short", 26, 2));
+
+        // When
+        JolPackingAdvisor.Advice aAdvice = new JolPackingAdvisor(8, true).advise(aClassLayout);
+
+        // Then
+        assertNotNull(aAdvice);
+        assertEquals(24, aAdvice.getPackedSize());
+        assertEquals(24, aAdvice.getProjectedSize());
+        assertEquals(8, aAdvice.getBytesSaved());
+        assertEquals(0, aAdvice.getCandidates().size());
+    }
+
+
+    @Test
+    public void candidatesAreFoundAndProjected()
+    {
+        // Given
+        JolResult.ClassLayout aClassLayout = createClassLayout(
+            40,
+            new JolResult.FieldLayout("fFlag1", "boolean", 12, 1),
+            new JolResult.FieldLayout("fLong", "long", 16, 8),
+            new JolResult.FieldLayout("fDouble", "double", 24, 8),
+            new JolResult.FieldLayout("fFlag2", "boolean", 32, 1));
+
+        // When
+        JolPackingAdvisor.Advice aAdvice = new JolPackingAdvisor(8, true).advise(aClassLayout);
+
+        // Then
+        assertNotNull(aAdvice);
+        assertEquals(32, aAdvice.getPackedSize());
+        assertEquals(24, aAdvice.getProjectedSize());
+        assertEquals(16, aAdvice.getBytesSaved());
+
+        List<JolPackingAdvisor.Candidate> aCandidates = aAdvice.getCandidates();
+        assertEquals(3, aCandidates.size());
+        assertCandidate(aCandidates.get(0), JolPackingAdvisor.Candidate.Kind.NARROW, "fLong", "int");
+        assertCandidate(aCandidates.get(1), JolPackingAdvisor.Candidate.Kind.NARROW, "fDouble", "float");
+        assertCandidate(aCandidates.get(2), JolPackingAdvisor.Candidate.Kind.BITSET, "fFlag1, fFlag2", "byte");
+    }
+
+
+    @Test
+    public void boxedFieldIsUnboxed()
+    {
+        // Given
+        JolResult.ClassLayout aClassLayout = createClassLayout(
+            32,
+            new JolResult.FieldLayout("fCount", "java.lang.Integer", 16, 4),
+            new JolResult.FieldLayout("fByte", "byte", 24, 1));
+
+        // When
+        JolPackingAdvisor.Advice aAdvice = new JolPackingAdvisor(8, true).advise(aClassLayout);
+
+        // Then
+        assertNotNull(aAdvice);
+        assertEquals(24, aAdvice.getPackedSize());
+        assertEquals(1, aAdvice.getCandidates().size());
+        assertCandidate(aAdvice.getCandidates().get(0), JolPackingAdvisor.Candidate.Kind.UNBOX, "fCount", "int");
+    }
+
+
+    @Test
+    public void unboxingLongWithCompressedReferenceSavesBoxedObject()
+    {
+        // Given
+        JolResult.ClassLayout aClassLayout = createClassLayout(
+            16,
+            new JolResult.FieldLayout("fValue", "java.lang.Long", 12, 4));
+
+        // When
+        JolPackingAdvisor.Advice aAdvice = new JolPackingAdvisor(8, true).advise(aClassLayout);
+
+        // Then (the long field makes the instance 8 bytes larger, but the 24 bytes of the Long
+        // are no longer needed)
+        assertNotNull(aAdvice);
+        assertEquals(16, aAdvice.getPackedSize());
+        assertEquals(24, aAdvice.getProjectedSize());
+        assertEquals(16, aAdvice.getBytesSaved());
+        assertEquals(1, aAdvice.getCandidates().size());
+        assertCandidate(aAdvice.getCandidates().get(0), JolPackingAdvisor.Candidate.Kind.UNBOX, "fValue", "long");
+        assertEquals(16, aAdvice.getCandidates().get(0).getBytesSaved());
+    }
+
+
+    @Test
+    public void unboxingDoubleWithCompressedReferenceSavesBoxedObject()
+    {
+        // Given
+        JolResult.ClassLayout aClassLayout = createClassLayout(
+            24,
+            new JolResult.FieldLayout("fInt", "int", 12, 4),
+            new JolResult.FieldLayout("fValue", "java.lang.Double", 16, 4));
+
+        // When
+        JolPackingAdvisor.Advice aAdvice = new JolPackingAdvisor(8, true).advise(aClassLayout);
+
+        // Then (the double field fits in the 4 bytes of the reference and the following gap)
+        assertNotNull(aAdvice);
+        assertEquals(24, aAdvice.getPackedSize());
+        assertEquals(24, aAdvice.getProjectedSize());
+        assertEquals(24, aAdvice.getBytesSaved());
+        assertCandidate(aAdvice.getCandidates().get(0), JolPackingAdvisor.Candidate.Kind.UNBOX, "fValue", "double");
+        assertEquals(24, aAdvice.getCandidates().get(0).getBytesSaved());
+    }
+
+
+    @Test
+    public void unboxingBooleanDoesNotSaveBoxedObject()
+    {
+        // Given
+        JolResult.ClassLayout aClassLayout = createClassLayout(
+            32,
+            new JolResult.FieldLayout("fObject", "java.lang.Object", 16, 8),
+            new JolResult.FieldLayout("fFlag", "java.lang.Boolean", 24, 4));
+
+        // When
+        JolPackingAdvisor.Advice aAdvice = new JolPackingAdvisor(8, true).advise(aClassLayout);
+
+        // Then (Boolean values are shared instances, only the reordering saves any bytes)
+        assertNotNull(aAdvice);
+        assertEquals(24, aAdvice.getPackedSize());
+        assertEquals(24, aAdvice.getProjectedSize());
+        assertEquals(8, aAdvice.getBytesSaved());
+        assertCandidate(aAdvice.getCandidates().get(0), JolPackingAdvisor.Candidate.Kind.UNBOX, "fFlag", "boolean");
+        assertEquals(0, aAdvice.getCandidates().get(0).getBytesSaved());
+    }
+
+
+    @Test
+    public void reorderingIsAdvisedEvenIfUnboxingMakesInstanceLarger()
+    {
+        // Given
+        JolResult.ClassLayout aClassLayout = createClassLayout(
+            32,
+            new JolResult.FieldLayout("fObject", "java.lang.Object", 16, 8),
+            new JolResult.FieldLayout("fValue", "java.lang.Long", 24, 4));
+
+        // When
+        JolPackingAdvisor.Advice aAdvice = new JolPackingAdvisor(8, true).advise(aClassLayout);
+
+        // Then
+        assertNotNull(aAdvice);
+        assertEquals(24, aAdvice.getPackedSize());
+        assertEquals(32, aAdvice.getProjectedSize());
+        assertEquals(24, aAdvice.getBytesSaved());
+        assertEquals(16, aAdvice.getCandidates().get(0).getBytesSaved());
+    }
+
+
+    @Test
+    public void rawAdvisorIgnoresAlignment()
+    {
+        // Given
+        JolResult.ClassLayout aClassLayout = createClassLayout(
+            24,
+            new JolResult.FieldLayout("fByte", "byte", 12, 1),
+            new JolResult.FieldLayout("fLong", "java.lang.Object", 16, 8));
+
+        // When
+        JolPackingAdvisor.Advice aAdvice = new JolPackingAdvisor(1, false).advise(aClassLayout);
+
+        // Then
+        assertNotNull(aAdvice);
+        assertEquals(21, aAdvice.getPackedSize());
+    }
+
+
+    static private JolResult.ClassLayout createClassLayout(long pInstanceSize, JolResult.FieldLayout... pFields)
+    {
+        return new JolResult.ClassLayout("C", "org.myire", null, 12, pInstanceSize, Arrays.asList(pFields));
+    }
+
+
+    static private void assertCandidate(
+        JolPackingAdvisor.Candidate pCandidate,
+        JolPackingAdvisor.Candidate.Kind pKind,
+        String pField,
+        String pToType)
+    {
+        assertEquals(pKind, pCandidate.getKind());
+        assertEquals(pField, pCandidate.getField());
+        assertEquals(pToType, pCandidate.getToType());
+    }
+}
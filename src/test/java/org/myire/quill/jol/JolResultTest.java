@@ -1,5 +1,5 @@
 /*
- * Copyright 2020 Peter Franzen. All rights reserved.
+ * Copyright 2020, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
@@ -8,10 +8,16 @@ package org.myire.quill.jol;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 
 /**
@@ -182,4 +188,120 @@ public class JolResultTest
         assertEquals(0, aPackages.get(1).getInternalAlignmentGapSize());
         assertEquals(0, aPackages.get(1).getExternalAlignmentGapSize());
     }
+
+
+    @Test
+    public void classesWithSameNameAreOrderedOnBinaryName()
+    {
+        // Given
+        JolResult aResult = new JolResult("v", "d");
+        String aPackageName = "org.myire";
+
+        // When
+        aResult.add(new JolResult.ClassLayout("", aPackageName, "Outer", "org.myire.Outer$2", 12, 16, Collections.emptyList()));
+        aResult.add(new JolResult.ClassLayout("", aPackageName, "Outer", "org.myire.Outer$1", 12, 16, Collections.emptyList()));
+        aResult.add(new JolResult.ClassLayout("Inner", aPackageName, "Outer", null, 12, 16, Collections.emptyList()));
+
+        // Then
+        List<String> aBinaryNames = new ArrayList<>();
+        for (JolResult.PackageLayout aPackage : aResult.getPackages())
+            for (JolResult.ClassLayout aClass : aPackage.getClasses())
+                aBinaryNames.add(aClass.getBinaryName());
+
+        assertEquals(Arrays.asList("org.myire.Outer$1", "org.myire.Outer$2", "org.myire.Outer$Inner"), aBinaryNames);
+    }
+
+
+    @Test
+    public void classLayoutsCanBeAddedConcurrently() throws InterruptedException
+    {
+        // Given
+        int aNumThreads = 4;
+        int aNumPackages = 10;
+        int aNumClassesPerThread = 1000;
+        JolResult.FieldLayout aField = new JolResult.FieldLayout("f", "int", 12, 4);
+        JolResult aResult = new JolResult("v", "d");
+        CountDownLatch aStartSignal = new CountDownLatch(1);
+
+        // When
+        // All threads add anonymous classes with the same names to the same packages, the classes
+        // only differ in their binary names.
+        ExecutorService aExecutor = Executors.newFixedThreadPool(aNumThreads);
+        for (int i=0; i<aNumThreads; i++)
+        {
+            int aThread = i;
+            aExecutor.submit(() -> {
+                aStartSignal.await();
+                for (int j=0; j<aNumClassesPerThread; j++)
+                {
+                    String aPackageName = "p" + (j % aNumPackages);
+                    String aEnclosingClassName = "C" + j;
+                    aResult.add(
+                        new JolResult.ClassLayout(
+                            "",
+                            aPackageName,
+                            aEnclosingClassName,
+                            aPackageName + '.' + aEnclosingClassName + '$' + (aThread + 1),
+                            12,
+                            24,
+                            Collections.singletonList(aField)));
+                }
+                return null;
+            });
+        }
+
+        aStartSignal.countDown();
+        aExecutor.shutdown();
+        assertTrue(aExecutor.awaitTermination(1, TimeUnit.MINUTES));
+
+        // Then
+        assertEquals(aNumPackages, aResult.getNumPackages());
+        assertEquals(aNumThreads * aNumClassesPerThread * 8, aResult.getExternalAlignmentGapSize());
+
+        int aPackageIndex = 0;
+        for (JolResult.PackageLayout aPackage : aResult.getPackages())
+        {
+            String aPackageName = "p" + aPackageIndex;
+            assertEquals(aPackageName, aPackage.getName());
+            assertEquals(aNumThreads * aNumClassesPerThread / aNumPackages, aPackage.getNumClasses());
+
+            // The expected order is on enclosing class name, then on the binary name.
+            List<String> aExpectedNames = new ArrayList<>();
+            for (int j=aPackageIndex; j<aNumClassesPerThread; j+=aNumPackages)
+                for (int t=1; t<=aNumThreads; t++)
+                    aExpectedNames.add(aPackageName + ".C" + j + '$' + t);
+            aExpectedNames.sort(Comparator.comparing((String n) -> n.substring(0, n.indexOf('$')) + '.'));
+
+            List<String> aNames = new ArrayList<>();
+            for (JolResult.ClassLayout aClass : aPackage.getClasses())
+                aNames.add(aClass.getBinaryName());
+
+            assertEquals(aExpectedNames, aNames);
+            aPackageIndex++;
+        }
+    }
+
+
+    @Test
+    public void matrixResultsAreReturnedInOrder()
+    {
+        // Given
+        JolResult aResult = new JolResult("v", "main");
+        JolResult aFirst = new JolResult("v", "first");
+        JolResult aSecond = new JolResult("v", "second");
+
+        // When
+        aResult.addMatrixResult(aFirst);
+        aResult.addMatrixResult(aSecond);
+
+        // Then
+        assertEquals(Arrays.asList(aFirst, aSecond), aResult.getMatrixResults());
+    }
+
+
+    @Test(expected = NullPointerException.class)
+    public void addMatrixResultThrowsForNull()
+    {
+        new JolResult("v", "d").addMatrixResult(null);
+    }
 }
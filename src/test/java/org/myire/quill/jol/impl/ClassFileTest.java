@@ -0,0 +1,218 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.jol.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Unit tests for {@code ClassFile}.
+ *
+ * @author <a href="mailto:peter@myire.org">Peter Franzen</a>
+ */
+public class ClassFileTest
+{
+    @Test
+    public void namesOfTopLevelClassAreParsed() throws IOException
+    {
+        // When
+        ClassFile aClassFile = parse(ClassFileTest.class);
+
+        // Then
+        assertEquals(ClassFileTest.class.getName(), aClassFile.getName());
+        assertEquals("ClassFileTest", aClassFile.getSimpleName());
+        assertEquals("org.myire.quill.jol.impl", aClassFile.getPackageName());
+        assertEquals("java.lang.Object", aClassFile.getSuperClassName());
+        assertNull(aClassFile.getEnclosingClassName());
+    }
+
+
+    @Test
+    public void superClassOfObjectIsNull() throws IOException
+    {
+        // When
+        ClassFile aClassFile = parse(Object.class);
+
+        // Then
+        assertNull(aClassFile.getSuperClassName());
+    }
+
+
+    @Test
+    public void instanceFieldsAreParsedInDeclarationOrder() throws IOException
+    {
+        // When
+        ClassFile aClassFile = parse(Fields.class);
+
+        // Then
+        List<ClassFile.Field> aFields = aClassFile.getFields();
+        assertEquals(4, aFields.size());
+        assertField(aFields.get(0), "fInt", "int");
+        assertField(aFields.get(1), "fString", "java.lang.String");
+        assertField(aFields.get(2), "fLongs", "long[][]");
+        assertField(aFields.get(3), "fNested", Fields.class.getName() + "[]");
+    }
+
+
+    @Test
+    public void namesOfNestedClassAreParsed() throws IOException
+    {
+        // When
+        ClassFile aClassFile = parse(Fields.class);
+
+        // Then
+        assertEquals("Fields", aClassFile.getSimpleName());
+        assertEquals(ClassFileTest.class.getName(), aClassFile.getEnclosingClassName());
+        assertEquals("org.myire.quill.jol.impl.ClassFileTest$Base", aClassFile.getSuperClassName());
+    }
+
+
+    @Test
+    public void namesOfAnonymousClassAreParsed() throws IOException
+    {
+        // Given
+        Object aAnonymous = new Object() {};
+
+        // When
+        ClassFile aClassFile = parse(aAnonymous.getClass());
+
+        // Then
+        assertEquals("", aClassFile.getSimpleName());
+        assertEquals(ClassFileTest.class.getName(), aClassFile.getEnclosingClassName());
+    }
+
+
+    @Test
+    public void namesOfLocalClassAreParsed() throws IOException
+    {
+        // Given
+        class Local {}
+
+        // When
+        ClassFile aClassFile = parse(Local.class);
+
+        // Then
+        assertEquals("Local", aClassFile.getSimpleName());
+        assertEquals(ClassFileTest.class.getName(), aClassFile.getEnclosingClassName());
+    }
+
+
+    @Test
+    public void volatileModifierIsParsedAndAnnotationsAreSkipped() throws IOException
+    {
+        // When
+        ClassFile aClassFile = parse(ConcurrentFields.class);
+
+        // Then
+        List<ClassFile.Field> aFields = aClassFile.getFields();
+        assertEquals(2, aFields.size());
+        assertField(aFields.get(0), "fVolatile", "long");
+        assertTrue(aFields.get(0).fVolatile);
+        assertFalse(aFields.get(0).fContended);
+        assertField(aFields.get(1), "fPlain", "int");
+        assertFalse(aFields.get(1).fVolatile);
+        assertFalse(aFields.get(1).fContended);
+    }
+
+
+    @Test
+    public void digestIsSha256OfClassFileBytes() throws IOException, NoSuchAlgorithmException
+    {
+        // Given
+        byte[] aBytes;
+        try (InputStream aStream = ClassLoader.getSystemResourceAsStream("org/myire/quill/jol/impl/ClassFileTest$Fields.class"))
+        {
+            ByteArrayOutputStream aBuffer = new ByteArrayOutputStream();
+            int aByte;
+            while ((aByte = aStream.read()) >= 0)
+                aBuffer.write(aByte);
+
+            aBytes = aBuffer.toByteArray();
+        }
+
+        // When
+        ClassFile aClassFile = ClassFile.parse(new ByteArrayInputStream(aBytes));
+
+        // Then
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(aBytes), aClassFile.getDigest());
+    }
+
+
+    @Test(expected = IOException.class)
+    public void parseThrowsForInvalidClassFile() throws IOException
+    {
+        ClassFile.parse(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}));
+    }
+
+
+    static private ClassFile parse(Class<?> pClass) throws IOException
+    {
+        String aPath = pClass.getName().replace('.', '/') + ".class";
+        try (InputStream aStream = ClassLoader.getSystemResourceAsStream(aPath))
+        {
+            return ClassFile.parse(aStream);
+        }
+    }
+
+
+    static private void assertField(ClassFile.Field pField, String pName, String pType)
+    {
+        assertEquals(pName, pField.fName);
+        assertEquals(pType, pField.fType);
+    }
+
+
+    static private class Base
+    {
+        long fBase;
+    }
+
+
+    @Retention(RetentionPolicy.RUNTIME)
+    private @interface Annotated
+    {
+        String value();
+        ElementType[] types() default {};
+        Retention retention() default @Retention(RetentionPolicy.CLASS);
+    }
+
+
+    static private class ConcurrentFields
+    {
+        @Annotated(value = "v", types = {ElementType.FIELD, ElementType.TYPE})
+        volatile long fVolatile;
+
+        @Annotated("p")
+        int fPlain;
+    }
+
+
+    static private class Fields extends Base
+    {
+        static int cStatic;
+
+        int fInt;
+        String fString;
+        long[][] fLongs;
+        Fields[] fNested;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.jol.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.myire.quill.jol.JolResult;
+
+
+/**
+ * Unit tests for {@code JarLayoutCache}.
+ *
+ * @author <a href="mailto:peter@myire.org">Peter Franzen</a>
+ */
+public class JarLayoutCacheTest
+{
+    @Test
+    public void storedLayoutsAreRetrievedIfExternalClassesAreUnchanged() throws IOException
+    {
+        // Given
+        File aDirectory = Files.createTempDirectory("jol-jar-cache").toFile();
+        JarLayoutCache aCache = new JarLayoutCache(aDirectory, "settings");
+        try (ClassFileResolver aResolver = new ClassFileResolver(JarLayoutCacheTest.class.getClassLoader()))
+        {
+            Map<String, byte[]> aExternalClasses = Collections.singletonMap(
+                Object.class.getName(),
+                aResolver.resolve(Object.class.getName()).getDigest());
+            aCache.put("key", Collections.singletonList(createClassLayout("A")), aExternalClasses);
+
+            // When
+            List<JolResult.ClassLayout> aLayouts = aCache.get("key", aResolver);
+
+            // Then
+            assertNotNull(aLayouts);
+            assertEquals(1, aLayouts.size());
+            assertEquals("A", aLayouts.get(0).getClassName());
+        }
+    }
+
+
+    @Test
+    public void storedLayoutsAreIgnoredIfExternalClassHasChanged() throws IOException
+    {
+        // Given
+        File aDirectory = Files.createTempDirectory("jol-jar-cache").toFile();
+        JarLayoutCache aCache = new JarLayoutCache(aDirectory, "settings");
+        try (ClassFileResolver aResolver = new ClassFileResolver(JarLayoutCacheTest.class.getClassLoader()))
+        {
+            Map<String, byte[]> aExternalClasses =
+                Collections.singletonMap(Object.class.getName(), new byte[] {1, 2, 3});
+            aCache.put("key", Collections.singletonList(createClassLayout("A")), aExternalClasses);
+
+            // Then
+            assertNull(aCache.get("key", aResolver));
+        }
+    }
+
+
+    @Test
+    public void retainRemovesOtherEntries() throws IOException
+    {
+        // Given
+        File aDirectory = Files.createTempDirectory("jol-jar-cache").toFile();
+        JarLayoutCache aCache = new JarLayoutCache(aDirectory, "settings");
+        aCache.put("a", Collections.singletonList(createClassLayout("A")), Collections.emptyMap());
+        aCache.put("b", Collections.singletonList(createClassLayout("B")), Collections.emptyMap());
+
+        // When
+        aCache.retain(Collections.singleton("a"));
+
+        // Then
+        try (ClassFileResolver aResolver = new ClassFileResolver(JarLayoutCacheTest.class.getClassLoader()))
+        {
+            assertNotNull(aCache.get("a", aResolver));
+            assertNull(aCache.get("b", aResolver));
+        }
+    }
+
+
+    @Test
+    public void keyDependsOnPackageFilters() throws IOException
+    {
+        // Given
+        File aJar = Files.createTempFile("jol", ".jar").toFile();
+        Files.write(aJar.toPath(), new byte[] {1, 2, 3, 4});
+        JarLayoutCache aCache = new JarLayoutCache(aJar.getParentFile(), "settings");
+
+        // When
+        String aKey = aCache.computeKey(aJar, Collections.emptyList(), Collections.emptyList());
+        String aIncludeKey = aCache.computeKey(aJar, Collections.singletonList("org"), Collections.emptyList());
+        String aExcludeKey = aCache.computeKey(aJar, Collections.emptyList(), Collections.singletonList("org"));
+
+        // Then
+        assertEquals(aKey, aCache.computeKey(aJar, Collections.emptyList(), Collections.emptyList()));
+        assertNotEquals(aKey, aIncludeKey);
+        assertNotEquals(aKey, aExcludeKey);
+        assertNotEquals(aIncludeKey, aExcludeKey);
+    }
+
+
+    @Test
+    public void keyDependsOnJarContents() throws IOException
+    {
+        // Given
+        File aJar = Files.createTempFile("jol", ".jar").toFile();
+        aJar.deleteOnExit();
+        Files.write(aJar.toPath(), new byte[] {1, 2, 3, 4});
+        JarLayoutCache aCache = new JarLayoutCache(aJar.getParentFile(), "settings");
+        String aKey = aCache.computeKey(aJar, Collections.emptyList(), Collections.emptyList());
+
+        // When
+        Files.write(aJar.toPath(), new byte[] {1, 2, 3, 5});
+        String aModifiedKey = aCache.computeKey(aJar, Collections.emptyList(), Collections.emptyList());
+
+        // Then
+        assertTrue(aKey.matches("[0-9a-f]{64}"));
+        assertNotEquals(aKey, aModifiedKey);
+    }
+
+
+    static private JolResult.ClassLayout createClassLayout(String pName)
+    {
+        return new JolResult.ClassLayout(pName, "", null, 12, 16, Collections.emptyList());
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.jol.impl;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.myire.quill.jol.JolResult;
+
+
+/**
+ * Unit tests for {@code LayoutCache}.
+ *
+ * @author <a href="mailto:peter@myire.org">Peter Franzen</a>
+ */
+public class LayoutCacheTest
+{
+    @Test
+    public void savedLayoutIsRetrievedAfterLoad() throws IOException
+    {
+        // Given
+        File aDirectory = Files.createTempDirectory("jol-cache").toFile();
+        JolResult.ClassLayout aClassLayout =
+            new JolResult.ClassLayout(
+                "Inner",
+                "org.myire",
+                "Outer",
+                12,
+                32,
+                Arrays.asList(
+                    new JolResult.FieldLayout("fInt", "int", 12, 4),
+                    new JolResult.FieldLayout("fLong", "long", 24, 8, true, true)));
+        LayoutCache aCache = new LayoutCache(aDirectory, "settings");
+        aCache.put("key", aClassLayout);
+        aCache.save();
+
+        // When
+        LayoutCache aLoadedCache = new LayoutCache(aDirectory, "settings");
+        aLoadedCache.load();
+        JolResult.ClassLayout aLoadedLayout = aLoadedCache.get("key");
+
+        // Then
+        assertNotNull(aLoadedLayout);
+        assertEquals(aClassLayout.getFullyQualifiedName(), aLoadedLayout.getFullyQualifiedName());
+        assertEquals(aClassLayout.getHeaderSize(), aLoadedLayout.getHeaderSize());
+        assertEquals(aClassLayout.getInstanceSize(), aLoadedLayout.getInstanceSize());
+        assertEquals(aClassLayout.getInternalAlignmentGapSize(), aLoadedLayout.getInternalAlignmentGapSize());
+        assertEquals(aClassLayout.getNumFields(), aLoadedLayout.getNumFields());
+        assertEquals(toStrings(aClassLayout.getFields()), toStrings(aLoadedLayout.getFields()));
+        assertEquals(1, aLoadedCache.getNumRetrievedEntries());
+    }
+
+
+    @Test
+    public void binaryNameIsRetrievedAfterLoad() throws IOException
+    {
+        // Given
+        File aDirectory = Files.createTempDirectory("jol-cache").toFile();
+        LayoutCache aCache = new LayoutCache(aDirectory, "settings");
+        aCache.put("key", new JolResult.ClassLayout("", "org.myire", "Outer", "org.myire.Outer$1", 12, 16, new ArrayList<>()));
+        aCache.save();
+
+        // When
+        LayoutCache aLoadedCache = new LayoutCache(aDirectory, "settings");
+        aLoadedCache.load();
+
+        // Then
+        assertEquals("org.myire.Outer$1", aLoadedCache.get("key").getBinaryName());
+    }
+
+
+    @Test
+    public void cacheFileWithOtherFormatVersionIsIgnored() throws IOException
+    {
+        // Given
+        File aDirectory = Files.createTempDirectory("jol-cache").toFile();
+        try (DataOutputStream aStream = new DataOutputStream(new FileOutputStream(new File(aDirectory, "layouts.bin"))))
+        {
+            aStream.writeInt(LayoutCache.FORMAT_VERSION - 1);
+            aStream.writeInt(1);
+            aStream.writeUTF("key");
+        }
+
+        // When
+        LayoutCache aCache = new LayoutCache(aDirectory, "settings");
+        aCache.load();
+
+        // Then
+        assertNull(aCache.get("key"));
+    }
+
+
+    @Test
+    public void unusedEntriesAreDroppedWhenSaved() throws IOException
+    {
+        // Given
+        File aDirectory = Files.createTempDirectory("jol-cache").toFile();
+        LayoutCache aCache = new LayoutCache(aDirectory, "settings");
+        aCache.put("a", createClassLayout("A"));
+        aCache.put("b", createClassLayout("B"));
+        aCache.save();
+
+        // When
+        aCache = new LayoutCache(aDirectory, "settings");
+        aCache.load();
+        aCache.get("a");
+        aCache.save();
+
+        // Then
+        aCache = new LayoutCache(aDirectory, "settings");
+        aCache.load();
+        assertNotNull(aCache.get("a"));
+        assertNull(aCache.get("b"));
+    }
+
+
+    @Test
+    public void keyDependsOnSettingsAndSuperclasses()
+    {
+        // Given
+        try (ClassFileResolver aResolver = new ClassFileResolver(LayoutCacheTest.class.getClassLoader()))
+        {
+            LayoutCache aCache = new LayoutCache(new File("."), "settings");
+            LayoutCache aOtherCache = new LayoutCache(new File("."), "other settings");
+
+            // When
+            String aKey = aCache.computeKey(Sub.class.getName(), aResolver);
+            String aOtherSettingsKey = aOtherCache.computeKey(Sub.class.getName(), aResolver);
+            String aSuperKey = aCache.computeKey(Base.class.getName(), aResolver);
+
+            // Then
+            assertTrue(aKey.matches("[0-9a-f]{64}"));
+            assertEquals(aKey, aCache.computeKey(Sub.class.getName(), aResolver));
+            assertNotEquals(aKey, aOtherSettingsKey);
+            assertNotEquals(aKey, aSuperKey);
+        }
+    }
+
+
+    @Test
+    public void keyIsNullForMissingClassFile()
+    {
+        // Given
+        try (ClassFileResolver aResolver = new ClassFileResolver(LayoutCacheTest.class.getClassLoader()))
+        {
+            LayoutCache aCache = new LayoutCache(new File("."), "settings");
+
+            // Then
+            assertNull(aCache.computeKey("org.myire.NoSuchClass", aResolver));
+        }
+    }
+
+
+    static private JolResult.ClassLayout createClassLayout(String pName)
+    {
+        return new JolResult.ClassLayout(pName, "", null, 12, 16, new ArrayList<>());
+    }
+
+
+    static private List<String> toStrings(Iterable<JolResult.FieldLayout> pFields)
+    {
+        List<String> aStrings = new ArrayList<>();
+        for (JolResult.FieldLayout aField : pFields)
+            aStrings.add(
+                aField.getName() + ':' + aField.getType() + ':' + aField.getOffset() + ':' + aField.getSize()
+                + ':' + aField.isVolatile() + ':' + aField.isContended());
+
+        return aStrings;
+    }
+
+
+    static private class Base
+    {
+        long fBase;
+    }
+
+
+    static private class Sub extends Base
+    {
+        int fSub;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import javax.xml.stream.XMLStreamConstants;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+
+/**
+ * JUnit tests for {@code ReportBuilder}.
+ */
+public class ReportBuilderTest
+{
+    @Test
+    public void fragmentHasSameDestination() throws IOException
+    {
+        // Given
+        File aDestination = createTempFile();
+        ReportBuilder aBuilder = new ReportBuilder(aDestination);
+
+        // When
+        ReportBuilder aFragment = aBuilder.createFragment();
+        aBuilder.close();
+
+        // Then
+        assertSame(aDestination, aFragment.getDestination());
+    }
+
+
+    @Test
+    public void fragmentsAreAppendedInOrder() throws IOException
+    {
+        // Given
+        File aDestination = createTempFile();
+        ReportBuilder aBuilder = new ReportBuilder(aDestination);
+        ReportBuilder aFirst = aBuilder.createFragment();
+        ReportBuilder aSecond = aBuilder.createFragment();
+        aSecond.write("second", StandardCharsets.UTF_8);
+        aFirst.write("first", StandardCharsets.UTF_8);
+
+        // When
+        aBuilder.write("<", StandardCharsets.UTF_8);
+        aBuilder.append(aFirst);
+        aBuilder.append(aSecond);
+        aBuilder.write(">", StandardCharsets.UTF_8);
+        aBuilder.close();
+
+        // Then
+        assertEquals("<firstsecond>", new String(Files.readAllBytes(aDestination.toPath()), StandardCharsets.UTF_8));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void appendThrowsForNonFragment() throws IOException
+    {
+        // Given
+        ReportBuilder aBuilder = new ReportBuilder(createTempFile());
+        ReportBuilder aOther = new ReportBuilder(createTempFile());
+
+        try
+        {
+            // When
+            aBuilder.append(aOther);
+        }
+        finally
+        {
+            aBuilder.close();
+            aOther.close();
+        }
+    }
+
+
+    @Test
+    public void transformWithExtractorWritesSameResult() throws IOException
+    {
+        // Given
+        File aXmlFile = createXmlFile("<report><item name=\"a\"/><item name=\"b\"/></report>");
+        File aXslFile = createXslFile("<xsl:for-each select=\"report/item\"><xsl:value-of select=\"@name\"/></xsl:for-each>");
+        File aPlainDestination = createTempFile();
+        File aExtractingDestination = createTempFile();
+
+        // When
+        ReportBuilder aPlainBuilder = new ReportBuilder(aPlainDestination);
+        aPlainBuilder.transform(aXmlFile, aXslFile, Collections.emptyMap());
+        aPlainBuilder.close();
+        ReportBuilder aExtractingBuilder = new ReportBuilder(aExtractingDestination);
+        String aSummary = aExtractingBuilder.transform(
+            aXmlFile,
+            aXslFile,
+            Collections.emptyMap(),
+            (r, w) -> {
+                int aNumItems = 0;
+                while (r.hasNext())
+                    if (r.next() == XMLStreamConstants.START_ELEMENT && "item".equals(r.getLocalName()))
+                        aNumItems++;
+                w.writeEmptyElement("summary");
+                w.writeAttribute("items", String.valueOf(aNumItems));
+            });
+        aExtractingBuilder.close();
+
+        // Then
+        assertEquals("<summary items=\"2\"/>", aSummary);
+        assertEquals(readAll(aPlainDestination), readAll(aExtractingDestination));
+    }
+
+
+    @Test
+    public void transformWithExtractorTransformsEntireFileWhenExtractorStopsEarly() throws IOException
+    {
+        // Given
+        File aXmlFile = createXmlFile("<report version=\"1\"><item name=\"a\"/><item name=\"b\"/></report>");
+        File aXslFile = createXslFile("<xsl:for-each select=\"report/item\"><xsl:value-of select=\"@name\"/></xsl:for-each>");
+        File aDestination = createTempFile();
+
+        // When
+        ReportBuilder aBuilder = new ReportBuilder(aDestination);
+        String aSummary = aBuilder.transform(
+            aXmlFile,
+            aXslFile,
+            Collections.emptyMap(),
+            (r, w) -> {
+                r.nextTag();
+                w.writeEmptyElement("summary");
+                w.writeAttribute("version", r.getAttributeValue(null, "version"));
+            });
+        aBuilder.close();
+
+        // Then
+        assertEquals("<summary version=\"1\"/>", aSummary);
+        assertEquals("ab", readAll(aDestination));
+    }
+
+
+    static private File createXmlFile(String pXml) throws IOException
+    {
+        File aFile = Files.createTempFile("report", ".xml").toFile();
+        aFile.deleteOnExit();
+        Files.write(aFile.toPath(), pXml.getBytes(StandardCharsets.UTF_8));
+        return aFile;
+    }
+
+
+    static private File createXslFile(String pTemplate) throws IOException
+    {
+        File aFile = Files.createTempFile("report", ".xsl").toFile();
+        aFile.deleteOnExit();
+        String aXsl =
+            "<xsl:stylesheet xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\" version=\"1.0\">" +
+            "<xsl:output method=\"text\"/>" +
+            "<xsl:template match=\"/\">" + pTemplate + "</xsl:template>" +
+            "</xsl:stylesheet>";
+        Files.write(aFile.toPath(), aXsl.getBytes(StandardCharsets.UTF_8));
+        return aFile;
+    }
+
+
+    static private String readAll(File pFile) throws IOException
+    {
+        return new String(Files.readAllBytes(pFile.toPath()), StandardCharsets.UTF_8);
+    }
+
+
+    static private File createTempFile() throws IOException
+    {
+        File aFile = Files.createTempFile("report", ".html").toFile();
+        aFile.deleteOnExit();
+        return aFile;
+    }
+}
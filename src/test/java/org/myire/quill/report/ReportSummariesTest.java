@@ -0,0 +1,86 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+
+/**
+ * JUnit tests for {@code ReportSummaries}.
+ */
+public class ReportSummariesTest
+{
+    @Test
+    public void summaryFileIsNextToReport()
+    {
+        // Given
+        File aReport = new File("build/reports/cpd/cpd.html");
+
+        // When
+        File aSummaryFile = ReportSummaries.getSummaryFile(aReport);
+
+        // Then
+        assertEquals(new File("build/reports/cpd/cpd.summary.xml").getAbsoluteFile(), aSummaryFile);
+    }
+
+
+    @Test
+    public void summaryFileNameForReportWithoutExtensionHasSuffix()
+    {
+        // Given
+        File aReport = new File("build/reports/report");
+
+        // Then
+        assertEquals("report.summary.xml", ReportSummaries.getSummaryFile(aReport).getName());
+    }
+
+
+    @Test
+    public void writtenSummaryReplacesPreviousSummary() throws IOException
+    {
+        // Given
+        File aReport = createReport();
+        ReportSummaries.write(aReport, "<a/>");
+
+        // When
+        ReportSummaries.write(aReport, "<b/>");
+
+        // Then
+        File aSummaryFile = ReportSummaries.getSummaryFile(aReport);
+        aSummaryFile.deleteOnExit();
+        assertEquals("<b/>", new String(Files.readAllBytes(aSummaryFile.toPath()), StandardCharsets.UTF_8));
+    }
+
+
+    @Test
+    public void nullSummaryDeletesPreviousSummary() throws IOException
+    {
+        // Given
+        File aReport = createReport();
+        ReportSummaries.write(aReport, "<a/>");
+
+        // When
+        ReportSummaries.write(aReport, null);
+
+        // Then
+        assertFalse(ReportSummaries.getSummaryFile(aReport).exists());
+    }
+
+
+    static private File createReport() throws IOException
+    {
+        File aFile = Files.createTempFile("report", ".html").toFile();
+        aFile.deleteOnExit();
+        return aFile;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+
+/**
+ * JUnit tests for {@code TemplatesCache}.
+ */
+public class TemplatesCacheTest
+{
+    static private final String XSL_RESOURCE = "/org/myire/quill/rsrc/report/jol/jol.xsl";
+    static private final String XSL =
+        "<xsl:stylesheet xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\" version=\"1.0\">" +
+        "<xsl:template match=\"/\">%s</xsl:template>" +
+        "</xsl:stylesheet>";
+
+
+    @Test
+    public void resourceIsOnlyCompiledOnce() throws IOException, TransformerException
+    {
+        // Given
+        TemplatesCache aCache = new TemplatesCache(TransformerFactory.newInstance());
+
+        // When
+        Templates aFirst = aCache.get(XSL_RESOURCE);
+        Templates aSecond = aCache.get(XSL_RESOURCE);
+
+        // Then
+        assertSame(aFirst, aSecond);
+        assertEquals(1, aCache.getNumCompilations());
+    }
+
+
+    @Test
+    public void missingResourceReturnsNull() throws IOException, TransformerException
+    {
+        // Given
+        TemplatesCache aCache = new TemplatesCache(TransformerFactory.newInstance());
+
+        // Then
+        assertNull(aCache.get("/no/such/resource.xsl"));
+    }
+
+
+    @Test
+    public void unmodifiedFileIsOnlyCompiledOnce() throws IOException, TransformerException
+    {
+        // Given
+        File aXslFile = createXslFile("a");
+        TemplatesCache aCache = new TemplatesCache(TransformerFactory.newInstance());
+
+        // When
+        Templates aFirst = aCache.get(aXslFile);
+        Templates aSecond = aCache.get(aXslFile);
+
+        // Then
+        assertSame(aFirst, aSecond);
+        assertEquals(1, aCache.getNumCompilations());
+    }
+
+
+    @Test
+    public void modifiedFileIsCompiledAgain() throws IOException, TransformerException
+    {
+        // Given
+        File aXslFile = createXslFile("a");
+        TemplatesCache aCache = new TemplatesCache(TransformerFactory.newInstance());
+        Templates aFirst = aCache.get(aXslFile);
+
+        // When
+        Files.write(aXslFile.toPath(), String.format(XSL, "b").getBytes(StandardCharsets.UTF_8));
+        Templates aSecond = aCache.get(aXslFile);
+
+        // Then
+        assertNotSame(aFirst, aSecond);
+        assertEquals(2, aCache.getNumCompilations());
+    }
+
+
+    @Test
+    public void rewrittenFileWithSameContentsIsOnlyCompiledOnce() throws IOException, TransformerException
+    {
+        // Given
+        File aXslFile = createXslFile("a");
+        TemplatesCache aCache = new TemplatesCache(TransformerFactory.newInstance());
+        Templates aFirst = aCache.get(aXslFile);
+
+        // When
+        Files.write(aXslFile.toPath(), String.format(XSL, "a").getBytes(StandardCharsets.UTF_8));
+        aXslFile.setLastModified(aXslFile.lastModified() + 10000);
+        Templates aSecond = aCache.get(aXslFile);
+
+        // Then
+        assertSame(aFirst, aSecond);
+        assertEquals(1, aCache.getNumCompilations());
+    }
+
+
+    @Test
+    public void fileWithModifiedImportIsCompiledAgain() throws IOException, TransformerException
+    {
+        // Given
+        File aImportedFile = createXslFile("a");
+        File aXslFile = createImportingXslFile(aImportedFile);
+        TemplatesCache aCache = new TemplatesCache(TransformerFactory.newInstance());
+        Templates aFirst = aCache.get(aXslFile);
+
+        // When
+        Files.write(aImportedFile.toPath(), String.format(XSL, "b").getBytes(StandardCharsets.UTF_8));
+        Templates aSecond = aCache.get(aXslFile);
+
+        // Then
+        assertNotSame(aFirst, aSecond);
+        assertEquals(2, aCache.getNumCompilations());
+    }
+
+
+    @Test
+    public void fileWithUnmodifiedImportIsOnlyCompiledOnce() throws IOException, TransformerException
+    {
+        // Given
+        File aXslFile = createImportingXslFile(createXslFile("a"));
+        TemplatesCache aCache = new TemplatesCache(TransformerFactory.newInstance());
+
+        // When
+        Templates aFirst = aCache.get(aXslFile);
+        Templates aSecond = aCache.get(aXslFile);
+
+        // Then
+        assertSame(aFirst, aSecond);
+        assertEquals(1, aCache.getNumCompilations());
+    }
+
+
+    @Test
+    public void leastRecentlyUsedFileIsEvicted() throws IOException, TransformerException
+    {
+        // Given
+        File aXslFile1 = createXslFile("a");
+        File aXslFile2 = createXslFile("b");
+        File aXslFile3 = createXslFile("c");
+        TemplatesCache aCache = new TemplatesCache(TransformerFactory.newInstance(), 2);
+        aCache.get(aXslFile1);
+        aCache.get(aXslFile2);
+        aCache.get(aXslFile1);
+
+        // When
+        aCache.get(aXslFile3);
+        aCache.get(aXslFile1);
+        aCache.get(aXslFile2);
+
+        // Then (file 2 was evicted when file 3 was added)
+        assertEquals(4, aCache.getNumCompilations());
+    }
+
+
+    static private File createImportingXslFile(File pImportedFile) throws IOException
+    {
+        File aFile = Files.createTempFile("importing", ".xsl").toFile();
+        aFile.deleteOnExit();
+        String aXsl =
+            "<xsl:stylesheet xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\" version=\"1.0\">" +
+            "<xsl:import href=\"" + pImportedFile.getName() + "\"/>" +
+            "</xsl:stylesheet>";
+        Files.write(aFile.toPath(), aXsl.getBytes(StandardCharsets.UTF_8));
+        return aFile;
+    }
+
+
+    static private File createXslFile(String pOutput) throws IOException
+    {
+        File aFile = Files.createTempFile("templates", ".xsl").toFile();
+        aFile.deleteOnExit();
+        Files.write(aFile.toPath(), String.format(XSL, pOutput).getBytes(StandardCharsets.UTF_8));
+        return aFile;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.scent.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.myire.scent.metrics.JavaMetrics;
+
+import org.myire.quill.test.FileBasedTest;
+
+
+/**
+ * Unit tests for {@code MetricsCache}.
+ */
+public class MetricsCacheTest extends FileBasedTest
+{
+    static private final String SETTINGS = "languageLevel=8";
+
+
+    /**
+     * The key of an unmodified file should find the entry stored for the file.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void unmodifiedFileIsCacheHit() throws IOException
+    {
+        // Given
+        MetricsCache aCache = new MetricsCache(createCacheDirectory(), SETTINGS);
+        Path aFile = createTemporaryFile("Cached", ".java", Collections.singletonList("class Cached {}"));
+        aCache.put(aCache.computeKey(aFile), new JavaMetrics());
+
+        // When
+        String aKey = aCache.computeKey(aFile);
+
+        // Then
+        assertTrue(aCache.contains(aKey));
+        assertTrue(aCache.getEntryFile(aKey).isFile());
+    }
+
+
+    /**
+     * Modifying the contents of a file should give the file a new key without an entry.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void modifiedFileIsCacheMiss() throws IOException
+    {
+        // Given
+        MetricsCache aCache = new MetricsCache(createCacheDirectory(), SETTINGS);
+        Path aFile = createTemporaryFile("Cached", ".java", Collections.singletonList("class Cached {}"));
+        String aOriginalKey = aCache.computeKey(aFile);
+        aCache.put(aOriginalKey, new JavaMetrics());
+
+        // When
+        Files.write(aFile, Collections.singletonList("class Cached { int i; }"));
+        String aModifiedKey = aCache.computeKey(aFile);
+
+        // Then
+        assertNotEquals(aOriginalKey, aModifiedKey);
+        assertFalse(aCache.contains(aModifiedKey));
+    }
+
+
+    /**
+     * Different settings should give a file different keys.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void modifiedSettingsGiveNewKey() throws IOException
+    {
+        // Given
+        File aDirectory = createCacheDirectory();
+        Path aFile = createTemporaryFile("Cached", ".java", Collections.singletonList("class Cached {}"));
+
+        // When
+        String aKey1 = new MetricsCache(aDirectory, SETTINGS).computeKey(aFile);
+        String aKey2 = new MetricsCache(aDirectory, "languageLevel=11").computeKey(aFile);
+
+        // Then
+        assertNotEquals(aKey1, aKey2);
+    }
+
+
+    /**
+     * Updating the index should remove the entries it doesn't reference, and the saved index
+     * should be loaded by a new cache instance.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void unreferencedEntriesAreRemovedWhenIndexIsUpdated() throws IOException
+    {
+        // Given
+        File aDirectory = createCacheDirectory();
+        MetricsCache aCache = new MetricsCache(aDirectory, SETTINGS);
+        Path aKeptFile = createTemporaryFile("Kept", ".java", Collections.singletonList("class Kept {}"));
+        Path aRemovedFile = createTemporaryFile("Removed", ".java", Collections.singletonList("class Removed {}"));
+        String aKeptKey = aCache.computeKey(aKeptFile);
+        String aRemovedKey = aCache.computeKey(aRemovedFile);
+        aCache.put(aKeptKey, new JavaMetrics());
+        aCache.put(aRemovedKey, new JavaMetrics());
+
+        // When
+        Map<Path, String> aIndex = new LinkedHashMap<>();
+        aIndex.put(aKeptFile, aKeptKey);
+        aCache.updateIndex(aIndex);
+
+        // Then
+        assertTrue(aCache.contains(aKeptKey));
+        assertFalse(aCache.contains(aRemovedKey));
+
+        MetricsCache aReloadedCache = new MetricsCache(aDirectory, SETTINGS);
+        aReloadedCache.loadIndex();
+        assertEquals(aKeptKey, aReloadedCache.getIndexedKey(aKeptFile));
+        assertNull(aReloadedCache.getIndexedKey(aRemovedFile));
+    }
+
+
+    private File createCacheDirectory() throws IOException
+    {
+        Path aDirectory = Files.createTempDirectory("metrics-cache");
+        addTemporaryFile(aDirectory);
+        return aDirectory.toFile();
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.scent.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.myire.quill.test.FileBasedTest;
+
+
+/**
+ * Unit tests for {@code MetricsReportMerger}.
+ */
+public class MetricsReportMergerTest extends FileBasedTest
+{
+    static private final String TEMPLATE =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+        "<scent-report date=\"2026-01-02\" time=\"03:04:05\" version=\"2.4\">\n" +
+        "  <summary packages=\"0\" compilation-units=\"0\" statements=\"0\"/>\n" +
+        "  <packages>\n" +
+        "  </packages>\n" +
+        "</scent-report>\n";
+
+
+    /**
+     * The summary attributes of the merged reports should be summed in the root summary and in
+     * the summaries of packages occurring in several reports.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void summaryAttributesAreSummed() throws IOException
+    {
+        // Given
+        MetricsReportMerger aMerger = new MetricsReportMerger();
+        aMerger.add(createReport(2, 10, "a", "A.java", 4, "b", "B.java", 6).toFile());
+        aMerger.add(createReport(1, 5, "a", "C.java", 5).toFile());
+
+        // When
+        Document aReport = write(aMerger, true);
+
+        // Then
+        Element aSummary = getChild(aReport.getDocumentElement(), "summary");
+        assertEquals("2", aSummary.getAttribute("packages"));
+        assertEquals("3", aSummary.getAttribute("compilation-units"));
+        assertEquals("15", aSummary.getAttribute("statements"));
+
+        List<Element> aPackages = getPackages(aReport);
+        assertEquals("2", getChild(aPackages.get(0), "summary").getAttribute("compilation-units"));
+        assertEquals("9", getChild(aPackages.get(0), "summary").getAttribute("statements"));
+        assertEquals("1", getChild(aPackages.get(1), "summary").getAttribute("compilation-units"));
+        assertEquals("6", getChild(aPackages.get(1), "summary").getAttribute("statements"));
+    }
+
+
+    /**
+     * The packages should be ordered by their first occurrence in the merged reports, and the
+     * contents of a package should be copied from the reports in the order they were added.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void packagesAreCopiedInFileOrder() throws IOException
+    {
+        // Given
+        MetricsReportMerger aMerger = new MetricsReportMerger();
+        aMerger.add(createReport(1, 1, "b", "B1.java", 1).toFile());
+        aMerger.add(createReport(2, 2, "a", "A1.java", 1, "b", "B2.java", 1).toFile());
+        aMerger.add(createReport(1, 1, "a", "A2.java", 1).toFile());
+
+        // When
+        Document aReport = write(aMerger, true);
+
+        // Then
+        List<String> aPackageNames = new ArrayList<>();
+        List<String> aUnitNames = new ArrayList<>();
+        for (Element aPackage : getPackages(aReport))
+        {
+            aPackageNames.add(aPackage.getAttribute("name"));
+            NodeList aUnits = aPackage.getElementsByTagName("compilation-unit");
+            for (int i=0; i<aUnits.getLength(); i++)
+                aUnitNames.add(((Element) aUnits.item(i)).getAttribute("name"));
+        }
+
+        assertEquals(Arrays.asList("b", "a"), aPackageNames);
+        assertEquals(Arrays.asList("B1.java", "B2.java", "A1.java", "A2.java"), aUnitNames);
+    }
+
+
+    /**
+     * The root element of the merged report should have the template's attributes, except for
+     * the timestamp attributes if they shouldn't be included.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void timestampIsLeftOutIfNotIncluded() throws IOException
+    {
+        // Given
+        MetricsReportMerger aMerger = new MetricsReportMerger();
+        aMerger.add(createReport(1, 1, "a", "A.java", 1).toFile());
+
+        // When
+        Element aWithTimestamp = write(aMerger, true).getDocumentElement();
+        Element aWithoutTimestamp = write(aMerger, false).getDocumentElement();
+
+        // Then
+        assertEquals("scent-report", aWithoutTimestamp.getTagName());
+        assertEquals("2026-01-02", aWithTimestamp.getAttribute("date"));
+        assertEquals("03:04:05", aWithTimestamp.getAttribute("time"));
+        assertFalse(aWithoutTimestamp.hasAttribute("date"));
+        assertFalse(aWithoutTimestamp.hasAttribute("time"));
+        assertEquals("2.4", aWithoutTimestamp.getAttribute("version"));
+    }
+
+
+    /**
+     * Merging no reports should produce a report with the template's summary and no packages.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void mergingNoReportsProducesEmptyReport() throws IOException
+    {
+        // When
+        Document aReport = write(new MetricsReportMerger(), true);
+
+        // Then
+        assertEquals("0", getChild(aReport.getDocumentElement(), "summary").getAttribute("packages"));
+        assertTrue(getPackages(aReport).isEmpty());
+    }
+
+
+    /**
+     * Create a report with packages that have one compilation unit each.
+     *
+     * @param pNumUnits         The number of compilation units in the report.
+     * @param pNumStatements    The number of statements in the report.
+     * @param pPackages         The packages as triples of package name, compilation unit name,
+     *                          and the number of statements in the package.
+     *
+     * @return  The path to the report.
+     *
+     * @throws IOException  if creating the report fails.
+     */
+    private Path createReport(int pNumUnits, int pNumStatements, Object... pPackages) throws IOException
+    {
+        List<String> aLines = new ArrayList<>();
+        aLines.add("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        aLines.add("<scent-report date=\"2025-12-31\" time=\"23:59:59\" version=\"2.4\">");
+        aLines.add("  <summary packages=\"" + (pPackages.length / 3) + "\" compilation-units=\"" + pNumUnits + "\" statements=\"" + pNumStatements + "\"/>");
+        aLines.add("  <packages>");
+        for (int i=0; i<pPackages.length; i+=3)
+        {
+            aLines.add("    <package name=\"" + pPackages[i] + "\">");
+            aLines.add("      <summary compilation-units=\"1\" statements=\"" + pPackages[i + 2] + "\"/>");
+            aLines.add("      <compilation-unit name=\"" + pPackages[i + 1] + "\">");
+            aLines.add("        <type name=\"T\" kind=\"class\"/>");
+            aLines.add("      </compilation-unit>");
+            aLines.add("    </package>");
+        }
+
+        aLines.add("  </packages>");
+        aLines.add("</scent-report>");
+        return createTemporaryFile("metrics", ".xml", aLines);
+    }
+
+
+    static private Document write(MetricsReportMerger pMerger, boolean pIncludeTimestamp) throws IOException
+    {
+        ByteArrayOutputStream aStream = new ByteArrayOutputStream();
+        pMerger.write(
+            new ByteArrayInputStream(TEMPLATE.getBytes(StandardCharsets.UTF_8)),
+            pIncludeTimestamp,
+            aStream);
+
+        return parse(new ByteArrayInputStream(aStream.toByteArray()));
+    }
+
+
+    static private Document parse(InputStream pStream) throws IOException
+    {
+        try
+        {
+            return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(pStream);
+        }
+        catch (ParserConfigurationException | SAXException e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+
+    static private List<Element> getPackages(Document pReport)
+    {
+        List<Element> aPackages = new ArrayList<>();
+        NodeList aElements = getChild(pReport.getDocumentElement(), "packages").getElementsByTagName("package");
+        for (int i=0; i<aElements.getLength(); i++)
+            aPackages.add((Element) aElements.item(i));
+
+        return aPackages;
+    }
+
+
+    static private Element getChild(Element pParent, String pName)
+    {
+        NodeList aChildren = pParent.getChildNodes();
+        for (int i=0; i<aChildren.getLength(); i++)
+            if (aChildren.item(i) instanceof Element && pName.equals(aChildren.item(i).getNodeName()))
+                return (Element) aChildren.item(i);
+
+        throw new AssertionError("No " + pName + " element in " + pParent.getNodeName());
+    }
+}
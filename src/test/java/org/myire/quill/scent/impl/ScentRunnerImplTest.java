@@ -0,0 +1,251 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.scent.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.myire.quill.scent.ScentParameters;
+import org.myire.quill.test.FileBasedTest;
+
+
+/**
+ * Unit tests for {@code ScentRunnerImpl}.
+ */
+public class ScentRunnerImplTest extends FileBasedTest
+{
+    /**
+     * A report merged from temporary reports should be equal to a report created from metrics
+     * collected in memory.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void streamingReportIsEqualToInMemoryReport() throws IOException
+    {
+        // Given
+        Collection<File> aSources = createSources();
+        ScentParameters aParameters = createParameters(1);
+        File aInMemoryReport = createReportFile();
+        File aStreamingReport = createReportFile();
+
+        // When
+        collect(aSources, aParameters, aInMemoryReport);
+        aParameters.setStreamingReport(true);
+        collect(aSources, aParameters, aStreamingReport);
+
+        // Then
+        assertSameReport(aInMemoryReport, aStreamingReport);
+    }
+
+
+    /**
+     * A report created from metrics collected in parallel should be identical to a report created
+     * from metrics collected on one thread.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void parallelReportIsIdenticalToSerialReport() throws IOException
+    {
+        // Given
+        Collection<File> aSources = createSources();
+        File aSerialReport = createReportFile();
+        File aParallelReport = createReportFile();
+
+        // When
+        collect(aSources, createParameters(1), aSerialReport);
+        collect(aSources, createParameters(4), aParallelReport);
+
+        // Then
+        assertArrayEquals(
+            Files.readAllBytes(aSerialReport.toPath()),
+            Files.readAllBytes(aParallelReport.toPath()));
+    }
+
+
+    /**
+     * The results of batches processed in parallel should be returned in the order of the
+     * batches in the item list.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void batchResultsAreInItemOrder() throws IOException
+    {
+        // Given
+        List<Integer> aItems = new ArrayList<>();
+        for (int i=0; i<100; i++)
+            aItems.add(Integer.valueOf(i));
+
+        // When
+        List<List<Integer>> aResults = new ScentRunnerImpl().processInBatches(aItems, 4, ArrayList::new);
+
+        // Then
+        assertTrue(aResults.size() > 1);
+        List<Integer> aProcessedItems = new ArrayList<>();
+        aResults.forEach(aProcessedItems::addAll);
+        assertEquals(aItems, aProcessedItems);
+    }
+
+
+    /**
+     * An exception thrown when processing one batch should be rethrown to the caller rather than
+     * leaving the batch's items out of the result.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void failingBatchFailsProcessing() throws IOException
+    {
+        // Given
+        List<Integer> aItems = new ArrayList<>();
+        for (int i=0; i<100; i++)
+            aItems.add(Integer.valueOf(i));
+
+        // When
+        new ScentRunnerImpl().processInBatches(
+            aItems,
+            4,
+            b -> {
+                if (b.contains(Integer.valueOf(50)))
+                    throw new IllegalArgumentException();
+                return Integer.valueOf(b.size());
+            });
+    }
+
+
+    /**
+     * Create source files in three directories, where the files of one package are located in
+     * two of the directories.
+     *
+     * @return  A collection with the directory containing the source files.
+     *
+     * @throws IOException  if creating the files fails.
+     */
+    private Collection<File> createSources() throws IOException
+    {
+        Path aRoot = Files.createTempDirectory("scent-sources");
+        addTemporaryFile(aRoot);
+        createSource(aRoot.resolve("dir1"), "a", "A1", "A2", "A3");
+        createSource(aRoot.resolve("dir2"), "b", "B1", "B2");
+        createSource(aRoot.resolve("dir3"), "a", "A4");
+        return Collections.singleton(aRoot.toFile());
+    }
+
+
+    static private void createSource(Path pDirectory, String pPackage, String... pClasses) throws IOException
+    {
+        Files.createDirectories(pDirectory);
+        for (String aClass : pClasses)
+            Files.write(
+                pDirectory.resolve(aClass + ".java"),
+                Arrays.asList(
+                    "package " + pPackage + ";",
+                    "public class " + aClass + " {",
+                    "    private int fValue;",
+                    "    public int getValue() {",
+                    "        if (fValue > 0)",
+                    "            return fValue;",
+                    "        return -1;",
+                    "    }",
+                    "}"));
+    }
+
+
+    static private ScentParameters createParameters(int pMaxParallelism)
+    {
+        ScentParameters aParameters = new ScentParameters();
+        aParameters.setMaxParallelism(pMaxParallelism);
+        aParameters.setIncludeTimestamp(false);
+        return aParameters;
+    }
+
+
+    private File createReportFile() throws IOException
+    {
+        return createTemporaryFile("scent", ".xml").toFile();
+    }
+
+
+    private void collect(Collection<File> pSources, ScentParameters pParameters, File pReport) throws IOException
+    {
+        Path aTemporaryDirectory = Files.createTempDirectory("scent-tmp");
+        addTemporaryFile(aTemporaryDirectory);
+        new ScentRunnerImpl().collectMetricsAsXml(
+            pSources,
+            StandardCharsets.UTF_8,
+            pParameters,
+            null,
+            null,
+            aTemporaryDirectory.toFile(),
+            pReport);
+    }
+
+
+    /**
+     * Assert that two reports have the same elements, attributes, and text, ignoring whitespace
+     * between elements.
+     *
+     * @param pExpected The expected report.
+     * @param pActual   The actual report.
+     *
+     * @throws IOException  if parsing any of the reports fails.
+     */
+    static private void assertSameReport(File pExpected, File pActual) throws IOException
+    {
+        assertTrue(parse(pExpected).isEqualNode(parse(pActual)));
+    }
+
+
+    static private Document parse(File pReport) throws IOException
+    {
+        try
+        {
+            Document aDocument = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(pReport);
+            removeWhitespace(aDocument.getDocumentElement());
+            return aDocument;
+        }
+        catch (ParserConfigurationException | SAXException e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+
+    static private void removeWhitespace(Node pNode)
+    {
+        Node aChild = pNode.getFirstChild();
+        while (aChild != null)
+        {
+            Node aNext = aChild.getNextSibling();
+            if (aChild.getNodeType() == Node.TEXT_NODE && aChild.getNodeValue().trim().isEmpty())
+                pNode.removeChild(aChild);
+            else
+                removeWhitespace(aChild);
+
+            aChild = aNext;
+        }
+    }
+}
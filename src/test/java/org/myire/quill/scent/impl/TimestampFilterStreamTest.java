@@ -0,0 +1,128 @@
+/*
+ * Copyright 2026 Peter Franzen. All rights reserved.
+ *
+ * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
+ */
+package org.myire.quill.scent.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Unit tests for {@code TimestampFilterStream}.
+ */
+public class TimestampFilterStreamTest
+{
+    /**
+     * An XML declaration and a comment before the root element should be passed on unmodified,
+     * and the timestamp attributes should be removed from the root element.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void declarationAndCommentBeforeRootElementArePassedOn() throws IOException
+    {
+        // Given
+        String aReport =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<!-- generated date=\"x\" -->\n" +
+            "<report date=\"2026-01-02\" time=\"03:04:05\" version=\"2.4\">\n" +
+            "<child date=\"2026-01-02\"/>\n" +
+            "</report>\n";
+
+        // When
+        String aFiltered = filter(aReport);
+
+        // Then
+        assertEquals(
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<!-- generated date=\"x\" -->\n" +
+            "<report version=\"2.4\">\n" +
+            "<child date=\"2026-01-02\"/>\n" +
+            "</report>\n",
+            aFiltered);
+    }
+
+
+    /**
+     * Timestamp attributes with values quoted with apostrophes or quotation marks, and with
+     * whitespace around the equals sign, should be removed.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void attributesWithBothQuoteCharactersAreRemoved() throws IOException
+    {
+        // Given
+        String aReport = "<report\n  date = '2026-01-02'\ttime=\"03:04:05\" version='2.4'/>";
+
+        // When
+        String aFiltered = filter(aReport);
+
+        // Then
+        assertEquals("<report version='2.4'/>", aFiltered);
+    }
+
+
+    /**
+     * A root element start tag written in several calls should have its timestamp attributes
+     * removed, and the bytes following the start tag in the last call should be passed on.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void startTagSplitAcrossWritesIsFiltered() throws IOException
+    {
+        // Given
+        byte[] aReport = "<report date=\"2026-01-02\" time=\"03:04:05\" version=\"2.4\"><a/></report>".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream aOutput = new ByteArrayOutputStream();
+
+        // When
+        try (TimestampFilterStream aStream = new TimestampFilterStream(aOutput))
+        {
+            aStream.write(aReport, 0, 10);
+            aStream.write(aReport, 10, 20);
+            aStream.write(aReport, 30, aReport.length - 30);
+        }
+
+        // Then
+        assertEquals("<report version=\"2.4\"><a/></report>", new String(aOutput.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * Bytes held back when the stream is closed before the root element's start tag is complete
+     * should be passed on unmodified.
+     *
+     * @throws IOException  if the test fails unexpectedly.
+     */
+    @Test
+    public void incompleteStartTagIsPassedOnWhenClosed() throws IOException
+    {
+        // Given
+        String aReport = "<?xml version=\"1.0\"?>\n<report date=\"2026-01-02\"";
+
+        // When
+        String aFiltered = filter(aReport);
+
+        // Then
+        assertEquals(aReport, aFiltered);
+    }
+
+
+    static private String filter(String pReport) throws IOException
+    {
+        ByteArrayOutputStream aOutput = new ByteArrayOutputStream();
+        try (TimestampFilterStream aStream = new TimestampFilterStream(aOutput))
+        {
+            aStream.write(pReport.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return new String(aOutput.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
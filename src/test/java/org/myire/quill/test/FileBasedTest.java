@@ -1,5 +1,5 @@
 /*
- * Copyright 2018-2020 Peter Franzen. All rights reserved.
+ * Copyright 2018-2020, 2026 Peter Franzen. All rights reserved.
  *
  * Licensed under the Apache License v2.0: http://www.apache.org/licenses/LICENSE-2.0
  */
@@ -26,7 +26,8 @@ public class FileBasedTest
 
 
     /**
-     * Delete all files created for the test.
+     * Delete all files created for the test. Directories are deleted together with any files
+     * created in them.
      *
      * @throws IOException  if deleting a file fails.
      */
@@ -34,7 +35,12 @@ public class FileBasedTest
     public void deleteTemporaryFiles() throws IOException
     {
         for (Path aPath : fCreatedFiles)
-            Files.deleteIfExists(aPath);
+        {
+            if (Files.isDirectory(aPath))
+                deepDelete(aPath);
+            else
+                Files.deleteIfExists(aPath);
+        }
     }
 
 